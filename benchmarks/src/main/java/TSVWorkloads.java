@@ -0,0 +1,264 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.zip.GZIPOutputStream;
+
+import benchmarks.Workloads;
+
+/**
+ * Class that implements the Workloads interface on top of the pipeline, its selections and its computations
+ * It lives in the default package, like them, so the benchmarks of the benchmarks package can reach them
+ *
+ * The generated files are written by TSVGenerator with a fixed seed, so every run measures the same data. The long
+ * columns hold LONG_CARDINALITY small values so the equality and outlier filters find records, and the String
+ * columns hold STRING_CARDINALITY distinct values
+ * @author Luiz do Valle
+ *
+ */
+public class TSVWorkloads implements Workloads {
+
+	/**
+	 * The seed of the generated files
+	 */
+	private static final long SEED = 42;
+	/**
+	 * The number of distinct values of each long column of the generated files
+	 */
+	private static final int LONG_CARDINALITY = 100;
+	/**
+	 * The number of distinct values of each String column of the generated files
+	 */
+	private static final int STRING_CARDINALITY = 1000;
+
+	@Override
+	public void generate(File file, int recordCount, int columnCount, double invalidRatio) throws IOException {
+
+		TSVGenerator.Builder builder = new TSVGenerator.Builder(recordCount).seed(SEED).malformed(invalidRatio);
+
+		for(int column = 0; column < columnCount; column++) {
+
+			if(column % 2 == 0) {
+
+				builder.longColumn("L" + column, LONG_CARDINALITY, 0);
+
+			} else {
+
+				builder.stringColumn("S" + column, STRING_CARDINALITY, 0);
+			}
+		}
+
+		if(!builder.done().write(file)) {
+
+			throw new IOException("The file " + file + " could not be generated");
+		}
+	}
+
+	@Override
+	public void compress(File source, File destination) throws IOException {
+
+		try (OutputStream output = new GZIPOutputStream(Files.newOutputStream(destination.toPath()), 64 * 1024)) {
+
+			Files.copy(source.toPath(), output);
+		}
+	}
+
+	@Override
+	public byte[][] readValidRecords(File file) throws IOException {
+
+		List<byte[]> lines = new ArrayList<>();
+		TSVReader reader = new TSVReader(file);
+
+		try {
+
+			TSVSchema schema = TSVSchema.read(reader);
+			ParsedRecord record = new ParsedRecord();
+
+			while(reader.nextLine()) {
+
+				record.parse(reader.getLineBuffer(), 0, reader.getLineLength());
+
+				if(schema.isRecordValid(record)) {
+
+					lines.add(Arrays.copyOf(reader.getLineBuffer(), reader.getLineLength()));
+				}
+			}
+
+		} finally {
+
+			reader.close();
+		}
+
+		return lines.toArray(new byte[0][]);
+	}
+
+	@Override
+	public Runnable pipeline(File file, String name) {
+
+		String path = file.getPath();
+		TSVFilter.WhichFile filter = new TSVFilter.WhichFile(path).outputPaths(path + ".out", path + ".invalid");
+
+		switch(name) {
+
+			case "no filter":
+			case "gzip input":
+				break;
+
+			case "select String":
+				filter.select("S1", "v7");
+				break;
+
+			case "select long":
+				filter.select("L2", 7);
+				break;
+
+			case "outlier":
+				filter.outlier("L2", 3);
+				break;
+
+			case "SUM":
+				filter.compute("L0", Terminal.SUM);
+				break;
+
+			case "gzip output":
+				filter.outputPaths(path + ".out.gz", path + ".invalid.gz").outputCompression(OutputCompression.GZIP);
+				break;
+
+			default:
+				throw new IllegalArgumentException("Unknown pipeline " + name);
+		}
+
+		TSVFilter tsvFilter = filter.done();
+
+		return () -> {
+
+			PrintStream console = System.out;
+
+			//The messages of doit() are not part of the measurement
+			System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+			try {
+
+				new TSVPipeline(tsvFilter).doit();
+
+			} finally {
+
+				System.setOut(console);
+			}
+		};
+	}
+
+	@Override
+	public Predicate<byte[]> selection(String name) {
+
+		ParsedRecord record = new ParsedRecord();
+		Selection selection;
+
+		switch(name) {
+
+			case "parse only":
+				return line -> {
+
+					record.parse(line, 0, line.length);
+					return record.getFieldCount() > 0;
+				};
+
+			case "NormalSelection String":
+				selection = new NormalSelection("S1", "v7", 1);
+				break;
+
+			case "NormalSelection long":
+				selection = new NormalSelection("L2", "7", 2);
+				break;
+
+			case "OutlierSelection":
+				selection = new OutlierSelection(2, 3);
+				break;
+
+			case "KeyedOutlierSelection":
+				selection = new KeyedOutlierSelection(2, 1, 3.0, 0.1, 0);
+				break;
+
+			default:
+				throw new IllegalArgumentException("Unknown selection " + name);
+		}
+
+		return line -> {
+
+			record.parse(line, 0, line.length);
+			return selection.isRecordWanted(record);
+		};
+	}
+
+	@Override
+	public Consumer<byte[]> terminal(String name) {
+
+		String[] parts = name.split(" ");
+		Terminal terminal = Terminal.valueOf(parts[0]);
+		boolean longColumn = parts[1].equals("long");
+
+		//SUM and QUANTILES are only defined on long columns
+		if((terminal == Terminal.SUM || terminal == Terminal.QUANTILES) && !longColumn) {
+
+			throw new IllegalArgumentException(terminal + " is not defined on String columns");
+		}
+
+		ParsedRecord record = new ParsedRecord();
+		Computation computation = createComputation(terminal, longColumn ? 2 : 1, longColumn);
+
+		return line -> {
+
+			record.parse(line, 0, line.length);
+			computation.compute(record);
+		};
+	}
+
+	/**
+	 * Method that creates the computation used by the TSVPipeline for a Terminal
+	 * @param terminal the terminal
+	 * @param column the column
+	 * @param longColumn whether the column holds longs
+	 * @return the computation
+	 */
+	private static Computation createComputation(Terminal terminal, int column, boolean longColumn) {
+
+		switch(terminal) {
+
+			case ALLSAME:
+				return new AllSameComputation();
+
+			case COUNT:
+				return new CountComputation();
+
+			case MIN:
+				return longColumn ? new LongMinComputation(column) : new MinComputation(column);
+
+			case MAX:
+				return longColumn ? new LongMaxComputation(column) : new MaxComputation(column);
+
+			case SUM:
+				return new SumComputation(column);
+
+			case FIRSTDIFF:
+				return new FirstDiffComputation(column);
+
+			case DISTINCT_APPROX:
+				return new DistinctApproxComputation(column);
+
+			case QUANTILES:
+				return new QuantilesComputation(column);
+
+			case TOPK:
+				return new TopKComputation(column);
+
+			default:
+				return new NullComputation();
+		}
+	}
+}
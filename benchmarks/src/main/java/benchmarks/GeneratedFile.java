@@ -0,0 +1,76 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Class that holds the file generated for a trial of a benchmark, in a temporary directory deleted after the trial
+ * Its parameters are the number of records, the number of columns and the fraction of invalid records of the file
+ * @author Luiz do Valle
+ *
+ */
+@State(Scope.Benchmark)
+public class GeneratedFile {
+
+	@Param({"100000", "1000000"})
+	public int recordCount;
+
+	@Param({"4", "16"})
+	public int columnCount;
+
+	@Param({"0.0", "0.05"})
+	public double invalidRatio;
+
+	/**
+	 * The work measured by the benchmarks
+	 */
+	public Workloads workloads;
+	/**
+	 * The generated file
+	 */
+	public File file;
+	/**
+	 * The directory of the generated file and of everything written next to it
+	 */
+	private Path directory;
+
+	/**
+	 * Method that generates the file
+	 * @throws IOException if the file cannot be written
+	 */
+	@Setup(Level.Trial)
+	public void generate() throws IOException {
+
+		workloads = Workloads.load();
+		directory = Files.createTempDirectory("tsv-benchmark");
+		file = directory.resolve("input.tsv").toFile();
+		workloads.generate(file, recordCount, columnCount, invalidRatio);
+	}
+
+	/**
+	 * Method that deletes the directory of the generated file
+	 * @throws IOException if the directory cannot be deleted
+	 */
+	@TearDown(Level.Trial)
+	public void delete() throws IOException {
+
+		try (Stream<Path> paths = Files.walk(directory)) {
+
+			for(Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+
+				Files.delete(path);
+			}
+		}
+	}
+}
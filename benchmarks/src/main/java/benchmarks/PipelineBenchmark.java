@@ -0,0 +1,113 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Class that measures TSVPipeline.doit() on a generated file, with no filter, with an equality filter on a String and
+ * on a long column, with an outlier filter, with a computation, writing gzip compressed output files, and on a gzip
+ * copy of the file
+ * Besides the runs per second, the records, bytes and fileBytes counters report the records per second, the
+ * uncompressed bytes per second and the bytes read from disk per second, which differ only for the gzip copy
+ * @author Luiz do Valle
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+@State(Scope.Benchmark)
+public class PipelineBenchmark {
+
+	@Param({"no filter", "select String", "select long", "outlier", "SUM", "gzip output", "gzip input"})
+	public String pipeline;
+
+	/**
+	 * The run of TSVPipeline.doit()
+	 */
+	private Runnable run;
+	/**
+	 * The number of records of the file
+	 */
+	private long records;
+	/**
+	 * The size of the file
+	 */
+	private long bytes;
+	/**
+	 * The size of the file read by the run, compressed or not
+	 */
+	private long fileBytes;
+
+	/**
+	 * Class that counts the volume processed in an iteration, reported per second by JMH
+	 * @author Luiz do Valle
+	 *
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class Volume {
+
+		public long records;
+		public long bytes;
+		public long fileBytes;
+
+		/**
+		 * Method that resets the counters before each iteration
+		 */
+		@Setup(Level.Iteration)
+		public void reset() {
+
+			records = 0;
+			bytes = 0;
+			fileBytes = 0;
+		}
+	}
+
+	/**
+	 * Method that creates the run, compressing a copy of the file for the gzip input case
+	 * @param generated the generated file
+	 * @throws IOException if the copy cannot be written
+	 */
+	@Setup(Level.Trial)
+	public void prepare(GeneratedFile generated) throws IOException {
+
+		File input = generated.file;
+
+		if(pipeline.equals("gzip input")) {
+
+			input = new File(generated.file.getPath() + ".gz");
+			generated.workloads.compress(generated.file, input);
+		}
+
+		run = generated.workloads.pipeline(input, pipeline);
+		records = generated.recordCount;
+		bytes = generated.file.length();
+		fileBytes = input.length();
+	}
+
+	@Benchmark
+	public void doit(Volume volume) {
+
+		run.run();
+		volume.records += records;
+		volume.bytes += bytes;
+		volume.fileBytes += fileBytes;
+	}
+}
@@ -0,0 +1,87 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Class that measures the parsing of a record and isRecordWanted() of the selections on it, on the valid records of a
+ * generated file held in memory, so the reading of the file is not measured
+ * Each operation handles one record, the records being taken in turn
+ * @author Luiz do Valle
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class SelectionBenchmark {
+
+	@Param({"parse only", "NormalSelection String", "NormalSelection long", "OutlierSelection",
+			"KeyedOutlierSelection"})
+	public String selection;
+
+	/**
+	 * The valid records of the file
+	 */
+	private byte[][] lines;
+	/**
+	 * The index of the next record
+	 */
+	private int next;
+	/**
+	 * The selection
+	 */
+	private Predicate<byte[]> wanted;
+	/**
+	 * The implementation of the selections
+	 */
+	private Workloads workloads;
+
+	/**
+	 * Method that reads the valid records of the file
+	 * @param generated the generated file
+	 * @throws IOException if the file cannot be read
+	 */
+	@Setup(Level.Trial)
+	public void read(GeneratedFile generated) throws IOException {
+
+		workloads = generated.workloads;
+		lines = workloads.readValidRecords(generated.file);
+	}
+
+	/**
+	 * Method that creates the selection before each iteration, so the outlier selections start with no history
+	 */
+	@Setup(Level.Iteration)
+	public void create() {
+
+		wanted = workloads.selection(selection);
+		next = 0;
+	}
+
+	@Benchmark
+	public void isRecordWanted(Blackhole blackhole) {
+
+		byte[] line = lines[next];
+		next = next + 1 == lines.length ? 0 : next + 1;
+
+		blackhole.consume(wanted.test(line));
+	}
+}
@@ -0,0 +1,92 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Class that measures the parsing of a record and compute() of the computation behind each Terminal on it, on the
+ * valid records of a generated file held in memory, so the reading of the file is not measured
+ * Each Terminal is measured on a long and on a String column, except SUM and QUANTILES which only support longs
+ * Each operation handles one record, the records being taken in turn
+ * @author Luiz do Valle
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class TerminalBenchmark {
+
+	@Param({"ALLSAME long", "ALLSAME String", "COUNT long", "MIN long", "MIN String", "MAX long", "MAX String",
+			"SUM long", "FIRSTDIFF long", "FIRSTDIFF String", "DISTINCT_APPROX long", "DISTINCT_APPROX String",
+			"QUANTILES long", "TOPK long", "TOPK String"})
+	public String terminal;
+
+	/**
+	 * The valid records of the file
+	 */
+	private byte[][] lines;
+	/**
+	 * The index of the next record
+	 */
+	private int next;
+	/**
+	 * The computation
+	 */
+	private Consumer<byte[]> computation;
+	/**
+	 * The implementation of the computations
+	 */
+	private Workloads workloads;
+
+	/**
+	 * Method that reads the valid records of the file
+	 * @param generated the generated file
+	 * @throws IOException if the file cannot be read
+	 */
+	@Setup(Level.Trial)
+	public void read(GeneratedFile generated) throws IOException {
+
+		workloads = generated.workloads;
+		lines = workloads.readValidRecords(generated.file);
+	}
+
+	/**
+	 * Method that creates the computation before each iteration, so its state does not grow across iterations
+	 */
+	@Setup(Level.Iteration)
+	public void create() {
+
+		computation = workloads.terminal(terminal);
+		next = 0;
+	}
+
+	@Benchmark
+	public void compute(Blackhole blackhole) {
+
+		byte[] line = lines[next];
+		next = next + 1 == lines.length ? 0 : next + 1;
+
+		computation.accept(line);
+
+		//The computation holds its result, so it is consumed to keep the JIT from removing the work
+		blackhole.consume(computation);
+	}
+}
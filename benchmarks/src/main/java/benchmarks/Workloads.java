@@ -0,0 +1,85 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Interface that serves as a blueprint for the work measured by the benchmarks
+ * The pipeline and its plugins live in the default package, which JMH does not accept for benchmark classes and which
+ * cannot be imported from a named package, so the benchmarks reach them through this interface. It is implemented by
+ * TSVWorkloads in the default package, which is loaded once by name, and the work it returns is then called without
+ * going through reflection
+ * @author Luiz do Valle
+ *
+ */
+public interface Workloads {
+
+	/**
+	 * Method that writes a file with columns L0 (long), S1 (String), L2 (long), S3 (String) and so on
+	 * @param file the file to be written
+	 * @param recordCount the number of records
+	 * @param columnCount the number of columns
+	 * @param invalidRatio the fraction of records that are invalid
+	 * @throws IOException if the file cannot be written
+	 */
+	public abstract void generate(File file, int recordCount, int columnCount, double invalidRatio) throws IOException;
+
+	/**
+	 * Method that writes a gzip copy of a file
+	 * @param source the file to be compressed
+	 * @param destination the compressed copy
+	 * @throws IOException if either file cannot be read or written
+	 */
+	public abstract void compress(File source, File destination) throws IOException;
+
+	/**
+	 * Method that reads the valid records of a generated file into memory, skipping the header and type lines
+	 * @param file the generated file
+	 * @return the bytes of each valid record
+	 * @throws IOException if the file cannot be read
+	 */
+	public abstract byte[][] readValidRecords(File file) throws IOException;
+
+	/**
+	 * Method that creates a run of TSVPipeline.doit() on a file, whose messages are not displayed
+	 * The output files are written next to the file
+	 * @param file the file to be read
+	 * @param name the filter of the run: no filter, select String, select long, outlier, SUM, gzip output, or gzip
+	 * input, which is the same as no filter on a compressed file
+	 * @return the run
+	 */
+	public abstract Runnable pipeline(File file, String name);
+
+	/**
+	 * Method that creates a selection that parses each record it is given
+	 * @param name parse only, NormalSelection String, NormalSelection long, OutlierSelection or KeyedOutlierSelection
+	 * @return the selection, telling whether each record is wanted
+	 */
+	public abstract Predicate<byte[]> selection(String name);
+
+	/**
+	 * Method that creates the computation of a Terminal that parses each record it is given
+	 * @param name the name of the Terminal followed by long or String, the type of the column it is computed on
+	 * @return the computation
+	 */
+	public abstract Consumer<byte[]> terminal(String name);
+
+	/**
+	 * Method that loads the implementation of the default package
+	 * @return the implementation
+	 * @throws IllegalStateException if TSVWorkloads is not on the class path
+	 */
+	public static Workloads load() {
+
+		try {
+
+			return (Workloads) Class.forName("TSVWorkloads").getDeclaredConstructor().newInstance();
+
+		} catch (ReflectiveOperationException e) {
+
+			throw new IllegalStateException("TSVWorkloads could not be loaded", e);
+		}
+	}
+}
@@ -1,37 +1,75 @@
-/**
- * Class that implements the Computation interface and simply performs the ALLSAME terminal computation
- * Discovers whether all the output records are exactly the same
- * @author Luiz do Valle
- *
- */
-public class AllSameComputation implements Computation {
-
-	private boolean allSame = true;
-	private String previousRecord = null;
-	
-	@Override
-	public void compute(String record) {
-		
-		if(previousRecord == null) {
-			
-			previousRecord = record;
-		
-		} 			
-		
-		if(!record.equals(previousRecord)) {
-				
-			allSame = false;
-		}
-		
-		
-	}
-
-	@Override
-	public String result() {
-		
-		return String.valueOf(allSame);
-		
-	}
-
-	
-}
+import java.util.Arrays;
+
+/**
+ * Class that implements the Computation interface and simply performs the ALLSAME terminal computation
+ * Discovers whether all the output records are exactly the same
+ * Only the bytes of the first record are kept and every other record is compared with them, so no String
+ * is created per record
+ * @author Luiz do Valle
+ *
+ */
+public class AllSameComputation implements Computation {
+
+	private boolean allSame = true;
+	/**
+	 * The bytes of the first record seen
+	 */
+	private byte[] firstRecord = null;
+	
+	@Override
+	public void compute(String record) {
+		
+		compute(new ParsedRecord(record));
+	}
+	
+	@Override
+	public void compute(ParsedRecord record) {
+		
+		byte[] buffer = record.getBuffer();
+		int start = record.getLineStart();
+		int end = record.getLineEnd();
+		
+		if(firstRecord == null) {
+			
+			firstRecord = Arrays.copyOfRange(buffer, start, end);
+		
+		} else if(allSame && !Arrays.equals(firstRecord, 0, firstRecord.length, buffer, start, end)) {
+				
+			allSame = false;
+		}
+		
+	}
+
+	@Override
+	public String result() {
+		
+		return String.valueOf(allSame);
+		
+	}
+	
+	@Override
+	public boolean isMergeable() {
+		
+		return true;
+	}
+	
+	@Override
+	public void merge(Computation other) {
+		
+		AllSameComputation otherAllSame = (AllSameComputation) other;
+		
+		if(otherAllSame.firstRecord == null) {
+			
+			return;
+		}
+		
+		if(firstRecord == null) {
+			
+			firstRecord = otherAllSame.firstRecord;
+		}
+		
+		allSame = allSame && otherAllSame.allSame && Arrays.equals(firstRecord, otherAllSame.firstRecord);
+	}
+
+	
+}
@@ -0,0 +1,75 @@
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Class that extends the CompositeSelection and selects the records wanted by all of its selections
+ * The evaluation stops at the first selection that rejects the record
+ * @author Luiz do Valle
+ *
+ */
+public class AndSelection extends CompositeSelection {
+
+	/**
+	 * The selections being combined, in the order given by the user
+	 */
+	private final List<Selection> selections;
+	
+	/**
+	 * Constructor of the class
+	 * @param selections the selections that must all want a record for it to be selected
+	 */
+	public AndSelection(List<Selection> selections) {
+		
+		super(selections);
+		this.selections = selections;
+	}
+	
+	@Override
+	protected boolean decisiveResult() {
+		
+		return false;
+	}
+	
+	/**
+	 * Cheap selections that reject most records run first
+	 */
+	@Override
+	protected double rank(double cost, double passRate) {
+		
+		return (cost + 1) / (1 - passRate + 0.001);
+	}
+	
+	@Override
+	public boolean isCacheable(ColumnarCache cache) {
+		
+		for(Selection selection : selections) {
+			
+			if(!selection.isStateless() || !selection.isCacheable(cache)) {
+				
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Method that applies the selections one after the other, each one only checking the records kept by the previous ones
+	 */
+	@Override
+	public int select(ColumnarCache cache, int[] rows, int count) throws IOException {
+		
+		for(Selection selection : selections) {
+			
+			if(count == 0) {
+				
+				break;
+			}
+			
+			count = selection.select(cache, rows, count);
+		}
+		
+		return count;
+	}
+	
+}
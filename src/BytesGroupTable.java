@@ -0,0 +1,380 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Class that implements the GroupTable interface for groups keyed on String columns or on several columns
+ * The key of each group is kept as the raw bytes of its fields, separated by tabs, in a single array shared by all
+ * the groups, and the records are hashed and compared on the bytes of their fields, so no String is created while
+ * the file is streamed. The slots of the groups are kept in a primitive array indexed by the number of the group,
+ * and the groups are found through an open addressing table with linear probing
+ * Keys are compared on their bytes, so "7" and "07" belong to different groups even in a long column
+ * @author Luiz do Valle
+ *
+ */
+public class BytesGroupTable implements GroupTable {
+
+	/**
+	 * The number of groups the arrays can hold before they need to grow
+	 */
+	private static final int INITIAL_CAPACITY = 64;
+	/**
+	 * The byte placed between the fields of a key of several columns
+	 */
+	private static final byte[] SEPARATOR = {'\t'};
+
+	/**
+	 * The columns holding the keys
+	 */
+	private final int[] columns;
+	/**
+	 * The number of slots of each group
+	 */
+	private final int slotCount;
+	/**
+	 * The bytes of the keys of all the groups
+	 */
+	private byte[] keyBytes = new byte[INITIAL_CAPACITY * 16];
+	/**
+	 * The number of bytes used in keyBytes
+	 */
+	private int keyBytesUsed;
+	/**
+	 * The index in keyBytes where the key of each group starts
+	 */
+	private int[] keyStarts = new int[INITIAL_CAPACITY];
+	/**
+	 * The number of bytes of the key of each group
+	 */
+	private int[] keyLengths = new int[INITIAL_CAPACITY];
+	/**
+	 * The hash of the key of each group
+	 */
+	private long[] hashes = new long[INITIAL_CAPACITY];
+	/**
+	 * The slots of all the groups, the slots of a group being next to each other
+	 */
+	private long[] slots;
+	/**
+	 * The open addressing table, holding the number of a group plus one, or 0 for an empty position
+	 */
+	private int[] table = new int[INITIAL_CAPACITY * 2];
+	/**
+	 * The number of groups
+	 */
+	private int size;
+	/**
+	 * The number of bytes of the longest key added since the table was created or cleared
+	 */
+	private int longestKey;
+
+	/**
+	 * Constructor of the class
+	 * @param columns the columns holding the keys
+	 * @param slotCount the number of slots of each group
+	 */
+	public BytesGroupTable(int[] columns, int slotCount) {
+
+		this.columns = columns.clone();
+		this.slotCount = slotCount;
+		this.slots = new long[INITIAL_CAPACITY * slotCount];
+	}
+
+	@Override
+	public int group(ParsedRecord record) {
+
+		long hash = hash(record);
+		int mask = table.length - 1;
+		int position = (int) hash & mask;
+
+		while(table[position] != 0) {
+
+			int group = table[position] - 1;
+
+			if(hashes[group] == hash && keyEquals(group, record)) {
+
+				return group;
+			}
+
+			position = (position + 1) & mask;
+		}
+
+		int group = add(position, hash);
+		byte[] buffer = record.getBuffer();
+
+		for(int index = 0; index < columns.length; index++) {
+
+			if(index > 0) {
+
+				appendKeyBytes(SEPARATOR, 0, 1);
+			}
+
+			appendKeyBytes(buffer, record.getFieldStart(columns[index]), record.getFieldEnd(columns[index]));
+		}
+
+		keyLengths[group] = keyBytesUsed - keyStarts[group];
+		longestKey = Math.max(longestKey, keyLengths[group]);
+		return group;
+	}
+
+	@Override
+	public int groupOfKey(byte[] key, int length) {
+
+		long hash = 0;
+		int fieldStart = 0;
+
+		//The hash is built from the hashes of the fields, in the same way as for a record
+		for(int index = 0; index <= length; index++) {
+
+			if(index == length || key[index] == '\t') {
+
+				hash = hash * 0x9e3779b97f4a7c15L + ParsedRecord.hash(key, fieldStart, index);
+				fieldStart = index + 1;
+			}
+		}
+
+		int mask = table.length - 1;
+		int position = (int) hash & mask;
+
+		while(table[position] != 0) {
+
+			int group = table[position] - 1;
+
+			if(hashes[group] == hash && Arrays.equals(keyBytes, keyStarts[group], keyStarts[group] + keyLengths[group], key, 0, length)) {
+
+				return group;
+			}
+
+			position = (position + 1) & mask;
+		}
+
+		int group = add(position, hash);
+
+		appendKeyBytes(key, 0, length);
+		keyLengths[group] = length;
+		longestKey = Math.max(longestKey, length);
+		return group;
+	}
+
+	@Override
+	public int keyLength(int group) {
+
+		return keyLengths[group];
+	}
+
+	@Override
+	public void encodeKey(int group, byte[] destination) {
+
+		System.arraycopy(keyBytes, keyStarts[group], destination, 0, keyLengths[group]);
+	}
+
+	@Override
+	public int size() {
+
+		return size;
+	}
+
+	@Override
+	public long get(int group, int slot) {
+
+		return slots[group * slotCount + slot];
+	}
+
+	@Override
+	public void set(int group, int slot, long value) {
+
+		slots[group * slotCount + slot] = value;
+	}
+
+	@Override
+	public int compare(int first, int second) {
+
+		return Arrays.compareUnsigned(keyBytes, keyStarts[first], keyStarts[first] + keyLengths[first],
+				keyBytes, keyStarts[second], keyStarts[second] + keyLengths[second]);
+	}
+
+	@Override
+	public String describeKey(byte[] key, int length) {
+
+		return new String(key, 0, length, StandardCharsets.UTF_8);
+	}
+
+	@Override
+	public long memoryUsed() {
+
+		return keyBytes.length + (long) (keyStarts.length + keyLengths.length + table.length) * Integer.BYTES
+				+ (long) (hashes.length + slots.length) * Long.BYTES;
+	}
+
+	@Override
+	public long memoryToGrow() {
+
+		long bytes = 0;
+
+		if(size == hashes.length) {
+
+			bytes += (long) (keyStarts.length + keyLengths.length) * 2 * Integer.BYTES
+					+ (long) (hashes.length + slots.length) * 2 * Long.BYTES;
+		}
+
+		if((size + 1) * 2 > table.length) {
+
+			bytes += (long) table.length * 2 * Integer.BYTES;
+		}
+
+		if(keyBytesUsed + longestKey > keyBytes.length) {
+
+			bytes += Math.max(keyBytesUsed + longestKey, keyBytes.length * 2);
+		}
+
+		return bytes;
+	}
+
+	@Override
+	public long minimumMemory() {
+
+		return INITIAL_CAPACITY * 16 + (long) INITIAL_CAPACITY * 4 * Integer.BYTES
+				+ (long) INITIAL_CAPACITY * (1 + slotCount) * Long.BYTES;
+	}
+
+	@Override
+	public void clear() {
+
+		keyBytes = new byte[INITIAL_CAPACITY * 16];
+		keyBytesUsed = 0;
+		keyStarts = new int[INITIAL_CAPACITY];
+		keyLengths = new int[INITIAL_CAPACITY];
+		hashes = new long[INITIAL_CAPACITY];
+		slots = new long[INITIAL_CAPACITY * slotCount];
+		table = new int[INITIAL_CAPACITY * 2];
+		size = 0;
+		longestKey = 0;
+	}
+
+	/**
+	 * Method that computes the hash of the key of a record from the hashes of its fields
+	 * @param record the parsed record
+	 * @return the hash of the key
+	 */
+	private long hash(ParsedRecord record) {
+
+		long hash = 0;
+
+		for(int column : columns) {
+
+			hash = hash * 0x9e3779b97f4a7c15L + record.hashField(column);
+		}
+
+		return hash;
+	}
+
+	/**
+	 * Method that checks whether the key of a group is made of the fields of a record, without creating a String
+	 * @param group the number of the group
+	 * @param record the parsed record
+	 * @return true if the key of the group is equal to the key of the record, false otherwise
+	 */
+	private boolean keyEquals(int group, ParsedRecord record) {
+
+		byte[] buffer = record.getBuffer();
+		int position = keyStarts[group];
+		int end = position + keyLengths[group];
+
+		for(int index = 0; index < columns.length; index++) {
+
+			if(index > 0) {
+
+				if(position == end || keyBytes[position] != '\t') {
+
+					return false;
+				}
+
+				position++;
+			}
+
+			int fieldStart = record.getFieldStart(columns[index]);
+			int fieldEnd = record.getFieldEnd(columns[index]);
+			int fieldLength = fieldEnd - fieldStart;
+
+			if(position + fieldLength > end || !Arrays.equals(keyBytes, position, position + fieldLength, buffer, fieldStart, fieldEnd)) {
+
+				return false;
+			}
+
+			position += fieldLength;
+		}
+
+		return position == end;
+	}
+
+	/**
+	 * Method that adds a group with no key bytes yet, whose key must be appended right away
+	 * @param position the empty position of the open addressing table where the group is added
+	 * @param hash the hash of the key of the group
+	 * @return the number of the new group
+	 */
+	private int add(int position, long hash) {
+
+		if(size == hashes.length) {
+
+			keyStarts = Arrays.copyOf(keyStarts, size * 2);
+			keyLengths = Arrays.copyOf(keyLengths, size * 2);
+			hashes = Arrays.copyOf(hashes, size * 2);
+			slots = Arrays.copyOf(slots, size * 2 * slotCount);
+		}
+
+		int group = size++;
+
+		keyStarts[group] = keyBytesUsed;
+		hashes[group] = hash;
+		table[position] = group + 1;
+
+		//The table is kept at most half full, so the probe sequences stay short
+		if(size * 2 > table.length) {
+
+			rehash();
+		}
+
+		return group;
+	}
+
+	/**
+	 * Method that appends bytes to the keys, growing the array if needed
+	 * @param buffer the buffer that holds the bytes
+	 * @param start the index where the bytes start
+	 * @param end the index where the bytes end (exclusive)
+	 */
+	private void appendKeyBytes(byte[] buffer, int start, int end) {
+
+		int length = end - start;
+
+		if(keyBytesUsed + length > keyBytes.length) {
+
+			keyBytes = Arrays.copyOf(keyBytes, Math.max(keyBytesUsed + length, keyBytes.length * 2));
+		}
+
+		System.arraycopy(buffer, start, keyBytes, keyBytesUsed, length);
+		keyBytesUsed += length;
+	}
+
+	/**
+	 * Method that doubles the open addressing table and puts every group back in it
+	 */
+	private void rehash() {
+
+		table = new int[table.length * 2];
+		int mask = table.length - 1;
+
+		for(int group = 0; group < size; group++) {
+
+			int position = (int) hashes[group] & mask;
+
+			while(table[position] != 0) {
+
+				position = (position + 1) & mask;
+			}
+
+			table[position] = group + 1;
+		}
+	}
+
+}
@@ -0,0 +1,940 @@
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class that stores the validated contents of a .tsv file in a binary columnar sidecar file (file.tsv.colcache),
+ * so repeated queries over the same file do not have to read, split and validate its text again
+ *
+ * The sidecar is created by build() and holds:
+ * 	1-) the position in the .tsv file of every valid record and of every invalid record, so the records can still be
+ * 	streamed to the output files
+ * 	2-) for each long column, the values of the valid records as packed longs
+ * 	3-) for each String column, the values either dictionary encoded (an int code per record) when the column has
+ * 	few distinct values, or as the offsets of the values in a block of bytes
+ *
+ * Each part of the sidecar is only mapped when it is first used, so a computation over one column only reads
+ * the bytes of that column. The sidecar records the size and the modification time of the .tsv file and open()
+ * ignores it once the .tsv file changes
+ * @author Luiz do Valle
+ *
+ */
+public class ColumnarCache {
+
+	/**
+	 * The extension added to the name of the .tsv file to name its sidecar
+	 */
+	public static final String EXTENSION = ".colcache";
+
+	/**
+	 * The number identifying a sidecar file ("TSVC")
+	 */
+	private static final int MAGIC = 0x54535643;
+	/**
+	 * The version of the format of the sidecar file
+	 */
+	private static final int VERSION = 1;
+	/**
+	 * The largest number of distinct values a String column can have to be dictionary encoded
+	 */
+	private static final int MAX_DICTIONARY_SIZE = 1 << 16;
+	/**
+	 * The size of the buffers used to write the parts of the sidecar
+	 */
+	private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * Encoding of a long column whose values are all written as String.valueOf() would write them
+	 */
+	private static final byte CANONICAL_LONGS = 0;
+	/**
+	 * Encoding of a long column with values such as "+7" or "007"
+	 */
+	private static final byte LONGS = 1;
+	/**
+	 * Encoding of a String column stored as offsets into a block of bytes
+	 */
+	private static final byte PLAIN_STRINGS = 2;
+	/**
+	 * Encoding of a String column stored as dictionary codes
+	 */
+	private static final byte DICTIONARY_STRINGS = 3;
+
+	/**
+	 * The channel used to map the sidecar
+	 */
+	private final FileChannel channel;
+	/**
+	 * The number of valid records
+	 */
+	private final int rowCount;
+	/**
+	 * The number of invalid records
+	 */
+	private final int invalidCount;
+	/**
+	 * The encoding of each column
+	 */
+	private final byte[] encodings;
+	/**
+	 * The position and the length in the sidecar of each part, two per column after the record positions
+	 */
+	private final long[] sectionPositions;
+	private final long[] sectionLengths;
+	/**
+	 * The parts of the sidecar mapped so far, indexed in the same way as sectionPositions
+	 */
+	private final Section[] sections;
+	/**
+	 * The dictionaries of the dictionary encoded columns loaded so far
+	 */
+	private final Dictionary[] dictionaries;
+
+	/**
+	 * Private constructor that is only to be used by open()
+	 */
+	private ColumnarCache(FileChannel channel, int rowCount, int invalidCount, byte[] encodings,
+			long[] sectionPositions, long[] sectionLengths) {
+
+		this.channel = channel;
+		this.rowCount = rowCount;
+		this.invalidCount = invalidCount;
+		this.encodings = encodings;
+		this.sectionPositions = sectionPositions;
+		this.sectionLengths = sectionLengths;
+		this.sections = new Section[sectionPositions.length];
+		this.dictionaries = new Dictionary[encodings.length];
+	}
+
+	/**
+	 * Method that finds the sidecar file of the given .tsv file
+	 * @param source the .tsv file
+	 * @return the sidecar file, which may not exist
+	 */
+	public static File sidecarOf(File source) {
+
+		return new File(source.getPath() + EXTENSION);
+	}
+
+	/**
+	 * Method that converts the given .tsv file into its columnar sidecar, replacing any previous one
+	 * The records are validated in the same way as in the TSVPipeline, through a TSVSchema
+	 * If the file does not exist, is compressed or its header or type line is malformed, a message is displayed to
+	 * the user and no sidecar is created
+	 * @param source the .tsv file to be converted
+	 * @return true if the sidecar was created, false otherwise
+	 */
+	public static boolean build(File source) {
+
+		if(!source.exists()) {
+
+			System.out.println("The file does not exist in the given directory.");
+			return false;
+		}
+
+		try {
+
+			if(TSVReader.isCompressed(source)) {
+
+				System.out.println("The file cannot be cached because it is compressed");
+				return false;
+			}
+
+			return new Builder(source).build();
+
+		} catch (IOException e) {
+
+			System.out.println("Problem creating the columnar cache: " + e.getMessage());
+			return false;
+		}
+	}
+
+	/**
+	 * Method that opens the sidecar of the given .tsv file
+	 * @param source the .tsv file
+	 * @return the cache, or null if there is no sidecar or it was created for a different version of the file
+	 */
+	public static ColumnarCache open(File source) {
+
+		File sidecar = sidecarOf(source);
+
+		if(!sidecar.exists()) {
+
+			return null;
+		}
+
+		FileChannel channel = null;
+
+		try {
+
+			channel = FileChannel.open(sidecar.toPath(), StandardOpenOption.READ);
+			DataInputStream input = new DataInputStream(Channels.newInputStream(channel));
+
+			if(input.readInt() != MAGIC || input.readInt() != VERSION
+					|| input.readLong() != source.length() || input.readLong() != source.lastModified()) {
+
+				channel.close();
+				return null;
+			}
+
+			int rowCount = input.readInt();
+			int invalidCount = input.readInt();
+			byte[] encodings = new byte[input.readInt()];
+			input.readFully(encodings);
+
+			int sectionCount = 2 + 2 * encodings.length;
+			long[] positions = new long[sectionCount];
+			long[] lengths = new long[sectionCount];
+
+			for(int index = 0; index < sectionCount; index++) {
+
+				positions[index] = input.readLong();
+				lengths[index] = input.readLong();
+			}
+
+			return new ColumnarCache(channel, rowCount, invalidCount, encodings, positions, lengths);
+
+		} catch (IOException e) {
+
+			//A damaged sidecar is simply ignored, the .tsv file is still there
+			try {
+
+				if(channel != null) {
+
+					channel.close();
+				}
+
+			} catch (IOException closeFailure) {
+
+				e.addSuppressed(closeFailure);
+			}
+
+			return null;
+		}
+	}
+
+	/**
+	 * Accessor method for the number of valid records
+	 * @return the number of valid records
+	 */
+	public int getRowCount() {
+
+		return rowCount;
+	}
+
+	/**
+	 * Accessor method for the number of invalid records
+	 * @return the number of invalid records
+	 */
+	public int getInvalidCount() {
+
+		return invalidCount;
+	}
+
+	/**
+	 * Accessor method for the number of columns
+	 * @return the number of columns
+	 */
+	public int getColumnCount() {
+
+		return encodings.length;
+	}
+
+	/**
+	 * Method that finds where a valid record is in the .tsv file
+	 * @param row the index of the valid record
+	 * @return the position in the .tsv file where the record starts
+	 * @throws IOException if the sidecar cannot be mapped
+	 */
+	public long getRowPosition(int row) throws IOException {
+
+		return section(0).getLong(row);
+	}
+
+	/**
+	 * Method that finds where an invalid record is in the .tsv file
+	 * @param index the index of the invalid record
+	 * @return the position in the .tsv file where the record starts
+	 * @throws IOException if the sidecar cannot be mapped
+	 */
+	public long getInvalidPosition(int index) throws IOException {
+
+		return section(1).getLong(index);
+	}
+
+	/**
+	 * Method that checks whether the given column holds longs
+	 * @param column the column
+	 * @return true if the column holds longs, false if it holds Strings
+	 */
+	public boolean isLongColumn(int column) {
+
+		return encodings[column] == CANONICAL_LONGS || encodings[column] == LONGS;
+	}
+
+	/**
+	 * Method that checks whether every value of a long column is written as String.valueOf() would write it,
+	 * in which case comparing the values as longs gives the same result as comparing their text
+	 * @param column the long column
+	 * @return true if the values are all written in the canonical form, false otherwise
+	 */
+	public boolean isCanonical(int column) {
+
+		return encodings[column] == CANONICAL_LONGS;
+	}
+
+	/**
+	 * Method that checks whether a String column is dictionary encoded
+	 * @param column the String column
+	 * @return true if the column is dictionary encoded, false otherwise
+	 */
+	public boolean isDictionaryEncoded(int column) {
+
+		return encodings[column] == DICTIONARY_STRINGS;
+	}
+
+	/**
+	 * Method that gets the value of a valid record under a long column
+	 * @param column the long column
+	 * @param row the index of the valid record
+	 * @return the value of the record
+	 * @throws IOException if the sidecar cannot be mapped
+	 */
+	public long getLong(int column, int row) throws IOException {
+
+		return section(2 + 2 * column).getLong(row);
+	}
+
+	/**
+	 * Method that gets the dictionary code of the value of a valid record under a dictionary encoded column
+	 * @param column the dictionary encoded column
+	 * @param row the index of the valid record
+	 * @return the code of the value of the record
+	 * @throws IOException if the sidecar cannot be mapped
+	 */
+	public int getCode(int column, int row) throws IOException {
+
+		return section(2 + 2 * column).getInt(row);
+	}
+
+	/**
+	 * Method that finds the dictionary code of a value of a dictionary encoded column
+	 * @param column the dictionary encoded column
+	 * @param value the value encoded as UTF-8
+	 * @return the code of the value, or -1 if no valid record has that value
+	 * @throws IOException if the sidecar cannot be mapped
+	 */
+	public int findCode(int column, byte[] value) throws IOException {
+
+		return dictionary(column).find(value);
+	}
+
+	/**
+	 * Method that checks whether the value of a valid record under a String column is equal to the given value
+	 * @param column the String column
+	 * @param row the index of the valid record
+	 * @param value the value encoded as UTF-8
+	 * @return true if both values have the same bytes, false otherwise
+	 * @throws IOException if the sidecar cannot be mapped
+	 */
+	public boolean fieldEquals(int column, int row, byte[] value) throws IOException {
+
+		if(isDictionaryEncoded(column)) {
+
+			return getCode(column, row) == findCode(column, value);
+		}
+
+		Section offsets = section(2 + 2 * column);
+		long start = offsets.getLong(row);
+
+		if(offsets.getLong(row + 1) - start != value.length) {
+
+			return false;
+		}
+
+		Section bytes = section(3 + 2 * column);
+
+		for(int index = 0; index < value.length; index++) {
+
+			if(bytes.getByte(start + index) != value[index]) {
+
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Method that closes the sidecar
+	 * The mapped parts are released once they are garbage collected
+	 * @throws IOException if the sidecar cannot be closed
+	 */
+	public void close() throws IOException {
+
+		channel.close();
+	}
+
+	/**
+	 * Method that maps a part of the sidecar the first time it is used
+	 * @param index the index of the part
+	 * @return the mapped part
+	 * @throws IOException if the part cannot be mapped
+	 */
+	private Section section(int index) throws IOException {
+
+		if(sections[index] == null) {
+
+			sections[index] = new Section(channel, sectionPositions[index], sectionLengths[index]);
+		}
+
+		return sections[index];
+	}
+
+	/**
+	 * Method that loads the dictionary of a dictionary encoded column the first time it is used
+	 * @param column the dictionary encoded column
+	 * @return the dictionary of the column
+	 * @throws IOException if the dictionary cannot be read
+	 */
+	private Dictionary dictionary(int column) throws IOException {
+
+		if(dictionaries[column] == null) {
+
+			dictionaries[column] = new Dictionary(section(3 + 2 * column));
+		}
+
+		return dictionaries[column];
+	}
+
+	/**
+	 * Inner static class that maps a part of the sidecar in windows of at most 1 GB, so parts larger than 2 GB
+	 * (the limit of a single MappedByteBuffer) can be read as well
+	 * The windows are aligned to 8 bytes, so a long or an int never crosses two windows
+	 * @author Luiz do Valle
+	 *
+	 */
+	private static class Section {
+
+		private static final int WINDOW_SHIFT = 30;
+		private static final long WINDOW_MASK = (1L << WINDOW_SHIFT) - 1;
+
+		private final ByteBuffer[] windows;
+
+		private Section(FileChannel channel, long position, long length) throws IOException {
+
+			int count = (int) ((length + WINDOW_MASK) >>> WINDOW_SHIFT);
+			windows = new ByteBuffer[count];
+
+			for(int index = 0; index < count; index++) {
+
+				long start = (long) index << WINDOW_SHIFT;
+				windows[index] = channel.map(FileChannel.MapMode.READ_ONLY, position + start, Math.min(length - start, 1L << WINDOW_SHIFT));
+			}
+		}
+
+		private byte getByte(long position) {
+
+			return windows[(int) (position >>> WINDOW_SHIFT)].get((int) (position & WINDOW_MASK));
+		}
+
+		private int getInt(long index) {
+
+			long position = index * Integer.BYTES;
+
+			return windows[(int) (position >>> WINDOW_SHIFT)].getInt((int) (position & WINDOW_MASK));
+		}
+
+		private long getLong(long index) {
+
+			long position = index * Long.BYTES;
+
+			return windows[(int) (position >>> WINDOW_SHIFT)].getLong((int) (position & WINDOW_MASK));
+		}
+	}
+
+	/**
+	 * Inner static class that holds the distinct values of a dictionary encoded column, indexed by their codes
+	 * @author Luiz do Valle
+	 *
+	 */
+	private static class Dictionary {
+
+		private final Map<ByteBuffer, Integer> codes = new HashMap<>();
+
+		private Dictionary(Section section) {
+
+			int size = section.getInt(0);
+			long position = Integer.BYTES;
+
+			for(int code = 0; code < size; code++) {
+
+				int length = section.getInt(position / Integer.BYTES);
+				byte[] value = new byte[length];
+				position += Integer.BYTES;
+
+				for(int index = 0; index < length; index++) {
+
+					value[index] = section.getByte(position + index);
+				}
+
+				//The values are padded to 4 bytes, so the next length can be read as an int
+				position += (length + Integer.BYTES - 1) / Integer.BYTES * Integer.BYTES;
+				codes.put(ByteBuffer.wrap(value), code);
+			}
+		}
+
+		private int find(byte[] value) {
+
+			Integer code = codes.get(ByteBuffer.wrap(value));
+
+			return code == null ? -1 : code;
+		}
+	}
+
+	/**
+	 * Inner static class that streams a .tsv file once and writes its sidecar
+	 * Each part is first written to its own temporary file while the records are read, and the parts are then
+	 * copied one after the other behind the header of the sidecar
+	 * @author Luiz do Valle
+	 *
+	 */
+	private static class Builder {
+
+		private final File source;
+		private final List<Path> temporaryFiles = new ArrayList<>();
+		private final List<DataOutputStream> outputs = new ArrayList<>();
+
+		private TSVSchema schema;
+		private byte[] encodings;
+		private DataOutputStream rowPositions;
+		private DataOutputStream invalidPositions;
+		/**
+		 * For each column, the values (long columns), or the codes while the column can still be dictionary
+		 * encoded (String columns)
+		 */
+		private DataOutputStream[] values;
+		/**
+		 * For each String column, the offsets of the values in the block of bytes
+		 */
+		private DataOutputStream[] offsets;
+		/**
+		 * For each String column, the block of bytes with all the values
+		 */
+		private DataOutputStream[] bytes;
+		private long[] byteCounts;
+		/**
+		 * For each String column that can still be dictionary encoded, the code of each distinct value
+		 * The values are kept as ByteBuffers, which compare their bytes, so no String is created per record
+		 */
+		private List<Map<ByteBuffer, Integer>> dictionaries = new ArrayList<>();
+		/**
+		 * The key used to look a field up in the dictionaries. It wraps the buffer of the record and is only
+		 * moved over the field, so no ByteBuffer is created per record
+		 */
+		private ByteBuffer probe;
+		private int rowCount;
+		private int invalidCount;
+
+		private Builder(File source) {
+
+			this.source = source;
+		}
+
+		/**
+		 * Method that streams the records of the .tsv file into the parts of the sidecar and writes the sidecar
+		 * @return true if the sidecar was created, false if the header or the type line were not valid
+		 * @throws IOException if the files cannot be read or written
+		 */
+		private boolean build() throws IOException {
+
+			long sourceSize = source.length();
+			long sourceModified = source.lastModified();
+			TSVReader reader = new TSVReader(source);
+
+			try {
+
+				schema = TSVSchema.read(reader);
+
+				if(schema == null) {
+
+					System.out.println("The file cannot be cached because the header or the type line is malformed");
+					return false;
+				}
+
+				openParts();
+				streamRecords(reader);
+
+				for(DataOutputStream output : outputs) {
+
+					output.close();
+				}
+
+				writeSidecar(sourceSize, sourceModified);
+				return true;
+
+			} finally {
+
+				reader.close();
+
+				for(DataOutputStream output : outputs) {
+
+					output.close();
+				}
+
+				for(Path temporaryFile : temporaryFiles) {
+
+					Files.deleteIfExists(temporaryFile);
+				}
+			}
+		}
+
+		/**
+		 * Method that creates the temporary files of the parts of the sidecar
+		 * @throws IOException if the files cannot be created
+		 */
+		private void openParts() throws IOException {
+
+			int columnCount = schema.getColumnCount();
+
+			encodings = new byte[columnCount];
+			values = new DataOutputStream[columnCount];
+			offsets = new DataOutputStream[columnCount];
+			bytes = new DataOutputStream[columnCount];
+			byteCounts = new long[columnCount];
+
+			rowPositions = createPart();
+			invalidPositions = createPart();
+
+			for(int column = 0; column < columnCount; column++) {
+
+				values[column] = createPart();
+
+				if(schema.isLongColumn(column)) {
+
+					encodings[column] = CANONICAL_LONGS;
+					dictionaries.add(null);
+
+				} else {
+
+					encodings[column] = DICTIONARY_STRINGS;
+					dictionaries.add(new HashMap<>());
+					offsets[column] = createPart();
+					bytes[column] = createPart();
+					offsets[column].writeLong(0);
+				}
+			}
+		}
+
+		/**
+		 * Method that creates the temporary file of a part of the sidecar next to the sidecar
+		 * @return the stream used to write the part
+		 * @throws IOException if the file cannot be created
+		 */
+		private DataOutputStream createPart() throws IOException {
+
+			Path directory = source.getAbsoluteFile().toPath().getParent();
+			Path part = Files.createTempFile(directory, source.getName(), ".part");
+			temporaryFiles.add(part);
+
+			DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(part), WRITE_BUFFER_SIZE));
+			outputs.add(output);
+
+			return output;
+		}
+
+		/**
+		 * Method that validates each record and writes its position and its values to the parts of the sidecar
+		 * @param reader the reader positioned at the first record
+		 * @throws IOException if the files cannot be read or written
+		 */
+		private void streamRecords(TSVReader reader) throws IOException {
+
+			ParsedRecord record = new ParsedRecord();
+
+			while(reader.nextLine()) {
+
+				record.parse(reader.getLineBuffer(), 0, reader.getLineLength());
+
+				if(!schema.isRecordValid(record)) {
+
+					invalidPositions.writeLong(reader.getLineOffset());
+					invalidCount++;
+					continue;
+				}
+
+				if(rowCount == Integer.MAX_VALUE) {
+
+					throw new IOException("The file has too many records to be cached");
+				}
+
+				rowPositions.writeLong(reader.getLineOffset());
+				rowCount++;
+
+				for(int column = 0; column < schema.getColumnCount(); column++) {
+
+					if(schema.isLongColumn(column)) {
+
+						writeLong(record, column);
+
+					} else {
+
+						writeString(record, column);
+					}
+				}
+			}
+		}
+
+		/**
+		 * Method that writes the value of a record under a long column
+		 * @param record the parsed record
+		 * @param column the long column
+		 * @throws IOException if the part cannot be written
+		 */
+		private void writeLong(ParsedRecord record, int column) throws IOException {
+
+			values[column].writeLong(record.getLong(column));
+
+			if(encodings[column] == CANONICAL_LONGS && !isCanonical(record, column)) {
+
+				encodings[column] = LONGS;
+			}
+		}
+
+		/**
+		 * Method that checks whether a long field is written as String.valueOf() would write it
+		 * That is, without a '+' sign, without leading zeros and without "-0"
+		 * @param record the parsed record
+		 * @param column the long column
+		 * @return true if the field is in the canonical form, false otherwise
+		 */
+		private boolean isCanonical(ParsedRecord record, int column) {
+
+			byte[] buffer = record.getBuffer();
+			int start = record.getFieldStart(column);
+			int end = record.getFieldEnd(column);
+
+			if(buffer[start] == '+') {
+
+				return false;
+			}
+
+			int digits = buffer[start] == '-' ? start + 1 : start;
+
+			return buffer[digits] != '0' || (end - digits == 1 && digits == start);
+		}
+
+		/**
+		 * Method that writes the value of a record under a String column, both as a dictionary code
+		 * (while the column has few distinct values) and in the block of bytes
+		 * @param record the parsed record
+		 * @param column the String column
+		 * @throws IOException if the parts cannot be written
+		 */
+		private void writeString(ParsedRecord record, int column) throws IOException {
+
+			int start = record.getFieldStart(column);
+			int length = record.getFieldEnd(column) - start;
+
+			bytes[column].write(record.getBuffer(), start, length);
+			byteCounts[column] += length;
+			offsets[column].writeLong(byteCounts[column]);
+
+			Map<ByteBuffer, Integer> dictionary = dictionaries.get(column);
+
+			if(dictionary == null) {
+
+				return;
+			}
+
+			if(probe == null || probe.array() != record.getBuffer()) {
+
+				probe = ByteBuffer.wrap(record.getBuffer());
+			}
+
+			probe.clear();
+			probe.limit(start + length).position(start);
+
+			Integer code = dictionary.get(probe);
+
+			if(code == null) {
+
+				if(dictionary.size() == MAX_DICTIONARY_SIZE) {
+
+					//Too many distinct values, the column is kept as plain bytes
+					dictionaries.set(column, null);
+					encodings[column] = PLAIN_STRINGS;
+					return;
+				}
+
+				code = dictionary.size();
+				dictionary.put(ByteBuffer.wrap(Arrays.copyOfRange(record.getBuffer(), start, start + length)), code);
+			}
+
+			values[column].writeInt(code);
+		}
+
+		/**
+		 * Method that writes the header of the sidecar followed by its parts, replacing the previous sidecar
+		 * only once the new one is complete
+		 * @param sourceSize the size of the .tsv file when it was read
+		 * @param sourceModified the modification time of the .tsv file when it was read
+		 * @throws IOException if the sidecar cannot be written
+		 */
+		private void writeSidecar(long sourceSize, long sourceModified) throws IOException {
+
+			int columnCount = schema.getColumnCount();
+			List<Path> parts = new ArrayList<>();
+			Path directory = source.getAbsoluteFile().toPath().getParent();
+
+			parts.add(temporaryFiles.get(0));
+			parts.add(temporaryFiles.get(1));
+
+			int next = 2;
+
+			for(int column = 0; column < columnCount; column++) {
+
+				Path valuesPart = temporaryFiles.get(next++);
+
+				if(schema.isLongColumn(column)) {
+
+					parts.add(valuesPart);
+					parts.add(null);
+					continue;
+				}
+
+				Path offsetsPart = temporaryFiles.get(next++);
+				Path bytesPart = temporaryFiles.get(next++);
+
+				if(encodings[column] == DICTIONARY_STRINGS) {
+
+					parts.add(valuesPart);
+					parts.add(writeDictionary(column, directory));
+
+				} else {
+
+					parts.add(offsetsPart);
+					parts.add(bytesPart);
+				}
+			}
+
+			//Every part starts at a multiple of 8 bytes, so the longs and ints in it are aligned with the windows
+			long headerSize = 4 + 4 + 8 + 8 + 4 + 4 + 4 + columnCount + 16L * parts.size();
+			long position = align(headerSize);
+			long[] positions = new long[parts.size()];
+			long[] lengths = new long[parts.size()];
+
+			for(int index = 0; index < parts.size(); index++) {
+
+				positions[index] = position;
+				lengths[index] = parts.get(index) == null ? 0 : Files.size(parts.get(index));
+				position = align(position + lengths[index]);
+			}
+
+			Path sidecar = sidecarOf(source).toPath();
+			Path partial = Files.createTempFile(directory, source.getName(), ".part");
+			temporaryFiles.add(partial);
+
+			try (FileChannel output = FileChannel.open(partial, StandardOpenOption.WRITE)) {
+
+				ByteBuffer header = ByteBuffer.allocate((int) headerSize);
+				header.putInt(MAGIC).putInt(VERSION).putLong(sourceSize).putLong(sourceModified);
+				header.putInt(rowCount).putInt(invalidCount).putInt(columnCount).put(encodings);
+
+				for(int index = 0; index < parts.size(); index++) {
+
+					header.putLong(positions[index]).putLong(lengths[index]);
+				}
+
+				header.flip();
+
+				while(header.hasRemaining()) {
+
+					output.write(header, header.position());
+				}
+
+				for(int index = 0; index < parts.size(); index++) {
+
+					if(parts.get(index) == null) {
+
+						continue;
+					}
+
+					output.position(positions[index]);
+
+					try (FileChannel part = FileChannel.open(parts.get(index), StandardOpenOption.READ)) {
+
+						long copied = 0;
+
+						while(copied < lengths[index]) {
+
+							copied += part.transferTo(copied, lengths[index] - copied, output);
+						}
+					}
+				}
+			}
+
+			Files.move(partial, sidecar, StandardCopyOption.REPLACE_EXISTING);
+		}
+
+		/**
+		 * Method that writes the dictionary of a String column to a temporary file
+		 * Each value is written as its length followed by its bytes, padded to 4 bytes
+		 * @param column the String column
+		 * @param directory the directory of the temporary file
+		 * @return the temporary file
+		 * @throws IOException if the file cannot be written
+		 */
+		private Path writeDictionary(int column, Path directory) throws IOException {
+
+			Map<ByteBuffer, Integer> dictionary = dictionaries.get(column);
+			byte[][] sorted = new byte[dictionary.size()][];
+
+			for(Map.Entry<ByteBuffer, Integer> entry : dictionary.entrySet()) {
+
+				sorted[entry.getValue()] = entry.getKey().array();
+			}
+
+			Path part = Files.createTempFile(directory, source.getName(), ".part");
+			temporaryFiles.add(part);
+
+			try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(part), WRITE_BUFFER_SIZE))) {
+
+				output.writeInt(sorted.length);
+
+				for(byte[] value : sorted) {
+
+					output.writeInt(value.length);
+					output.write(value);
+					output.write(new byte[(Integer.BYTES - value.length % Integer.BYTES) % Integer.BYTES]);
+				}
+			}
+
+			return part;
+		}
+
+		/**
+		 * Method that rounds a position up to the next multiple of 8
+		 * @param position the position
+		 * @return the aligned position
+		 */
+		private static long align(long position) {
+
+			return (position + Long.BYTES - 1) / Long.BYTES * Long.BYTES;
+		}
+	}
+}
@@ -0,0 +1,142 @@
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Class that implements the Computation interface and performs several terminal computations at once
+ * Each record is handed to all the computations, so the file only needs to be read once no matter how many
+ * compute clauses the user asked for
+ * The result has one line per computation, labeled with the clause that requested it
+ * @author Luiz do Valle
+ *
+ */
+public class CompositeComputation implements Computation {
+
+	/**
+	 * The computations being performed
+	 */
+	private final Computation[] computations;
+	/**
+	 * The labels used for the result of each computation
+	 */
+	private final String[] labels;
+	
+	/**
+	 * Constructor of the class
+	 * @param computations the computations to be performed
+	 * @param labels the label of each computation, in the same order
+	 */
+	public CompositeComputation(List<Computation> computations, List<String> labels) {
+		
+		this.computations = computations.toArray(new Computation[0]);
+		this.labels = labels.toArray(new String[0]);
+	}
+	
+	@Override
+	public void compute(String record) {
+		
+		compute(new ParsedRecord(record));
+	}
+	
+	@Override
+	public void compute(ParsedRecord record) {
+		
+		for(Computation computation : computations) {
+			
+			computation.compute(record);
+		}
+	}
+
+	@Override
+	public String result() {
+		
+		StringBuilder result = new StringBuilder();
+		
+		for(int index = 0; index < computations.length; index++) {
+			
+			result.append("\n" + labels[index] + ": " + computations[index].result());
+		}
+		
+		return result.toString();
+	}
+	
+	@Override
+	public boolean isMergeable() {
+		
+		for(Computation computation : computations) {
+			
+			if(!computation.isMergeable()) {
+				
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	@Override
+	public void merge(Computation other) {
+		
+		Computation[] otherComputations = ((CompositeComputation) other).computations;
+		
+		for(int index = 0; index < computations.length; index++) {
+			
+			computations[index].merge(otherComputations[index]);
+		}
+	}
+	
+	@Override
+	public boolean isCacheable(ColumnarCache cache) {
+		
+		for(Computation computation : computations) {
+			
+			if(!computation.isCacheable(cache)) {
+				
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	@Override
+	public void compute(ColumnarCache cache, int[] rows, int count) throws IOException {
+		
+		for(Computation computation : computations) {
+			
+			computation.compute(cache, rows, count);
+		}
+	}
+	
+	@Override
+	public boolean isSummarizable(ZoneMap zones) {
+		
+		for(Computation computation : computations) {
+			
+			if(!computation.isSummarizable(zones)) {
+				
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	@Override
+	public void compute(ZoneMap zones, int block) {
+		
+		for(Computation computation : computations) {
+			
+			computation.compute(zones, block);
+		}
+	}
+	
+	@Override
+	public void close() {
+		
+		for(Computation computation : computations) {
+			
+			computation.close();
+		}
+	}
+
+}
@@ -0,0 +1,253 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Abstract class that combines several Selections and evaluates them with short-circuiting
+ * The evaluation stops as soon as one selection returns the decisive result (false for AND, true for OR).
+ * While the file is streamed, the class records how often each selection passes and, for a sample of the records,
+ * how long it takes. Every few thousand records the selections are reordered so the ones most likely to end the
+ * evaluation for the lowest cost run first
+ * 
+ * Selections that remember previous records (such as the outlier selection) must see every record to stay correct,
+ * so they are always evaluated, before the others, and never reordered
+ * @author Luiz do Valle
+ *
+ */
+public abstract class CompositeSelection implements Selection {
+
+	/**
+	 * How often (in records) the cost of the selections is measured
+	 */
+	private static final int SAMPLE_INTERVAL = 64;
+	/**
+	 * How often (in records) the selections are reordered
+	 */
+	private static final int REORDER_INTERVAL = 4096;
+	
+	/**
+	 * The selections that depend on previous records, in the order given by the user
+	 */
+	private final Selection[] statefulSelections;
+	/**
+	 * The selections that only depend on the current record, in the order in which they are evaluated
+	 */
+	private final Selection[] statelessSelections;
+	/**
+	 * How many times each stateless selection was evaluated since the last reorder
+	 */
+	private final long[] evaluated;
+	/**
+	 * How many times each stateless selection passed since the last reorder
+	 */
+	private final long[] passed;
+	/**
+	 * The total time in nanoseconds spent by each stateless selection on the sampled records
+	 */
+	private final long[] sampledNanos;
+	/**
+	 * How many times each stateless selection was timed
+	 */
+	private final long[] sampled;
+	/**
+	 * The number of records evaluated so far
+	 */
+	private long records;
+	
+	/**
+	 * Constructor of the class
+	 * @param selections the selections to be combined
+	 */
+	protected CompositeSelection(List<Selection> selections) {
+		
+		List<Selection> stateful = new ArrayList<>();
+		List<Selection> stateless = new ArrayList<>();
+		
+		for(Selection selection : selections) {
+			
+			if(selection.isStateless()) {
+				
+				stateless.add(selection);
+				
+			} else {
+				
+				stateful.add(selection);
+			}
+		}
+		
+		this.statefulSelections = stateful.toArray(new Selection[0]);
+		this.statelessSelections = stateless.toArray(new Selection[0]);
+		this.evaluated = new long[statelessSelections.length];
+		this.passed = new long[statelessSelections.length];
+		this.sampledNanos = new long[statelessSelections.length];
+		this.sampled = new long[statelessSelections.length];
+	}
+	
+	/**
+	 * Method that returns the result that ends the evaluation as soon as one selection returns it
+	 * @return false for AND, true for OR
+	 */
+	protected abstract boolean decisiveResult();
+	
+	/**
+	 * Method that ranks a selection for the evaluation order, selections with a lower rank run first
+	 * @param cost the average cost in nanoseconds of the selection
+	 * @param passRate the fraction of the records evaluated that passed the selection
+	 * @return the rank of the selection
+	 */
+	protected abstract double rank(double cost, double passRate);
+	
+	@Override
+	public boolean isRecordWanted(String record) {
+		
+		return isRecordWanted(new ParsedRecord(record));
+	}
+	
+	@Override
+	public boolean isRecordWanted(ParsedRecord record) {
+		
+		boolean decisive = decisiveResult();
+		boolean decided = false;
+		
+		//Stateful selections see every record, even after the result is known
+		for(Selection selection : statefulSelections) {
+			
+			if(selection.isRecordWanted(record) == decisive) {
+				
+				decided = true;
+			}
+		}
+		
+		if(!decided) {
+			
+			boolean timed = records % SAMPLE_INTERVAL == 0;
+			
+			for(int index = 0; index < statelessSelections.length; index++) {
+				
+				long start = timed ? System.nanoTime() : 0;
+				boolean wanted = statelessSelections[index].isRecordWanted(record);
+				
+				if(timed) {
+					
+					sampledNanos[index] += System.nanoTime() - start;
+					sampled[index]++;
+				}
+				
+				evaluated[index]++;
+				
+				if(wanted) {
+					
+					passed[index]++;
+				}
+				
+				if(wanted == decisive) {
+					
+					decided = true;
+					break;
+				}
+			}
+		}
+		
+		if(++records % REORDER_INTERVAL == 0) {
+			
+			reorder();
+		}
+		
+		return decided ? decisive : !decisive;
+	}
+	
+	@Override
+	public boolean isStateless() {
+		
+		return statefulSelections.length == 0;
+	}
+	
+	/**
+	 * Method that combines what the statistics of the block say about each selection in the same way as the records
+	 */
+	@Override
+	public boolean mayMatch(ZoneMap zones, int block) {
+		
+		boolean decisive = decisiveResult();
+		
+		for(Selection[] group : new Selection[][] {statefulSelections, statelessSelections}) {
+			
+			for(Selection selection : group) {
+				
+				if(selection.mayMatch(zones, block) == decisive) {
+					
+					return decisive;
+				}
+			}
+		}
+		
+		return !decisive;
+	}
+	
+	/**
+	 * Method that sorts the stateless selections by their rank, moving their statistics along with them
+	 * The pass counts are halved afterwards, so the order keeps adapting if the data changes along the file
+	 */
+	private void reorder() {
+		
+		int count = statelessSelections.length;
+		double[] ranks = new double[count];
+		
+		for(int index = 0; index < count; index++) {
+			
+			double cost = sampled[index] == 0 ? 0 : (double) sampledNanos[index] / sampled[index];
+			//Selections that were never reached have no statistics yet, so they are assumed to pass half the time
+			double passRate = evaluated[index] == 0 ? 0.5 : (double) passed[index] / evaluated[index];
+			ranks[index] = rank(cost, passRate);
+		}
+		
+		//Insertion sort, as there are only a few selections
+		for(int index = 1; index < count; index++) {
+			
+			for(int current = index; current > 0 && ranks[current] < ranks[current - 1]; current--) {
+				
+				swap(current, current - 1, ranks);
+			}
+		}
+		
+		for(int index = 0; index < count; index++) {
+			
+			evaluated[index] /= 2;
+			passed[index] /= 2;
+		}
+	}
+	
+	/**
+	 * Method that swaps two stateless selections and their statistics
+	 * @param first the position of the first selection
+	 * @param second the position of the second selection
+	 * @param ranks the ranks of the selections
+	 */
+	private void swap(int first, int second, double[] ranks) {
+		
+		Selection selection = statelessSelections[first];
+		statelessSelections[first] = statelessSelections[second];
+		statelessSelections[second] = selection;
+		
+		double rank = ranks[first];
+		ranks[first] = ranks[second];
+		ranks[second] = rank;
+		
+		swap(evaluated, first, second);
+		swap(passed, first, second);
+		swap(sampledNanos, first, second);
+		swap(sampled, first, second);
+	}
+	
+	/**
+	 * Method that swaps two values of an array
+	 * @param values the array
+	 * @param first the position of the first value
+	 * @param second the position of the second value
+	 */
+	private void swap(long[] values, int first, int second) {
+		
+		long value = values[first];
+		values[first] = values[second];
+		values[second] = value;
+	}
+}
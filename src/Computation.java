@@ -1,20 +1,104 @@
-/**
- * Interface that serves as a blueprint for the the classes that perform a computation
- * @author Luiz do Valle
- *
- */
-public interface Computation {
-
-	/**
-	 * Method that performs a computation
-	 * @param record
-	 */
-	public abstract void compute(String record);
-	
-	/**
-	 * Method that returns the result of the computation
-	 * @return the result of the computation
-	 */
-	public abstract String result();
-	
-}
+import java.io.IOException;
+
+/**
+ * Interface that serves as a blueprint for the the classes that perform a computation
+ * @author Luiz do Valle
+ *
+ */
+public interface Computation {
+
+	/**
+	 * Method that performs a computation
+	 * @param record
+	 */
+	public abstract void compute(String record);
+	
+	/**
+	 * Method that performs a computation on an already parsed record
+	 * The default implementation simply hands the whole line to compute(String), which is enough
+	 * for the computations that do not look at the fields
+	 * @param record the parsed record
+	 */
+	public default void compute(ParsedRecord record) {
+		
+		compute(record.getLine());
+	}
+	
+	/**
+	 * Method that returns the result of the computation
+	 * @return the result of the computation
+	 */
+	public abstract String result();
+	
+	/**
+	 * Method that tells whether partial computations of this type can be combined with merge()
+	 * Only mergeable computations can be used when the file is processed in parallel chunks
+	 * @return true if merge() is supported, false otherwise
+	 */
+	public default boolean isMergeable() {
+		
+		return false;
+	}
+	
+	/**
+	 * Method that combines the partial result of another computation of the same type into this one
+	 * The other computation must have seen the records that come after the ones seen by this computation
+	 * @param other the computation to be merged into this one
+	 */
+	public default void merge(Computation other) {
+		
+		throw new UnsupportedOperationException(getClass().getSimpleName() + " cannot be merged");
+	}
+	
+	/**
+	 * Method that tells whether the computation can be performed on the columns of a ColumnarCache instead of on the records
+	 * @param cache the cache of the file being streamed
+	 * @return true if compute() is supported for the cache, false otherwise
+	 */
+	public default boolean isCacheable(ColumnarCache cache) {
+		
+		return false;
+	}
+	
+	/**
+	 * Method that performs the computation on the given valid records of a ColumnarCache
+	 * @param cache the cache of the file being streamed
+	 * @param rows the indexes of the selected records, in increasing order
+	 * @param count the number of records in the array
+	 * @throws IOException if the cache cannot be read
+	 */
+	public default void compute(ColumnarCache cache, int[] rows, int count) throws IOException {
+		
+		throw new UnsupportedOperationException(getClass().getSimpleName() + " cannot use a columnar cache");
+	}
+	
+	/**
+	 * Method that tells whether the computation can be performed on the statistics of the blocks of a ZoneMap
+	 * instead of on the records, which is only done when every valid record is selected
+	 * @param zones the block statistics of the file being streamed
+	 * @return true if compute() is supported for the statistics, false otherwise
+	 */
+	public default boolean isSummarizable(ZoneMap zones) {
+		
+		return false;
+	}
+	
+	/**
+	 * Method that performs the computation on all the valid records of a block of a ZoneMap
+	 * @param zones the block statistics of the file being streamed
+	 * @param block the block
+	 */
+	public default void compute(ZoneMap zones, int block) {
+		
+		throw new UnsupportedOperationException(getClass().getSimpleName() + " cannot use block statistics");
+	}
+	
+	/**
+	 * Method that releases the resources held by the computation outside of the Java heap, such as temporary files
+	 * Called once the result of the computation is no longer needed, and does nothing by default
+	 */
+	public default void close() {
+		
+	}
+	
+}
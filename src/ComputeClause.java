@@ -0,0 +1,135 @@
+/**
+ * Class that records one terminal computation requested by the user and the header it should be applied to
+ * A TSVFilter can hold any number of clauses, which are all computed in the same pass over the file
+ * @author Luiz do Valle
+ *
+ */
+public class ComputeClause {
+
+	/**
+	 * The header to be used for the terminal computation
+	 */
+	private final String header;
+	/**
+	 * The type of terminal computation to be performed
+	 */
+	private final Terminal computation;
+	/**
+	 * The windows over which the computation is performed, or null to perform it over the whole file
+	 */
+	private final WindowClause window;
+	/**
+	 * The parameters of the computation, such as the precision of DISTINCT_APPROX, empty to use the defaults
+	 */
+	private final double[] parameters;
+	
+	/**
+	 * Constructor of the class
+	 * @param header the header to which the terminal computation should be applied
+	 * @param computation the type of Computation to be performed
+	 */
+	public ComputeClause(String header, Terminal computation) {
+		
+		this(header, computation, null);
+	}
+	
+	/**
+	 * Constructor of the class for a computation performed over windows of the records
+	 * @param header the header to which the terminal computation should be applied
+	 * @param computation the type of Computation to be performed
+	 * @param window the windows over which the computation is performed, or null for the whole file
+	 */
+	public ComputeClause(String header, Terminal computation, WindowClause window) {
+		
+		this(header, computation, window, new double[0]);
+	}
+	
+	/**
+	 * Constructor of the class for a computation that takes parameters
+	 * @param header the header to which the terminal computation should be applied
+	 * @param computation the type of Computation to be performed
+	 * @param window the windows over which the computation is performed, or null for the whole file
+	 * @param parameters the parameters of the computation, empty to use the defaults
+	 */
+	public ComputeClause(String header, Terminal computation, WindowClause window, double... parameters) {
+		
+		this.header = header;
+		this.computation = computation;
+		this.window = window;
+		this.parameters = parameters.clone();
+	}
+
+	/**
+	 * Acessor method for the header to be used in the terminal computation
+	 * @return the header to be used in the computation
+	 */
+	public String getHeader() {
+		return header;
+	}
+
+	/**
+	 * Accessor method for the type of terminal computation to be performed
+	 * @return the type of Computation to be performed as an Enum
+	 */
+	public Terminal getComputation() {
+		return computation;
+	}
+	
+	/**
+	 * Accessor method for the windows over which the computation is performed
+	 * @return the windows, or null if the computation is performed over the whole file
+	 */
+	public WindowClause getWindow() {
+		return window;
+	}
+	
+	/**
+	 * Accessor method for the parameters of the computation
+	 * @return a copy of the parameters, empty if the defaults should be used
+	 */
+	public double[] getParameters() {
+		return parameters.clone();
+	}
+	
+	/**
+	 * Method that returns one parameter of the computation
+	 * @param index the position of the parameter
+	 * @param defaultValue the value returned if the parameter was not given
+	 * @return the parameter, or the default value
+	 */
+	public double getParameter(int index, double defaultValue) {
+		return index < parameters.length ? parameters[index] : defaultValue;
+	}
+	
+	/**
+	 * Overriden toString() implementation that prints the clause in the same format as the TSVFilter
+	 */
+	@Override
+	public String toString() {
+		
+		String windowed = window == null ? "" : " " + window;
+		String name = computation.name();
+		
+		if(parameters.length > 0) {
+			
+			StringBuilder described = new StringBuilder(name + "(");
+			
+			for(int index = 0; index < parameters.length; index++) {
+				
+				double parameter = parameters[index];
+				
+				//Whole numbers such as a precision are displayed without the decimal point
+				described.append((index > 0 ? ", " : "") + (parameter == Math.rint(parameter) ? String.valueOf((long) parameter) : String.valueOf(parameter)));
+			}
+			
+			name = described.append(")").toString();
+		}
+		
+		if(header.equals("")) {
+			
+			return name + windowed;
+		}
+		
+		return name + " = " + header + windowed;
+	}
+}
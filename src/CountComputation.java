@@ -1,25 +1,59 @@
-/**
- * Class that implements the Computation interface and simply performs the COUNT terminal computation
- * Counts how many records have been output
- * @author Luiz do Valle
- *
- */
-public class CountComputation implements Computation {
-
-	private int count;
-	
-	@Override
-	public void compute(String record) {
-		
-		count++;
-	}
-
-	@Override
-	public String result() {
-		
-		return String.valueOf(count);
-	}
-	
-	
-
-}
+/**
+ * Class that implements the Computation interface and simply performs the COUNT terminal computation
+ * Counts how many records have been output
+ * @author Luiz do Valle
+ *
+ */
+public class CountComputation implements Computation {
+
+	private int count;
+	
+	@Override
+	public void compute(String record) {
+		
+		count++;
+	}
+
+	@Override
+	public String result() {
+		
+		return String.valueOf(count);
+	}
+	
+	@Override
+	public boolean isMergeable() {
+		
+		return true;
+	}
+	
+	@Override
+	public void merge(Computation other) {
+		
+		count += ((CountComputation) other).count;
+	}
+	
+	@Override
+	public boolean isCacheable(ColumnarCache cache) {
+		
+		return true;
+	}
+	
+	@Override
+	public void compute(ColumnarCache cache, int[] rows, int count) {
+		
+		this.count += count;
+	}
+	
+	@Override
+	public boolean isSummarizable(ZoneMap zones) {
+		
+		return true;
+	}
+	
+	@Override
+	public void compute(ZoneMap zones, int block) {
+		
+		this.count += zones.getValidCount(block);
+	}
+
+}
@@ -0,0 +1,756 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Class that implements the Computation interface and performs COUNT, SUM, MIN and MAX for each group of records
+ * that share the same values under the headers the user grouped by, instead of once for the whole file
+ *
+ * The groups live in a GroupTable, which keeps one long slot per aggregate for each group, so the records are
+ * aggregated without boxing and without creating an object per group. SUM, MIN and MAX are only performed on long
+ * columns, so every valid record has a value for them
+ * Once the number of groups goes past a threshold, the groups are moved to an OffHeapGroupTable and the following
+ * records are aggregated there, so a grouping with millions of groups does not weigh on the garbage collector
+ *
+ * The memory held by the table is accounted by the table itself, and before it would grow past the memory budget the
+ * groups are sorted by key and written to a GroupRun, a temporary file of partial aggregates, and the table is
+ * emptied. A table never holds less than its minimum memory, so a budget below it is only kept by spilling every
+ * time the table would grow, and the groups are not moved off the heap when the off heap table alone needs more
+ * than the budget. The result is then found by merging the runs and the groups still in the table, all sorted by key, so
+ * the partial aggregates of a key are combined without holding every group in memory at once. Once there are
+ * MERGE_FAN_IN runs of the same level they are merged into a single run of the next level, so the number of runs
+ * stays small
+ * The runs are deleted by close()
+ *
+ * The result has one line per group, in increasing order of key, such as "Name = Bob -> COUNT: 2, SUM = Age: 26"
+ * Two computations are merged group by group, so the computation can be used when the file is processed in
+ * parallel chunks
+ * @author Luiz do Valle
+ *
+ */
+public class GroupByComputation implements Computation {
+
+	/**
+	 * The number of groups past which the groups are moved off the heap when the user does not give one
+	 */
+	public static final int DEFAULT_OFF_HEAP_THRESHOLD = 1024 * 1024;
+	/**
+	 * The number of runs of the same level that are merged into a single run of the next level
+	 */
+	public static final int MERGE_FAN_IN = 64;
+
+	/**
+	 * The groups and their aggregates
+	 */
+	private GroupTable table;
+	/**
+	 * The empty off heap table the groups are moved to, or null if they are never moved
+	 */
+	private final GroupTable offHeapTable;
+	/**
+	 * The number of groups past which the groups are moved to the off heap table
+	 */
+	private final int offHeapThreshold;
+	/**
+	 * The number of bytes the groups can hold in memory before they are written to a run
+	 */
+	private long memoryBudget;
+	/**
+	 * The runs written so far, holding the groups that did not fit in the memory budget
+	 */
+	private final List<GroupRun> runs = new ArrayList<>();
+	/**
+	 * The array where the keys are encoded when groups are merged or moved
+	 */
+	private byte[] key = new byte[64];
+	/**
+	 * The array where the slots of a group are copied before it is written to a run
+	 */
+	private final long[] slotValues;
+	/**
+	 * The headers the records are grouped by
+	 */
+	private final String[] groupHeaders;
+	/**
+	 * The aggregate kept in each slot, COUNT, SUM, MIN or MAX
+	 */
+	private final Terminal[] terminals;
+	/**
+	 * The long column of the values of each slot, or -1 for COUNT
+	 */
+	private final int[] valueColumns;
+	/**
+	 * The label displayed before the value of each slot
+	 */
+	private final String[] labels;
+
+	/**
+	 * Constructor of the class
+	 * @param table the empty table that holds the groups, with one slot per aggregate
+	 * @param offHeapTable the empty off heap table the groups are moved to, with the same slots, or null to never move them,
+	 * which is ignored if its minimum memory is larger than the memory budget
+	 * @param offHeapThreshold the number of groups past which the groups are moved to the off heap table
+	 * @param memoryBudget the number of bytes the groups can hold in memory before they are written to a run
+	 * @param groupHeaders the headers the records are grouped by
+	 * @param terminals the aggregate kept in each slot, COUNT, SUM, MIN or MAX
+	 * @param valueColumns the long column of the values of each slot, or -1 for COUNT
+	 * @param labels the label displayed before the value of each slot
+	 */
+	public GroupByComputation(GroupTable table, GroupTable offHeapTable, int offHeapThreshold, long memoryBudget,
+			String[] groupHeaders, Terminal[] terminals, int[] valueColumns, String[] labels) {
+
+		this.table = table;
+		this.offHeapTable = offHeapTable != null && offHeapTable.minimumMemory() <= memoryBudget ? offHeapTable : null;
+		this.offHeapThreshold = offHeapThreshold;
+		this.memoryBudget = memoryBudget;
+		this.slotValues = new long[terminals.length];
+		this.groupHeaders = groupHeaders.clone();
+		this.terminals = terminals.clone();
+		this.valueColumns = valueColumns.clone();
+		this.labels = labels.clone();
+	}
+
+	@Override
+	public void compute(String record) {
+
+		compute(new ParsedRecord(record));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @throws UncheckedIOException if the groups do not fit in the memory budget and cannot be written to a run
+	 */
+	@Override
+	public void compute(ParsedRecord record) {
+
+		spillIfFull();
+
+		int groupCount = table.size();
+		int group = table.group(record);
+
+		if(group == -1) {
+
+			return;
+		}
+
+		if(table.size() > groupCount) {
+
+			initialize(group);
+		}
+
+		for(int slot = 0; slot < terminals.length; slot++) {
+
+			if(terminals[slot] == Terminal.COUNT) {
+
+				table.set(group, slot, table.get(group, slot) + 1);
+
+			} else if(record.isLong(valueColumns[slot])) {
+
+				table.set(group, slot, combine(terminals[slot], table.get(group, slot), record.getLong(valueColumns[slot])));
+			}
+		}
+	}
+
+	/**
+	 * Method that returns the aggregates of each group, one group per line
+	 * The groups written to runs are read back and merged with the ones in memory, and the runs are kept, so the
+	 * result can be asked for again while records are still being computed
+	 * @return the aggregates of the groups, or null if no group was found or the runs could not be read
+	 */
+	@Override
+	public String result() {
+
+		if(table.size() == 0 && runs.isEmpty()) {
+
+			return null;
+		}
+
+		StringBuilder result = new StringBuilder();
+		List<GroupRun.Cursor> cursors = new ArrayList<>();
+
+		try {
+
+			cursors.add(new TableCursor(sortedGroups()));
+
+			for(GroupRun run : runs) {
+
+				cursors.add(run.open());
+			}
+
+			mergeCursors(cursors, null, result);
+
+		} catch (IOException e) {
+
+			System.out.println("Problem reading the spilled groups: " + e.getMessage());
+			return null;
+
+		} finally {
+
+			closeCursors(cursors);
+		}
+
+		return result.toString();
+	}
+
+	/**
+	 * Method that deletes the runs written so far
+	 */
+	@Override
+	public void close() {
+
+		for(GroupRun run : runs) {
+
+			run.delete();
+		}
+
+		runs.clear();
+	}
+
+	@Override
+	public boolean isMergeable() {
+
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * The runs of the other computation are taken over, together with its memory budget, and its groups are
+	 * removed, so the other computation is left empty
+	 * @throws UncheckedIOException if the groups do not fit in the memory budget and cannot be written to a run
+	 */
+	@Override
+	public void merge(Computation other) {
+
+		GroupByComputation otherComputation = (GroupByComputation) other;
+		GroupTable otherTable = otherComputation.table;
+
+		memoryBudget = otherComputation.memoryBudget > Long.MAX_VALUE - memoryBudget ? Long.MAX_VALUE
+				: memoryBudget + otherComputation.memoryBudget;
+
+		for(int otherGroup = 0; otherGroup < otherTable.size(); otherGroup++) {
+
+			spillIfFull();
+
+			int groupCount = table.size();
+			int group = table.groupOfKey(encodeKey(otherTable, otherGroup), otherTable.keyLength(otherGroup));
+
+			if(table.size() > groupCount) {
+
+				initialize(group);
+			}
+
+			for(int slot = 0; slot < terminals.length; slot++) {
+
+				//The COUNTs are added like the SUMs
+				table.set(group, slot, combine(terminals[slot], table.get(group, slot), otherTable.get(otherGroup, slot)));
+			}
+		}
+
+		otherTable.clear();
+		runs.addAll(otherComputation.runs);
+		otherComputation.runs.clear();
+
+		try {
+
+			compactRunsIfNeeded();
+
+		} catch (IOException e) {
+
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Method that writes the groups to a run and empties the table if one more group would make the table grow past
+	 * the budget
+	 * The int array used to sort the groups before they are written is accounted as well. The table is only spilled
+	 * when it has to grow, as the memory it already holds is kept or allocated again once it is emptied, so spilling
+	 * it earlier would not lower the memory used
+	 */
+	private void spillIfFull() {
+
+		int size = table.size();
+		long memoryToGrow = table.memoryToGrow();
+
+		if(size > 0 && memoryToGrow > 0 && table.memoryUsed() + memoryToGrow + (long) (size + 1) * Integer.BYTES > memoryBudget) {
+
+			try {
+
+				spill();
+
+			} catch (IOException e) {
+
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	/**
+	 * Method that writes every group of the table to a new run, in increasing order of key, and empties the table
+	 * @throws IOException if the run cannot be written
+	 */
+	private void spill() throws IOException {
+
+		GroupRun run = new GroupRun(terminals.length, 0);
+		runs.add(run);
+
+		for(int group : sortedGroups()) {
+
+			for(int slot = 0; slot < terminals.length; slot++) {
+
+				slotValues[slot] = table.get(group, slot);
+			}
+
+			run.append(encodeKey(table, group), table.keyLength(group), slotValues);
+		}
+
+		run.finish();
+		table.clear();
+		compactRunsIfNeeded();
+	}
+
+	/**
+	 * Method that merges the runs of a level into a single run of the next level once there are MERGE_FAN_IN of them,
+	 * going on with the next levels, so each group is written again only a logarithmic number of times however many
+	 * runs are written
+	 * @throws IOException if the runs cannot be read or the merged run cannot be written
+	 */
+	private void compactRunsIfNeeded() throws IOException {
+
+		boolean higherLevels = true;
+
+		for(int level = 0; higherLevels; level++) {
+
+			List<GroupRun> sameLevel = new ArrayList<>();
+			higherLevels = false;
+
+			for(GroupRun run : runs) {
+
+				if(run.getLevel() == level) {
+
+					sameLevel.add(run);
+
+				} else if(run.getLevel() > level) {
+
+					higherLevels = true;
+				}
+			}
+
+			if(sameLevel.size() >= MERGE_FAN_IN) {
+
+				runs.add(mergeRuns(sameLevel, level + 1));
+				higherLevels = true;
+			}
+		}
+	}
+
+	/**
+	 * Method that merges runs into a new run, which replaces them
+	 * @param merged the runs to be merged, which are deleted
+	 * @param level the level of the new run
+	 * @return the new run
+	 * @throws IOException if the runs cannot be read or the new run cannot be written
+	 */
+	private GroupRun mergeRuns(List<GroupRun> merged, int level) throws IOException {
+
+		GroupRun run = new GroupRun(terminals.length, level);
+		List<GroupRun.Cursor> cursors = new ArrayList<>();
+
+		try {
+
+			for(GroupRun mergedRun : merged) {
+
+				cursors.add(mergedRun.open());
+			}
+
+			mergeCursors(cursors, run, null);
+			run.finish();
+
+		} catch (IOException e) {
+
+			run.delete();
+			throw e;
+
+		} finally {
+
+			closeCursors(cursors);
+		}
+
+		for(GroupRun mergedRun : merged) {
+
+			mergedRun.delete();
+		}
+
+		runs.removeAll(merged);
+		return run;
+	}
+
+	/**
+	 * Method that merges groups sorted by key, combining the aggregates of the groups with the same key, and either
+	 * writes the merged groups to a run or appends them to a result
+	 * @param cursors the cursors over the groups, each one in increasing order of key
+	 * @param output the run where the merged groups are written, or null to append them to the result
+	 * @param result the result the merged groups are appended to, one group per line, when there is no run
+	 * @throws IOException if the groups cannot be read or written
+	 */
+	private void mergeCursors(List<GroupRun.Cursor> cursors, GroupRun output, StringBuilder result) throws IOException {
+
+		PriorityQueue<GroupRun.Cursor> queue = new PriorityQueue<>((first, second) -> Arrays.compareUnsigned(
+				first.getKey(), 0, first.getKeyLength(), second.getKey(), 0, second.getKeyLength()));
+
+		for(GroupRun.Cursor cursor : cursors) {
+
+			if(cursor.next()) {
+
+				queue.add(cursor);
+			}
+		}
+
+		byte[] mergedKey = new byte[64];
+		int mergedLength = -1;
+		long[] mergedSlots = new long[terminals.length];
+
+		while(!queue.isEmpty()) {
+
+			GroupRun.Cursor cursor = queue.poll();
+			byte[] cursorKey = cursor.getKey();
+			int cursorLength = cursor.getKeyLength();
+			long[] cursorSlots = cursor.getSlots();
+
+			if(mergedLength != -1 && Arrays.equals(mergedKey, 0, mergedLength, cursorKey, 0, cursorLength)) {
+
+				for(int slot = 0; slot < terminals.length; slot++) {
+
+					mergedSlots[slot] = combine(terminals[slot], mergedSlots[slot], cursorSlots[slot]);
+				}
+
+			} else {
+
+				if(mergedLength != -1) {
+
+					emit(mergedKey, mergedLength, mergedSlots, output, result);
+				}
+
+				if(cursorLength > mergedKey.length) {
+
+					mergedKey = new byte[Math.max(cursorLength, mergedKey.length * 2)];
+				}
+
+				System.arraycopy(cursorKey, 0, mergedKey, 0, cursorLength);
+				System.arraycopy(cursorSlots, 0, mergedSlots, 0, terminals.length);
+				mergedLength = cursorLength;
+			}
+
+			if(cursor.next()) {
+
+				queue.add(cursor);
+			}
+		}
+
+		if(mergedLength != -1) {
+
+			emit(mergedKey, mergedLength, mergedSlots, output, result);
+		}
+	}
+
+	/**
+	 * Method that writes a merged group to a run or appends it to a result, such as "Name = Bob -> COUNT: 2"
+	 * @param groupKey the array that holds the encoded key of the group
+	 * @param length the number of bytes of the key
+	 * @param slots the aggregates of the group
+	 * @param output the run where the group is written, or null to append it to the result
+	 * @param result the result the group is appended to when there is no run
+	 * @throws IOException if the group cannot be written
+	 */
+	private void emit(byte[] groupKey, int length, long[] slots, GroupRun output, StringBuilder result) throws IOException {
+
+		if(output != null) {
+
+			output.append(groupKey, length, slots);
+			return;
+		}
+
+		String[] keyFields = table.describeKey(groupKey, length).split("\t", -1);
+
+		result.append("\n");
+
+		for(int index = 0; index < groupHeaders.length; index++) {
+
+			result.append((index > 0 ? ", " : "") + groupHeaders[index] + " = " + keyFields[index]);
+		}
+
+		result.append(" ->");
+
+		for(int slot = 0; slot < terminals.length; slot++) {
+
+			result.append((slot > 0 ? ", " : " ") + labels[slot] + ": " + slots[slot]);
+		}
+	}
+
+	/**
+	 * Method that closes cursors, going on with the other ones if one cannot be closed
+	 * @param cursors the cursors
+	 */
+	private static void closeCursors(List<GroupRun.Cursor> cursors) {
+
+		for(GroupRun.Cursor cursor : cursors) {
+
+			try {
+
+				cursor.close();
+
+			} catch (IOException e) {
+
+				System.out.println("Problem closing a run of groups: " + e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Method that returns the numbers of the groups of the table in increasing order of key
+	 * The groups are sorted with a quicksort on an int array, so no Integer is created per group
+	 * @return the numbers of the groups, sorted
+	 */
+	private int[] sortedGroups() {
+
+		int[] groups = new int[table.size()];
+
+		for(int group = 0; group < groups.length; group++) {
+
+			groups[group] = group;
+		}
+
+		sort(groups, 0, groups.length - 1);
+		return groups;
+	}
+
+	/**
+	 * Method that sorts a range of group numbers by key with a quicksort, recursing on the smaller part only so the
+	 * stack stays shallow
+	 * The pivot is the middle group, so groups added in order of key, such as timestamps, are not a worst case
+	 * @param groups the numbers of the groups
+	 * @param low the index of the first group of the range
+	 * @param high the index of the last group of the range (inclusive)
+	 */
+	private void sort(int[] groups, int low, int high) {
+
+		while(low < high) {
+
+			int pivot = groups[(low + high) >>> 1];
+			int left = low;
+			int right = high;
+
+			while(left <= right) {
+
+				while(table.compare(groups[left], pivot) < 0) {
+
+					left++;
+				}
+
+				while(table.compare(groups[right], pivot) > 0) {
+
+					right--;
+				}
+
+				if(left <= right) {
+
+					int swapped = groups[left];
+					groups[left++] = groups[right];
+					groups[right--] = swapped;
+				}
+			}
+
+			if(right - low < high - left) {
+
+				sort(groups, low, right);
+				low = left;
+
+			} else {
+
+				sort(groups, left, high);
+				high = right;
+			}
+		}
+	}
+
+	/**
+	 * Method that moves every group to the off heap table, which holds the groups from then on
+	 * The numbers of the groups do not change, as they are added to the off heap table in the same order
+	 */
+	private void moveOffHeap() {
+
+		for(int group = 0; group < table.size(); group++) {
+
+			int offHeapGroup = offHeapTable.groupOfKey(encodeKey(table, group), table.keyLength(group));
+
+			for(int slot = 0; slot < terminals.length; slot++) {
+
+				offHeapTable.set(offHeapGroup, slot, table.get(group, slot));
+			}
+		}
+
+		table = offHeapTable;
+	}
+
+	/**
+	 * Method that encodes the key of a group of a table into the array of the computation, growing it if needed
+	 * @param source the table
+	 * @param group the number of the group
+	 * @return the array holding the encoded key
+	 */
+	private byte[] encodeKey(GroupTable source, int group) {
+
+		int length = source.keyLength(group);
+
+		if(length > key.length) {
+
+			key = new byte[Math.max(length, key.length * 2)];
+		}
+
+		source.encodeKey(group, key);
+		return key;
+	}
+
+	/**
+	 * Method that sets the slots of a new group to the value of an aggregate over no record, and moves the groups
+	 * to the off heap table if there are now too many of them
+	 * @param group the number of the group
+	 */
+	private void initialize(int group) {
+
+		for(int slot = 0; slot < terminals.length; slot++) {
+
+			table.set(group, slot, initialValue(terminals[slot]));
+		}
+
+		if(table.size() > offHeapThreshold && offHeapTable != null && table != offHeapTable) {
+
+			moveOffHeap();
+		}
+	}
+
+	/**
+	 * Method that returns the value of an aggregate over no record
+	 * @param terminal the aggregate
+	 * @return the initial value of a slot holding the aggregate
+	 */
+	private static long initialValue(Terminal terminal) {
+
+		switch(terminal) {
+
+			case MIN:
+				return Long.MAX_VALUE;
+			case MAX:
+				return Long.MIN_VALUE;
+			default:
+				return 0;
+		}
+	}
+
+	/**
+	 * Method that adds a value, or the partial value of the same aggregate, to an aggregate
+	 * @param terminal the aggregate
+	 * @param aggregate the current value of the aggregate
+	 * @param value the value of the record, or the partial value
+	 * @return the new value of the aggregate
+	 */
+	private static long combine(Terminal terminal, long aggregate, long value) {
+
+		switch(terminal) {
+
+			case MIN:
+				return Math.min(aggregate, value);
+			case MAX:
+				return Math.max(aggregate, value);
+			default:
+				return aggregate + value;
+		}
+	}
+
+	/**
+	 * Class that goes through the groups of the table in increasing order of key, so they can be merged with the runs
+	 * @author Luiz do Valle
+	 *
+	 */
+	private class TableCursor implements GroupRun.Cursor {
+
+		/**
+		 * The numbers of the groups, sorted by key
+		 */
+		private final int[] groups;
+		/**
+		 * The index of the current group in groups
+		 */
+		private int position = -1;
+		/**
+		 * The array holding the encoded key of the current group
+		 */
+		private byte[] cursorKey = new byte[64];
+		/**
+		 * The slots of the current group
+		 */
+		private final long[] slots = new long[terminals.length];
+
+		/**
+		 * Constructor of the class
+		 * @param groups the numbers of the groups, sorted by key
+		 */
+		private TableCursor(int[] groups) {
+
+			this.groups = groups;
+		}
+
+		@Override
+		public boolean next() {
+
+			if(++position == groups.length) {
+
+				return false;
+			}
+
+			int group = groups[position];
+			int length = table.keyLength(group);
+
+			if(length > cursorKey.length) {
+
+				cursorKey = new byte[Math.max(length, cursorKey.length * 2)];
+			}
+
+			table.encodeKey(group, cursorKey);
+
+			for(int slot = 0; slot < terminals.length; slot++) {
+
+				slots[slot] = table.get(group, slot);
+			}
+
+			return true;
+		}
+
+		@Override
+		public byte[] getKey() {
+
+			return cursorKey;
+		}
+
+		@Override
+		public int getKeyLength() {
+
+			return table.keyLength(groups[position]);
+		}
+
+		@Override
+		public long[] getSlots() {
+
+			return slots;
+		}
+
+		@Override
+		public void close() {
+
+		}
+	}
+
+}
@@ -0,0 +1,229 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Class that represents a run: a temporary file holding partial aggregates of groups, in increasing order of
+ * encoded key, written when the groups of a GROUP BY no longer fit in its memory budget
+ * Each group is written as the length of its encoded key, the encoded key and its slots. The runs are read back
+ * through cursors, so that several runs can be merged by going through them at the same time
+ * The file is deleted by delete(), or when the JVM exits at the latest
+ * @author Luiz do Valle
+ *
+ */
+public class GroupRun {
+
+	/**
+	 * The size in bytes of the buffers used to write and read the file
+	 */
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * The temporary file
+	 */
+	private final File file;
+	/**
+	 * The number of slots of each group
+	 */
+	private final int slotCount;
+	/**
+	 * The number of times the groups of the run were merged from other runs, 0 for a run written from memory
+	 */
+	private final int level;
+	/**
+	 * The stream used to write the file, or null once it was finished
+	 */
+	private DataOutputStream output;
+	/**
+	 * The number of groups written
+	 */
+	private long groupCount;
+
+	/**
+	 * Interface that serves as a blueprint for the classes that go through groups in increasing order of encoded key
+	 * @author Luiz do Valle
+	 *
+	 */
+	public interface Cursor {
+
+		/**
+		 * Method that moves to the next group
+		 * @return true if there is a next group, false if every group was seen
+		 * @throws IOException if the groups cannot be read
+		 */
+		public abstract boolean next() throws IOException;
+
+		/**
+		 * Accessor method for the encoded key of the current group
+		 * Only the first getKeyLength() bytes belong to the key and the array is reused by next()
+		 * @return the array holding the key
+		 */
+		public abstract byte[] getKey();
+
+		/**
+		 * Accessor method for the length of the encoded key of the current group
+		 * @return the number of bytes of the key
+		 */
+		public abstract int getKeyLength();
+
+		/**
+		 * Accessor method for the slots of the current group
+		 * @return the array holding the slots, which is reused by next()
+		 */
+		public abstract long[] getSlots();
+
+		/**
+		 * Method that releases the resources held by the cursor
+		 * @throws IOException if the resources cannot be released
+		 */
+		public abstract void close() throws IOException;
+	}
+
+	/**
+	 * Constructor of the class that creates an empty run in the temporary directory, ready to be written
+	 * @param slotCount the number of slots of each group
+	 * @param level the number of times the groups of the run were merged from other runs, 0 for a run written from memory
+	 * @throws IOException if the file cannot be created
+	 */
+	public GroupRun(int slotCount, int level) throws IOException {
+
+		this.slotCount = slotCount;
+		this.level = level;
+		this.file = File.createTempFile("tsv-groups", ".run");
+		file.deleteOnExit();
+		output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE));
+	}
+
+	/**
+	 * Accessor method for the level of the run
+	 * @return the number of times the groups of the run were merged from other runs
+	 */
+	public int getLevel() {
+
+		return level;
+	}
+
+	/**
+	 * Method that writes a group after the ones already written, which must have smaller keys
+	 * @param key the array that holds the encoded key
+	 * @param length the number of bytes of the key
+	 * @param slots the slots of the group
+	 * @throws IOException if the group cannot be written
+	 */
+	public void append(byte[] key, int length, long[] slots) throws IOException {
+
+		output.writeInt(length);
+		output.write(key, 0, length);
+
+		for(int slot = 0; slot < slotCount; slot++) {
+
+			output.writeLong(slots[slot]);
+		}
+
+		groupCount++;
+	}
+
+	/**
+	 * Method that finishes writing the run, after which it can only be read
+	 * @throws IOException if the file cannot be written
+	 */
+	public void finish() throws IOException {
+
+		output.close();
+		output = null;
+	}
+
+	/**
+	 * Method that opens a cursor over the groups of a finished run
+	 * @return the cursor, positioned before the first group
+	 * @throws IOException if the file cannot be opened
+	 */
+	public Cursor open() throws IOException {
+
+		DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE));
+
+		return new Cursor() {
+
+			private long groupsRead;
+			private byte[] key = new byte[64];
+			private int keyLength;
+			private final long[] slots = new long[slotCount];
+
+			@Override
+			public boolean next() throws IOException {
+
+				if(groupsRead == groupCount) {
+
+					return false;
+				}
+
+				keyLength = input.readInt();
+
+				if(keyLength > key.length) {
+
+					key = new byte[Math.max(keyLength, key.length * 2)];
+				}
+
+				input.readFully(key, 0, keyLength);
+
+				for(int slot = 0; slot < slotCount; slot++) {
+
+					slots[slot] = input.readLong();
+				}
+
+				groupsRead++;
+				return true;
+			}
+
+			@Override
+			public byte[] getKey() {
+
+				return key;
+			}
+
+			@Override
+			public int getKeyLength() {
+
+				return keyLength;
+			}
+
+			@Override
+			public long[] getSlots() {
+
+				return slots;
+			}
+
+			@Override
+			public void close() throws IOException {
+
+				input.close();
+			}
+		};
+	}
+
+	/**
+	 * Method that deletes the file of the run
+	 */
+	public void delete() {
+
+		try {
+
+			if(output != null) {
+
+				output.close();
+			}
+
+		} catch (IOException e) {
+
+			//The file is deleted anyway
+		}
+
+		file.delete();
+	}
+
+}
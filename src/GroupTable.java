@@ -0,0 +1,114 @@
+/**
+ * Interface that serves as a blueprint for the hash tables that hold the groups of a GROUP BY
+ * Each group is identified by a number, given in the order in which the groups were added, and has a fixed number
+ * of long slots where the aggregates of the group are accumulated, so no object is created per group
+ * @author Luiz do Valle
+ *
+ */
+public interface GroupTable {
+
+	/**
+	 * Method that finds the group of a record, adding it with all its slots set to 0 if it is not in the table
+	 * @param record the parsed record
+	 * @return the number of the group, or -1 if the record has no valid key
+	 */
+	public abstract int group(ParsedRecord record);
+
+	/**
+	 * Method that finds the group of a key encoded by encodeKey(), adding it with all its slots set to 0 if it is
+	 * not in the table
+	 * Used to merge two tables and to move the groups of a table to another one
+	 * @param key the array that holds the encoded key
+	 * @param length the number of bytes of the encoded key
+	 * @return the number of the group
+	 */
+	public abstract int groupOfKey(byte[] key, int length);
+
+	/**
+	 * Method that returns the number of bytes of the encoded key of a group
+	 * @param group the number of the group
+	 * @return the number of bytes written by encodeKey()
+	 */
+	public abstract int keyLength(int group);
+
+	/**
+	 * Method that encodes the key of a group as bytes, in the same way for every table grouping on the same columns:
+	 * the eight bytes of a long key, with the sign bit flipped so the keys compare as unsigned bytes in the same
+	 * order as longs, or the raw bytes of the fields separated by tabs
+	 * @param group the number of the group
+	 * @param destination the array where the key is written, which must hold at least keyLength(group) bytes
+	 */
+	public abstract void encodeKey(int group, byte[] destination);
+
+	/**
+	 * Accessor method for the number of groups in the table
+	 * @return the number of groups
+	 */
+	public abstract int size();
+
+	/**
+	 * Method that returns the value of a slot of a group
+	 * @param group the number of the group
+	 * @param slot the slot
+	 * @return the value of the slot
+	 */
+	public abstract long get(int group, int slot);
+
+	/**
+	 * Method that changes the value of a slot of a group
+	 * @param group the number of the group
+	 * @param slot the slot
+	 * @param value the new value of the slot
+	 */
+	public abstract void set(int group, int slot, long value);
+
+	/**
+	 * Method that compares the keys of two groups, which is the order in which the groups are displayed
+	 * @param first the number of the first group
+	 * @param second the number of the second group
+	 * @return a negative number, zero or a positive number if the first key comes before, is equal to or comes
+	 * after the second key
+	 */
+	public abstract int compare(int first, int second);
+
+	/**
+	 * Method that returns a key encoded by encodeKey() as text, with the fields of a key of several columns separated
+	 * by tabs
+	 * The key does not need to be in the table, so the keys of groups read back from a GroupRun can be displayed
+	 * @param key the array that holds the encoded key
+	 * @param length the number of bytes of the encoded key
+	 * @return the key as text
+	 */
+	public abstract String describeKey(byte[] key, int length);
+
+	/**
+	 * Method that returns the number of bytes of memory held by the table, on or off the heap
+	 * Every array or buffer the table allocates is counted at its full size, used or not
+	 * @return the number of bytes held
+	 */
+	public abstract long memoryUsed();
+
+	/**
+	 * Method that returns the number of bytes the table would allocate if one more group were added, which is 0 unless
+	 * an array or buffer of the table is full and has to grow
+	 * The new group is assumed to have a key no longer than the longest key seen so far, and the new arrays are counted at
+	 * their full size, on top of memoryUsed(), since the arrays they replace are still held while they are copied
+	 * @return the number of bytes the next group could allocate
+	 */
+	public abstract long memoryToGrow();
+
+	/**
+	 * Method that returns the number of bytes of memory the table holds as soon as it has a group, which is the
+	 * smallest memory budget the table can be kept within
+	 * @return the number of bytes held by a table with one group
+	 */
+	public abstract long minimumMemory();
+
+	/**
+	 * Method that removes every group, leaving the table as it was when created
+	 * The memory of the table is either given back or kept to be reused by the next groups, in which case it is
+	 * still counted by memoryUsed()
+	 */
+	public abstract void clear();
+
+}
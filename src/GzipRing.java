@@ -0,0 +1,243 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Class that inflates a gzip compressed file on a dedicated thread into a bounded ring of blocks, so the thread
+ * reading the lines parses and selects the records of one block while the next blocks are being inflated
+ *
+ * The ring is made of BLOCK_COUNT blocks allocated once: the background thread takes a free block, fills it with
+ * inflated bytes and hands it over through a queue, and the reader gives it back once it has read its lines. When
+ * every block is full the background thread waits, so the memory used does not depend on the size of the file and
+ * a slow reader does not make the inflated data pile up
+ * Files made of several gzip members one after the other, as written by concatenating .gz files, are read as a whole
+ *
+ * Errors found by the background thread are reported by the call to take() that reaches them, a file that ends
+ * before its compressed data does being reported as truncated
+ * @author Luiz do Valle
+ *
+ */
+public class GzipRing {
+
+	/**
+	 * The number of blocks of the ring
+	 */
+	public static final int BLOCK_COUNT = 4;
+	/**
+	 * The size of each block (1 MB)
+	 */
+	public static final int BLOCK_SIZE = 1024 * 1024;
+	/**
+	 * The size of the buffer holding the compressed bytes read from the file
+	 */
+	private static final int INPUT_BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * Class that represents a block of the ring, holding inflated bytes
+	 * @author Luiz do Valle
+	 *
+	 */
+	public static class Block {
+
+		/**
+		 * The inflated bytes, only the first length of them are used
+		 */
+		private final byte[] bytes = new byte[BLOCK_SIZE];
+		/**
+		 * The number of bytes in the block
+		 */
+		private int length;
+
+		/**
+		 * Accessor method for the bytes of the block
+		 * @return the array holding the bytes, only the first getLength() of them belong to the block
+		 */
+		public byte[] getBytes() {
+
+			return bytes;
+		}
+
+		/**
+		 * Accessor method for the number of bytes in the block
+		 * @return the number of inflated bytes
+		 */
+		public int getLength() {
+
+			return length;
+		}
+	}
+
+	/**
+	 * The block handed over once the whole file was inflated, or when the background thread failed
+	 */
+	private static final Block END = new Block();
+
+	/**
+	 * The blocks free to be filled
+	 */
+	private final BlockingQueue<Block> freeBlocks = new ArrayBlockingQueue<>(BLOCK_COUNT);
+	/**
+	 * The blocks filled and not read yet, followed by END once the file was inflated
+	 */
+	private final BlockingQueue<Block> filledBlocks = new ArrayBlockingQueue<>(BLOCK_COUNT + 1);
+	/**
+	 * The thread that inflates the file
+	 */
+	private final ExecutorService inflater;
+	/**
+	 * The problem found by the background thread, or null if there was none
+	 */
+	private volatile IOException failure;
+	/**
+	 * Whether END was taken, after which take() only returns null
+	 */
+	private boolean ended;
+
+	/**
+	 * Constructor of the class that starts inflating the file right away
+	 * @param channel the channel of the compressed file, positioned at its start, which is read by the background
+	 * thread and must stay open until close() is called
+	 * @param name the name of the file, used to name the background thread
+	 */
+	public GzipRing(FileChannel channel, String name) {
+
+		for(int block = 0; block < BLOCK_COUNT; block++) {
+
+			freeBlocks.add(new Block());
+		}
+
+		this.inflater = Executors.newSingleThreadExecutor(runnable -> {
+
+			Thread thread = new Thread(runnable, "GzipRing " + name);
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		inflater.execute(() -> inflate(channel));
+	}
+
+	/**
+	 * Method that waits for the next block of inflated bytes
+	 * The block must be given back with release() once its bytes are no longer needed
+	 * @return the next block, or null once the whole file was read
+	 * @throws IOException if the file cannot be read or is not a valid gzip file, or if the wait was interrupted
+	 */
+	public Block take() throws IOException {
+
+		if(ended) {
+
+			return null;
+		}
+
+		Block block;
+
+		try {
+
+			block = filledBlocks.take();
+
+		} catch (InterruptedException e) {
+
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for the file to be inflated", e);
+		}
+
+		if(block == END) {
+
+			ended = true;
+
+			if(failure != null) {
+
+				throw failure;
+			}
+
+			return null;
+		}
+
+		return block;
+	}
+
+	/**
+	 * Method that gives a block back to the ring, so the background thread can fill it again
+	 * @param block the block returned by take()
+	 */
+	public void release(Block block) {
+
+		freeBlocks.add(block);
+	}
+
+	/**
+	 * Method that stops the background thread, even if the file was not read to its end
+	 */
+	public void close() {
+
+		inflater.shutdownNow();
+	}
+
+	/**
+	 * Method run by the background thread that inflates the file into the free blocks until its end
+	 * @param channel the channel of the compressed file
+	 */
+	private void inflate(FileChannel channel) {
+
+		try {
+
+			InputStream input = new GZIPInputStream(Channels.newInputStream(channel), INPUT_BUFFER_SIZE);
+			int length;
+
+			do {
+
+				Block block = freeBlocks.take();
+				length = 0;
+
+				//The block is filled completely unless the end of the file is reached, so the reader sees few blocks
+				while(length < BLOCK_SIZE) {
+
+					int read = input.read(block.bytes, length, BLOCK_SIZE - length);
+
+					if(read == -1) {
+
+						break;
+					}
+
+					length += read;
+				}
+
+				block.length = length;
+
+				if(length > 0) {
+
+					filledBlocks.put(block);
+
+				} else {
+
+					freeBlocks.add(block);
+				}
+
+			} while(length == BLOCK_SIZE);
+
+		} catch (EOFException e) {
+
+			//Thrown when the file ends in the middle of the gzip header or of the compressed data
+			failure = new IOException("The compressed file is truncated", e);
+
+		} catch (IOException e) {
+
+			failure = e;
+
+		} catch (InterruptedException e) {
+
+			//close() was called, nobody is waiting for the blocks anymore
+			return;
+		}
+
+		filledBlocks.add(END);
+	}
+
+}
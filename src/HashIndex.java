@@ -0,0 +1,686 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Class that keeps an on-disk hash index of one column of a .tsv file (file.tsv.column.hashidx), mapping the values
+ * of the column to the positions of the valid records that hold them
+ * An equality select() on an indexed column can then seek straight to the matching records instead of reading
+ * the whole file
+ *
+ * The index is divided in buckets, each one holding the hash and the position of the records whose value falls in it,
+ * in the order in which they appear in the file. Only the bucket of the value being looked up is read, and as
+ * different values can have the same hash, the records found must still be checked against the value
+ * The positions of the invalid records are kept as well, so they can still be streamed to the invalid output file
+ * The entries of a bucket are read in batches of bounded size, however many records hold the value, and
+ * isSelective() tells whether a value is rare enough for seeking to its records to be faster than reading the whole file
+ *
+ * The index records the size and the modification time of the .tsv file. Once the .tsv file changes, open()
+ * reports that the index is out of date and does not use it until build() is called again, as building it means
+ * reading the whole file
+ * @author Luiz do Valle
+ *
+ */
+public class HashIndex {
+
+	/**
+	 * The extension added to the name of the .tsv file and the column to name its index
+	 */
+	public static final String EXTENSION = ".hashidx";
+
+	/**
+	 * The number identifying an index file ("TSVH")
+	 */
+	private static final int MAGIC = 0x54535648;
+	/**
+	 * The version of the format of the index file
+	 */
+	private static final int VERSION = 1;
+	/**
+	 * The size in bytes of the header of the index file
+	 */
+	private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 4 + 4 + 8 + 8;
+	/**
+	 * The average number of records per bucket
+	 */
+	private static final int RECORDS_PER_BUCKET = 8;
+	/**
+	 * The number of temporary files the entries are spread over while the index is built, so each of them
+	 * can be sorted in memory
+	 */
+	private static final int PARTITIONS = 64;
+	/**
+	 * The size of the buffers used to write and read the temporary files
+	 */
+	private static final int BUFFER_SIZE = 64 * 1024;
+	/**
+	 * The size in bytes of an entry, the hash followed by the position
+	 */
+	private static final int ENTRY_SIZE = 16;
+	/**
+	 * The number of entries a bucket can hold before the share of the records it covers is checked by isSelective()
+	 * Seeking to that few records is always faster than reading the whole file
+	 */
+	private static final int SELECTIVE_ENTRIES = BUFFER_SIZE / ENTRY_SIZE;
+	/**
+	 * A bucket holding more than one in this many valid records is not worth seeking to
+	 */
+	private static final int SELECTIVE_SHARE = 16;
+
+	/**
+	 * The channel used to read the index
+	 */
+	private final FileChannel channel;
+	/**
+	 * The number of buckets, always a power of two
+	 */
+	private final int bucketCount;
+	/**
+	 * The number of entries, which is the number of valid records
+	 */
+	private final long entryCount;
+	/**
+	 * The number of invalid records
+	 */
+	private final long invalidCount;
+	/**
+	 * The position in the index file where the entries start
+	 */
+	private final long entriesStart;
+	/**
+	 * The position in the index file where the positions of the invalid records start
+	 */
+	private final long invalidStart;
+	/**
+	 * The block of positions of invalid records read last
+	 */
+	private final ByteBuffer invalidBlock = ByteBuffer.allocate(BUFFER_SIZE).limit(0);
+	/**
+	 * The index of the first invalid record in the block
+	 */
+	private long invalidBlockStart;
+
+	/**
+	 * Private constructor that is only to be used by open()
+	 */
+	private HashIndex(FileChannel channel, int bucketCount, long entryCount, long invalidCount) {
+
+		this.channel = channel;
+		this.bucketCount = bucketCount;
+		this.entryCount = entryCount;
+		this.invalidCount = invalidCount;
+		this.entriesStart = HEADER_SIZE + 8L * (bucketCount + 1);
+		this.invalidStart = entriesStart + ENTRY_SIZE * entryCount;
+	}
+
+	/**
+	 * Method that finds the index file of a column of the given .tsv file
+	 * @param source the .tsv file
+	 * @param column the indexed column
+	 * @return the index file, which may not exist
+	 */
+	public static File indexOf(File source, int column) {
+
+		return new File(source.getPath() + "." + column + EXTENSION);
+	}
+
+	/**
+	 * Method that creates the index of the column under the given header, replacing any previous one
+	 * If the file does not exist, is compressed, its header or type line is malformed or the header is not found,
+	 * a message is displayed to the user and no index is created
+	 * @param source the .tsv file
+	 * @param header the header of the column to be indexed
+	 * @return true if the index was created, false otherwise
+	 */
+	public static boolean build(File source, String header) {
+
+		if(!source.exists()) {
+
+			System.out.println("The file does not exist in the given directory.");
+			return false;
+		}
+
+		try {
+
+			if(TSVReader.isCompressed(source)) {
+
+				System.out.println("The file cannot be indexed because it is compressed");
+				return false;
+			}
+
+			TSVSchema schema;
+			TSVReader reader = new TSVReader(source);
+
+			try {
+
+				schema = TSVSchema.read(reader);
+
+			} finally {
+
+				reader.close();
+			}
+
+			if(schema == null) {
+
+				System.out.println("The file cannot be indexed because the header or the type line is malformed");
+				return false;
+			}
+
+			int column = schema.findColumn(header);
+
+			if(column == -1) {
+
+				System.out.println("The file cannot be indexed because the header " + header + " does not exist");
+				return false;
+			}
+
+			build(source, column);
+			return true;
+
+		} catch (IOException e) {
+
+			System.out.println("Problem creating the index: " + e.getMessage());
+			return false;
+		}
+	}
+
+	/**
+	 * Method that opens the index of a column of the given .tsv file
+	 * If the file changed since the index was built, or the index is damaged, a message is displayed to the user and
+	 * the index is not used
+	 * @param source the .tsv file
+	 * @param column the indexed column
+	 * @return the index, or null if the column was never indexed, the index is out of date or it cannot be read
+	 */
+	public static HashIndex open(File source, int column) {
+
+		File index = indexOf(source, column);
+
+		if(!index.exists()) {
+
+			return null;
+		}
+
+		try {
+
+			HashIndex hashIndex = tryOpen(source, index);
+
+			if(hashIndex == null) {
+
+				System.out.println("The index " + index.getName() + " is out of date or damaged and is not used. "
+						+ "Call HashIndex.build() to build it again");
+			}
+
+			return hashIndex;
+
+		} catch (IOException e) {
+
+			return null;
+		}
+	}
+
+	/**
+	 * Method that checks whether looking a value up is worth it, as each record found costs a seek in the .tsv file
+	 * A value is selective if its bucket holds a single batch of entries or at most one in SELECTIVE_SHARE valid records
+	 * @param value the value encoded as UTF-8
+	 * @return true if the records found for the value should be read instead of the whole file, false otherwise
+	 * @throws IOException if the index cannot be read
+	 */
+	public boolean isSelective(byte[] value) throws IOException {
+
+		ByteBuffer bounds = readBounds(hash(value, 0, value.length));
+		long entries = bounds.getLong(8) - bounds.getLong(0);
+
+		return entries <= SELECTIVE_ENTRIES || entries * SELECTIVE_SHARE <= entryCount;
+	}
+
+	/**
+	 * Method that finds the positions of the valid records whose field under the indexed column may be equal to the value
+	 * Every record with the value is found, but records with another value of the same hash may be found as well
+	 * The positions are read from the index in batches while the lookup is advanced, so a value held by many records
+	 * does not need all of its positions in memory
+	 * @param value the value encoded as UTF-8
+	 * @return the lookup, which gives the positions in the .tsv file where the records start, in increasing order
+	 * @throws IOException if the index cannot be read
+	 */
+	public Lookup lookup(byte[] value) throws IOException {
+
+		long hash = hash(value, 0, value.length);
+		ByteBuffer bounds = readBounds(hash);
+
+		return new Lookup(hash, bounds.getLong(0), bounds.getLong(8));
+	}
+
+	/**
+	 * Accessor method for the number of invalid records
+	 * @return the number of invalid records
+	 */
+	public long getInvalidCount() {
+
+		return invalidCount;
+	}
+
+	/**
+	 * Method that finds where an invalid record is in the .tsv file
+	 * @param index the index of the invalid record
+	 * @return the position in the .tsv file where the record starts
+	 * @throws IOException if the index cannot be read
+	 */
+	public long getInvalidPosition(long index) throws IOException {
+
+		//The positions are read in blocks, as they are usually requested one after the other
+		if(index < invalidBlockStart || index >= invalidBlockStart + invalidBlock.limit() / 8) {
+
+			invalidBlock.clear();
+			invalidBlock.limit((int) Math.min(invalidBlock.capacity(), 8 * (invalidCount - index)));
+			readFully(invalidBlock, invalidStart + 8 * index);
+			invalidBlockStart = index;
+		}
+
+		return invalidBlock.getLong((int) (8 * (index - invalidBlockStart)));
+	}
+
+	/**
+	 * Method that closes the index
+	 * @throws IOException if the index cannot be closed
+	 */
+	public void close() throws IOException {
+
+		channel.close();
+	}
+
+	/**
+	 * Method that reads the index of the first entry of the bucket of a hash, followed by the index of the entry after its last one
+	 * @param hash the hash of a value
+	 * @return the buffer holding both indexes
+	 * @throws IOException if the index cannot be read
+	 */
+	private ByteBuffer readBounds(long hash) throws IOException {
+
+		ByteBuffer bounds = ByteBuffer.allocate(16);
+		readFully(bounds, HEADER_SIZE + 8L * bucketOf(hash, bucketCount));
+
+		return bounds;
+	}
+
+	/**
+	 * Method that reads the bytes of the index at the given position until the buffer is full
+	 * @param buffer the buffer to be filled
+	 * @param position the position in the index file
+	 * @throws IOException if the index cannot be read or ends before the buffer is full
+	 */
+	private void readFully(ByteBuffer buffer, long position) throws IOException {
+
+		while(buffer.hasRemaining()) {
+
+			if(channel.read(buffer, position + buffer.position()) < 0) {
+
+				throw new EOFException("The index ends unexpectedly");
+			}
+		}
+	}
+
+	/**
+	 * Method that opens an index file if it was created for the current version of the .tsv file
+	 * @param source the .tsv file
+	 * @param index the index file
+	 * @return the index, or null if the .tsv file changed or the index is damaged
+	 * @throws IOException if the index file cannot be opened
+	 */
+	private static HashIndex tryOpen(File source, File index) throws IOException {
+
+		FileChannel channel = FileChannel.open(index.toPath(), StandardOpenOption.READ);
+
+		try {
+
+			DataInputStream input = new DataInputStream(Channels.newInputStream(channel));
+
+			if(input.readInt() == MAGIC && input.readInt() == VERSION
+					&& input.readLong() == source.length() && input.readLong() == source.lastModified()) {
+
+				input.readInt();
+				int bucketCount = input.readInt();
+				long entryCount = input.readLong();
+				long invalidCount = input.readLong();
+
+				return new HashIndex(channel, bucketCount, entryCount, invalidCount);
+			}
+
+		} catch (IOException e) {
+
+			//A damaged index is reported in the same way as an outdated one
+		}
+
+		channel.close();
+		return null;
+	}
+
+	/**
+	 * Method that streams the .tsv file and writes the index of the given column
+	 * The entries are first spread over temporary files by bucket, then each temporary file is sorted by bucket
+	 * in memory and appended to the index, so building the index of a large file does not need all of its entries
+	 * in memory at once
+	 * @param source the .tsv file
+	 * @param column the column to be indexed
+	 * @throws IOException if the files cannot be read or written
+	 */
+	private static void build(File source, int column) throws IOException {
+
+		long sourceSize = source.length();
+		long sourceModified = source.lastModified();
+		Path directory = source.getAbsoluteFile().toPath().getParent();
+		Path[] partitions = new Path[PARTITIONS];
+		Path invalidPart = Files.createTempFile(directory, source.getName(), ".part");
+		Path entriesPart = Files.createTempFile(directory, source.getName(), ".part");
+		Path partial = Files.createTempFile(directory, source.getName(), ".part");
+
+		try {
+
+			//The number of buckets is estimated from the size of the file, as the number of records is not known yet
+			long estimatedRecords = Math.max(1, sourceSize / 64);
+			int bucketCount = Integer.highestOneBit((int) Math.min(1 << 30, Math.max(1024, estimatedRecords / RECORDS_PER_BUCKET)));
+			long[] bucketEnds = new long[bucketCount];
+			long entryCount = 0;
+			long invalidCount = 0;
+
+			DataOutputStream[] partitionOutputs = new DataOutputStream[PARTITIONS];
+			TSVReader reader = new TSVReader(source);
+
+			try (DataOutputStream invalidOutput = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(invalidPart), BUFFER_SIZE))) {
+
+				for(int partition = 0; partition < PARTITIONS; partition++) {
+
+					partitions[partition] = Files.createTempFile(directory, source.getName(), ".part");
+					partitionOutputs[partition] = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(partitions[partition]), BUFFER_SIZE));
+				}
+
+				TSVSchema schema = TSVSchema.read(reader);
+
+				if(schema == null || column >= schema.getColumnCount()) {
+
+					throw new IOException("The header or the type line is malformed");
+				}
+
+				ParsedRecord record = new ParsedRecord();
+
+				while(reader.nextLine()) {
+
+					record.parse(reader.getLineBuffer(), 0, reader.getLineLength());
+
+					if(!schema.isRecordValid(record)) {
+
+						invalidOutput.writeLong(reader.getLineOffset());
+						invalidCount++;
+						continue;
+					}
+
+					long hash = hash(record.getBuffer(), record.getFieldStart(column), record.getFieldEnd(column));
+					int bucket = bucketOf(hash, bucketCount);
+
+					DataOutputStream partitionOutput = partitionOutputs[partitionOf(bucket, bucketCount)];
+
+					partitionOutput.writeLong(hash);
+					partitionOutput.writeLong(reader.getLineOffset());
+					bucketEnds[bucket]++;
+					entryCount++;
+				}
+
+			} finally {
+
+				reader.close();
+
+				for(DataOutputStream partitionOutput : partitionOutputs) {
+
+					if(partitionOutput != null) {
+
+						partitionOutput.close();
+					}
+				}
+			}
+
+			//The counts become the index of the entry after the last one of each bucket
+			for(int bucket = 1; bucket < bucketCount; bucket++) {
+
+				bucketEnds[bucket] += bucketEnds[bucket - 1];
+			}
+
+			try (DataOutputStream entriesOutput = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(entriesPart), BUFFER_SIZE))) {
+
+				for(int partition = 0; partition < PARTITIONS; partition++) {
+
+					sortPartition(partitions[partition], partition, bucketCount, bucketEnds, entriesOutput);
+					Files.delete(partitions[partition]);
+				}
+			}
+
+			try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(partial), BUFFER_SIZE))) {
+
+				output.writeInt(MAGIC);
+				output.writeInt(VERSION);
+				output.writeLong(sourceSize);
+				output.writeLong(sourceModified);
+				output.writeInt(column);
+				output.writeInt(bucketCount);
+				output.writeLong(entryCount);
+				output.writeLong(invalidCount);
+
+				output.writeLong(0);
+
+				for(long bucketEnd : bucketEnds) {
+
+					output.writeLong(bucketEnd);
+				}
+
+				Files.copy(entriesPart, output);
+				Files.copy(invalidPart, output);
+			}
+
+			Files.move(partial, indexOf(source, column).toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+		} finally {
+
+			for(Path partition : partitions) {
+
+				if(partition != null) {
+
+					Files.deleteIfExists(partition);
+				}
+			}
+
+			Files.deleteIfExists(invalidPart);
+			Files.deleteIfExists(entriesPart);
+			Files.deleteIfExists(partial);
+		}
+	}
+
+	/**
+	 * Method that sorts the entries of a temporary file by bucket and appends them to the entries of the index
+	 * The sort is stable, so the entries of each bucket stay in the order in which they appear in the file
+	 * @param partition the temporary file
+	 * @param partitionNumber the number of the temporary file
+	 * @param bucketCount the number of buckets
+	 * @param bucketEnds the index of the entry after the last one of each bucket
+	 * @param output the stream that writes the entries of the index
+	 * @throws IOException if the files cannot be read or written
+	 */
+	private static void sortPartition(Path partition, int partitionNumber, int bucketCount, long[] bucketEnds,
+			DataOutputStream output) throws IOException {
+
+		int bucketsPerPartition = Math.max(1, bucketCount / PARTITIONS);
+		int firstBucket = partitionNumber * bucketsPerPartition;
+
+		if(firstBucket >= bucketCount) {
+
+			return;
+		}
+
+		long partitionStart = firstBucket == 0 ? 0 : bucketEnds[firstBucket - 1];
+		int entries = (int) (bucketEnds[firstBucket + bucketsPerPartition - 1] - partitionStart);
+		long[] hashes = new long[entries];
+		long[] positions = new long[entries];
+		int[] next = new int[bucketsPerPartition];
+
+		for(int bucket = 1; bucket < bucketsPerPartition; bucket++) {
+
+			next[bucket] = (int) (bucketEnds[firstBucket + bucket - 1] - partitionStart);
+		}
+
+		try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(partition), BUFFER_SIZE))) {
+
+			for(int entry = 0; entry < entries; entry++) {
+
+				long hash = input.readLong();
+				int slot = next[bucketOf(hash, bucketCount) - firstBucket]++;
+
+				hashes[slot] = hash;
+				positions[slot] = input.readLong();
+			}
+		}
+
+		for(int entry = 0; entry < entries; entry++) {
+
+			output.writeLong(hashes[entry]);
+			output.writeLong(positions[entry]);
+		}
+	}
+
+	/**
+	 * Method that finds the bucket of a hash
+	 * @param hash the hash of a value
+	 * @param bucketCount the number of buckets, a power of two
+	 * @return the bucket of the hash
+	 */
+	private static int bucketOf(long hash, int bucketCount) {
+
+		return (int) (hash >>> 32) & (bucketCount - 1);
+	}
+
+	/**
+	 * Method that finds the temporary file used for the entries of a bucket while the index is built
+	 * @param bucket the bucket
+	 * @param bucketCount the number of buckets
+	 * @return the number of the temporary file
+	 */
+	private static int partitionOf(int bucket, int bucketCount) {
+
+		return bucket / Math.max(1, bucketCount / PARTITIONS);
+	}
+
+	/**
+	 * Method that computes the 64 bit FNV-1a hash of the bytes in the given region of the buffer
+	 * @param buffer the buffer that holds the value
+	 * @param start the index where the value starts
+	 * @param end the index where the value ends (exclusive)
+	 * @return the hash of the value
+	 */
+	private static long hash(byte[] buffer, int start, int end) {
+
+		long hash = 0xcbf29ce484222325L;
+
+		for(int index = start; index < end; index++) {
+
+			hash ^= buffer[index] & 0xff;
+			hash *= 0x100000001b3L;
+		}
+
+		//Final mix, so the high bits used to pick a bucket depend on every byte
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+
+		return hash ^ (hash >>> 33);
+	}
+
+	/**
+	 * Inner class that walks over the entries of the bucket of a value, reading them in batches of bounded size
+	 * and stopping at the ones whose hash is the hash of the value
+	 * @author Luiz do Valle
+	 *
+	 */
+	public class Lookup {
+
+		/**
+		 * The hash of the value being looked up
+		 */
+		private final long hash;
+		/**
+		 * The index of the entry after the last one of the bucket
+		 */
+		private final long last;
+		/**
+		 * The index of the first entry not read into the batch yet
+		 */
+		private long next;
+		/**
+		 * The batch of entries read last
+		 */
+		private final ByteBuffer batch = ByteBuffer.allocate(BUFFER_SIZE).limit(0);
+		/**
+		 * The position in the .tsv file of the record found last
+		 */
+		private long position;
+
+		/**
+		 * Private constructor that is only to be used by lookup()
+		 */
+		private Lookup(long hash, long first, long last) {
+
+			this.hash = hash;
+			this.next = first;
+			this.last = last;
+		}
+
+		/**
+		 * Method that advances to the next record whose value may be the value looked up
+		 * @return true if a record was found, false if the bucket has no more entries
+		 * @throws IOException if the index cannot be read
+		 */
+		public boolean next() throws IOException {
+
+			while(true) {
+
+				if(!batch.hasRemaining()) {
+
+					if(next == last) {
+
+						return false;
+					}
+
+					batch.clear();
+					batch.limit((int) Math.min(batch.capacity(), ENTRY_SIZE * (last - next)));
+					readFully(batch, entriesStart + ENTRY_SIZE * next);
+					batch.flip();
+					next += batch.limit() / ENTRY_SIZE;
+				}
+
+				long entryHash = batch.getLong();
+				long entryPosition = batch.getLong();
+
+				if(entryHash == hash) {
+
+					position = entryPosition;
+					return true;
+				}
+			}
+		}
+
+		/**
+		 * Accessor method for the position of the record found last by next()
+		 * @return the position in the .tsv file where the record starts
+		 */
+		public long getPosition() {
+
+			return position;
+		}
+	}
+}
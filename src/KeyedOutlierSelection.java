@@ -0,0 +1,496 @@
+import java.util.Arrays;
+
+/**
+ * Class that implements the Selection interface
+ * Performs the outlier selection separately for each key: the records are partitioned by the field under a key
+ * header, such as the sensor that produced them, and the long value of a record is only compared with the values
+ * of the previous records with the same key, so the selection still makes sense on a file where many sources are
+ * interleaved
+ * Two modes are supported:
+ * - difference: a record is wanted if its value is more than plus or minus N (error) from the previous value of its key
+ * - z-score: a record is wanted if its value is more than T (threshold) standard deviations away from the exponentially
+ * weighted moving average of the values of its key. The mean and the variance of each key are updated with the
+ * smoothing factor alpha, so recent values weigh more than old ones and the selection follows slow drifts
+ * The first record of a key is never wanted, and in the z-score mode neither is the second one, as a single value
+ * says nothing about the spread of the values
+ * If the value under the specified header is not a long, the record is not wanted and the state of its key is not changed
+ *
+ * The state of the keys is kept in primitive arrays indexed by an entry number, and the entries are found through
+ * an open addressing table with linear probing on the hash of the bytes of the key, which are kept in a single
+ * array shared by all the keys. Keys are compared on their bytes, so "7" and "07" are different keys
+ * When an idle limit is given, the keys that were not seen in the last N records are forgotten: the entries are
+ * kept in a list ordered by last use and the least recently used ones are checked on every record. The entries of
+ * the forgotten keys are reused, and the bytes of their keys are reclaimed when the array of keys has to grow
+ * Each record is handled in constant time and without creating any object, the arrays only grow with the number of keys
+ * @author Luiz do Valle
+ *
+ */
+public class KeyedOutlierSelection implements Selection {
+
+	/**
+	 * The number of keys the arrays can hold before they need to grow
+	 */
+	private static final int INITIAL_CAPACITY = 64;
+	/**
+	 * The largest number of idle keys forgotten per record, more than one so the forgotten keys catch up with the
+	 * new keys, of which there is at most one per record
+	 */
+	private static final int EVICTIONS_PER_RECORD = 2;
+
+	/**
+	 * The column holding the values
+	 */
+	private final int targetColumn;
+	/**
+	 * The column holding the keys
+	 */
+	private final int keyColumn;
+	/**
+	 * The allowed error, in the difference mode
+	 */
+	private final long error;
+	/**
+	 * The number of standard deviations a value must be away from the mean to be wanted, or 0 for the difference mode
+	 */
+	private final double threshold;
+	/**
+	 * The weight of a new value in the moving mean and variance, in the z-score mode
+	 */
+	private final double smoothing;
+	/**
+	 * The number of records after which a key that was not seen is forgotten, or 0 to never forget a key
+	 */
+	private final long idleLimit;
+	/**
+	 * The bytes of the keys of all the entries
+	 */
+	private byte[] keyBytes = new byte[INITIAL_CAPACITY * 16];
+	/**
+	 * The number of bytes used in keyBytes, including the ones of the forgotten keys
+	 */
+	private int keyBytesUsed;
+	/**
+	 * The index in keyBytes where the key of each entry starts
+	 */
+	private int[] keyStarts = new int[INITIAL_CAPACITY];
+	/**
+	 * The number of bytes of the key of each entry
+	 */
+	private int[] keyLengths = new int[INITIAL_CAPACITY];
+	/**
+	 * The hash of the key of each entry
+	 */
+	private long[] hashes = new long[INITIAL_CAPACITY];
+	/**
+	 * The number of values seen for the key of each entry, up to 2
+	 */
+	private byte[] valueCounts = new byte[INITIAL_CAPACITY];
+	/**
+	 * The previous value of the key of each entry
+	 */
+	private long[] previousValues = new long[INITIAL_CAPACITY];
+	/**
+	 * The moving mean of the values of the key of each entry, in the z-score mode
+	 */
+	private double[] means = new double[INITIAL_CAPACITY];
+	/**
+	 * The moving variance of the values of the key of each entry, in the z-score mode
+	 */
+	private double[] variances = new double[INITIAL_CAPACITY];
+	/**
+	 * The number of the record in which the key of each entry was last seen
+	 */
+	private long[] lastSeen = new long[INITIAL_CAPACITY];
+	/**
+	 * The entry used just before each entry, or -1 for the least recently used one
+	 * Unused for the free entries
+	 */
+	private int[] older = new int[INITIAL_CAPACITY];
+	/**
+	 * The entry used just after each entry, or -1 for the most recently used one
+	 * For a free entry, the next free entry, or -1 for the last one
+	 */
+	private int[] newer = new int[INITIAL_CAPACITY];
+	/**
+	 * The least recently used entry, or -1 if there is no key
+	 */
+	private int oldest = -1;
+	/**
+	 * The most recently used entry, or -1 if there is no key
+	 */
+	private int newest = -1;
+	/**
+	 * The first free entry, left by a forgotten key, or -1 if there is none
+	 */
+	private int firstFree = -1;
+	/**
+	 * The number of entries ever used, free or not
+	 */
+	private int entryCount;
+	/**
+	 * The number of keys
+	 */
+	private int size;
+	/**
+	 * The open addressing table, holding the number of an entry plus one, or 0 for an empty position
+	 */
+	private int[] table = new int[INITIAL_CAPACITY * 2];
+	/**
+	 * The number of records seen
+	 */
+	private long clock;
+
+	/**
+	 * Constructor of the class for the difference mode
+	 * @param targetColumn the column holding the values
+	 * @param keyColumn the column holding the keys
+	 * @param error the allowed difference from the previous value of the key
+	 * @param idleLimit the number of records after which a key that was not seen is forgotten, or 0 to never forget a key
+	 */
+	public KeyedOutlierSelection(int targetColumn, int keyColumn, long error, long idleLimit) {
+
+		this(targetColumn, keyColumn, error, 0, 0, idleLimit);
+	}
+
+	/**
+	 * Constructor of the class for the z-score mode
+	 * @param targetColumn the column holding the values
+	 * @param keyColumn the column holding the keys
+	 * @param threshold the number of standard deviations a value must be away from the mean of the key to be wanted
+	 * @param smoothing the weight of a new value in the moving mean and variance, between 0 and 1
+	 * @param idleLimit the number of records after which a key that was not seen is forgotten, or 0 to never forget a key
+	 */
+	public KeyedOutlierSelection(int targetColumn, int keyColumn, double threshold, double smoothing, long idleLimit) {
+
+		this(targetColumn, keyColumn, 0, threshold, smoothing, idleLimit);
+	}
+
+	/**
+	 * Private constructor of the class that is only to be used by the other constructors
+	 * @param targetColumn the column holding the values
+	 * @param keyColumn the column holding the keys
+	 * @param error the allowed difference from the previous value of the key, in the difference mode
+	 * @param threshold the number of standard deviations, or 0 for the difference mode
+	 * @param smoothing the weight of a new value in the moving mean and variance, in the z-score mode
+	 * @param idleLimit the number of records after which a key that was not seen is forgotten, or 0 to never forget a key
+	 */
+	private KeyedOutlierSelection(int targetColumn, int keyColumn, long error, double threshold, double smoothing, long idleLimit) {
+
+		this.targetColumn = targetColumn;
+		this.keyColumn = keyColumn;
+		this.error = error;
+		this.threshold = threshold;
+		this.smoothing = smoothing;
+		this.idleLimit = idleLimit;
+	}
+
+	@Override
+	public boolean isRecordWanted(String record) {
+
+		return isRecordWanted(new ParsedRecord(record));
+	}
+
+	@Override
+	public boolean isRecordWanted(ParsedRecord record) {
+
+		clock++;
+		forgetIdleKeys();
+
+		if(!record.isLong(targetColumn)) {
+
+			return false;
+		}
+
+		long value = record.getLong(targetColumn);
+		int entry = entry(record);
+		boolean wanted;
+
+		if(threshold == 0) {
+
+			wanted = valueCounts[entry] > 0 && Math.abs(value - previousValues[entry]) > error;
+
+		} else {
+
+			double deviation = value - means[entry];
+
+			//A variance of 0 makes any change of value an outlier once two values were seen
+			wanted = valueCounts[entry] > 1 && deviation * deviation > threshold * threshold * variances[entry];
+
+			if(valueCounts[entry] == 0) {
+
+				means[entry] = value;
+				variances[entry] = 0;
+
+			} else {
+
+				double increment = smoothing * deviation;
+
+				means[entry] += increment;
+				variances[entry] = (1 - smoothing) * (variances[entry] + deviation * increment);
+			}
+		}
+
+		previousValues[entry] = value;
+
+		if(valueCounts[entry] < 2) {
+
+			valueCounts[entry]++;
+		}
+
+		return wanted;
+	}
+
+	/**
+	 * Accessor method for the number of keys
+	 * @return the number of keys that were seen and not forgotten
+	 */
+	public int size() {
+
+		return size;
+	}
+
+	/**
+	 * Method that finds the entry of the key of a record, adding it if it is not in the table, and marks it as the
+	 * most recently used one
+	 * @param record the parsed record
+	 * @return the number of the entry
+	 */
+	private int entry(ParsedRecord record) {
+
+		byte[] buffer = record.getBuffer();
+		int fieldStart = record.getFieldStart(keyColumn);
+		int fieldEnd = record.getFieldEnd(keyColumn);
+		long hash = record.hashField(keyColumn);
+		int mask = table.length - 1;
+		int position = (int) hash & mask;
+
+		while(table[position] != 0) {
+
+			int entry = table[position] - 1;
+
+			if(hashes[entry] == hash && Arrays.equals(keyBytes, keyStarts[entry], keyStarts[entry] + keyLengths[entry],
+					buffer, fieldStart, fieldEnd)) {
+
+				unlink(entry);
+				append(entry);
+				lastSeen[entry] = clock;
+				return entry;
+			}
+
+			position = (position + 1) & mask;
+		}
+
+		int entry = newEntry();
+
+		storeKey(entry, buffer, fieldStart, fieldEnd);
+		hashes[entry] = hash;
+		valueCounts[entry] = 0;
+		lastSeen[entry] = clock;
+		append(entry);
+		table[position] = entry + 1;
+		size++;
+
+		//The table is kept at most half full, so the probe sequences stay short
+		if(size * 2 > table.length) {
+
+			rehash(table.length * 2);
+		}
+
+		return entry;
+	}
+
+	/**
+	 * Method that forgets the least recently used keys if they were not seen in the last idleLimit records
+	 */
+	private void forgetIdleKeys() {
+
+		if(idleLimit <= 0) {
+
+			return;
+		}
+
+		for(int forgotten = 0; forgotten < EVICTIONS_PER_RECORD && oldest != -1 && clock - lastSeen[oldest] > idleLimit; forgotten++) {
+
+			forget(oldest);
+		}
+	}
+
+	/**
+	 * Method that removes a key from the table and frees its entry
+	 * The entries after it in its probe sequence are moved back, so no position needs to be marked as deleted
+	 * @param entry the number of the entry
+	 */
+	private void forget(int entry) {
+
+		int mask = table.length - 1;
+		int position = (int) hashes[entry] & mask;
+
+		while(table[position] != entry + 1) {
+
+			position = (position + 1) & mask;
+		}
+
+		for(int next = (position + 1) & mask; table[next] != 0; next = (next + 1) & mask) {
+
+			int home = (int) hashes[table[next] - 1] & mask;
+
+			//The entry can fill the hole if the hole is between its home position and its current position
+			if(((next - home) & mask) >= ((next - position) & mask)) {
+
+				table[position] = table[next];
+				position = next;
+			}
+		}
+
+		table[position] = 0;
+		unlink(entry);
+		newer[entry] = firstFree;
+		firstFree = entry;
+		size--;
+	}
+
+	/**
+	 * Method that returns a free entry, reusing the one of a forgotten key if there is one and growing the arrays
+	 * if they are full
+	 * @return the number of the entry
+	 */
+	private int newEntry() {
+
+		if(firstFree != -1) {
+
+			int entry = firstFree;
+
+			firstFree = newer[entry];
+			return entry;
+		}
+
+		if(entryCount == hashes.length) {
+
+			int capacity = entryCount * 2;
+
+			keyStarts = Arrays.copyOf(keyStarts, capacity);
+			keyLengths = Arrays.copyOf(keyLengths, capacity);
+			hashes = Arrays.copyOf(hashes, capacity);
+			valueCounts = Arrays.copyOf(valueCounts, capacity);
+			previousValues = Arrays.copyOf(previousValues, capacity);
+			means = Arrays.copyOf(means, capacity);
+			variances = Arrays.copyOf(variances, capacity);
+			lastSeen = Arrays.copyOf(lastSeen, capacity);
+			older = Arrays.copyOf(older, capacity);
+			newer = Arrays.copyOf(newer, capacity);
+		}
+
+		return entryCount++;
+	}
+
+	/**
+	 * Method that copies the bytes of a key to the array of keys
+	 * When the array is full, the bytes of the forgotten keys are dropped first, and the array only grows if that
+	 * does not leave enough room
+	 * @param entry the number of the entry of the key
+	 * @param buffer the buffer that holds the key
+	 * @param start the index where the key starts
+	 * @param end the index where the key ends (exclusive)
+	 */
+	private void storeKey(int entry, byte[] buffer, int start, int end) {
+
+		int length = end - start;
+
+		if(keyBytesUsed + length > keyBytes.length) {
+
+			long liveBytes = length;
+
+			for(int live = oldest; live != -1; live = newer[live]) {
+
+				liveBytes += keyLengths[live];
+			}
+
+			byte[] compacted = new byte[(int) Math.max(keyBytes.length, liveBytes * 2)];
+			int used = 0;
+
+			for(int live = oldest; live != -1; live = newer[live]) {
+
+				System.arraycopy(keyBytes, keyStarts[live], compacted, used, keyLengths[live]);
+				keyStarts[live] = used;
+				used += keyLengths[live];
+			}
+
+			keyBytes = compacted;
+			keyBytesUsed = used;
+		}
+
+		System.arraycopy(buffer, start, keyBytes, keyBytesUsed, length);
+		keyStarts[entry] = keyBytesUsed;
+		keyLengths[entry] = length;
+		keyBytesUsed += length;
+	}
+
+	/**
+	 * Method that makes an entry the most recently used one
+	 * @param entry the number of the entry, which must not be in the list
+	 */
+	private void append(int entry) {
+
+		older[entry] = newest;
+		newer[entry] = -1;
+
+		if(newest == -1) {
+
+			oldest = entry;
+
+		} else {
+
+			newer[newest] = entry;
+		}
+
+		newest = entry;
+	}
+
+	/**
+	 * Method that takes an entry out of the list ordered by last use
+	 * @param entry the number of the entry
+	 */
+	private void unlink(int entry) {
+
+		if(older[entry] == -1) {
+
+			oldest = newer[entry];
+
+		} else {
+
+			newer[older[entry]] = newer[entry];
+		}
+
+		if(newer[entry] == -1) {
+
+			newest = older[entry];
+
+		} else {
+
+			older[newer[entry]] = older[entry];
+		}
+	}
+
+	/**
+	 * Method that replaces the open addressing table and puts every key back in it
+	 * @param positions the number of positions of the new table, a power of two
+	 */
+	private void rehash(int positions) {
+
+		table = new int[positions];
+		int mask = positions - 1;
+
+		for(int entry = oldest; entry != -1; entry = newer[entry]) {
+
+			int position = (int) hashes[entry] & mask;
+
+			while(table[position] != 0) {
+
+				position = (position + 1) & mask;
+			}
+
+			table[position] = entry + 1;
+		}
+	}
+
+}
@@ -0,0 +1,250 @@
+import java.util.Arrays;
+
+/**
+ * Class that implements the GroupTable interface for groups keyed on a single long column
+ * The keys and the slots of the groups are kept in primitive arrays indexed by the number of the group, and the
+ * groups are found through an open addressing table with linear probing that holds the number of each group
+ * Keys are compared as longs, so "7" and "07" belong to the same group
+ * @author Luiz do Valle
+ *
+ */
+public class LongGroupTable implements GroupTable {
+
+	/**
+	 * The number of groups the arrays can hold before they need to grow
+	 */
+	private static final int INITIAL_CAPACITY = 64;
+
+	/**
+	 * The long column holding the keys
+	 */
+	private final int column;
+	/**
+	 * The number of slots of each group
+	 */
+	private final int slotCount;
+	/**
+	 * The key of each group
+	 */
+	private long[] keys = new long[INITIAL_CAPACITY];
+	/**
+	 * The slots of all the groups, the slots of a group being next to each other
+	 */
+	private long[] slots;
+	/**
+	 * The open addressing table, holding the number of a group plus one, or 0 for an empty position
+	 */
+	private int[] table = new int[INITIAL_CAPACITY * 2];
+	/**
+	 * The number of groups
+	 */
+	private int size;
+
+	/**
+	 * Constructor of the class
+	 * @param column the long column holding the keys
+	 * @param slotCount the number of slots of each group
+	 */
+	public LongGroupTable(int column, int slotCount) {
+
+		this.column = column;
+		this.slotCount = slotCount;
+		this.slots = new long[INITIAL_CAPACITY * slotCount];
+	}
+
+	@Override
+	public int group(ParsedRecord record) {
+
+		if(!record.isLong(column)) {
+
+			return -1;
+		}
+
+		return group(record.getLong(column));
+	}
+
+	@Override
+	public int groupOfKey(byte[] key, int length) {
+
+		long value = 0;
+
+		for(int index = 0; index < Long.BYTES; index++) {
+
+			value = (value << 8) | (key[index] & 0xff);
+		}
+
+		return group(value ^ Long.MIN_VALUE);
+	}
+
+	@Override
+	public int keyLength(int group) {
+
+		return Long.BYTES;
+	}
+
+	@Override
+	public void encodeKey(int group, byte[] destination) {
+
+		long value = keys[group] ^ Long.MIN_VALUE;
+
+		for(int index = Long.BYTES - 1; index >= 0; index--) {
+
+			destination[index] = (byte) value;
+			value >>>= 8;
+		}
+	}
+
+	@Override
+	public int size() {
+
+		return size;
+	}
+
+	@Override
+	public long get(int group, int slot) {
+
+		return slots[group * slotCount + slot];
+	}
+
+	@Override
+	public void set(int group, int slot, long value) {
+
+		slots[group * slotCount + slot] = value;
+	}
+
+	@Override
+	public int compare(int first, int second) {
+
+		return Long.compare(keys[first], keys[second]);
+	}
+
+	@Override
+	public String describeKey(byte[] key, int length) {
+
+		long value = 0;
+
+		for(int index = 0; index < Long.BYTES; index++) {
+
+			value = (value << 8) | (key[index] & 0xff);
+		}
+
+		return String.valueOf(value ^ Long.MIN_VALUE);
+	}
+
+	@Override
+	public long memoryUsed() {
+
+		return (long) (keys.length + slots.length) * Long.BYTES + (long) table.length * Integer.BYTES;
+	}
+
+	@Override
+	public long memoryToGrow() {
+
+		long bytes = 0;
+
+		if(size == keys.length) {
+
+			bytes += (long) (keys.length + slots.length) * 2 * Long.BYTES;
+		}
+
+		if((size + 1) * 2 > table.length) {
+
+			bytes += (long) table.length * 2 * Integer.BYTES;
+		}
+
+		return bytes;
+	}
+
+	@Override
+	public long minimumMemory() {
+
+		return (long) INITIAL_CAPACITY * (1 + slotCount) * Long.BYTES + (long) INITIAL_CAPACITY * 2 * Integer.BYTES;
+	}
+
+	@Override
+	public void clear() {
+
+		keys = new long[INITIAL_CAPACITY];
+		slots = new long[INITIAL_CAPACITY * slotCount];
+		table = new int[INITIAL_CAPACITY * 2];
+		size = 0;
+	}
+
+	/**
+	 * Method that finds the group of a key, adding it if it is not in the table
+	 * @param key the key
+	 * @return the number of the group
+	 */
+	private int group(long key) {
+
+		int mask = table.length - 1;
+		int position = hash(key) & mask;
+
+		while(table[position] != 0) {
+
+			int group = table[position] - 1;
+
+			if(keys[group] == key) {
+
+				return group;
+			}
+
+			position = (position + 1) & mask;
+		}
+
+		if(size == keys.length) {
+
+			keys = Arrays.copyOf(keys, size * 2);
+			slots = Arrays.copyOf(slots, size * 2 * slotCount);
+		}
+
+		int group = size++;
+
+		keys[group] = key;
+		table[position] = group + 1;
+
+		//The table is kept at most half full, so the probe sequences stay short
+		if(size * 2 > table.length) {
+
+			rehash();
+		}
+
+		return group;
+	}
+
+	/**
+	 * Method that doubles the open addressing table and puts every group back in it
+	 */
+	private void rehash() {
+
+		table = new int[table.length * 2];
+		int mask = table.length - 1;
+
+		for(int group = 0; group < size; group++) {
+
+			int position = hash(keys[group]) & mask;
+
+			while(table[position] != 0) {
+
+				position = (position + 1) & mask;
+			}
+
+			table[position] = group + 1;
+		}
+	}
+
+	/**
+	 * Method that spreads the bits of a key, so that close keys do not fall in neighbouring positions of the table
+	 * @param key the key
+	 * @return the hash of the key
+	 */
+	private static int hash(long key) {
+
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+
+		return (int) key;
+	}
+
+}
@@ -0,0 +1,125 @@
+import java.io.IOException;
+
+/**
+ * Class that implements the Computation interface and simply performs the MAX terminal computation on long columns
+ * Finds the maximum value of the desired header in the output stream, which is simply the one that comes after in the number line
+ * The running maximum is kept as a primitive long, so no String is parsed or created while the file is streamed
+ * @author Luiz do Valle
+ *
+ */
+public class LongMaxComputation implements Computation {
+
+	/**
+	 * The maximum value found
+	 */
+	private long maxValue = Long.MIN_VALUE;
+	/**
+	 * Whether any value was found
+	 */
+	private boolean found = false;
+	/**
+	 * The column being analyzed
+	 */
+	private int column;
+	
+	/**
+	 * Constructor for the class that initializes the column being analyzed
+	 * @param column the column being analyzed, which must be a long column
+	 */
+	public LongMaxComputation(int column) {
+		
+		this.column = column;
+	}
+	
+	@Override
+	public void compute(String record) {
+		
+		compute(new ParsedRecord(record));
+	}
+	
+	@Override
+	public void compute(ParsedRecord record) {
+		
+		if(!record.isLong(column)) {
+			
+			return;
+		}
+		
+		long field = record.getLong(column);
+		
+		if(!found || field > maxValue) {
+			
+			maxValue = field;
+			found = true;
+		}
+	}
+
+	@Override
+	public String result() {
+		
+		return found ? String.valueOf(maxValue) : null;
+	}
+	
+	@Override
+	public boolean isMergeable() {
+		
+		return true;
+	}
+	
+	@Override
+	public void merge(Computation other) {
+		
+		LongMaxComputation otherMax = (LongMaxComputation) other;
+		
+		if(otherMax.found && (!found || otherMax.maxValue > maxValue)) {
+			
+			maxValue = otherMax.maxValue;
+			found = true;
+		}
+	}
+	
+	@Override
+	public boolean isCacheable(ColumnarCache cache) {
+		
+		return cache.isLongColumn(column);
+	}
+	
+	@Override
+	public void compute(ColumnarCache cache, int[] rows, int count) throws IOException {
+		
+		for(int index = 0; index < count; index++) {
+			
+			long field = cache.getLong(column, rows[index]);
+			
+			if(!found || field > maxValue) {
+				
+				maxValue = field;
+				found = true;
+			}
+		}
+	}
+	
+	@Override
+	public boolean isSummarizable(ZoneMap zones) {
+		
+		return zones.isLongColumn(column);
+	}
+	
+	@Override
+	public void compute(ZoneMap zones, int block) {
+		
+		if(zones.getValidCount(block) == 0) {
+			
+			return;
+		}
+		
+		long field = zones.getMax(column, block);
+		
+		if(!found || field > maxValue) {
+			
+			maxValue = field;
+			found = true;
+		}
+	}
+
+}
@@ -0,0 +1,125 @@
+import java.io.IOException;
+
+/**
+ * Class that implements the Computation interface and simply performs the MIN terminal computation on long columns
+ * Finds the minimum value of the desired header in the output stream, which is simply the one that comes before in the number line
+ * The running minimum is kept as a primitive long, so no String is parsed or created while the file is streamed
+ * @author Luiz do Valle
+ *
+ */
+public class LongMinComputation implements Computation {
+
+	/**
+	 * The minimum value found
+	 */
+	private long minValue = Long.MAX_VALUE;
+	/**
+	 * Whether any value was found
+	 */
+	private boolean found = false;
+	/**
+	 * The column being analyzed
+	 */
+	private int column;
+	
+	/**
+	 * Constructor for the class that initializes the column being analyzed
+	 * @param column the column being analyzed, which must be a long column
+	 */
+	public LongMinComputation(int column) {
+		
+		this.column = column;
+	}
+	
+	@Override
+	public void compute(String record) {
+		
+		compute(new ParsedRecord(record));
+	}
+	
+	@Override
+	public void compute(ParsedRecord record) {
+		
+		if(!record.isLong(column)) {
+			
+			return;
+		}
+		
+		long field = record.getLong(column);
+		
+		if(!found || field < minValue) {
+			
+			minValue = field;
+			found = true;
+		}
+	}
+
+	@Override
+	public String result() {
+		
+		return found ? String.valueOf(minValue) : null;
+	}
+	
+	@Override
+	public boolean isMergeable() {
+		
+		return true;
+	}
+	
+	@Override
+	public void merge(Computation other) {
+		
+		LongMinComputation otherMin = (LongMinComputation) other;
+		
+		if(otherMin.found && (!found || otherMin.minValue < minValue)) {
+			
+			minValue = otherMin.minValue;
+			found = true;
+		}
+	}
+	
+	@Override
+	public boolean isCacheable(ColumnarCache cache) {
+		
+		return cache.isLongColumn(column);
+	}
+	
+	@Override
+	public void compute(ColumnarCache cache, int[] rows, int count) throws IOException {
+		
+		for(int index = 0; index < count; index++) {
+			
+			long field = cache.getLong(column, rows[index]);
+			
+			if(!found || field < minValue) {
+				
+				minValue = field;
+				found = true;
+			}
+		}
+	}
+	
+	@Override
+	public boolean isSummarizable(ZoneMap zones) {
+		
+		return zones.isLongColumn(column);
+	}
+	
+	@Override
+	public void compute(ZoneMap zones, int block) {
+		
+		if(zones.getValidCount(block) == 0) {
+			
+			return;
+		}
+		
+		long field = zones.getMin(column, block);
+		
+		if(!found || field < minValue) {
+			
+			minValue = field;
+			found = true;
+		}
+	}
+
+}
@@ -0,0 +1,151 @@
+/**
+ * Class that checks whether a field is a long and converts it in a single pass, without throwing exceptions
+ * It accepts exactly what Long.parseLong accepts for ASCII input: an optional '+' or '-' sign followed by at least
+ * one decimal digit, within the range of a long
+ * Overflow and malformed input are reported by the return value of parse(), so no exception or String is created
+ * for invalid fields
+ *
+ * The parsed value is kept in the parser, so each algorithm should have its own instance
+ * @author Luiz do Valle
+ *
+ */
+public class LongParser {
+
+	/**
+	 * The value of the last field successfully parsed
+	 */
+	private long value;
+
+	/**
+	 * Method that parses the given field of a record
+	 * @param record the record that holds the field
+	 * @param column the column of the field
+	 * @return true if the field is a long, false otherwise
+	 */
+	public boolean parse(ParsedRecord record, int column) {
+
+		return parse(record.getBuffer(), record.getFieldStart(column), record.getFieldEnd(column));
+	}
+
+	/**
+	 * Method that parses the bytes in the given region of the buffer
+	 * @param buffer the buffer that holds the field
+	 * @param start the index where the field starts
+	 * @param end the index where the field ends (exclusive)
+	 * @return true if the region holds a long, false otherwise
+	 */
+	public boolean parse(byte[] buffer, int start, int end) {
+
+		if(start >= end) {
+
+			return false;
+		}
+
+		boolean negative = false;
+		int index = start;
+		byte first = buffer[index];
+
+		if(first == '-' || first == '+') {
+
+			negative = first == '-';
+			index++;
+
+			if(index == end) {
+
+				return false;
+			}
+		}
+
+		//The value is accumulated as a negative number because the negative range of a long is larger
+		long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+		long multiplyLimit = limit / 10;
+		long result = 0;
+
+		for(; index < end; index++) {
+
+			int digit = buffer[index] - '0';
+
+			if(digit < 0 || digit > 9 || result < multiplyLimit) {
+
+				return false;
+			}
+
+			result *= 10;
+
+			if(result < limit + digit) {
+
+				return false;
+			}
+
+			result -= digit;
+		}
+
+		value = negative ? result : -result;
+		return true;
+	}
+
+	/**
+	 * Method that parses the given characters
+	 * @param field the characters to be parsed
+	 * @return true if the characters form a long, false otherwise
+	 */
+	public boolean parse(CharSequence field) {
+
+		int end = field.length();
+
+		if(end == 0) {
+
+			return false;
+		}
+
+		boolean negative = false;
+		int index = 0;
+		char first = field.charAt(index);
+
+		if(first == '-' || first == '+') {
+
+			negative = first == '-';
+			index++;
+
+			if(index == end) {
+
+				return false;
+			}
+		}
+
+		long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+		long multiplyLimit = limit / 10;
+		long result = 0;
+
+		for(; index < end; index++) {
+
+			int digit = field.charAt(index) - '0';
+
+			if(digit < 0 || digit > 9 || result < multiplyLimit) {
+
+				return false;
+			}
+
+			result *= 10;
+
+			if(result < limit + digit) {
+
+				return false;
+			}
+
+			result -= digit;
+		}
+
+		value = negative ? result : -result;
+		return true;
+	}
+
+	/**
+	 * Accessor method for the value of the last field successfully parsed
+	 * @return the value as a long
+	 */
+	public long getValue() {
+
+		return value;
+	}
+}
@@ -1,107 +1,161 @@
-/**
- * Class that implements the Computation interface and simply performs the MAX terminal computation
- * Finds the maximum value of the desired header in the output stream
- * If the value is a String, the maximum value is the one that comes after in a lexicographical order
- * If the value is a long, the maximum is simply the one that comes after in the number line
- * @author Luiz do Valle
- *
- */
-public class MaxComputation implements Computation {
-
-	/**
-	 * The maximum value found
-	 */
-	private String maxValue = null;
-	/**
-	 * Helper variable that stores the maximum long value
-	 */
-	private long longMaxValue = Long.MIN_VALUE;
-	/**
-	 * The column being analyzed
-	 */
-	private int column;
-	
-	/**
-	 * Constructor for the class that initializes the column being analyzed
-	 * @param column
-	 */
-	public MaxComputation(int column) {
-		
-		this.column = column;
-	}
-	
-	@Override
-	public void compute(String record) {
-		
-		String[] recordFields = record.split("\t");
-		
-		
-		if(column == -1) {
-			
-			maxValue = "";
-			return;
-		
-		} 
-		
-		String targetField = recordFields[column];
-		
-		if(maxValue == null) {
-			
-			maxValue = targetField;
-		
-		} else if(isValidLong(targetField)) {
-			
-			long field = getLongValue(targetField);
-			long currentMax = getLongValue(maxValue);
-			
-			if(field > currentMax) {
-				
-				maxValue = String.valueOf(field);
-			}
-		
-		} else {
-			
-			if(targetField.compareToIgnoreCase(maxValue) > 0) {
-				
-				maxValue = targetField;
-			}
-		}
-		
-	}
-
-	@Override
-	public String result() {
-		
-		return maxValue;
-	}
-	
-	/**
-	 * Method that checks whether the given field is a long
-	 * @param field the field to be checked
-	 * @return true if the field is a long, false otherwise
-	 */
-	private boolean isValidLong(String field) {
-		
-		try {
-			
-			Long.parseLong(field);
-		
-		} catch (NumberFormatException e){
-			
-			return false;
-		}
-		
-		return true;
-	}
-	
-	/**
-	 * Method that converts the given field to a long
-	 * @param field the field to be converted to a long
-	 * @return the field as long
-	 */
-	private long getLongValue(String field) {
-		
-		return Long.parseLong(field);
-	}
-	
-}
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Class that implements the Computation interface and simply performs the MAX terminal computation on String columns
+ * Finds the maximum value of the desired header in the output stream
+ * If the value is a String, the maximum value is the one that comes after in a lexicographical order
+ * If both values are longs, the maximum is simply the one that comes after in the number line
+ * Columns whose type is long are handled by LongMaxComputation instead
+ * 
+ * @author Luiz do Valle
+ *
+ */
+public class MaxComputation implements Computation{
+
+	/**
+	 * The maximum value found so far
+	 */
+	private String maxValue = null;
+	/**
+	 * The maximum value encoded as UTF-8, so the fields can be compared without creating a String
+	 */
+	private byte[] maxValueBytes;
+	/**
+	 * Whether the maximum value found so far is a long
+	 */
+	private boolean maxIsLong;
+	/**
+	 * The maximum value as a long, only meaningful if it is a long
+	 */
+	private long longMaxValue;
+	
+	/**
+	 * The column being analyzed
+	 */
+	private int column;
+	
+	/**
+	 * Constructor that initializes the column being analyzed
+	 * @param column the column being analyzed
+	 */
+	public MaxComputation(int column) {
+		
+		this.column = column;
+	}
+	
+	@Override
+	public void compute(String record) {
+		
+		compute(new ParsedRecord(record));
+	}
+	
+	@Override
+	public void compute(ParsedRecord record) {
+		
+		if(column == -1) {
+			
+			maxValue = "";
+			return;
+		
+		} 
+		
+		if(maxValue == null) {
+			
+			setValue(record);
+		
+		} else if(maxIsLong && record.isLong(column)) {
+			
+			long field = record.getLong(column);
+			
+			if(field > longMaxValue) {
+				
+				setValue(field);
+			}
+		
+		} else if(record.compareFieldIgnoreCase(column, maxValueBytes) > 0) {
+			
+			setValue(record);
+		}
+		
+	}
+
+	@Override
+	public String result() {
+		
+		return maxValue;
+	}
+	
+	@Override
+	public boolean isMergeable() {
+		
+		return true;
+	}
+	
+	/**
+	 * Method that combines the maximum found by another MaxComputation, comparing the values in the same way as compute()
+	 */
+	@Override
+	public void merge(Computation other) {
+		
+		MaxComputation otherMax = (MaxComputation) other;
+		
+		if(otherMax.maxValue == null) {
+			
+			return;
+		}
+		
+		boolean replace;
+		
+		if(maxValue == null || column == -1) {
+			
+			replace = true;
+		
+		} else if(otherMax.maxIsLong && maxIsLong) {
+			
+			replace = otherMax.longMaxValue > longMaxValue;
+		
+		} else {
+			
+			replace = otherMax.maxValue.compareToIgnoreCase(maxValue) > 0;
+		}
+		
+		if(replace) {
+			
+			maxValue = otherMax.maxValue;
+			maxValueBytes = otherMax.maxValueBytes;
+			maxIsLong = otherMax.maxIsLong;
+			longMaxValue = otherMax.longMaxValue;
+		}
+	}
+	
+	/**
+	 * Method that makes the field of the given record the maximum value
+	 * The String is only created here, when the maximum changes
+	 * @param record the record that holds the new maximum
+	 */
+	private void setValue(ParsedRecord record) {
+		
+		maxValue = record.getField(column);
+		maxValueBytes = Arrays.copyOfRange(record.getBuffer(), record.getFieldStart(column), record.getFieldEnd(column));
+		maxIsLong = record.isLong(column);
+		
+		if(maxIsLong) {
+			
+			longMaxValue = record.getLong(column);
+		}
+	}
+	
+	/**
+	 * Method that makes the given long the maximum value
+	 * @param value the new maximum
+	 */
+	private void setValue(long value) {
+		
+		maxValue = String.valueOf(value);
+		maxValueBytes = maxValue.getBytes(StandardCharsets.UTF_8);
+		maxIsLong = true;
+		longMaxValue = value;
+	}
+	
+}
@@ -1,108 +1,161 @@
-/**
- * Class that implements the Computation interface and simply performs the MIN terminal computation
- * Finds the minimum value of the desired header in the output stream
- * If the value is a String, the minimum value is the one that comes before in a lexicographical order
- * If the value is a long, the minimum is simply the one that comes before in the number line
- * 
- * @author Luiz do Valle
- *
- */
-public class MinComputation implements Computation{
-
-	/**
-	 * The minimum value found so far
-	 */
-	private String minValue = null;
-	/**
-	 * Helper method that stores the minimum value of a long
-	 */
-	private long longMinValue = Long.MAX_VALUE;
-	
-	/**
-	 * The column being analyzed
-	 */
-	private int column;
-	
-	/**
-	 * Constructor that initializes the column being analyzed
-	 * @param column the column being analyzed
-	 */
-	public MinComputation(int column) {
-		
-		this.column = column;
-	}
-	
-	@Override
-	public void compute(String record) {
-		
-		String[] recordFields = record.split("\t");
-		
-		
-		if(column == -1) {
-			
-			minValue = "";
-			return;
-		
-		} 
-		
-		String targetField = recordFields[column];
-		
-		if(minValue == null) {
-			
-			minValue = targetField;
-		
-		} else if(isValidLong(targetField)) {
-			
-			long field = getLongValue(targetField);
-			long currentMax = getLongValue(minValue);
-			
-			if(field < currentMax) {
-				
-				minValue = String.valueOf(field);
-			}
-		
-		} else {
-			
-			if(targetField.compareToIgnoreCase(minValue) < 0) {
-				
-				minValue = targetField;
-			}
-		}
-		
-	}
-
-	@Override
-	public String result() {
-		
-		return minValue;
-	}
-	
-	/**
-	 * Method that checks whether the given field is a long
-	 * @param field the field to be checked
-	 * @return true if a field is a long, false otherwise
-	 */
-	private boolean isValidLong(String field) {
-		
-		try {
-			
-			Long.parseLong(field);
-		
-		} catch (NumberFormatException e){
-			
-			return false;
-		}
-		
-		return true;
-	}
-	
-	/**
-	 * Method that converts the given field to a long
-	 * @param field the field to be converted to a long
-	 * @return the field as long
-	 */
-	private long getLongValue(String field) {
-		
-		return Long.parseLong(field);
-	}
-}
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Class that implements the Computation interface and simply performs the MIN terminal computation on String columns
+ * Finds the minimum value of the desired header in the output stream
+ * If the value is a String, the minimum value is the one that comes before in a lexicographical order
+ * If both values are longs, the minimum is simply the one that comes before in the number line
+ * Columns whose type is long are handled by LongMinComputation instead
+ * 
+ * @author Luiz do Valle
+ *
+ */
+public class MinComputation implements Computation{
+
+	/**
+	 * The minimum value found so far
+	 */
+	private String minValue = null;
+	/**
+	 * The minimum value encoded as UTF-8, so the fields can be compared without creating a String
+	 */
+	private byte[] minValueBytes;
+	/**
+	 * Whether the minimum value found so far is a long
+	 */
+	private boolean minIsLong;
+	/**
+	 * The minimum value as a long, only meaningful if it is a long
+	 */
+	private long longMinValue;
+	
+	/**
+	 * The column being analyzed
+	 */
+	private int column;
+	
+	/**
+	 * Constructor that initializes the column being analyzed
+	 * @param column the column being analyzed
+	 */
+	public MinComputation(int column) {
+		
+		this.column = column;
+	}
+	
+	@Override
+	public void compute(String record) {
+		
+		compute(new ParsedRecord(record));
+	}
+	
+	@Override
+	public void compute(ParsedRecord record) {
+		
+		if(column == -1) {
+			
+			minValue = "";
+			return;
+		
+		} 
+		
+		if(minValue == null) {
+			
+			setValue(record);
+		
+		} else if(minIsLong && record.isLong(column)) {
+			
+			long field = record.getLong(column);
+			
+			if(field < longMinValue) {
+				
+				setValue(field);
+			}
+		
+		} else if(record.compareFieldIgnoreCase(column, minValueBytes) < 0) {
+			
+			setValue(record);
+		}
+		
+	}
+
+	@Override
+	public String result() {
+		
+		return minValue;
+	}
+	
+	@Override
+	public boolean isMergeable() {
+		
+		return true;
+	}
+	
+	/**
+	 * Method that combines the minimum found by another MinComputation, comparing the values in the same way as compute()
+	 */
+	@Override
+	public void merge(Computation other) {
+		
+		MinComputation otherMin = (MinComputation) other;
+		
+		if(otherMin.minValue == null) {
+			
+			return;
+		}
+		
+		boolean replace;
+		
+		if(minValue == null || column == -1) {
+			
+			replace = true;
+		
+		} else if(otherMin.minIsLong && minIsLong) {
+			
+			replace = otherMin.longMinValue < longMinValue;
+		
+		} else {
+			
+			replace = otherMin.minValue.compareToIgnoreCase(minValue) < 0;
+		}
+		
+		if(replace) {
+			
+			minValue = otherMin.minValue;
+			minValueBytes = otherMin.minValueBytes;
+			minIsLong = otherMin.minIsLong;
+			longMinValue = otherMin.longMinValue;
+		}
+	}
+	
+	/**
+	 * Method that makes the field of the given record the minimum value
+	 * The String is only created here, when the minimum changes
+	 * @param record the record that holds the new minimum
+	 */
+	private void setValue(ParsedRecord record) {
+		
+		minValue = record.getField(column);
+		minValueBytes = Arrays.copyOfRange(record.getBuffer(), record.getFieldStart(column), record.getFieldEnd(column));
+		minIsLong = record.isLong(column);
+		
+		if(minIsLong) {
+			
+			longMinValue = record.getLong(column);
+		}
+	}
+	
+	/**
+	 * Method that makes the given long the minimum value
+	 * @param value the new minimum
+	 */
+	private void setValue(long value) {
+		
+		minValue = String.valueOf(value);
+		minValueBytes = minValue.getBytes(StandardCharsets.UTF_8);
+		minIsLong = true;
+		longMinValue = value;
+	}
+	
+}
@@ -1,61 +1,187 @@
-/**
- * Class that implements the Selection interface
- * Performs the normal selection by receiving the user requirements and finding the records in the
- * file that meet those requirements
- * If the target header is the empty String ("") the filter outputs all the properly formed records
- * @author Luiz do Valle
- *
- */
-public class NormalSelection implements Selection {
-
-	/**
-	 * The data column with which the file should be filtered
-	 */
-	private int targetColumn = -1;
-	/**
-	 * The header with which the file should be filtered
-	 */
-	private String targetHeader;
-	/**
-	 * The field that the user wants all the output data to have
-	 */
-	private String targetField;
-	
-	/**
-	 * Constructor of the class
-	 * @param targetHeader The header with which the file should be filtered
-	 * @param targetField The field that the user wants all the output data to have
-	 * @param targetColumn The data column with which the file should be filtered
-	 */
-	public NormalSelection(String targetHeader, String targetField, int targetColumn) {
-		
-		this.targetHeader = targetHeader;
-		this.targetColumn = targetColumn;
-		this.targetField = targetField;
-		
-	}
-	
-	
-	@Override
-	public boolean isRecordWanted(String record) {
-		
-		if(targetHeader.equals("")) {
-			
-			return true;
-		}
-		
-		if(targetColumn == -1 || targetField == null) {
-			
-			return false;
-		
-		}
-		
-		String[] recordFields = record.split("\t");
-		
-		return targetField.equals(recordFields[targetColumn]);
-		
-	}
-
-	
-	
-}
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Class that implements the Selection interface
+ * Performs the normal selection by receiving the user requirements and finding the records in the
+ * file that meet those requirements
+ * If the target header is the empty String ("") the filter outputs all the properly formed records
+ * @author Luiz do Valle
+ *
+ */
+public class NormalSelection implements Selection {
+
+	/**
+	 * The data column with which the file should be filtered
+	 */
+	private int targetColumn = -1;
+	/**
+	 * The header with which the file should be filtered
+	 */
+	private String targetHeader;
+	/**
+	 * The field that the user wants all the output data to have
+	 */
+	private String targetField;
+	/**
+	 * The target field encoded as UTF-8, so it can be compared directly with the bytes of the records
+	 */
+	private byte[] targetBytes;
+	
+	/**
+	 * Constructor of the class
+	 * @param targetHeader The header with which the file should be filtered
+	 * @param targetField The field that the user wants all the output data to have
+	 * @param targetColumn The data column with which the file should be filtered
+	 */
+	public NormalSelection(String targetHeader, String targetField, int targetColumn) {
+		
+		this.targetHeader = targetHeader;
+		this.targetColumn = targetColumn;
+		this.targetField = targetField;
+		
+		if(targetField != null) {
+			
+			this.targetBytes = targetField.getBytes(StandardCharsets.UTF_8);
+		}
+		
+	}
+	
+	
+	@Override
+	public boolean isRecordWanted(String record) {
+		
+		return isRecordWanted(new ParsedRecord(record));
+		
+	}
+	
+	@Override
+	public boolean isRecordWanted(ParsedRecord record) {
+		
+		if(targetHeader.equals("")) {
+			
+			return true;
+		}
+		
+		if(targetColumn == -1 || targetField == null) {
+			
+			return false;
+		
+		}
+		
+		return record.fieldEquals(targetColumn, targetBytes);
+		
+	}
+	
+	@Override
+	public boolean isStateless() {
+		
+		return true;
+	}
+	
+	/**
+	 * A field equal to the target field holds the same long as the target, so a block of a long column can only
+	 * hold wanted records if the target is a long within the [min, max] of the block
+	 */
+	@Override
+	public boolean mayMatch(ZoneMap zones, int block) {
+		
+		if(targetHeader.equals("")) {
+			
+			return true;
+		}
+		
+		if(targetColumn == -1 || targetField == null) {
+			
+			return false;
+		}
+		
+		if(!zones.isLongColumn(targetColumn)) {
+			
+			return true;
+		}
+		
+		LongParser parser = new LongParser();
+		
+		//The valid records only hold longs in the column, so a target that is not a long matches none of them
+		return parser.parse(targetBytes, 0, targetBytes.length) && zones.mayContain(targetColumn, block, parser.getValue());
+	}
+	
+	/**
+	 * Method that tells whether the selection can be done on the cache
+	 * Long columns are compared as longs, which is only the same as comparing their text if all the values
+	 * of the column are written in the canonical form
+	 */
+	@Override
+	public boolean isCacheable(ColumnarCache cache) {
+		
+		return targetColumn == -1 || !cache.isLongColumn(targetColumn) || cache.isCanonical(targetColumn);
+	}
+	
+	@Override
+	public int select(ColumnarCache cache, int[] rows, int count) throws IOException {
+		
+		if(targetHeader.equals("")) {
+			
+			return count;
+		}
+		
+		if(targetColumn == -1 || targetField == null) {
+			
+			return 0;
+		}
+		
+		int wanted = 0;
+		
+		if(cache.isLongColumn(targetColumn)) {
+			
+			LongParser parser = new LongParser();
+			
+			//A target that is not a long in the canonical form cannot be equal to any value of the column
+			if(!parser.parse(targetField) || !String.valueOf(parser.getValue()).equals(targetField)) {
+				
+				return 0;
+			}
+			
+			long target = parser.getValue();
+			
+			for(int index = 0; index < count; index++) {
+				
+				if(cache.getLong(targetColumn, rows[index]) == target) {
+					
+					rows[wanted++] = rows[index];
+				}
+			}
+			
+		} else if(cache.isDictionaryEncoded(targetColumn)) {
+			
+			int target = cache.findCode(targetColumn, targetBytes);
+			
+			if(target == -1) {
+				
+				return 0;
+			}
+			
+			for(int index = 0; index < count; index++) {
+				
+				if(cache.getCode(targetColumn, rows[index]) == target) {
+					
+					rows[wanted++] = rows[index];
+				}
+			}
+			
+		} else {
+			
+			for(int index = 0; index < count; index++) {
+				
+				if(cache.fieldEquals(targetColumn, rows[index], targetBytes)) {
+					
+					rows[wanted++] = rows[index];
+				}
+			}
+		}
+		
+		return wanted;
+	}
+
+}
@@ -0,0 +1,40 @@
+/**
+ * Class that implements the Selection interface and selects the records that another selection does not want
+ * @author Luiz do Valle
+ *
+ */
+public class NotSelection implements Selection {
+
+	/**
+	 * The selection being negated
+	 */
+	private final Selection selection;
+	
+	/**
+	 * Constructor of the class
+	 * @param selection the selection being negated
+	 */
+	public NotSelection(Selection selection) {
+		
+		this.selection = selection;
+	}
+	
+	@Override
+	public boolean isRecordWanted(String record) {
+		
+		return !selection.isRecordWanted(record);
+	}
+	
+	@Override
+	public boolean isRecordWanted(ParsedRecord record) {
+		
+		return !selection.isRecordWanted(record);
+	}
+	
+	@Override
+	public boolean isStateless() {
+		
+		return selection.isStateless();
+	}
+	
+}
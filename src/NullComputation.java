@@ -1,22 +1,54 @@
-/**
- * Class that implements the Computation interface and simply performs the NULL terminal computation
- * NullObject of the Computation interface, that does not perform any operation
- * @author Luiz do Valle
- *
- */
-public class NullComputation implements Computation {
-
-	@Override
-	public void compute(String record) {
-		
-		
-	}
-
-	@Override
-	public String result() {
-		
-		return "No terminal operations specified";
-	}
-
-	
-}
+/**
+ * Class that implements the Computation interface and simply performs the NULL terminal computation
+ * NullObject of the Computation interface, that does not perform any operation
+ * @author Luiz do Valle
+ *
+ */
+public class NullComputation implements Computation {
+
+	@Override
+	public void compute(String record) {
+		
+		
+	}
+
+	@Override
+	public String result() {
+		
+		return "No terminal operations specified";
+	}
+	
+	@Override
+	public boolean isMergeable() {
+		
+		return true;
+	}
+	
+	@Override
+	public void merge(Computation other) {
+		
+	}
+	
+	@Override
+	public boolean isCacheable(ColumnarCache cache) {
+		
+		return true;
+	}
+	
+	@Override
+	public void compute(ColumnarCache cache, int[] rows, int count) {
+		
+	}
+	
+	@Override
+	public boolean isSummarizable(ZoneMap zones) {
+		
+		return true;
+	}
+	
+	@Override
+	public void compute(ZoneMap zones, int block) {
+		
+	}
+
+}
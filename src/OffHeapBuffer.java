@@ -0,0 +1,174 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Class that represents a growable region of memory outside of the Java heap, addressed with long offsets
+ * The memory is made of direct ByteBuffers of PAGE_SIZE bytes each, so it is not limited to the 2 GB of a single
+ * ByteBuffer, and it is neither scanned nor copied by the garbage collector, however large it grows
+ *
+ * The longs and ints must be stored at offsets that are multiples of their size, so they never cross the end of a
+ * page, while arrays of bytes can be stored anywhere
+ * The memory is zeroed when it is allocated and is given back to the system once the buffer is garbage collected,
+ * so its size is bounded by the -XX:MaxDirectMemorySize option of the JVM instead of by the heap. As the garbage
+ * collector may take long to run, a buffer that is emptied should be zeroed with zero() and reused instead of
+ * being replaced by a new one
+ * @author Luiz do Valle
+ *
+ */
+public class OffHeapBuffer {
+
+	/**
+	 * The number of bits of an offset that address a byte inside its page
+	 */
+	private static final int PAGE_BITS = 22;
+	/**
+	 * The number of bytes of each page (4 MB)
+	 */
+	public static final int PAGE_SIZE = 1 << PAGE_BITS;
+	/**
+	 * The mask that keeps the bits of an offset that address a byte inside its page
+	 */
+	private static final long PAGE_MASK = PAGE_SIZE - 1;
+	/**
+	 * The bytes copied into the pages to zero them
+	 */
+	private static final byte[] ZEROS = new byte[64 * 1024];
+
+	/**
+	 * The pages allocated, only the first pageCount of them are used
+	 */
+	private ByteBuffer[] pages = new ByteBuffer[8];
+	/**
+	 * The number of pages allocated
+	 */
+	private int pageCount;
+
+	/**
+	 * Method that allocates pages until the buffer holds at least the given number of bytes
+	 * @param bytes the number of bytes needed
+	 */
+	public void ensureCapacity(long bytes) {
+
+		while(capacity() < bytes) {
+
+			if(pageCount == pages.length) {
+
+				pages = Arrays.copyOf(pages, pageCount * 2);
+			}
+
+			pages[pageCount++] = ByteBuffer.allocateDirect(PAGE_SIZE).order(ByteOrder.nativeOrder());
+		}
+	}
+
+	/**
+	 * Method that sets the first bytes of the buffer to 0, without giving back any page
+	 * @param bytes the number of bytes, at most the capacity of the buffer
+	 */
+	public void zero(long bytes) {
+
+		for(int page = 0; bytes > 0; page++) {
+
+			int length = (int) Math.min(bytes, PAGE_SIZE);
+
+			for(int offset = 0; offset < length; offset += ZEROS.length) {
+
+				pages[page].put(offset, ZEROS, 0, Math.min(ZEROS.length, length - offset));
+			}
+
+			bytes -= length;
+		}
+	}
+
+	/**
+	 * Accessor method for the number of bytes allocated
+	 * @return the number of bytes the buffer can hold without growing
+	 */
+	public long capacity() {
+
+		return (long) pageCount << PAGE_BITS;
+	}
+
+	/**
+	 * Method that reads a long
+	 * @param offset the offset of the long, a multiple of 8
+	 * @return the long
+	 */
+	public long getLong(long offset) {
+
+		return pages[(int) (offset >>> PAGE_BITS)].getLong((int) (offset & PAGE_MASK));
+	}
+
+	/**
+	 * Method that writes a long
+	 * @param offset the offset of the long, a multiple of 8
+	 * @param value the long
+	 */
+	public void putLong(long offset, long value) {
+
+		pages[(int) (offset >>> PAGE_BITS)].putLong((int) (offset & PAGE_MASK), value);
+	}
+
+	/**
+	 * Method that reads an int
+	 * @param offset the offset of the int, a multiple of 4
+	 * @return the int
+	 */
+	public int getInt(long offset) {
+
+		return pages[(int) (offset >>> PAGE_BITS)].getInt((int) (offset & PAGE_MASK));
+	}
+
+	/**
+	 * Method that writes an int
+	 * @param offset the offset of the int, a multiple of 4
+	 * @param value the int
+	 */
+	public void putInt(long offset, int value) {
+
+		pages[(int) (offset >>> PAGE_BITS)].putInt((int) (offset & PAGE_MASK), value);
+	}
+
+	/**
+	 * Method that copies bytes from the buffer into an array
+	 * @param offset the offset of the first byte
+	 * @param destination the array
+	 * @param start the index in the array where the first byte is copied
+	 * @param length the number of bytes
+	 */
+	public void get(long offset, byte[] destination, int start, int length) {
+
+		while(length > 0) {
+
+			int inPage = (int) (offset & PAGE_MASK);
+			int piece = Math.min(length, PAGE_SIZE - inPage);
+
+			pages[(int) (offset >>> PAGE_BITS)].get(inPage, destination, start, piece);
+			offset += piece;
+			start += piece;
+			length -= piece;
+		}
+	}
+
+	/**
+	 * Method that copies bytes from an array into the buffer
+	 * @param offset the offset where the first byte is copied
+	 * @param source the array
+	 * @param start the index in the array of the first byte
+	 * @param length the number of bytes
+	 */
+	public void put(long offset, byte[] source, int start, int length) {
+
+		while(length > 0) {
+
+			int inPage = (int) (offset & PAGE_MASK);
+			int piece = Math.min(length, PAGE_SIZE - inPage);
+
+			pages[(int) (offset >>> PAGE_BITS)].put(inPage, source, start, piece);
+			offset += piece;
+			start += piece;
+			length -= piece;
+		}
+	}
+
+}
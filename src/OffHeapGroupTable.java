@@ -0,0 +1,411 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Class that implements the GroupTable interface with all its state kept off the Java heap, for groupings with so
+ * many groups that the primitive arrays of the LongGroupTable and BytesGroupTable would fill the old generation
+ * and make every full garbage collection scan and copy them
+ *
+ * The groups are kept in three OffHeapBuffers:
+ * - the entries, one per group in the order in which the groups were added, each one holding the hash of the key,
+ * the offset and length of the key and one long slot per aggregate
+ * - the keys, encoded in the same way as GroupTable.encodeKey() and stored one after the other
+ * - the index, an open addressing table with linear probing holding the number of a group plus one per position,
+ * kept at most half full
+ *
+ * The key of a record is assembled into an array that belongs to the table and is only replaced when a longer key
+ * arrives, so finding the group of a record allocates nothing
+ * The pages of the buffers are never replaced: the index is grown and rebuilt in place, and clear() keeps every page
+ * to be reused by the next groups, so the direct memory held does not depend on when the garbage collector runs
+ * @author Luiz do Valle
+ *
+ */
+public class OffHeapGroupTable implements GroupTable {
+
+	/**
+	 * The number of bytes of an entry before its slots: the hash, the offset and the length of the key
+	 */
+	private static final int ENTRY_HEADER_SIZE = 24;
+	/**
+	 * The number of positions of the index when the table is created, which fill one page
+	 */
+	private static final long INITIAL_INDEX_POSITIONS = OffHeapBuffer.PAGE_SIZE / Integer.BYTES;
+
+	/**
+	 * Whether the groups are keyed on a single long column, otherwise they are keyed on the bytes of the fields
+	 */
+	private final boolean longKeys;
+	/**
+	 * The columns holding the keys
+	 */
+	private final int[] columns;
+	/**
+	 * The number of slots of each group
+	 */
+	private final int slotCount;
+	/**
+	 * The number of bytes of each entry
+	 */
+	private final int entrySize;
+	/**
+	 * The entries of the groups
+	 */
+	private final OffHeapBuffer entries = new OffHeapBuffer();
+	/**
+	 * The encoded keys of the groups
+	 */
+	private final OffHeapBuffer keys = new OffHeapBuffer();
+	/**
+	 * The index of the groups
+	 */
+	private final OffHeapBuffer index = new OffHeapBuffer();
+	/**
+	 * The number of positions of the index, a power of two
+	 */
+	private long indexPositions;
+	/**
+	 * The number of bytes used in the keys buffer
+	 */
+	private long keyBytesUsed;
+	/**
+	 * The number of groups
+	 */
+	private int size;
+	/**
+	 * The number of bytes of the longest key added since the table was created or cleared
+	 */
+	private int longestKey;
+	/**
+	 * The array where the key of a record is assembled
+	 */
+	private byte[] recordKey = new byte[64];
+	/**
+	 * The array where the key of a group is copied to be compared
+	 */
+	private byte[] storedKey = new byte[64];
+	/**
+	 * The array where the key of a group is copied to be compared with the key of another group
+	 */
+	private byte[] compareKey = new byte[64];
+
+	/**
+	 * Constructor of the class
+	 * No memory is allocated until the first group is added
+	 * @param longKeys true if the groups are keyed on a single long column, false to key them on the bytes of the fields
+	 * @param columns the columns holding the keys
+	 * @param slotCount the number of slots of each group
+	 */
+	public OffHeapGroupTable(boolean longKeys, int[] columns, int slotCount) {
+
+		this.longKeys = longKeys;
+		this.columns = columns.clone();
+		this.slotCount = slotCount;
+		this.entrySize = ENTRY_HEADER_SIZE + slotCount * Long.BYTES;
+	}
+
+	@Override
+	public int group(ParsedRecord record) {
+
+		int length = 0;
+
+		if(longKeys) {
+
+			if(!record.isLong(columns[0])) {
+
+				return -1;
+			}
+
+			long value = record.getLong(columns[0]) ^ Long.MIN_VALUE;
+
+			for(int index = Long.BYTES - 1; index >= 0; index--) {
+
+				recordKey[index] = (byte) value;
+				value >>>= 8;
+			}
+
+			length = Long.BYTES;
+
+		} else {
+
+			byte[] buffer = record.getBuffer();
+
+			for(int index = 0; index < columns.length; index++) {
+
+				int fieldStart = record.getFieldStart(columns[index]);
+				int fieldLength = record.getFieldEnd(columns[index]) - fieldStart;
+
+				if(length + fieldLength + 1 > recordKey.length) {
+
+					recordKey = Arrays.copyOf(recordKey, Math.max(length + fieldLength + 1, recordKey.length * 2));
+				}
+
+				if(index > 0) {
+
+					recordKey[length++] = '\t';
+				}
+
+				System.arraycopy(buffer, fieldStart, recordKey, length, fieldLength);
+				length += fieldLength;
+			}
+		}
+
+		return groupOfKey(recordKey, length);
+	}
+
+	@Override
+	public int groupOfKey(byte[] key, int length) {
+
+		if(indexPositions == 0) {
+
+			indexPositions = INITIAL_INDEX_POSITIONS;
+			index.ensureCapacity(indexPositions * Integer.BYTES);
+		}
+
+		long hash = ParsedRecord.hash(key, 0, length);
+		long mask = indexPositions - 1;
+		long position = hash & mask;
+
+		while(true) {
+
+			int stored = index.getInt(position * Integer.BYTES);
+
+			if(stored == 0) {
+
+				break;
+			}
+
+			int group = stored - 1;
+			long entry = (long) group * entrySize;
+
+			if(entries.getLong(entry) == hash && keyEquals(entry, key, length)) {
+
+				return group;
+			}
+
+			position = (position + 1) & mask;
+		}
+
+		return add(position, hash, key, length);
+	}
+
+	@Override
+	public int keyLength(int group) {
+
+		return entries.getInt((long) group * entrySize + 16);
+	}
+
+	@Override
+	public void encodeKey(int group, byte[] destination) {
+
+		long entry = (long) group * entrySize;
+
+		keys.get(entries.getLong(entry + 8), destination, 0, entries.getInt(entry + 16));
+	}
+
+	@Override
+	public int size() {
+
+		return size;
+	}
+
+	@Override
+	public long get(int group, int slot) {
+
+		return entries.getLong((long) group * entrySize + ENTRY_HEADER_SIZE + slot * Long.BYTES);
+	}
+
+	@Override
+	public void set(int group, int slot, long value) {
+
+		entries.putLong((long) group * entrySize + ENTRY_HEADER_SIZE + slot * Long.BYTES, value);
+	}
+
+	@Override
+	public int compare(int first, int second) {
+
+		int firstLength = keyLength(first);
+		int secondLength = keyLength(second);
+
+		if(Math.max(firstLength, secondLength) > compareKey.length) {
+
+			compareKey = new byte[Math.max(Math.max(firstLength, secondLength), compareKey.length * 2)];
+		}
+
+		if(Math.max(firstLength, secondLength) > storedKey.length) {
+
+			storedKey = new byte[Math.max(Math.max(firstLength, secondLength), storedKey.length * 2)];
+		}
+
+		encodeKey(first, compareKey);
+		encodeKey(second, storedKey);
+
+		return Arrays.compareUnsigned(compareKey, 0, firstLength, storedKey, 0, secondLength);
+	}
+
+	@Override
+	public String describeKey(byte[] key, int length) {
+
+		if(longKeys) {
+
+			long value = 0;
+
+			for(int index = 0; index < Long.BYTES; index++) {
+
+				value = (value << 8) | (key[index] & 0xff);
+			}
+
+			return String.valueOf(value ^ Long.MIN_VALUE);
+		}
+
+		return new String(key, 0, length, StandardCharsets.UTF_8);
+	}
+
+	@Override
+	public long memoryUsed() {
+
+		return entries.capacity() + keys.capacity() + index.capacity();
+	}
+
+	@Override
+	public long memoryToGrow() {
+
+		long bytes = pagesToGrow(entries, (long) (size + 1) * entrySize) + pagesToGrow(keys, keyBytesUsed + longestKey);
+
+		if(indexPositions == 0) {
+
+			bytes += pagesToGrow(index, INITIAL_INDEX_POSITIONS * Integer.BYTES);
+
+		} else if((long) (size + 1) * 2 > indexPositions) {
+
+			bytes += pagesToGrow(index, indexPositions * 2 * Integer.BYTES);
+		}
+
+		return bytes;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * A page is allocated for the entries, one for the keys and the index fills one page from the start
+	 */
+	@Override
+	public long minimumMemory() {
+
+		return 2L * OffHeapBuffer.PAGE_SIZE + INITIAL_INDEX_POSITIONS * Integer.BYTES;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * Every page is kept and only the index is zeroed, the entries and the keys being written again by the next groups
+	 */
+	@Override
+	public void clear() {
+
+		index.zero(indexPositions * Integer.BYTES);
+		keyBytesUsed = 0;
+		size = 0;
+		longestKey = 0;
+	}
+
+	/**
+	 * Method that returns the number of bytes a buffer would allocate to hold the given number of bytes
+	 * @param buffer the buffer
+	 * @param bytes the number of bytes the buffer must hold
+	 * @return the size of the pages that would be added to the buffer, or 0 if it is large enough
+	 */
+	private static long pagesToGrow(OffHeapBuffer buffer, long bytes) {
+
+		long missing = bytes - buffer.capacity();
+
+		return missing <= 0 ? 0 : (missing + OffHeapBuffer.PAGE_SIZE - 1) / OffHeapBuffer.PAGE_SIZE * OffHeapBuffer.PAGE_SIZE;
+	}
+
+	/**
+	 * Method that checks whether the key of an entry is equal to the given key
+	 * @param entry the offset of the entry
+	 * @param key the array that holds the key
+	 * @param length the number of bytes of the key
+	 * @return true if the keys are equal, false otherwise
+	 */
+	private boolean keyEquals(long entry, byte[] key, int length) {
+
+		if(entries.getInt(entry + 16) != length) {
+
+			return false;
+		}
+
+		if(length > storedKey.length) {
+
+			storedKey = new byte[Math.max(length, storedKey.length * 2)];
+		}
+
+		keys.get(entries.getLong(entry + 8), storedKey, 0, length);
+
+		return Arrays.equals(storedKey, 0, length, key, 0, length);
+	}
+
+	/**
+	 * Method that adds a group with all its slots set to 0
+	 * @param position the empty position of the index where the group is added
+	 * @param hash the hash of the key
+	 * @param key the array that holds the encoded key
+	 * @param length the number of bytes of the key
+	 * @return the number of the new group
+	 */
+	private int add(long position, long hash, byte[] key, int length) {
+
+		int group = size++;
+		long entry = (long) group * entrySize;
+
+		entries.ensureCapacity(entry + entrySize);
+		entries.putLong(entry, hash);
+		entries.putLong(entry + 8, keyBytesUsed);
+		entries.putInt(entry + 16, length);
+
+		for(int slot = 0; slot < slotCount; slot++) {
+
+			set(group, slot, 0);
+		}
+
+		keys.ensureCapacity(keyBytesUsed + length);
+		keys.put(keyBytesUsed, key, 0, length);
+		keyBytesUsed += length;
+		longestKey = Math.max(longestKey, length);
+
+		index.putInt(position * Integer.BYTES, group + 1);
+
+		if((long) size * 2 > indexPositions) {
+
+			rehash();
+		}
+
+		return group;
+	}
+
+	/**
+	 * Method that makes the index twice as large and puts every group back in it
+	 * The index is rebuilt in place from the hashes of the entries, so only the pages of the second half are allocated
+	 */
+	private void rehash() {
+
+		long newPositions = indexPositions * 2;
+		long mask = newPositions - 1;
+
+		index.ensureCapacity(newPositions * Integer.BYTES);
+		index.zero(newPositions * Integer.BYTES);
+
+		for(int group = 0; group < size; group++) {
+
+			long position = entries.getLong((long) group * entrySize) & mask;
+
+			while(index.getInt(position * Integer.BYTES) != 0) {
+
+				position = (position + 1) & mask;
+			}
+
+			index.putInt(position * Integer.BYTES, group + 1);
+		}
+
+		indexPositions = newPositions;
+	}
+
+}
@@ -0,0 +1,35 @@
+import java.util.List;
+
+/**
+ * Class that extends the CompositeSelection and selects the records wanted by at least one of its selections
+ * The evaluation stops at the first selection that accepts the record
+ * @author Luiz do Valle
+ *
+ */
+public class OrSelection extends CompositeSelection {
+
+	/**
+	 * Constructor of the class
+	 * @param selections the selections of which at least one must want a record for it to be selected
+	 */
+	public OrSelection(List<Selection> selections) {
+		
+		super(selections);
+	}
+	
+	@Override
+	protected boolean decisiveResult() {
+		
+		return true;
+	}
+	
+	/**
+	 * Cheap selections that accept most records run first
+	 */
+	@Override
+	protected double rank(double cost, double passRate) {
+		
+		return (cost + 1) / (passRate + 0.001);
+	}
+	
+}
@@ -0,0 +1,11 @@
+/**
+ * Enum that represents the choices of compression of the output files
+ * GZIP writes a series of gzip members, which gzip and GZIPInputStream read as a single file
+ * DEFLATE writes a raw deflate stream without header or checksum, read with an Inflater created with nowrap set
+ * @author Luiz do Valle
+ *
+ */
+public enum OutputCompression {
+
+	NONE, GZIP, DEFLATE
+}
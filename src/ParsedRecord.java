@@ -0,0 +1,433 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Class that represents a record that has already been split into its fields
+ * The line is tokenized only once and the fields are stored as offsets into the line buffer, so the validation,
+ * selection and computation algorithms can all share the same parsed view without splitting the line again
+ * The line is kept as the raw UTF-8 bytes read from the file and is only turned into a String when asked to
+ *
+ * The fields are found in the same way as String.split("\t"), meaning that trailing empty fields are
+ * discarded unless the line contains no tabs at all
+ *
+ * The long value of a field is parsed at most once per line and then remembered, so the validation of the
+ * record and the algorithms that use the same column do not parse it again
+ *
+ * A single instance is reused for every line of the file and the buffer it points to belongs to the TSVReader,
+ * so the algorithms that receive it must not keep a reference to it after the call returns
+ * @author Luiz do Valle
+ *
+ */
+public class ParsedRecord {
+
+	/**
+	 * The number of fields the offset arrays can hold before they need to grow
+	 */
+	private static final int DEFAULT_CAPACITY = 16;
+
+	/**
+	 * State of a field whose long value has not been parsed yet
+	 */
+	private static final byte LONG_UNKNOWN = 0;
+	/**
+	 * State of a field that was parsed and holds a valid long
+	 */
+	private static final byte LONG_VALID = 1;
+	/**
+	 * State of a field that was parsed and does not hold a long
+	 */
+	private static final byte LONG_INVALID = 2;
+
+	/**
+	 * View used to read eight bytes of a buffer at a time as a long when hashing a field
+	 */
+	private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+	/**
+	 * The buffer that holds the line currently being viewed
+	 */
+	private byte[] buffer;
+	/**
+	 * The index in the buffer where the line starts
+	 */
+	private int lineStart;
+	/**
+	 * The index in the buffer where the line ends (exclusive)
+	 */
+	private int lineEnd;
+	/**
+	 * The line as a String, only created when it is requested
+	 */
+	private String line;
+	/**
+	 * The index in the buffer where each field starts
+	 */
+	private int[] fieldStarts;
+	/**
+	 * The index in the buffer where each field ends (exclusive)
+	 */
+	private int[] fieldEnds;
+	/**
+	 * The number of fields found in the line
+	 */
+	private int fieldCount;
+	/**
+	 * Whether the long value of each field is unknown, valid or invalid
+	 */
+	private byte[] longStates;
+	/**
+	 * The long value of each field that was successfully parsed
+	 */
+	private long[] longValues;
+	/**
+	 * The parser used for the long values of the fields
+	 */
+	private final LongParser longParser = new LongParser();
+
+	/**
+	 * Constructor of the class that creates an empty record to be filled by parse()
+	 */
+	public ParsedRecord() {
+
+		fieldStarts = new int[DEFAULT_CAPACITY];
+		fieldEnds = new int[DEFAULT_CAPACITY];
+		longStates = new byte[DEFAULT_CAPACITY];
+		longValues = new long[DEFAULT_CAPACITY];
+	}
+
+	/**
+	 * Constructor of the class that parses the given line right away
+	 * Used by the String based adapters of the Selection and Computation algorithms
+	 * @param line the line to be parsed
+	 */
+	public ParsedRecord(String line) {
+
+		this();
+		parse(line);
+	}
+
+	/**
+	 * Method that tokenizes the given String, replacing the previous line held by this record
+	 * @param line the line to be parsed
+	 */
+	public void parse(String line) {
+
+		byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+
+		parse(bytes, 0, bytes.length);
+		this.line = line;
+	}
+
+	/**
+	 * Method that tokenizes the line found in the given region of the buffer on tabs, replacing the
+	 * previous line held by this record
+	 * The bytes are not copied, so the buffer must not change while the record is in use
+	 * @param buffer the buffer that holds the line
+	 * @param start the index where the line starts
+	 * @param end the index where the line ends (exclusive), without the line separator
+	 */
+	public void parse(byte[] buffer, int start, int end) {
+
+		this.buffer = buffer;
+		this.lineStart = start;
+		this.lineEnd = end;
+		this.line = null;
+		fieldCount = 0;
+
+		int fieldStart = start;
+
+		for(int index = start; index < end; index++) {
+
+			if(buffer[index] == '\t') {
+
+				addField(fieldStart, index);
+				fieldStart = index + 1;
+			}
+		}
+
+		addField(fieldStart, end);
+
+		//Same behavior as String.split: trailing empty fields are removed if at least one tab was found
+		if(fieldCount > 1) {
+
+			while(fieldCount > 0 && fieldStarts[fieldCount - 1] == fieldEnds[fieldCount - 1]) {
+
+				fieldCount--;
+			}
+		}
+
+		Arrays.fill(longStates, 0, fieldCount, LONG_UNKNOWN);
+	}
+
+	/**
+	 * Accessor method for the whole line as a String
+	 * The String is created the first time it is requested
+	 * @return the line that was parsed
+	 */
+	public String getLine() {
+
+		if(line == null) {
+
+			line = new String(buffer, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8);
+		}
+
+		return line;
+	}
+
+	/**
+	 * Accessor method for the buffer that holds the line
+	 * @return the buffer that holds the line
+	 */
+	public byte[] getBuffer() {
+
+		return buffer;
+	}
+
+	/**
+	 * Accessor method for the start of the line
+	 * @return the index in the buffer where the line starts
+	 */
+	public int getLineStart() {
+
+		return lineStart;
+	}
+
+	/**
+	 * Accessor method for the end of the line
+	 * @return the index in the buffer where the line ends (exclusive)
+	 */
+	public int getLineEnd() {
+
+		return lineEnd;
+	}
+
+	/**
+	 * Accessor method for the number of fields
+	 * @return the number of fields found in the line
+	 */
+	public int getFieldCount() {
+
+		return fieldCount;
+	}
+
+	/**
+	 * Accessor method for the start of a field
+	 * @param column the column of the field
+	 * @return the index in the buffer where the field starts
+	 */
+	public int getFieldStart(int column) {
+
+		return fieldStarts[column];
+	}
+
+	/**
+	 * Accessor method for the end of a field
+	 * @param column the column of the field
+	 * @return the index in the buffer where the field ends (exclusive)
+	 */
+	public int getFieldEnd(int column) {
+
+		return fieldEnds[column];
+	}
+
+	/**
+	 * Method that creates a String with the contents of the given field
+	 * Allocates a new String, so it should be avoided in the hot paths when a comparison is enough
+	 * @param column the column of the field
+	 * @return the field as a String
+	 */
+	public String getField(int column) {
+
+		int start = fieldStarts[column];
+
+		return new String(buffer, start, fieldEnds[column] - start, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Method that checks whether the given field is equal to the given UTF-8 encoded value without creating a String
+	 * @param column the column of the field
+	 * @param value the encoded value to be compared with
+	 * @return true if the field is exactly equal to the value, false otherwise
+	 */
+	public boolean fieldEquals(int column, byte[] value) {
+
+		int start = fieldStarts[column];
+		int end = fieldEnds[column];
+
+		return Arrays.equals(buffer, start, end, value, 0, value.length);
+	}
+
+	/**
+	 * Method that compares the given field with the given UTF-8 encoded value lexicographically, ignoring case,
+	 * in the same way as String.compareToIgnoreCase
+	 * ASCII text is compared directly on the bytes, anything else is decoded into Strings first
+	 * @param column the column of the field
+	 * @param value the encoded value to be compared with
+	 * @return a negative number, zero or a positive number if the field comes before, is equal to or comes after the value
+	 */
+	public int compareFieldIgnoreCase(int column, byte[] value) {
+
+		int start = fieldStarts[column];
+		int length = fieldEnds[column] - start;
+		int common = Math.min(length, value.length);
+
+		for(int index = 0; index < common; index++) {
+
+			int fieldByte = buffer[start + index];
+			int valueByte = value[index];
+
+			if((fieldByte | valueByte) < 0) {
+
+				//Non-ASCII byte, the characters must be decoded to follow the String rules
+				return getField(column).compareToIgnoreCase(new String(value, StandardCharsets.UTF_8));
+			}
+
+			if(fieldByte != valueByte) {
+
+				int difference = toLowerCase(fieldByte) - toLowerCase(valueByte);
+
+				if(difference != 0) {
+
+					return difference;
+				}
+			}
+		}
+
+		return length - value.length;
+	}
+
+	/**
+	 * Method that computes a 64 bit hash of the bytes of the given field without creating a String
+	 * @param column the column of the field
+	 * @return the hash of the field
+	 */
+	public long hashField(int column) {
+
+		return hash(buffer, fieldStarts[column], fieldEnds[column]);
+	}
+
+	/**
+	 * Method that computes a 64 bit hash of the bytes in the given region of a buffer
+	 * The bytes are consumed eight at a time and the result goes through the MurmurHash3 finalizer, so every bit of
+	 * the hash depends on every byte, as the sketches that use it look at both its high and its low bits
+	 * @param buffer the buffer that holds the value
+	 * @param start the index where the value starts
+	 * @param end the index where the value ends (exclusive)
+	 * @return the hash of the value
+	 */
+	public static long hash(byte[] buffer, int start, int end) {
+
+		long hash = (end - start) * 0x9e3779b97f4a7c15L;
+		int index = start;
+
+		for(; index + Long.BYTES <= end; index += Long.BYTES) {
+
+			hash = mixWord(hash, (long) LONGS.get(buffer, index));
+		}
+
+		if(index < end) {
+
+			long word = 0;
+
+			for(int shift = 0; index < end; index++, shift += 8) {
+
+				word |= (buffer[index] & 0xffL) << shift;
+			}
+
+			hash = mixWord(hash, word);
+		}
+
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+
+		return hash ^ (hash >>> 33);
+	}
+
+	/**
+	 * Method that combines eight bytes of a value into its hash
+	 * @param hash the hash of the previous bytes
+	 * @param word the next eight bytes, in little endian order
+	 * @return the hash including the word
+	 */
+	private static long mixWord(long hash, long word) {
+
+		word *= 0x87c37b91114253d5L;
+		word = Long.rotateLeft(word, 31);
+
+		return Long.rotateLeft(hash ^ word, 27) * 5 + 0x52dce729;
+	}
+
+	/**
+	 * Method that checks whether the given field holds a long
+	 * The field is only parsed the first time this method is called for it on the current line
+	 * @param column the column of the field
+	 * @return true if the field is a long, false otherwise
+	 */
+	public boolean isLong(int column) {
+
+		byte state = longStates[column];
+
+		if(state == LONG_UNKNOWN) {
+
+			if(longParser.parse(buffer, fieldStarts[column], fieldEnds[column])) {
+
+				longValues[column] = longParser.getValue();
+				state = LONG_VALID;
+
+			} else {
+
+				state = LONG_INVALID;
+			}
+
+			longStates[column] = state;
+		}
+
+		return state == LONG_VALID;
+	}
+
+	/**
+	 * Method that returns the long value of the given field
+	 * Must only be called after isLong() returned true for the field
+	 * @param column the column of the field
+	 * @return the value of the field as a long
+	 */
+	public long getLong(int column) {
+
+		return longValues[column];
+	}
+
+	/**
+	 * Method that converts an ASCII letter to lower case
+	 * @param character the ASCII character
+	 * @return the character in lower case, or the same character if it is not an upper case letter
+	 */
+	private static int toLowerCase(int character) {
+
+		return character >= 'A' && character <= 'Z' ? character + ('a' - 'A') : character;
+	}
+
+	/**
+	 * Method that stores the bounds of a field, growing the offset arrays if needed
+	 * @param start the index where the field starts
+	 * @param end the index where the field ends (exclusive)
+	 */
+	private void addField(int start, int end) {
+
+		if(fieldCount == fieldStarts.length) {
+
+			fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+			fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+			longStates = Arrays.copyOf(longStates, fieldCount * 2);
+			longValues = Arrays.copyOf(longValues, fieldCount * 2);
+		}
+
+		fieldStarts[fieldCount] = start;
+		fieldEnds[fieldCount] = end;
+		fieldCount++;
+	}
+}
@@ -0,0 +1,353 @@
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Class that implements the Computation interface and performs the QUANTILES terminal computation on long columns
+ * Estimates the values found at the requested fractions of the sorted column, such as the median (0.5) or the
+ * 99th percentile (0.99), without keeping or sorting the whole column
+ *
+ * The values are kept in a KLL sketch (Karnin, Lang and Liberty, 2016): a stack of levels where each value kept at
+ * level h stands for 2^h values of the column. When a level is full it is sorted and every other value, starting at
+ * a random one of the first two, is promoted to the level above, so half of the values are dropped while their rank
+ * stays unbiased. Higher levels have larger capacities, the top one holding about accuracy values and each level
+ * below 2/3 of the one above, so the sketch keeps about 3 * accuracy values whatever the size of the file
+ *
+ * The default accuracy of 200 keeps a few KB and estimates the rank of each quantile within about 1.7% of the number
+ * of values, doubling the accuracy halves the error and doubles the memory. As long as the column has fewer values
+ * than the accuracy nothing is dropped and the quantiles are exact
+ * The quantiles are given as the nearest rank: the smallest value kept whose rank reaches the fraction of the values
+ *
+ * Two sketches are merged by adding the levels of one to the levels of the other and compacting the result, so the
+ * computation can be used when the file is processed in parallel chunks
+ * The random choices use a fixed seed, so the same file always gives the same result
+ * @author Luiz do Valle
+ *
+ */
+public class QuantilesComputation implements Computation {
+
+	/**
+	 * The accuracy used when the user does not give one
+	 */
+	public static final int DEFAULT_ACCURACY = 200;
+	/**
+	 * The smallest accuracy supported
+	 */
+	public static final int MIN_ACCURACY = 8;
+	/**
+	 * The quantiles estimated when the user does not ask for any: the median, the 95th and the 99th percentiles
+	 */
+	public static final double[] DEFAULT_QUANTILES = {0.5, 0.95, 0.99};
+
+	/**
+	 * The ratio between the capacities of two consecutive levels
+	 */
+	private static final double CAPACITY_RATIO = 2.0 / 3;
+	/**
+	 * The seed of the random choices made when compacting a level
+	 */
+	private static final long SEED = 0x5453565154L;
+
+	/**
+	 * The capacity of the top level
+	 */
+	private final int accuracy;
+	/**
+	 * The fractions of the sorted column whose values are estimated, each one in [0, 1]
+	 */
+	private final double[] quantiles;
+	/**
+	 * The values kept at each level, only the first levelSizes[level] of them are used
+	 */
+	private long[][] levels = new long[1][];
+	/**
+	 * The number of values kept at each level
+	 */
+	private int[] levelSizes = new int[1];
+	/**
+	 * The number of levels in use
+	 */
+	private int levelCount;
+	/**
+	 * The number of values kept in all the levels
+	 */
+	private int size;
+	/**
+	 * The sum of the capacities of the levels, once this many values are kept a level is compacted
+	 */
+	private int maxSize;
+	/**
+	 * The number of values of the column seen
+	 */
+	private long count;
+	/**
+	 * The source of the random choices made when compacting a level
+	 */
+	private final SplittableRandom random = new SplittableRandom(SEED);
+
+	private int column;
+
+	/**
+	 * Constructor of the class with the default accuracy and quantiles
+	 * @param column the column being analyzed, which must be a long column
+	 */
+	public QuantilesComputation(int column) {
+
+		this(column, DEFAULT_ACCURACY, DEFAULT_QUANTILES);
+	}
+
+	/**
+	 * Constructor of the class
+	 * @param column the column being analyzed, which must be a long column
+	 * @param accuracy the capacity of the top level, at least MIN_ACCURACY
+	 * @param quantiles the fractions of the sorted column whose values are estimated, each one in [0, 1]
+	 */
+	public QuantilesComputation(int column, int accuracy, double[] quantiles) {
+
+		this.column = column;
+		this.accuracy = Math.max(MIN_ACCURACY, accuracy);
+		this.quantiles = quantiles.clone();
+		addLevel();
+	}
+
+	@Override
+	public void compute(String record) {
+
+		compute(new ParsedRecord(record));
+	}
+
+	@Override
+	public void compute(ParsedRecord record) {
+
+		if(record.isLong(column)) {
+
+			add(record.getLong(column));
+		}
+	}
+
+	/**
+	 * Method that returns the estimated value of each quantile requested, such as "p50 = 25, p99 = 50"
+	 * @return the values of the quantiles, or null if no value was found
+	 */
+	@Override
+	public String result() {
+
+		if(count == 0) {
+
+			return null;
+		}
+
+		long[][] sorted = new long[levelCount][];
+
+		for(int level = 0; level < levelCount; level++) {
+
+			sorted[level] = Arrays.copyOf(levels[level], levelSizes[level]);
+			Arrays.sort(sorted[level]);
+		}
+
+		StringBuilder result = new StringBuilder();
+
+		for(int index = 0; index < quantiles.length; index++) {
+
+			String percentile = BigDecimal.valueOf(quantiles[index]).movePointRight(2).stripTrailingZeros().toPlainString();
+
+			result.append((index > 0 ? ", " : "") + "p" + percentile + " = " + valueAt(sorted, quantiles[index]));
+		}
+
+		return result.toString();
+	}
+
+	@Override
+	public boolean isMergeable() {
+
+		return true;
+	}
+
+	@Override
+	public void merge(Computation other) {
+
+		QuantilesComputation otherSketch = (QuantilesComputation) other;
+
+		while(levelCount < otherSketch.levelCount) {
+
+			addLevel();
+		}
+
+		for(int level = 0; level < otherSketch.levelCount; level++) {
+
+			for(int index = 0; index < otherSketch.levelSizes[level]; index++) {
+
+				append(level, otherSketch.levels[level][index]);
+			}
+		}
+
+		size += otherSketch.size;
+		count += otherSketch.count;
+
+		while(size >= maxSize) {
+
+			compress();
+		}
+	}
+
+	@Override
+	public boolean isCacheable(ColumnarCache cache) {
+
+		return cache.isLongColumn(column);
+	}
+
+	@Override
+	public void compute(ColumnarCache cache, int[] rows, int count) throws IOException {
+
+		for(int index = 0; index < count; index++) {
+
+			add(cache.getLong(column, rows[index]));
+		}
+	}
+
+	/**
+	 * Method that adds a value of the column to the bottom level
+	 * @param value the value
+	 */
+	private void add(long value) {
+
+		append(0, value);
+		size++;
+		count++;
+
+		if(size >= maxSize) {
+
+			compress();
+		}
+	}
+
+	/**
+	 * Method that compacts the lowest level that reached its capacity, adding a level on top if needed
+	 */
+	private void compress() {
+
+		for(int level = 0; level < levelCount; level++) {
+
+			if(levelSizes[level] >= capacity(level)) {
+
+				if(level + 1 == levelCount) {
+
+					addLevel();
+				}
+
+				compact(level);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Method that sorts a level and promotes every other value of it to the level above
+	 * If the level has an odd number of values, its smallest value stays in it, so the weight of the sketch does
+	 * not change
+	 * @param level the level
+	 */
+	private void compact(int level) {
+
+		long[] values = levels[level];
+		int levelSize = levelSizes[level];
+		int first = levelSize & 1;
+		int offset = random.nextInt(2);
+
+		Arrays.sort(values, 0, levelSize);
+
+		for(int index = first; index < levelSize; index += 2) {
+
+			append(level + 1, values[index + offset]);
+		}
+
+		levelSizes[level] = first;
+		size -= (levelSize - first) / 2;
+	}
+
+	/**
+	 * Method that adds a level on top of the others, which lowers the capacities of the levels below it
+	 */
+	private void addLevel() {
+
+		if(levelCount == levels.length) {
+
+			levels = Arrays.copyOf(levels, levelCount * 2);
+			levelSizes = Arrays.copyOf(levelSizes, levelCount * 2);
+		}
+
+		levels[levelCount] = new long[Math.min(accuracy, 16)];
+		levelCount++;
+		maxSize = 0;
+
+		for(int level = 0; level < levelCount; level++) {
+
+			maxSize += capacity(level);
+		}
+	}
+
+	/**
+	 * Method that returns the number of values a level can keep before being compacted
+	 * @param level the level
+	 * @return the capacity of the level
+	 */
+	private int capacity(int level) {
+
+		return (int) Math.ceil(Math.pow(CAPACITY_RATIO, levelCount - level - 1) * accuracy) + 1;
+	}
+
+	/**
+	 * Method that adds a value at the end of a level, growing it if needed
+	 * @param level the level
+	 * @param value the value
+	 */
+	private void append(int level, long value) {
+
+		if(levelSizes[level] == levels[level].length) {
+
+			levels[level] = Arrays.copyOf(levels[level], levels[level].length * 2);
+		}
+
+		levels[level][levelSizes[level]++] = value;
+	}
+
+	/**
+	 * Method that finds the value whose rank reaches a quantile by going through the values kept in increasing order
+	 * @param sorted the values kept at each level, sorted
+	 * @param quantile the fraction of the sorted column
+	 * @return the smallest value whose rank, counting the weight of the levels, reaches the quantile
+	 */
+	private long valueAt(long[][] sorted, double quantile) {
+
+		long target = Math.max(1, (long) Math.ceil(quantile * count));
+		int[] positions = new int[levelCount];
+		long rank = 0;
+		long value = 0;
+
+		while(rank < target) {
+
+			int smallest = -1;
+
+			for(int level = 0; level < levelCount; level++) {
+
+				if(positions[level] < sorted[level].length
+						&& (smallest == -1 || sorted[level][positions[level]] < sorted[smallest][positions[smallest]])) {
+
+					smallest = level;
+				}
+			}
+
+			if(smallest == -1) {
+
+				break;
+			}
+
+			value = sorted[smallest][positions[smallest]++];
+			rank += 1L << smallest;
+		}
+
+		return value;
+	}
+
+}
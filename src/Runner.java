@@ -1,535 +1,1104 @@
-/**
- * Class used for testing
- * 
- * System Design: The "select" and "compute" behaviors were abstracted following the Strategy Pattern
- * to interfaces (Selection and Computation) that are implemented by concrete behaviors (in the case of Select: NormalSelection 
- * and OutlierSelection) (in the case of Compute: NullComputation, MaxComputation, CountComputation, etc)
- * These classes are used as plugins in the TSVPipeline class, which makes the system flexible and expandable, but 
- * increases the number of classes in the program
- * 
- * NOTE: The user interface in part 2.1 was different than that for the following parts. It required the user to
- * specify the file on the console.
- * 
- * NOTE: The toString() method of TSVFilter did not include the Terminal computation type until the tests 
- * in part 2.4 when I realized it was missing and added it.
- * 
- * TESTING:
- * 
- * Part 2.1
- * 
- * Test Case ID: Invalid Record Field
- * Test Designed By: Luiz do Valle
- * Test Summary: This tests whether the system can detect malformed records
- * Pre-conditions: The file exists and the header and type lines are properly formed
- * Test Data: Input data with a String where a long should be found and missing a field. 
- * Expected Result: The system will tell the user it found a problem with a the malformed lines, output
- * these lines to the invalidOutput.tsv file and continue analyzing the other records
- * Actual Result: The results matched expectations
- * Post-condition: The output files are populated correctly
- * 
- * Test Case ID: Inexistent File
- * Test Designed By: Luiz do Valle
- * Test Summary: This tests whether the system can identify a file that does not exist and act elegantly in response
- * Pre-conditions: None
- * Test Data: Inexistent File
- * Expected Result: The system should tell the user that the file does not exist
- * Actual Result: The results matched expectations
- * Post-condition: None
- * 
- * Test Case ID: Malformed Type Line
- * Test Designed By: Luiz do Valle
- * Test Summary: This tests whether the system can detect malformed type lines
- * Pre-conditions: The file exists and the header is properly formed
- * Test Data: File with type line missing a field
- * Expected Result: The system will tell the user it found a problem with a the type line and
- * stop the program
- * Actual Result: The results matched expectations
- * Post-condition: The program stopped
- * 
- * Test Case ID: Missing Header
- * Test Designed By: Luiz do Valle
- * Test Summary: This tests whether the system can detect absent headers
- * Pre-conditions: The file exists
- * Test Data: Perfect file except with missing header line 
- * Expected Result: The system will tell the user it found a problem with the header and
- * stop the program
- * Actual Result: The results matched expectations
- * Post-condition: The program stopped
- * 
- * Test Case ID: Missing Record Field
- * Test Designed By: Luiz do Valle
- * Test Summary: This tests whether the system can detect missing fields in the records
- * Pre-conditions: The file exists and the header and type lines are properly formed
- * Test Data: Input data with fields in different records
- * Expected Result: The system will tell the user it found a problem with a record line, output
- * these lines to the invalidOutput.tsv file and continue analyzing the other records
- * Actual Result: The results matched expectations
- * Post-condition: The output files are populated correctly
- * 
- * Test Case ID: Missing Type Line
- * Test Designed By: Luiz do Valle
- * Test Summary: This tests whether the system can detect absent type lines
- * Pre-conditions: The file exists
- * Test Data: Perfect file except with missing type line 
- * Expected Result: The system will tell the user it found a problem with the type line and
- * stop the program
- * Actual Result: The results matched expectations
- * Post-condition: The program stopped
- * 
- * Test Case ID: Only New Lines Record
- * Test Designed By: Luiz do Valle
- * Test Summary: This tests whether the system can detect records that are empty
- * Pre-conditions: The file exists and the header and type lines are properly formed
- * Test Data: Empty or tab only records
- * Expected Result: The system will tell the user it found a problem with a record line, output
- * these lines to the invalidOutput.tsv file and continue analyzing the other records
- * Actual Result: The results matched expectations
- * Post-condition: The output files are populated correctly
- * 
- * Test Case ID: Perfect Input 1
- * Test Designed By: Luiz do Valle
- * Test Summary: This tests whether the system can parse a properly formed file correctly
- * Pre-conditions: The file exists and the header and type lines are properly formed
- * Test Data: Propely formed file
- * Expected Result: The output file will match the input
- * Actual Result: The results matched expectations
- * Post-condition: The output files are populated correctly
- * 
- * Test Case ID: Perfect Input 2
- * Test Designed By: Luiz do Valle
- * Test Summary: This tests whether the system can parse a different, but properly formed file correctly
- * Pre-conditions: The file exists and the header and type lines are properly formed
- * Test Data: Propely formed file
- * Expected Result: The output file will match the input
- * Actual Result: The results matched expectations
- * Post-condition: The output files are populated correctly
- * 
- * Test Case ID: Tabs In a Row
- * Test Designed By: Luiz do Valle
- * Test Summary: This tests whether the system can detect records that are properly formed, but with one field consisting of two tabs in a row empty
- * Pre-conditions: The file exists and the header and type lines are properly formed
- * Test Data: Two tabs in a row
- * Expected Result: The system will tell the user it found a problem with a record line, output
- * these lines to the invalidOutput.tsv file and continue analyzing the other records
- * Actual Result: The results matched expectations
- * Post-condition: The output files are populated correctly
- * 
- * Part 2.2
- * 
- * Test Case ID: Select With Inexistent Filter
- * Test Designed By: Luiz do Valle
- * Test Summary: This tests whether the system detects that the filter does no match any record in the file
- * and therefore outputs no record to the output.tsv file, but still performs the normal validity checks
- * Pre-conditions: The file exists and the header and type lines are properly formed
- * Test Data: File that contains a properly formed header and type line and mostly properly formed records
- * Expected Result: The system will tell the user that no records matched the filter query and output only the
- * header and type line to the output file (no records). The system will identify and act as in the tests above 
- * when it finds a malformed record.
- * Actual Result: The results matched expectations
- * Post-condition: None
- * 
- * Test Case ID: Select With Invalid Filter
- * Test Designed By: Luiz do Valle
- * Test Summary: This tests whether the system detects that the filter's header does no match any header in the file
- * and therefore outputs no record to the output.tsv file, but still performs the normal validity checks
- * Pre-conditions: The file exists and the header and type lines are properly formed
- * Test Data: File that contains a properly formed header and type line and mostly properly formed records
- * Expected Result: The system will tell the user that no records matched the filter query and output only the
- * header and type line to the output file (no records). The system will identify and act as in the tests above 
- * when it finds a malformed record.
- * Actual Result: The results matched expectations
- * Post-condition: None
- * 
- * Test Case ID: Select With Long Filter
- * Test Designed By: Luiz do Valle
- * Test Summary: This tests whether the system can correctly stream the records in the file that match the filters and
- * still perform the normal validity checks. The field filter is a long field in this case
- * Pre-conditions: The file exists and the header and type lines are properly formed
- * Test Data: File that contains a properly formed header and type line and mostly properly formed records
- * Expected Result: The system will stream only the records that match the user's query and warn the user if it
- * finds any invalid records
- * Actual Result: The results matched expectations
- * Post-condition: None
- * 
- * 
- * Test Case ID: Select With String Filter
- * Test Designed By: Luiz do Valle
- * Test Summary: This tests whether the system can correctly stream the records in the file that match the filters and
- * still perform the normal validity checks. The field filter is a String field in this case
- * Pre-conditions: The file exists and the header and type lines are properly formed
- * Test Data: File that contains a properly formed header and type line and mostly properly formed records
- * Expected Result: The system will stream only the records that match the user's query and warn the user if it
- * finds any invalid records
- * Actual Result: The results matched expectations
- * Post-condition: None
- * 
- * Test Case ID: Select With No Filters
- * Test Designed By: Luiz do Valle
- * Test Summary: This tests whether the system identifies that no filters were specified and acts exactly like part 2.1,
- * simply performing the normal validity checks, and telling the user what types of fields it found.
- * Pre-conditions: The file exists and the header and type lines are properly formed
- * Test Data: File that contains a properly formed header and type line and mostly properly formed records
- * Expected Result: The system will only stream the records that are valid and warn the user if it
- * finds any invalid records, outputing those to the invalid_output.tsv 
- * Actual Result: The results matched expectations
- * Post-condition: None
- * 
- * 
- * Part 2.3
- * 
- * Test Case ID: Terminal ALLSAME1
- * Test Designed By: Luiz do Valle
- * Test Summary: This tests whether the ALLSAME terminal computation can identify whether all the records in
- * the output file are exactly the same.
- * Pre-conditions: The file exists and the header and type lines are properly formed. The validity and filter checks work
- * as specified in the use case
- * Test Data: File that contains element names with their symbol, group number, and atomic number
- * Expected Result: The system should print that the result of the computation is false as none of the 
- * records in the output file are exactly the same
- * Actual Result: The results matched expectations
- * Post-condition: None
- * 
- * Test Case ID: Terminal ALLSAME2
- * Test Designed By: Luiz do Valle
- * Test Summary: This tests whether the ALLSAME terminal computation can identify whether all the records in
- * the output file are exactly the same.
- * Pre-conditions: The file exists and the header and type lines are properly formed. The validity and filter checks work
- * as specified in the use case
- * Test Data: File that contains element names with their symbol, group number, and atomic number. The file has some invalid records
- * Expected Result: The system should print that the result of the computation is true as there should
- * be only one record in the output and that record is equal to itself
- * Actual Result: The results matched expectations
- * Post-condition: None
- * 
- * Test Case ID: Terminal COUNT
- * Test Designed By: Luiz do Valle
- * Test Summary: This tests whether the COUNT terminal computation can count properly
- * how many records are in the output file
- * Pre-conditions: The file exists and the header and type lines are properly formed. The validity and filter checks work
- * as specified in the use case
- * Test Data: File that contains person names, with their phone numbers and zip codes. The file has some invalid records
- * Expected Result: The system should print that the result of the computation is 2 as there are only two records with 
- * the zip code specified in the filter
- * Actual Result: The results matched expectations
- * Post-condition: None
- * 
- * Test Case ID: Terminal MAX Long
- * Test Designed By: Luiz do Valle
- * Test Summary: This tests whether the MAX terminal computation can identify the the record with the greatest
- * numerical value
- * Pre-conditions: The file exists and the header and type lines are properly formed. The validity and filter checks work
- * as specified in the use case
- * Test Data: File that contains element names with their symbol, group number, and atomic number. The file has some invalid records
- * Expected Result: The system should print that the result of the computation is 46 as the greatest atomic number in the output
- * is 46
- * Actual Result: The results matched expectations
- * Post-condition: None
- * 
- * Test Case ID: Terminal MAX String
- * Test Designed By: Luiz do Valle
- * Test Summary: This tests whether the MAX terminal computation can identify the the record with the greatest
- * String value
- * Pre-conditions: The file exists and the header and type lines are properly formed. The validity and filter checks work
- * as specified in the use case
- * Test Data: File that contains element names with their symbol, group number, and atomic number. The file has some invalid records
- * Expected Result: The system should print that the result of the computation is "Sulfur" as this word is the last one in
- * lexicographical order in the output
- * Actual Result: The results matched expectations
- * Post-condition: None
- * 
- * Test Case ID: Terminal MIN Long
- * Test Designed By: Luiz do Valle
- * Test Summary: This tests whether the MIN terminal computation can identify the the record with the smallest
- * numerical value
- * Pre-conditions: The file exists and the header and type lines are properly formed. The validity and filter checks work
- * as specified in the use case
- * Test Data: File that contains element names with their symbol, group number, and atomic number. The file has some invalid records
- * Expected Result: The system should print that the result of the computation is 1 as the smallest atomic number in the output
- * is 1
- * Actual Result: The results matched expectations
- * Post-condition: None
- * 
- * Test Case ID: Terminal MIN String
- * Test Designed By: Luiz do Valle
- * Test Summary: This tests whether the MIN terminal computation can identify the the record with the smallest
- * String value
- * Pre-conditions: The file exists and the header and type lines are properly formed. The validity and filter checks work
- * as specified in the use case
- * Test Data: File that contains person names, with their phone numbers and zip codes. The file has some invalid records
- * Expected Result: The system should print that the result of the computation is Antonio as this is the name field
- * that comes before lexicographically in the output file.
- * Actual Result: The results matched expectations
- * Post-condition: None
- * 
- * Test Case ID: Terminal SUM Long
- * Test Designed By: Luiz do Valle
- * Test Summary: This tests whether the SUM terminal computation performs correctly on long fields, adding all of them
- * and returning the sum
- * Pre-conditions: The file exists and the header and type lines are properly formed. The validity and filter checks work
- * as specified in the use case
- * Test Data: File that contains person names, with their phone numbers and zip codes. The file has some invalid records
- * Expected Result: The system should print that the result of the computation is 131 as the some of all the ages in the output
- * file is 131
- * Actual Result: The results matched expectations
- * Post-condition: None
- * 
- * Test Case ID: Terminal SUM String
- * Test Designed By: Luiz do Valle
- * Test Summary: This tests whether the SUM terminal computation performs correctly on String fields, essentially just
- * returning zero
- * Pre-conditions: The file exists and the header and type lines are properly formed. The validity and filter checks work
- * as specified in the use case
- * Test Data: File that contains person names, with their phone numbers and zip codes. The file has some invalid records
- * Expected Result: The system should print that the result of the computation is 0 because there is nothing to add. "Names" cannot be added like numbers
- * Actual Result: The results matched expectations
- * Post-condition: None
- * 
- * Test Case ID: Terminal Header Inexistent
- * Test Designed By: Luiz do Valle
- * Test Summary: This tests whether the terminal computations (in this test, MAX) are able to recognize
- * when a header passed to the compute() method does not exist. No computation should be performed
- * Pre-conditions: The file exists and the header and type lines are properly formed. The validity and filter checks work
- * as specified in the use case
- * Test Data: File that contains element names with their symbol, group number, and atomic number. The file has some invalid records
- * Expected Result: The system should print that the result of the computation "" as the Header "Pizza" passed to compute("Pizza", Terminal.MAX)
- * does not exist in the file
- * Actual Result: The results matched expectations
- * Post-condition: None
- * 
- * 
- * Part 2.4
- * 
- * Test Case ID: Outlier Long
- * Test Designed By: Luiz do Valle
- * Test Summary: This tests whether the outlier filter works correctly on long fields
- * Pre-conditions: The file exists and the header and type lines are properly formed. The validity checks work
- * as specified in the use case
- * Test Data: File that contains person names, with their phone numbers and zip codes. The file has some invalid records
- * Expected Result: The system should output only the records containing the ages 50 and 14 as those are the only ones
- * that differ from the previous record by the error specified in the outlier() function
- * Actual Result: The results matched expectations
- * Post-condition: None
- * 
- * Test Case ID: Outlier String
- * Test Designed By: Luiz do Valle
- * Test Summary: This tests whether the outlier filter responds correctly to String fields being passed as headers
- * Pre-conditions: The file exists and the header and type lines are properly formed. The validity checks work
- * as specified in the use case
- * Test Data: File that contains element names with their symbol, group number, and atomic number. The file has some invalid records
- * Expected Result: The system should stream no records to the output file as outlier is not defined for String fields
- * Actual Result: The results matched expectations
- * Post-condition: None
- * 
- * Test Case ID: Terminal FIRSTDIFF
- * Test Designed By: Luiz do Valle
- * Test Summary: This tests whether the FIRSTDIFF terminal computation works correctly on String fields
- * Pre-conditions: The file exists and the header and type lines are properly formed. The validity checks work
- * as specified in the use case
- * Test Data: File that contains element names with their symbol, group number, and atomic number. The file has some invalid records
- * Expected Result: The system should print the whole record containing the Magnesium information as it is the first that differs
- * from the previous one by its "Group Number" field. The console should also display the counter as 0 as there are no other Magnesium
- * records
- * Actual Result: The results matched expectations
- * Post-condition: None
- * 
- * Test Case ID: Terminal FIRSTDIFF2
- * Test Designed By: Luiz do Valle
- * Test Summary: This tests whether the FIRSTDIFF terminal computation works correctly on long fields
- * Pre-conditions: The file exists and the header and type lines are properly formed. The validity checks work
- * as specified in the use case
- * Test Data: File that contains person names, with their phone numbers and zip codes. An extra record containing
- * the "Name" Bob was inserted for the purpose of this testing. The file has some invalid records
- * Expected Result: The system should print the whole record containing the Bob information as it is the first that differs
- * from the previous one by its "Name" field. The console should also display the counter as 1 as there is one
- * other Bob record
- * Actual Result: The results matched expectations
- * Post-condition: None
- * 
- *@author Luiz do Valle
- *
- *
- */
-public class Runner {
-
-	/**
-	 * The start of the application
-	 * @param args
-	 */
-	public static void main(String[] args) {
-		
-		testTerminalFIRSTDIFF2();
-	}
-	
-	public static void testSelectWithNoFilters() {
-		
-		TSVFilter myTSVFilter = new TSVFilter.WhichFile("input_data2/input2.tsv").done();
-		
-		new TSVPipeline(myTSVFilter).doit();
-		
-		System.out.println(myTSVFilter);
-	}
-	
-	public static void testSelectWithStringFilter() {
-		
-		TSVFilter myTSVFilter = new TSVFilter.WhichFile("input_data2/input1.tsv").select("Name", "Joao").done();
-		
-		new TSVPipeline(myTSVFilter).doit();
-		
-		System.out.println(myTSVFilter);
-	}
-	
-	public static void testSelectWithLongFilter() {
-		
-		TSVFilter myTSVFilter = new TSVFilter.WhichFile("input_data2/input2.tsv").select("Group Number", 2).done();
-		
-		new TSVPipeline(myTSVFilter).doit();
-		
-		System.out.println(myTSVFilter);
-	}
-	
-	public static void testSelectWithInvalidFilters() {
-		
-		TSVFilter myTSVFilter = new TSVFilter.WhichFile("input_data2/input2.tsv").select("Address", "31 SE 5th Street").done();
-		
-		new TSVPipeline(myTSVFilter).doit();
-		
-		System.out.println(myTSVFilter);
-		
-	}
-	
-	public static void testSelectWithInexistentFilter() {
-		
-		TSVFilter myTSVFilter = new TSVFilter.WhichFile("input_data2/input1.tsv").select("Zip Code", "33136").done();
-		
-		new TSVPipeline(myTSVFilter).doit();
-		
-		System.out.println(myTSVFilter);
-	}
-	
-	public static void testTerminalALLSAME1() {
-		
-		TSVFilter myTSVFilter = new TSVFilter.WhichFile("input_data2/input2.tsv").select("Group Number", 10).compute("Atomic Number", Terminal.ALLSAME).done();
-		
-		new TSVPipeline(myTSVFilter).doit();
-		
-		System.out.println(myTSVFilter);
-	}
-	
-	public static void testTerminalALLSAME2() {
-		
-		TSVFilter myTSVFilter = new TSVFilter.WhichFile("input_data2/input2.tsv").select("Group Number", 18).compute("Group Number", Terminal.ALLSAME).done();
-		
-		new TSVPipeline(myTSVFilter).doit();
-		
-		System.out.println(myTSVFilter);
-	}
-	
-	public static void testTerminalCOUNT() {
-		
-		TSVFilter myTSVFilter = new TSVFilter.WhichFile("input_data2/input1.tsv").select("Zip Code", 33131).compute("", Terminal.COUNT).done();
-		
-		new TSVPipeline(myTSVFilter).doit();
-		
-		System.out.println(myTSVFilter);
-
-	}
-	
-	public static void testTerminalMINlong() {
-		
-		TSVFilter myTSVFilter = new TSVFilter.WhichFile("input_data2/input2.tsv").select("", "").compute("Atomic Number", Terminal.MIN).done();
-		
-		new TSVPipeline(myTSVFilter).doit();
-		
-		System.out.println(myTSVFilter);
-	}
-	
-	public static void testTerminalMINstring() {
-		
-		TSVFilter myTSVFilter = new TSVFilter.WhichFile("input_data2/input1.tsv").select("", "").compute("Name", Terminal.MIN).done();
-		
-		new TSVPipeline(myTSVFilter).doit();
-		
-		System.out.println(myTSVFilter);
-	}
-	
-	public static void testTerminalMAXlong() {
-		
-		TSVFilter myTSVFilter = new TSVFilter.WhichFile("input_data2/input2.tsv").select("Group Number", 10).compute("Atomic Number", Terminal.MAX).done();
-		
-		new TSVPipeline(myTSVFilter).doit();
-		
-		System.out.println(myTSVFilter);
-	}
-	
-	public static void testTerminalMAXstring() {
-		
-		TSVFilter myTSVFilter = new TSVFilter.WhichFile("input_data2/input2.tsv").compute("Element Name", Terminal.MAX).done();
-		
-		new TSVPipeline(myTSVFilter).doit();
-		
-		System.out.println(myTSVFilter);
-	}
-	
-	public static void testTerminalSUMlong() {
-		
-		TSVFilter myTSVFilter = new TSVFilter.WhichFile("input_data2/input1.tsv").compute("Age", Terminal.SUM).done();
-		
-		new TSVPipeline(myTSVFilter).doit();
-		
-		System.out.println(myTSVFilter);
-	}
-	
-	public static void testTerminalSUMstring() {
-		
-		TSVFilter myTSVFilter = new TSVFilter.WhichFile("input_data2/input1.tsv").select("Zip Code", 33131).compute("Name", Terminal.SUM).done();
-		
-		new TSVPipeline(myTSVFilter).doit();
-		
-		System.out.println(myTSVFilter);
-	}
-	
-	public static void testOutlierLong() {
-		
-		TSVFilter myTSVFilter = new TSVFilter.WhichFile("input_data2/input1.tsv").outlier("Age", 10).compute("Age", Terminal.MAX).done();
-		
-		new TSVPipeline(myTSVFilter).doit();
-		
-		System.out.println(myTSVFilter);
-	}
-	
-	public static void testOutlierString() {
-		
-		TSVFilter myTSVFilter = new TSVFilter.WhichFile("input_data2/input2.tsv").outlier("Symbol", 5).done();
-		
-		new TSVPipeline(myTSVFilter).doit();
-		
-		System.out.println(myTSVFilter);
-	}
-	
-	public static void testTerminalFIRSTDIFF() {
-		
-		TSVFilter myTSVFilter = new TSVFilter.WhichFile("input_data2/input2.tsv").compute("Group Number", Terminal.FIRSTDIFF).done();
-		
-		new TSVPipeline(myTSVFilter).doit();
-		
-		System.out.println(myTSVFilter);
-	}
-	
-	public static void testTerminalFIRSTDIFF2() {
-		
-		TSVFilter myTSVFilter = new TSVFilter.WhichFile("input_data2/input1.tsv").compute("Name", Terminal.FIRSTDIFF).done();
-		
-		new TSVPipeline(myTSVFilter).doit();
-		
-		System.out.println(myTSVFilter);
-	}
-	
-	public static void testTerminalInexistentHeader() {
-		
-		TSVFilter myTSVFilter = new TSVFilter.WhichFile("input_data2/input2.tsv").select("Group Number", 10).compute("Pizza", Terminal.MAX).done();
-		
-		new TSVPipeline(myTSVFilter).doit();
-		
-		System.out.println(myTSVFilter);
-	}
-}
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Class used for testing
+ * 
+ * System Design: The "select" and "compute" behaviors were abstracted following the Strategy Pattern
+ * to interfaces (Selection and Computation) that are implemented by concrete behaviors (in the case of Select: NormalSelection 
+ * and OutlierSelection) (in the case of Compute: NullComputation, MaxComputation, CountComputation, etc)
+ * These classes are used as plugins in the TSVPipeline class, which makes the system flexible and expandable, but 
+ * increases the number of classes in the program
+ * 
+ * NOTE: The user interface in part 2.1 was different than that for the following parts. It required the user to
+ * specify the file on the console.
+ * 
+ * NOTE: The toString() method of TSVFilter did not include the Terminal computation type until the tests 
+ * in part 2.4 when I realized it was missing and added it.
+ * 
+ * TESTING:
+ * 
+ * Part 2.1
+ * 
+ * Test Case ID: Invalid Record Field
+ * Test Designed By: Luiz do Valle
+ * Test Summary: This tests whether the system can detect malformed records
+ * Pre-conditions: The file exists and the header and type lines are properly formed
+ * Test Data: Input data with a String where a long should be found and missing a field. 
+ * Expected Result: The system will tell the user it found a problem with a the malformed lines, output
+ * these lines to the invalidOutput.tsv file and continue analyzing the other records
+ * Actual Result: The results matched expectations
+ * Post-condition: The output files are populated correctly
+ * 
+ * Test Case ID: Inexistent File
+ * Test Designed By: Luiz do Valle
+ * Test Summary: This tests whether the system can identify a file that does not exist and act elegantly in response
+ * Pre-conditions: None
+ * Test Data: Inexistent File
+ * Expected Result: The system should tell the user that the file does not exist
+ * Actual Result: The results matched expectations
+ * Post-condition: None
+ * 
+ * Test Case ID: Malformed Type Line
+ * Test Designed By: Luiz do Valle
+ * Test Summary: This tests whether the system can detect malformed type lines
+ * Pre-conditions: The file exists and the header is properly formed
+ * Test Data: File with type line missing a field
+ * Expected Result: The system will tell the user it found a problem with a the type line and
+ * stop the program
+ * Actual Result: The results matched expectations
+ * Post-condition: The program stopped
+ * 
+ * Test Case ID: Missing Header
+ * Test Designed By: Luiz do Valle
+ * Test Summary: This tests whether the system can detect absent headers
+ * Pre-conditions: The file exists
+ * Test Data: Perfect file except with missing header line 
+ * Expected Result: The system will tell the user it found a problem with the header and
+ * stop the program
+ * Actual Result: The results matched expectations
+ * Post-condition: The program stopped
+ * 
+ * Test Case ID: Missing Record Field
+ * Test Designed By: Luiz do Valle
+ * Test Summary: This tests whether the system can detect missing fields in the records
+ * Pre-conditions: The file exists and the header and type lines are properly formed
+ * Test Data: Input data with fields in different records
+ * Expected Result: The system will tell the user it found a problem with a record line, output
+ * these lines to the invalidOutput.tsv file and continue analyzing the other records
+ * Actual Result: The results matched expectations
+ * Post-condition: The output files are populated correctly
+ * 
+ * Test Case ID: Missing Type Line
+ * Test Designed By: Luiz do Valle
+ * Test Summary: This tests whether the system can detect absent type lines
+ * Pre-conditions: The file exists
+ * Test Data: Perfect file except with missing type line 
+ * Expected Result: The system will tell the user it found a problem with the type line and
+ * stop the program
+ * Actual Result: The results matched expectations
+ * Post-condition: The program stopped
+ * 
+ * Test Case ID: Only New Lines Record
+ * Test Designed By: Luiz do Valle
+ * Test Summary: This tests whether the system can detect records that are empty
+ * Pre-conditions: The file exists and the header and type lines are properly formed
+ * Test Data: Empty or tab only records
+ * Expected Result: The system will tell the user it found a problem with a record line, output
+ * these lines to the invalidOutput.tsv file and continue analyzing the other records
+ * Actual Result: The results matched expectations
+ * Post-condition: The output files are populated correctly
+ * 
+ * Test Case ID: Perfect Input 1
+ * Test Designed By: Luiz do Valle
+ * Test Summary: This tests whether the system can parse a properly formed file correctly
+ * Pre-conditions: The file exists and the header and type lines are properly formed
+ * Test Data: Propely formed file
+ * Expected Result: The output file will match the input
+ * Actual Result: The results matched expectations
+ * Post-condition: The output files are populated correctly
+ * 
+ * Test Case ID: Perfect Input 2
+ * Test Designed By: Luiz do Valle
+ * Test Summary: This tests whether the system can parse a different, but properly formed file correctly
+ * Pre-conditions: The file exists and the header and type lines are properly formed
+ * Test Data: Propely formed file
+ * Expected Result: The output file will match the input
+ * Actual Result: The results matched expectations
+ * Post-condition: The output files are populated correctly
+ * 
+ * Test Case ID: Tabs In a Row
+ * Test Designed By: Luiz do Valle
+ * Test Summary: This tests whether the system can detect records that are properly formed, but with one field consisting of two tabs in a row empty
+ * Pre-conditions: The file exists and the header and type lines are properly formed
+ * Test Data: Two tabs in a row
+ * Expected Result: The system will tell the user it found a problem with a record line, output
+ * these lines to the invalidOutput.tsv file and continue analyzing the other records
+ * Actual Result: The results matched expectations
+ * Post-condition: The output files are populated correctly
+ * 
+ * Part 2.2
+ * 
+ * Test Case ID: Select With Inexistent Filter
+ * Test Designed By: Luiz do Valle
+ * Test Summary: This tests whether the system detects that the filter does no match any record in the file
+ * and therefore outputs no record to the output.tsv file, but still performs the normal validity checks
+ * Pre-conditions: The file exists and the header and type lines are properly formed
+ * Test Data: File that contains a properly formed header and type line and mostly properly formed records
+ * Expected Result: The system will tell the user that no records matched the filter query and output only the
+ * header and type line to the output file (no records). The system will identify and act as in the tests above 
+ * when it finds a malformed record.
+ * Actual Result: The results matched expectations
+ * Post-condition: None
+ * 
+ * Test Case ID: Select With Invalid Filter
+ * Test Designed By: Luiz do Valle
+ * Test Summary: This tests whether the system detects that the filter's header does no match any header in the file
+ * and therefore outputs no record to the output.tsv file, but still performs the normal validity checks
+ * Pre-conditions: The file exists and the header and type lines are properly formed
+ * Test Data: File that contains a properly formed header and type line and mostly properly formed records
+ * Expected Result: The system will tell the user that no records matched the filter query and output only the
+ * header and type line to the output file (no records). The system will identify and act as in the tests above 
+ * when it finds a malformed record.
+ * Actual Result: The results matched expectations
+ * Post-condition: None
+ * 
+ * Test Case ID: Select With Long Filter
+ * Test Designed By: Luiz do Valle
+ * Test Summary: This tests whether the system can correctly stream the records in the file that match the filters and
+ * still perform the normal validity checks. The field filter is a long field in this case
+ * Pre-conditions: The file exists and the header and type lines are properly formed
+ * Test Data: File that contains a properly formed header and type line and mostly properly formed records
+ * Expected Result: The system will stream only the records that match the user's query and warn the user if it
+ * finds any invalid records
+ * Actual Result: The results matched expectations
+ * Post-condition: None
+ * 
+ * 
+ * Test Case ID: Select With String Filter
+ * Test Designed By: Luiz do Valle
+ * Test Summary: This tests whether the system can correctly stream the records in the file that match the filters and
+ * still perform the normal validity checks. The field filter is a String field in this case
+ * Pre-conditions: The file exists and the header and type lines are properly formed
+ * Test Data: File that contains a properly formed header and type line and mostly properly formed records
+ * Expected Result: The system will stream only the records that match the user's query and warn the user if it
+ * finds any invalid records
+ * Actual Result: The results matched expectations
+ * Post-condition: None
+ * 
+ * Test Case ID: Select With No Filters
+ * Test Designed By: Luiz do Valle
+ * Test Summary: This tests whether the system identifies that no filters were specified and acts exactly like part 2.1,
+ * simply performing the normal validity checks, and telling the user what types of fields it found.
+ * Pre-conditions: The file exists and the header and type lines are properly formed
+ * Test Data: File that contains a properly formed header and type line and mostly properly formed records
+ * Expected Result: The system will only stream the records that are valid and warn the user if it
+ * finds any invalid records, outputing those to the invalid_output.tsv 
+ * Actual Result: The results matched expectations
+ * Post-condition: None
+ * 
+ * 
+ * Part 2.3
+ * 
+ * Test Case ID: Terminal ALLSAME1
+ * Test Designed By: Luiz do Valle
+ * Test Summary: This tests whether the ALLSAME terminal computation can identify whether all the records in
+ * the output file are exactly the same.
+ * Pre-conditions: The file exists and the header and type lines are properly formed. The validity and filter checks work
+ * as specified in the use case
+ * Test Data: File that contains element names with their symbol, group number, and atomic number
+ * Expected Result: The system should print that the result of the computation is false as none of the 
+ * records in the output file are exactly the same
+ * Actual Result: The results matched expectations
+ * Post-condition: None
+ * 
+ * Test Case ID: Terminal ALLSAME2
+ * Test Designed By: Luiz do Valle
+ * Test Summary: This tests whether the ALLSAME terminal computation can identify whether all the records in
+ * the output file are exactly the same.
+ * Pre-conditions: The file exists and the header and type lines are properly formed. The validity and filter checks work
+ * as specified in the use case
+ * Test Data: File that contains element names with their symbol, group number, and atomic number. The file has some invalid records
+ * Expected Result: The system should print that the result of the computation is true as there should
+ * be only one record in the output and that record is equal to itself
+ * Actual Result: The results matched expectations
+ * Post-condition: None
+ * 
+ * Test Case ID: Terminal COUNT
+ * Test Designed By: Luiz do Valle
+ * Test Summary: This tests whether the COUNT terminal computation can count properly
+ * how many records are in the output file
+ * Pre-conditions: The file exists and the header and type lines are properly formed. The validity and filter checks work
+ * as specified in the use case
+ * Test Data: File that contains person names, with their phone numbers and zip codes. The file has some invalid records
+ * Expected Result: The system should print that the result of the computation is 2 as there are only two records with 
+ * the zip code specified in the filter
+ * Actual Result: The results matched expectations
+ * Post-condition: None
+ * 
+ * Test Case ID: Terminal MAX Long
+ * Test Designed By: Luiz do Valle
+ * Test Summary: This tests whether the MAX terminal computation can identify the the record with the greatest
+ * numerical value
+ * Pre-conditions: The file exists and the header and type lines are properly formed. The validity and filter checks work
+ * as specified in the use case
+ * Test Data: File that contains element names with their symbol, group number, and atomic number. The file has some invalid records
+ * Expected Result: The system should print that the result of the computation is 46 as the greatest atomic number in the output
+ * is 46
+ * Actual Result: The results matched expectations
+ * Post-condition: None
+ * 
+ * Test Case ID: Terminal MAX String
+ * Test Designed By: Luiz do Valle
+ * Test Summary: This tests whether the MAX terminal computation can identify the the record with the greatest
+ * String value
+ * Pre-conditions: The file exists and the header and type lines are properly formed. The validity and filter checks work
+ * as specified in the use case
+ * Test Data: File that contains element names with their symbol, group number, and atomic number. The file has some invalid records
+ * Expected Result: The system should print that the result of the computation is "Sulfur" as this word is the last one in
+ * lexicographical order in the output
+ * Actual Result: The results matched expectations
+ * Post-condition: None
+ * 
+ * Test Case ID: Terminal MIN Long
+ * Test Designed By: Luiz do Valle
+ * Test Summary: This tests whether the MIN terminal computation can identify the the record with the smallest
+ * numerical value
+ * Pre-conditions: The file exists and the header and type lines are properly formed. The validity and filter checks work
+ * as specified in the use case
+ * Test Data: File that contains element names with their symbol, group number, and atomic number. The file has some invalid records
+ * Expected Result: The system should print that the result of the computation is 1 as the smallest atomic number in the output
+ * is 1
+ * Actual Result: The results matched expectations
+ * Post-condition: None
+ * 
+ * Test Case ID: Terminal MIN String
+ * Test Designed By: Luiz do Valle
+ * Test Summary: This tests whether the MIN terminal computation can identify the the record with the smallest
+ * String value
+ * Pre-conditions: The file exists and the header and type lines are properly formed. The validity and filter checks work
+ * as specified in the use case
+ * Test Data: File that contains person names, with their phone numbers and zip codes. The file has some invalid records
+ * Expected Result: The system should print that the result of the computation is Antonio as this is the name field
+ * that comes before lexicographically in the output file.
+ * Actual Result: The results matched expectations
+ * Post-condition: None
+ * 
+ * Test Case ID: Terminal SUM Long
+ * Test Designed By: Luiz do Valle
+ * Test Summary: This tests whether the SUM terminal computation performs correctly on long fields, adding all of them
+ * and returning the sum
+ * Pre-conditions: The file exists and the header and type lines are properly formed. The validity and filter checks work
+ * as specified in the use case
+ * Test Data: File that contains person names, with their phone numbers and zip codes. The file has some invalid records
+ * Expected Result: The system should print that the result of the computation is 131 as the some of all the ages in the output
+ * file is 131
+ * Actual Result: The results matched expectations
+ * Post-condition: None
+ * 
+ * Test Case ID: Terminal SUM String
+ * Test Designed By: Luiz do Valle
+ * Test Summary: This tests whether the SUM terminal computation performs correctly on String fields, essentially just
+ * returning zero
+ * Pre-conditions: The file exists and the header and type lines are properly formed. The validity and filter checks work
+ * as specified in the use case
+ * Test Data: File that contains person names, with their phone numbers and zip codes. The file has some invalid records
+ * Expected Result: The system should print that the result of the computation is 0 because there is nothing to add. "Names" cannot be added like numbers
+ * Actual Result: The results matched expectations
+ * Post-condition: None
+ * 
+ * Test Case ID: Terminal Header Inexistent
+ * Test Designed By: Luiz do Valle
+ * Test Summary: This tests whether the terminal computations (in this test, MAX) are able to recognize
+ * when a header passed to the compute() method does not exist. No computation should be performed
+ * Pre-conditions: The file exists and the header and type lines are properly formed. The validity and filter checks work
+ * as specified in the use case
+ * Test Data: File that contains element names with their symbol, group number, and atomic number. The file has some invalid records
+ * Expected Result: The system should print that the result of the computation "" as the Header "Pizza" passed to compute("Pizza", Terminal.MAX)
+ * does not exist in the file
+ * Actual Result: The results matched expectations
+ * Post-condition: None
+ * 
+ * 
+ * Part 2.4
+ * 
+ * Test Case ID: Outlier Long
+ * Test Designed By: Luiz do Valle
+ * Test Summary: This tests whether the outlier filter works correctly on long fields
+ * Pre-conditions: The file exists and the header and type lines are properly formed. The validity checks work
+ * as specified in the use case
+ * Test Data: File that contains person names, with their phone numbers and zip codes. The file has some invalid records
+ * Expected Result: The system should output only the records containing the ages 50 and 14 as those are the only ones
+ * that differ from the previous record by the error specified in the outlier() function
+ * Actual Result: The results matched expectations
+ * Post-condition: None
+ * 
+ * Test Case ID: Outlier String
+ * Test Designed By: Luiz do Valle
+ * Test Summary: This tests whether the outlier filter responds correctly to String fields being passed as headers
+ * Pre-conditions: The file exists and the header and type lines are properly formed. The validity checks work
+ * as specified in the use case
+ * Test Data: File that contains element names with their symbol, group number, and atomic number. The file has some invalid records
+ * Expected Result: The system should stream no records to the output file as outlier is not defined for String fields
+ * Actual Result: The results matched expectations
+ * Post-condition: None
+ * 
+ * Test Case ID: Terminal FIRSTDIFF
+ * Test Designed By: Luiz do Valle
+ * Test Summary: This tests whether the FIRSTDIFF terminal computation works correctly on String fields
+ * Pre-conditions: The file exists and the header and type lines are properly formed. The validity checks work
+ * as specified in the use case
+ * Test Data: File that contains element names with their symbol, group number, and atomic number. The file has some invalid records
+ * Expected Result: The system should print the whole record containing the Magnesium information as it is the first that differs
+ * from the previous one by its "Group Number" field. The console should also display the counter as 0 as there are no other Magnesium
+ * records
+ * Actual Result: The results matched expectations
+ * Post-condition: None
+ * 
+ * Test Case ID: Terminal FIRSTDIFF2
+ * Test Designed By: Luiz do Valle
+ * Test Summary: This tests whether the FIRSTDIFF terminal computation works correctly on long fields
+ * Pre-conditions: The file exists and the header and type lines are properly formed. The validity checks work
+ * as specified in the use case
+ * Test Data: File that contains person names, with their phone numbers and zip codes. An extra record containing
+ * the "Name" Bob was inserted for the purpose of this testing. The file has some invalid records
+ * Expected Result: The system should print the whole record containing the Bob information as it is the first that differs
+ * from the previous one by its "Name" field. The console should also display the counter as 1 as there is one
+ * other Bob record
+ * Actual Result: The results matched expectations
+ * Post-condition: None
+ * 
+ * Part 3
+ * 
+ * Test Case ID: Select With Combined Filters
+ * Test Designed By: Luiz do Valle
+ * Test Summary: This tests whether filters passed to select() more than once, and AND/OR/NOT combinations of them,
+ * are all applied to the records instead of the last filter overwriting the previous ones
+ * Pre-conditions: The file exists and the header and type lines are properly formed. The validity checks work
+ * as specified in the use case
+ * Test Data: File that contains person names, with their phone numbers and zip codes. The file has some invalid records
+ * Expected Result: The system should only stream the records with the zip code 33131 whose name is not Joao,
+ * that is, the output of the Terminal COUNT test without the Joao record
+ * Actual Result: The results matched expectations
+ * Post-condition: None
+ * 
+ * Test Case ID: Multiple Terminals
+ * Test Designed By: Luiz do Valle
+ * Test Summary: This tests whether several terminal computations can be performed in the same pass over the file
+ * Pre-conditions: The file exists and the header and type lines are properly formed. The validity checks work
+ * as specified in the use case
+ * Test Data: File that contains person names, with their phone numbers and zip codes. The file has some invalid records
+ * Expected Result: The system should print one result per compute clause, 131 for SUM = Age and Antonio for MIN = Name,
+ * the same results as the Terminal SUM Long and Terminal MIN String tests
+ * Actual Result: The results matched expectations
+ * Post-condition: None
+ * 
+ * Test Case ID: Columnar Cache
+ * Test Designed By: Luiz do Valle
+ * Test Summary: This tests whether a query over a file converted with ColumnarCache.build() gives the same results as
+ * the same query over the text of the file
+ * Pre-conditions: The file exists and the header and type lines are properly formed. The validity checks work
+ * as specified in the use case
+ * Test Data: File that contains person names, with their phone numbers and zip codes. The file has some invalid records
+ * Expected Result: The system should output the same records and the same invalid records as the Select With Long Filter
+ * test and print the same sum of the ages. The sidecar file is deleted at the end of the test
+ * Actual Result: The results matched expectations
+ * Post-condition: None
+ * 
+ * Test Case ID: Hash Index
+ * Test Designed By: Luiz do Valle
+ * Test Summary: This tests whether an equality select() over a column indexed with HashIndex.build() gives the same
+ * results as the same query over the whole file
+ * Pre-conditions: The file exists and the header and type lines are properly formed. The validity checks work
+ * as specified in the use case
+ * Test Data: File that contains person names, with their phone numbers and zip codes. The file has some invalid records
+ * Expected Result: The system should output the same records, the same invalid records and the same sum of the ages
+ * as the Columnar Cache test. The index file is deleted at the end of the test
+ * Actual Result: The results matched expectations
+ * Post-condition: None
+ * 
+ * Test Case ID: Windowed Terminals
+ * Test Designed By: Luiz do Valle
+ * Test Summary: This tests whether SUM and MAX can be performed over tumbling and sliding windows of the records
+ * instead of over the whole file
+ * Pre-conditions: The file exists and the header and type lines are properly formed. The validity checks work
+ * as specified in the use case
+ * Test Data: File that contains person names, with their phone numbers and zip codes. The file has some invalid records
+ * Expected Result: The system should display the sum of the ages of every two valid records and the maximum age of
+ * every window of three positions as soon as each window is complete, starting with the windows [-2, 1) and [-1, 2)
+ * that only hold the first records, and the windows still open at the end of the file as the computation result
+ * Actual Result: The results matched expectations
+ * Post-condition: None
+ * 
+ * Test Case ID: Follow Mode
+ * Test Designed By: Luiz do Valle
+ * Test Summary: This tests whether follow() handles the records appended to a file after it was read, and keeps
+ * following the file after it is truncated and written again, without reading the previous records again
+ * Pre-conditions: The file exists and the header and type lines are properly formed. The validity checks work
+ * as specified in the use case
+ * Test Data: Copy of the file that contains person names, with their phone numbers and zip codes, to which a record
+ * with the zip code 33131 and the age 40 is appended. As the file does not end with a line separator, its last
+ * (invalid) record is only handled once the new record is appended. The copy is then truncated and written again with the same
+ * header and type lines and a record with the zip code 33131 and the age 5
+ * Expected Result: The sum of the ages should be 75 before the record is appended, 115 after it is appended and 120
+ * after the file is truncated. The output file should hold the records of both versions of the file. The copy is
+ * deleted at the end of the test
+ * Actual Result: The results matched expectations
+ * Post-condition: None
+ * 
+ * Test Case ID: Block Statistics
+ * Test Designed By: Luiz do Valle
+ * Test Summary: This tests whether a query over a file summarized with ZoneMap.build() gives the same results as
+ * the same query over the file without block statistics
+ * Pre-conditions: The file exists and the header and type lines are properly formed. The validity checks work
+ * as specified in the use case
+ * Test Data: File that contains person names, with their phone numbers and zip codes. The file has some invalid records
+ * Expected Result: The system should output the same records, the same invalid records and the same sum of the ages
+ * as the Columnar Cache test. The statistics file is deleted at the end of the test
+ * Actual Result: The results matched expectations
+ * Post-condition: None
+ * 
+ * Test Case ID: Terminal DISTINCT_APPROX
+ * Test Designed By: Luiz do Valle
+ * Test Summary: This tests whether the number of different values under a header can be estimated with the default
+ * precision and with a precision given by the user
+ * Pre-conditions: The file exists and the header and type lines are properly formed. The validity checks work
+ * as specified in the use case
+ * Test Data: File that contains person names, with their phone numbers and zip codes. The file has some invalid records
+ * Expected Result: The system should display the exact number of different zip codes and names of the valid records,
+ * as the estimate has no error for so few values
+ * Actual Result: The results matched expectations
+ * Post-condition: None
+ * 
+ * Test Case ID: Terminal QUANTILES
+ * Test Designed By: Luiz do Valle
+ * Test Summary: This tests whether the default quantiles and quantiles requested by the user can be computed on a
+ * long column
+ * Pre-conditions: The file exists and the header and type lines are properly formed. The validity checks work
+ * as specified in the use case
+ * Test Data: File that contains person names, with their phone numbers and zip codes. The file has some invalid records
+ * Expected Result: The system should display the exact median, 95th and 99th percentiles of the ages of the valid
+ * records, followed by their exact 25th percentile and maximum, as the sketch drops no value for so few records
+ * Actual Result: The results matched expectations
+ * Post-condition: None
+ * 
+ * Test Case ID: Terminal TOPK
+ * Test Designed By: Luiz do Valle
+ * Test Summary: This tests whether the most frequent values of a String column and of a long column can be found,
+ * with enough counters for every value and with fewer counters than values
+ * Pre-conditions: The file exists and the header and type lines are properly formed. The validity checks work
+ * as specified in the use case
+ * Test Data: File that contains person names, with their phone numbers and zip codes. The file has some invalid records
+ * Expected Result: The system should display Bob as the most frequent name with no error, and the two most frequent
+ * zip codes counted with only three counters, whose counts exceed their true counts by at most their errors
+ * Actual Result: The results matched expectations
+ * Post-condition: None
+ * 
+ * Test Case ID: Group By
+ * Test Designed By: Luiz do Valle
+ * Test Summary: This tests whether COUNT, SUM and MAX can be performed for each group of records sharing the same
+ * zip code
+ * Pre-conditions: The file exists and the header and type lines are properly formed. The validity checks work
+ * as specified in the use case
+ * Test Data: File that contains person names, with their phone numbers and zip codes. The file has some invalid records
+ * Expected Result: The system should display one line per zip code of the valid records, in increasing order,
+ * with the number of records, the sum of the ages and the maximum age of that zip code
+ * Actual Result: The results matched expectations
+ * Post-condition: None
+ * 
+ * Test Case ID: Off-Heap Group By
+ * Test Designed By: Luiz do Valle
+ * Test Summary: This tests whether grouping by name and zip code gives the same aggregates when the groups are kept
+ * off the Java heap from the first record
+ * Pre-conditions: The file exists and the header and type lines are properly formed. The validity checks work
+ * as specified in the use case
+ * Test Data: File that contains person names, with their phone numbers and zip codes. The file has some invalid records
+ * Expected Result: The system should display one line per name and zip code of the valid records, in increasing
+ * order, with the number of records and the minimum age of each group
+ * Actual Result: The results matched expectations
+ * Post-condition: None
+ * 
+ * Test Case ID: Spilled Group By
+ * Test Designed By: Luiz do Valle
+ * Test Summary: This tests whether grouping by zip code gives the same aggregates when the memory budget is so small
+ * that the groups are written to temporary files and merged at the end
+ * Pre-conditions: The file exists and the header and type lines are properly formed. The validity checks work
+ * as specified in the use case
+ * Test Data: File that contains person names, with their phone numbers and zip codes. The file has some invalid records
+ * Expected Result: The system should display the same lines as in the Group By test and leave no temporary file
+ * behind
+ * Actual Result: The results matched expectations
+ * Post-condition: None
+ * 
+ * Test Case ID: Keyed Outlier
+ * Test Designed By: Luiz do Valle
+ * Test Summary: This tests whether the outlier filter compares each record only with the previous record of the
+ * same group when the records are partitioned by group number
+ * Pre-conditions: The file exists and the header and type lines are properly formed. The validity checks work
+ * as specified in the use case
+ * Test Data: File that contains element names with their symbol, group number, and atomic number. The file has some invalid records
+ * Expected Result: The system should output only Neon, Argon and Nickel, whose atomic numbers differ by more than 5
+ * from the previous element of their group
+ * Actual Result: The results matched expectations
+ * Post-condition: None
+ * 
+ * Test Case ID: Z-Score Outlier
+ * Test Designed By: Luiz do Valle
+ * Test Summary: This tests whether the z-score outlier filter selects the records far from the moving average of
+ * their group
+ * Pre-conditions: The file exists and the header and type lines are properly formed. The validity checks work
+ * as specified in the use case
+ * Test Data: File that contains element names with their symbol, group number, and atomic number. The file has some invalid records
+ * Expected Result: The system should output only Argon, the third element of group 18, which is 3 standard
+ * deviations away from the moving average of Helium and Neon, while no other group has three elements
+ * Actual Result: The results matched expectations
+ * Post-condition: None
+ * 
+ * Test Case ID: Gzip Input
+ * Test Designed By: Luiz do Valle
+ * Test Summary: This tests whether a file compressed with gzip is inflated while it is read, giving the same output
+ * and computation as the uncompressed file
+ * Pre-conditions: The file is input1.tsv compressed with gzip by the test. The header and type lines are properly formed.
+ * The validity checks work as specified in the use case
+ * Test Data: File that contains person names, with their phone numbers and zip codes. The file has some invalid records
+ * Expected Result: The system should print that the result of the computation is 131, and write the same output
+ * files as the Terminal SUM Long test. The compressed file is deleted at the end of the test
+ * Actual Result: The results matched expectations
+ * Post-condition: None
+ * 
+ * Test Case ID: Compressed Output
+ * Test Designed By: Luiz do Valle
+ * Test Summary: This tests whether the output files are written to the paths given to the TSVFilter and compressed
+ * with gzip, by reading the compressed valid output back as the input of another pipeline
+ * Pre-conditions: The file exists and the header and type lines are properly formed. The validity and filter checks work
+ * as specified in the use case
+ * Test Data: File that contains person names, with their phone numbers and zip codes. The file has some invalid records
+ * Expected Result: The system should create output.tsv.gz and invalid_output.tsv.gz, and reading output.tsv.gz back
+ * should write to output.tsv the header and type lines and only the records whose zip code is 33131. The compressed
+ * output files are deleted at the end of the test
+ * Actual Result: The results matched expectations
+ * Post-condition: None
+ * 
+ * Test Case ID: Truncated Gzip Input
+ * Test Designed By: Luiz do Valle
+ * Test Summary: This tests whether a file that starts like a gzip file but is cut short is reported as truncated
+ * Pre-conditions: The file is written by the test and only holds the first two bytes of a gzip file, which mark it as
+ * compressed
+ * Test Data: The gzip magic bytes and nothing else
+ * Expected Result: The system should print that there was a problem streaming the file because the compressed file
+ * is truncated, and write nothing but empty output files. The truncated file is deleted at the end of the test
+ * Actual Result: The results matched expectations
+ * Post-condition: None
+ * 
+ * Test Case ID: Spilled Off Heap Group By
+ * Test Designed By: Luiz do Valle
+ * Test Summary: This tests whether grouping by zip code with groups meant to be kept off the heap from the first one
+ * and a memory budget smaller than the off heap table needs keeps the groups on the heap and spills them instead of
+ * spilling the off heap table after every group
+ * Pre-conditions: The file exists and the header and type lines are properly formed. The validity checks work
+ * as specified in the use case
+ * Test Data: File that contains person names, with their phone numbers and zip codes. The file has some invalid records
+ * Expected Result: The system should display the same lines as in the Group By test right away and leave no
+ * temporary file behind
+ * Actual Result: The results matched expectations
+ * Post-condition: None
+ * 
+ * Test Case ID: Outdated Zone Map
+ * Test Designed By: Luiz do Valle
+ * Test Summary: This tests whether block statistics computed before the file changed are reported and not used,
+ * instead of being computed again without telling the user
+ * Pre-conditions: The statistics of a copy of the file were computed with ZoneMap.build() and the copy was modified
+ * afterwards
+ * Test Data: File that contains person names, with their phone numbers and zip codes. The file has some invalid records
+ * Expected Result: The system should print that the block statistics are out of date, display the same results as the
+ * Zone Map test and leave the statistics file as it was
+ * Actual Result: The results matched expectations
+ * Post-condition: None
+ * 
+ * Test Case ID: Keyed Sliding Windows
+ * Test Designed By: Luiz do Valle
+ * Test Summary: This tests whether sliding windows keyed on a column whose first key is not a multiple of the slide
+ * start with every window that holds the first record
+ * Pre-conditions: The file exists and the header and type lines are properly formed. The validity checks work
+ * as specified in the use case
+ * Test Data: File that contains element names, with their symbols, group numbers and atomic numbers. The atomic
+ * numbers start at 1 and some of them are smaller than the one before. The file has some invalid records
+ * Expected Result: The system should display the sum of the atomic numbers of the windows of 10 atomic numbers every 4,
+ * starting with [-8, 2) and [-4, 6), skip the windows that hold no record and report the 3 records out of order
+ * Actual Result: The results matched expectations
+ * Post-condition: None
+ * 
+ *@author Luiz do Valle
+ *
+ *
+ */
+public class Runner {
+
+	/**
+	 * The start of the application
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		
+		testTerminalFIRSTDIFF2();
+	}
+	
+	public static void testSelectWithNoFilters() {
+		
+		TSVFilter myTSVFilter = new TSVFilter.WhichFile("input_data2/input2.tsv").done();
+		
+		new TSVPipeline(myTSVFilter).doit();
+		
+		System.out.println(myTSVFilter);
+	}
+	
+	public static void testSelectWithStringFilter() {
+		
+		TSVFilter myTSVFilter = new TSVFilter.WhichFile("input_data2/input1.tsv").select("Name", "Joao").done();
+		
+		new TSVPipeline(myTSVFilter).doit();
+		
+		System.out.println(myTSVFilter);
+	}
+	
+	public static void testSelectWithLongFilter() {
+		
+		TSVFilter myTSVFilter = new TSVFilter.WhichFile("input_data2/input2.tsv").select("Group Number", 2).done();
+		
+		new TSVPipeline(myTSVFilter).doit();
+		
+		System.out.println(myTSVFilter);
+	}
+	
+	public static void testSelectWithInvalidFilters() {
+		
+		TSVFilter myTSVFilter = new TSVFilter.WhichFile("input_data2/input2.tsv").select("Address", "31 SE 5th Street").done();
+		
+		new TSVPipeline(myTSVFilter).doit();
+		
+		System.out.println(myTSVFilter);
+		
+	}
+	
+	public static void testSelectWithInexistentFilter() {
+		
+		TSVFilter myTSVFilter = new TSVFilter.WhichFile("input_data2/input1.tsv").select("Zip Code", "33136").done();
+		
+		new TSVPipeline(myTSVFilter).doit();
+		
+		System.out.println(myTSVFilter);
+	}
+	
+	public static void testTerminalALLSAME1() {
+		
+		TSVFilter myTSVFilter = new TSVFilter.WhichFile("input_data2/input2.tsv").select("Group Number", 10).compute("Atomic Number", Terminal.ALLSAME).done();
+		
+		new TSVPipeline(myTSVFilter).doit();
+		
+		System.out.println(myTSVFilter);
+	}
+	
+	public static void testTerminalALLSAME2() {
+		
+		TSVFilter myTSVFilter = new TSVFilter.WhichFile("input_data2/input2.tsv").select("Group Number", 18).compute("Group Number", Terminal.ALLSAME).done();
+		
+		new TSVPipeline(myTSVFilter).doit();
+		
+		System.out.println(myTSVFilter);
+	}
+	
+	public static void testTerminalCOUNT() {
+		
+		TSVFilter myTSVFilter = new TSVFilter.WhichFile("input_data2/input1.tsv").select("Zip Code", 33131).compute("", Terminal.COUNT).done();
+		
+		new TSVPipeline(myTSVFilter).doit();
+		
+		System.out.println(myTSVFilter);
+
+	}
+	
+	public static void testTerminalMINlong() {
+		
+		TSVFilter myTSVFilter = new TSVFilter.WhichFile("input_data2/input2.tsv").select("", "").compute("Atomic Number", Terminal.MIN).done();
+		
+		new TSVPipeline(myTSVFilter).doit();
+		
+		System.out.println(myTSVFilter);
+	}
+	
+	public static void testTerminalMINstring() {
+		
+		TSVFilter myTSVFilter = new TSVFilter.WhichFile("input_data2/input1.tsv").select("", "").compute("Name", Terminal.MIN).done();
+		
+		new TSVPipeline(myTSVFilter).doit();
+		
+		System.out.println(myTSVFilter);
+	}
+	
+	public static void testTerminalMAXlong() {
+		
+		TSVFilter myTSVFilter = new TSVFilter.WhichFile("input_data2/input2.tsv").select("Group Number", 10).compute("Atomic Number", Terminal.MAX).done();
+		
+		new TSVPipeline(myTSVFilter).doit();
+		
+		System.out.println(myTSVFilter);
+	}
+	
+	public static void testTerminalMAXstring() {
+		
+		TSVFilter myTSVFilter = new TSVFilter.WhichFile("input_data2/input2.tsv").compute("Element Name", Terminal.MAX).done();
+		
+		new TSVPipeline(myTSVFilter).doit();
+		
+		System.out.println(myTSVFilter);
+	}
+	
+	public static void testTerminalSUMlong() {
+		
+		TSVFilter myTSVFilter = new TSVFilter.WhichFile("input_data2/input1.tsv").compute("Age", Terminal.SUM).done();
+		
+		new TSVPipeline(myTSVFilter).doit();
+		
+		System.out.println(myTSVFilter);
+	}
+	
+	public static void testTerminalSUMstring() {
+		
+		TSVFilter myTSVFilter = new TSVFilter.WhichFile("input_data2/input1.tsv").select("Zip Code", 33131).compute("Name", Terminal.SUM).done();
+		
+		new TSVPipeline(myTSVFilter).doit();
+		
+		System.out.println(myTSVFilter);
+	}
+	
+	public static void testOutlierLong() {
+		
+		TSVFilter myTSVFilter = new TSVFilter.WhichFile("input_data2/input1.tsv").outlier("Age", 10).compute("Age", Terminal.MAX).done();
+		
+		new TSVPipeline(myTSVFilter).doit();
+		
+		System.out.println(myTSVFilter);
+	}
+	
+	public static void testOutlierString() {
+		
+		TSVFilter myTSVFilter = new TSVFilter.WhichFile("input_data2/input2.tsv").outlier("Symbol", 5).done();
+		
+		new TSVPipeline(myTSVFilter).doit();
+		
+		System.out.println(myTSVFilter);
+	}
+	
+	public static void testTerminalFIRSTDIFF() {
+		
+		TSVFilter myTSVFilter = new TSVFilter.WhichFile("input_data2/input2.tsv").compute("Group Number", Terminal.FIRSTDIFF).done();
+		
+		new TSVPipeline(myTSVFilter).doit();
+		
+		System.out.println(myTSVFilter);
+	}
+	
+	public static void testTerminalFIRSTDIFF2() {
+		
+		TSVFilter myTSVFilter = new TSVFilter.WhichFile("input_data2/input1.tsv").compute("Name", Terminal.FIRSTDIFF).done();
+		
+		new TSVPipeline(myTSVFilter).doit();
+		
+		System.out.println(myTSVFilter);
+	}
+	
+	public static void testSelectWithCombinedFilters() {
+		
+		TSVFilter myTSVFilter = new TSVFilter.WhichFile("input_data2/input1.tsv").select("Zip Code", 33131).select(SelectClause.not(SelectClause.equal("Name", "Joao"))).done();
+		
+		new TSVPipeline(myTSVFilter).doit();
+		
+		System.out.println(myTSVFilter);
+	}
+	
+	public static void testMultipleTerminals() {
+		
+		TSVFilter myTSVFilter = new TSVFilter.WhichFile("input_data2/input1.tsv").compute("Age", Terminal.SUM).compute("Name", Terminal.MIN).done();
+		
+		new TSVPipeline(myTSVFilter).doit();
+		
+		System.out.println(myTSVFilter);
+	}
+	
+	public static void testTerminalInexistentHeader() {
+		
+		TSVFilter myTSVFilter = new TSVFilter.WhichFile("input_data2/input2.tsv").select("Group Number", 10).compute("Pizza", Terminal.MAX).done();
+		
+		new TSVPipeline(myTSVFilter).doit();
+		
+		System.out.println(myTSVFilter);
+	}
+	
+	public static void testColumnarCache() {
+		
+		File file = new File("input_data2/input1.tsv");
+		
+		ColumnarCache.build(file);
+		
+		TSVFilter myTSVFilter = new TSVFilter.WhichFile("input_data2/input1.tsv").select("Zip Code", 33131).compute("Age", Terminal.SUM).done();
+		
+		new TSVPipeline(myTSVFilter).doit();
+		
+		System.out.println(myTSVFilter);
+		
+		ColumnarCache.sidecarOf(file).delete();
+	}
+	
+	public static void testHashIndex() {
+		
+		File file = new File("input_data2/input1.tsv");
+		
+		HashIndex.build(file, "Zip Code");
+		
+		TSVFilter myTSVFilter = new TSVFilter.WhichFile("input_data2/input1.tsv").select("Zip Code", 33131).compute("Age", Terminal.SUM).done();
+		
+		new TSVPipeline(myTSVFilter).doit();
+		
+		System.out.println(myTSVFilter);
+		
+		HashIndex.indexOf(file, 2).delete();
+	}
+	
+	public static void testZoneMap() {
+		
+		File file = new File("input_data2/input1.tsv");
+		
+		ZoneMap.build(file);
+		
+		TSVFilter myTSVFilter = new TSVFilter.WhichFile("input_data2/input1.tsv").select("Zip Code", 33131).compute("Age", Terminal.SUM).done();
+		
+		new TSVPipeline(myTSVFilter).doit();
+		
+		System.out.println(myTSVFilter);
+		
+		ZoneMap.zonesOf(file).delete();
+	}
+	
+	public static void testFollow() {
+		
+		File file = new File("input_data2/follow.tsv");
+		String header = "Name\tPhone Number\tZip Code\tAge\nString\tlong\tlong\tlong\n";
+		
+		try {
+			
+			Files.copy(Paths.get("input_data2/input1.tsv"), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			
+			TSVFilter myTSVFilter = new TSVFilter.WhichFile("input_data2/follow.tsv").select("Zip Code", 33131).compute("Age", Terminal.SUM).done();
+			TSVPipeline pipeline = new TSVPipeline(myTSVFilter);
+			
+			Thread follower = new Thread(() -> pipeline.follow(60000));
+			follower.start();
+			
+			Thread.sleep(500);
+			System.out.println("Before appending: " + pipeline.currentResult());
+			
+			//The copied file does not end with a line separator, so its last line is only complete once one is appended
+			Files.write(file.toPath(), "\nCarla\t3055557777\t33131\t40\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+			Thread.sleep(500);
+			System.out.println("After appending: " + pipeline.currentResult());
+			
+			Files.write(file.toPath(), (header + "Lia\t3055558888\t33131\t5\n").getBytes(StandardCharsets.UTF_8));
+			Thread.sleep(500);
+			System.out.println("After truncating: " + pipeline.currentResult());
+			
+			pipeline.stop();
+			follower.join();
+			
+			System.out.println(myTSVFilter);
+			
+		} catch (IOException | InterruptedException e) {
+			
+			System.out.println("Problem running the test: " + e.getMessage());
+		}
+		
+		file.delete();
+	}
+	
+	public static void testWindowedTerminals() {
+		
+		TSVFilter myTSVFilter = new TSVFilter.WhichFile("input_data2/input1.tsv").compute("Age", Terminal.SUM, WindowClause.tumbling(2))
+				.compute("Age", Terminal.MAX, WindowClause.sliding(3, 1)).done();
+		
+		new TSVPipeline(myTSVFilter).doit();
+		
+		System.out.println(myTSVFilter);
+	}
+	
+	public static void testTerminalDISTINCTAPPROX() {
+		
+		TSVFilter myTSVFilter = new TSVFilter.WhichFile("input_data2/input1.tsv").compute("Zip Code", Terminal.DISTINCT_APPROX)
+				.compute("Name", Terminal.DISTINCT_APPROX, 14).done();
+		
+		new TSVPipeline(myTSVFilter).doit();
+		
+		System.out.println(myTSVFilter);
+	}
+	
+	public static void testTerminalQUANTILES() {
+		
+		TSVFilter myTSVFilter = new TSVFilter.WhichFile("input_data2/input1.tsv").compute("Age", Terminal.QUANTILES)
+				.compute("Age", Terminal.QUANTILES, 0.25, 1).done();
+		
+		new TSVPipeline(myTSVFilter).doit();
+		
+		System.out.println(myTSVFilter);
+	}
+	
+	public static void testTerminalTOPK() {
+		
+		TSVFilter myTSVFilter = new TSVFilter.WhichFile("input_data2/input1.tsv").compute("Name", Terminal.TOPK, 1)
+				.compute("Zip Code", Terminal.TOPK, 2, 3).done();
+		
+		new TSVPipeline(myTSVFilter).doit();
+		
+		System.out.println(myTSVFilter);
+	}
+	
+	public static void testGroupBy() {
+		
+		TSVFilter myTSVFilter = new TSVFilter.WhichFile("input_data2/input1.tsv").groupBy("Zip Code").compute("", Terminal.COUNT)
+				.compute("Age", Terminal.SUM).compute("Age", Terminal.MAX).done();
+		
+		new TSVPipeline(myTSVFilter).doit();
+		
+		System.out.println(myTSVFilter);
+	}
+	
+	public static void testOffHeapGroupBy() {
+		
+		TSVFilter myTSVFilter = new TSVFilter.WhichFile("input_data2/input1.tsv").groupBy("Name", "Zip Code").offHeapThreshold(0)
+				.compute("", Terminal.COUNT).compute("Age", Terminal.MIN).done();
+		
+		new TSVPipeline(myTSVFilter).doit();
+		
+		System.out.println(myTSVFilter);
+	}
+	
+	public static void testSpilledGroupBy() {
+		
+		TSVFilter myTSVFilter = new TSVFilter.WhichFile("input_data2/input1.tsv").groupBy("Zip Code").memoryBudget(1)
+				.compute("", Terminal.COUNT).compute("Age", Terminal.SUM).compute("Age", Terminal.MAX).done();
+		
+		new TSVPipeline(myTSVFilter).doit();
+		
+		System.out.println(myTSVFilter);
+	}
+	
+	public static void testKeyedOutlier() {
+		
+		TSVFilter myTSVFilter = new TSVFilter.WhichFile("input_data2/input2.tsv").outlier("Atomic Number", "Group Number", 5).done();
+		
+		new TSVPipeline(myTSVFilter).doit();
+		
+		System.out.println(myTSVFilter);
+	}
+	
+	public static void testZScoreOutlier() {
+		
+		TSVFilter myTSVFilter = new TSVFilter.WhichFile("input_data2/input2.tsv")
+				.select(SelectClause.zScoreOutlier("Atomic Number", "Group Number", 2, 0.5)).done();
+		
+		new TSVPipeline(myTSVFilter).doit();
+		
+		System.out.println(myTSVFilter);
+	}
+	
+	public static void testGzipInput() {
+		
+		File file = new File("input_data2/input1.tsv.gz");
+		
+		try (OutputStream output = new GZIPOutputStream(new FileOutputStream(file))) {
+			
+			Files.copy(Paths.get("input_data2/input1.tsv"), output);
+			
+		} catch (IOException e) {
+			
+			System.out.println("Problem running the test: " + e.getMessage());
+		}
+		
+		TSVFilter myTSVFilter = new TSVFilter.WhichFile("input_data2/input1.tsv.gz").compute("Age", Terminal.SUM).done();
+		
+		new TSVPipeline(myTSVFilter).doit();
+		
+		System.out.println(myTSVFilter);
+		
+		file.delete();
+	}
+	
+	public static void testCompressedOutput() {
+		
+		TSVFilter myTSVFilter = new TSVFilter.WhichFile("input_data2/input1.tsv").select("Zip Code", 33131)
+				.outputPaths("output.tsv.gz", "invalid_output.tsv.gz").outputCompression(OutputCompression.GZIP).done();
+		
+		new TSVPipeline(myTSVFilter).doit();
+		
+		System.out.println(myTSVFilter);
+		
+		//The compressed records are read back and written uncompressed to output.tsv
+		new TSVPipeline(new TSVFilter.WhichFile("output.tsv.gz").done()).doit();
+		
+		new File("output.tsv.gz").delete();
+		new File("invalid_output.tsv.gz").delete();
+	}
+	
+	public static void testTruncatedGzipInput() {
+		
+		File file = new File("input_data2/truncated.tsv.gz");
+		
+		try {
+			
+			Files.write(file.toPath(), new byte[] {(byte) 0x1f, (byte) 0x8b});
+			
+		} catch (IOException e) {
+			
+			System.out.println("Problem running the test: " + e.getMessage());
+		}
+		
+		TSVFilter myTSVFilter = new TSVFilter.WhichFile("input_data2/truncated.tsv.gz").done();
+		
+		new TSVPipeline(myTSVFilter).doit();
+		
+		System.out.println(myTSVFilter);
+		
+		file.delete();
+	}
+	
+	public static void testSpilledOffHeapGroupBy() {
+		
+		TSVFilter myTSVFilter = new TSVFilter.WhichFile("input_data2/input1.tsv").groupBy("Zip Code").offHeapThreshold(0)
+				.memoryBudget(100000).compute("", Terminal.COUNT).compute("Age", Terminal.SUM).compute("Age", Terminal.MAX).done();
+		
+		new TSVPipeline(myTSVFilter).doit();
+		
+		System.out.println(myTSVFilter);
+	}
+	
+	public static void testOutdatedZoneMap() {
+		
+		File file = new File("input_data2/outdated.tsv");
+		
+		try {
+			
+			Files.copy(Paths.get("input_data2/input1.tsv"), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			
+			ZoneMap.build(file);
+			file.setLastModified(file.lastModified() + 1000);
+			
+			TSVFilter myTSVFilter = new TSVFilter.WhichFile("input_data2/outdated.tsv").select("Zip Code", 33131).compute("Age", Terminal.SUM).done();
+			
+			new TSVPipeline(myTSVFilter).doit();
+			
+			System.out.println(myTSVFilter);
+			
+		} catch (IOException e) {
+			
+			System.out.println("Problem running the test: " + e.getMessage());
+		}
+		
+		ZoneMap.zonesOf(file).delete();
+		file.delete();
+	}
+	
+	public static void testKeyedSlidingWindows() {
+		
+		TSVFilter myTSVFilter = new TSVFilter.WhichFile("input_data2/input2.tsv")
+				.compute("Atomic Number", Terminal.SUM, WindowClause.sliding(10, 4).on("Atomic Number")).done();
+		
+		new TSVPipeline(myTSVFilter).doit();
+		
+		System.out.println(myTSVFilter);
+	}
+}
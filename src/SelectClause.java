@@ -0,0 +1,274 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Class that records one selection requested by the user
+ * A clause is either a single filter (normal, outlier or keyed outlier selection) or an AND, OR or NOT combination of other
+ * clauses, so any predicate tree can be described before the headers of the file are known
+ * Clauses are created through the static factory methods and passed to TSVFilter.WhichFile.select()
+ * @author Luiz do Valle
+ *
+ */
+public class SelectClause {
+
+	/**
+	 * The type of selection described by the clause
+	 */
+	private final SelectionType type;
+	/**
+	 * The header to filter by, for normal and outlier clauses
+	 */
+	private final String header;
+	/**
+	 * The header of the keys the records are partitioned by, for keyed outlier clauses
+	 */
+	private final String keyHeader;
+	/**
+	 * The field that must be present under the header, for normal clauses
+	 */
+	private final String field;
+	/**
+	 * The error allowed, for outlier clauses
+	 */
+	private final long error;
+	/**
+	 * The number of standard deviations a value must be away from the mean of its key, for keyed outlier clauses in
+	 * the z-score mode, 0 in the difference mode
+	 */
+	private final double threshold;
+	/**
+	 * The weight of a new value in the moving mean and variance of its key, for keyed outlier clauses in the z-score mode
+	 */
+	private final double smoothing;
+	/**
+	 * The clauses being combined, for AND, OR and NOT clauses
+	 */
+	private final List<SelectClause> clauses;
+	
+	/**
+	 * Private constructor of the class that is only to be used by the factory methods
+	 * @param type the type of selection
+	 * @param header the header to filter by
+	 * @param field the field that must be present under the header
+	 * @param error the error allowed
+	 * @param clauses the clauses being combined
+	 */
+	private SelectClause(SelectionType type, String header, String field, long error, List<SelectClause> clauses) {
+		
+		this(type, header, null, field, error, 0, 0, clauses);
+	}
+	
+	/**
+	 * Private constructor of the class that is only to be used by the factory methods
+	 * @param type the type of selection
+	 * @param header the header to filter by
+	 * @param keyHeader the header of the keys the records are partitioned by
+	 * @param field the field that must be present under the header
+	 * @param error the error allowed
+	 * @param threshold the number of standard deviations, 0 in the difference mode
+	 * @param smoothing the weight of a new value in the moving mean and variance
+	 * @param clauses the clauses being combined
+	 */
+	private SelectClause(SelectionType type, String header, String keyHeader, String field, long error, double threshold,
+			double smoothing, List<SelectClause> clauses) {
+		
+		this.type = type;
+		this.header = header;
+		this.keyHeader = keyHeader;
+		this.field = field;
+		this.error = error;
+		this.threshold = threshold;
+		this.smoothing = smoothing;
+		this.clauses = Collections.unmodifiableList(new ArrayList<>(clauses));
+	}
+	
+	/**
+	 * Method that creates a clause that selects the records with the given field under the given header
+	 * @param header the header to filter by
+	 * @param field the field that must be present under the specified header
+	 * @return the new clause
+	 */
+	public static SelectClause equal(String header, String field) {
+		
+		return new SelectClause(SelectionType.NORMAL, header, field, 0, Collections.emptyList());
+	}
+	
+	/**
+	 * Method that creates a clause that selects the records with the given long value under the given header
+	 * @param header the header to filter by
+	 * @param field the value that must be present under the specified header
+	 * @return the new clause
+	 */
+	public static SelectClause equal(String header, long field) {
+		
+		return equal(header, String.valueOf(field));
+	}
+	
+	/**
+	 * Method that creates a clause that selects the records whose value differs from the previous record by more than the error
+	 * @param header the header to filter by
+	 * @param error the margin of error that the values must exceed the previous record by to be selected
+	 * @return the new clause
+	 */
+	public static SelectClause outlier(String header, long error) {
+		
+		return new SelectClause(SelectionType.OUTLIER, header, null, error, Collections.emptyList());
+	}
+	
+	/**
+	 * Method that creates a clause that selects the records whose value differs by more than the error from the
+	 * previous record with the same key
+	 * @param header the header to filter by
+	 * @param keyHeader the header of the keys the records are partitioned by, such as the source of the records
+	 * @param error the margin of error that the values must exceed the previous record of their key by to be selected
+	 * @return the new clause
+	 */
+	public static SelectClause outlier(String header, String keyHeader, long error) {
+		
+		return new SelectClause(SelectionType.KEYED_OUTLIER, header, keyHeader, null, error, 0, 0, Collections.emptyList());
+	}
+	
+	/**
+	 * Method that creates a clause that selects the records whose value is more than the threshold of standard
+	 * deviations away from the exponentially weighted moving average of the previous records with the same key
+	 * @param header the header to filter by
+	 * @param keyHeader the header of the keys the records are partitioned by, such as the source of the records
+	 * @param threshold the number of standard deviations, greater than 0
+	 * @param smoothing the weight of a new value in the moving mean and variance, greater than 0 and at most 1
+	 * @return the new clause
+	 */
+	public static SelectClause zScoreOutlier(String header, String keyHeader, double threshold, double smoothing) {
+		
+		return new SelectClause(SelectionType.KEYED_OUTLIER, header, keyHeader, null, 0, threshold, smoothing, Collections.emptyList());
+	}
+	
+	/**
+	 * Method that creates a clause that selects the records selected by all the given clauses
+	 * @param clauses the clauses to be combined
+	 * @return the new clause
+	 */
+	public static SelectClause and(SelectClause... clauses) {
+		
+		return new SelectClause(SelectionType.AND, "", null, 0, Arrays.asList(clauses));
+	}
+	
+	/**
+	 * Method that creates a clause that selects the records selected by at least one of the given clauses
+	 * @param clauses the clauses to be combined
+	 * @return the new clause
+	 */
+	public static SelectClause or(SelectClause... clauses) {
+		
+		return new SelectClause(SelectionType.OR, "", null, 0, Arrays.asList(clauses));
+	}
+	
+	/**
+	 * Method that creates a clause that selects the records not selected by the given clause
+	 * @param clause the clause to be negated
+	 * @return the new clause
+	 */
+	public static SelectClause not(SelectClause clause) {
+		
+		return new SelectClause(SelectionType.NOT, "", null, 0, Collections.singletonList(clause));
+	}
+
+	/**
+	 * Accessor method for the type of selection
+	 * @return the type of selection as an Enum
+	 */
+	public SelectionType getType() {
+		return type;
+	}
+
+	/**
+	 * Accessor method for the header
+	 * @return the header to filter by, or "" for AND, OR and NOT clauses
+	 */
+	public String getHeader() {
+		return header;
+	}
+
+	/**
+	 * Accessor method for the header of the keys
+	 * @return the header of the keys the records are partitioned by, or null if the clause is not a keyed outlier selection
+	 */
+	public String getKeyHeader() {
+		return keyHeader;
+	}
+
+	/**
+	 * Accessor method for the field
+	 * @return the field that must be present under the header, or null if the clause is not a normal selection
+	 */
+	public String getField() {
+		return field;
+	}
+
+	/**
+	 * Accessor method for the error
+	 * @return the margin of error of an outlier clause
+	 */
+	public long getError() {
+		return error;
+	}
+
+	/**
+	 * Accessor method for the threshold
+	 * @return the number of standard deviations of a keyed outlier clause in the z-score mode, 0 in the difference mode
+	 */
+	public double getThreshold() {
+		return threshold;
+	}
+
+	/**
+	 * Accessor method for the smoothing factor
+	 * @return the weight of a new value in the moving mean and variance of a keyed outlier clause in the z-score mode
+	 */
+	public double getSmoothing() {
+		return smoothing;
+	}
+
+	/**
+	 * Accessor method for the clauses being combined
+	 * @return the clauses combined by an AND, OR or NOT clause, empty for the other types
+	 */
+	public List<SelectClause> getClauses() {
+		return clauses;
+	}
+	
+	/**
+	 * Overriden toString() implementation that prints the clause in the same format as the TSVFilter
+	 */
+	@Override
+	public String toString() {
+		
+		switch(type) {
+		
+			case NORMAL:
+				return header + " = " + field;
+			case OUTLIER:
+				return "OUTLIER(" + error + ") = " + header;
+			case KEYED_OUTLIER:
+				return (threshold == 0 ? "OUTLIER(" + error + ")" : "OUTLIER(Z " + threshold + ", ALPHA " + smoothing + ")")
+						+ " = " + header + " BY " + keyHeader;
+			case NOT:
+				return "NOT " + clauses.get(0);
+			default:
+				StringBuilder combined = new StringBuilder("(");
+				
+				for(int index = 0; index < clauses.size(); index++) {
+					
+					if(index > 0) {
+						
+						combined.append(" " + type.name() + " ");
+					}
+					
+					combined.append(clauses.get(index));
+				}
+				
+				return combined.append(")").toString();
+		}
+	}
+}
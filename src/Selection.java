@@ -1,14 +1,74 @@
-/**
- * Interface that serves as the blueprint for the Select algorithms
- * @author Luiz do Valle
- *
- */
-public interface Selection {
-
-	/**
-	 * Method that determines whether the record meets the filter requirements specified by the user
-	 * @param record the record to be checked
-	 * @return true is the record passes the user's filter, false otherwise
-	 */
-	public abstract boolean isRecordWanted(String record);
-}
+import java.io.IOException;
+
+/**
+ * Interface that serves as the blueprint for the Select algorithms
+ * @author Luiz do Valle
+ *
+ */
+public interface Selection {
+
+	/**
+	 * Method that determines whether the record meets the filter requirements specified by the user
+	 * @param record the record to be checked
+	 * @return true is the record passes the user's filter, false otherwise
+	 */
+	public abstract boolean isRecordWanted(String record);
+	
+	/**
+	 * Method that determines whether the already parsed record meets the filter requirements specified by the user
+	 * By default, it falls back to the String version of the method, so the algorithms that need the
+	 * fields should override it to avoid splitting the record again
+	 * @param record the parsed record to be checked
+	 * @return true is the record passes the user's filter, false otherwise
+	 */
+	public default boolean isRecordWanted(ParsedRecord record) {
+		
+		return isRecordWanted(record.getLine());
+	}
+	
+	/**
+	 * Method that tells whether the decision for a record depends only on the record itself
+	 * Selections that remember previous records cannot be used when the file is processed in parallel chunks
+	 * @return true if the selection keeps no state between records, false otherwise
+	 */
+	public default boolean isStateless() {
+		
+		return false;
+	}
+	
+	/**
+	 * Method that tells whether the selection can be done on the columns of a ColumnarCache instead of on the records
+	 * @param cache the cache of the file being streamed
+	 * @return true if select() is supported for the cache, false otherwise
+	 */
+	public default boolean isCacheable(ColumnarCache cache) {
+		
+		return false;
+	}
+	
+	/**
+	 * Method that keeps only the wanted ones among the given valid records of a ColumnarCache
+	 * The wanted records are moved to the start of the array, keeping their order
+	 * @param cache the cache of the file being streamed
+	 * @param rows the indexes of the valid records to be checked, in increasing order
+	 * @param count the number of records in the array
+	 * @return the number of wanted records
+	 * @throws IOException if the cache cannot be read
+	 */
+	public default int select(ColumnarCache cache, int[] rows, int count) throws IOException {
+		
+		throw new UnsupportedOperationException(getClass().getSimpleName() + " cannot use a columnar cache");
+	}
+	
+	/**
+	 * Method that tells, from the statistics of a block of a ZoneMap, whether any record of the block may be wanted
+	 * By default every block may hold wanted records
+	 * @param zones the block statistics of the file being streamed
+	 * @param block the block
+	 * @return false if no record of the block can be wanted, true otherwise
+	 */
+	public default boolean mayMatch(ZoneMap zones, int block) {
+		
+		return true;
+	}
+}
@@ -1,9 +1,11 @@
-/**
- * Enum that represents the choices of selection algorithms
- * @author Luiz do Valle
- *
- */
-public enum SelectionType {
-
-	NORMAL, OUTLIER
-}
+/**
+ * Enum that represents the choices of selection algorithms
+ * KEYED_OUTLIER compares each record only with the previous records with the same key
+ * AND, OR and NOT combine other selections
+ * @author Luiz do Valle
+ *
+ */
+public enum SelectionType {
+
+	NORMAL, OUTLIER, KEYED_OUTLIER, AND, OR, NOT
+}
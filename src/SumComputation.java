@@ -1,63 +1,102 @@
-/**
- * Class that implements the Computation interface and simply performs the SUM terminal computation
- * Gets the total sum of the long values under the header specified by the user
- * If the values are Strings, nothing is added and the class returns 0
- * If the header does not exist, nothing is added and the class returns 0
- * @author Luiz do Valle
- *
- */
-public class SumComputation implements Computation {
-
-	private long currentSum  = 0;
-
-	private int targetColumn;
-	
-	public SumComputation(int column) {
-		
-		this.targetColumn = column;
-	}
-	
-	@Override
-	public void compute(String record) {
-		
-		if(targetColumn == -1) {
-			
-			return;
-		}
-		String[] recordFields = record.split("\t");
-		String targetRecord = recordFields[targetColumn];
-		
-		if(isValidLong(targetRecord)) {
-			
-			currentSum += getLongValue(targetRecord);
-		}
-		
-	}
-
-	@Override
-	public String result() {
-		
-		return String.valueOf(currentSum);
-		
-	}
-	
-	private boolean isValidLong(String field) {
-		
-		try {
-			
-			Long.parseLong(field);
-		
-		} catch (NumberFormatException e){
-			
-			return false;
-		}
-		
-		return true;
-	}
-	
-	private long getLongValue(String field) {
-		
-		return Long.parseLong(field);
-	}
-	
-}
+import java.io.IOException;
+
+/**
+ * Class that implements the Computation interface and simply performs the SUM terminal computation
+ * Gets the total sum of the long values under the header specified by the user
+ * If the values are Strings, nothing is added and the class returns 0
+ * If the header does not exist, nothing is added and the class returns 0
+ * @author Luiz do Valle
+ *
+ */
+public class SumComputation implements Computation {
+
+	private long currentSum  = 0;
+
+	private int targetColumn;
+	
+	public SumComputation(int column) {
+		
+		this.targetColumn = column;
+	}
+	
+	@Override
+	public void compute(String record) {
+		
+		compute(new ParsedRecord(record));
+	}
+	
+	@Override
+	public void compute(ParsedRecord record) {
+		
+		if(targetColumn == -1) {
+			
+			return;
+		}
+		
+		if(record.isLong(targetColumn)) {
+			
+			currentSum += record.getLong(targetColumn);
+		}
+		
+	}
+
+	@Override
+	public String result() {
+		
+		return String.valueOf(currentSum);
+		
+	}
+	
+	@Override
+	public boolean isMergeable() {
+		
+		return true;
+	}
+	
+	@Override
+	public void merge(Computation other) {
+		
+		currentSum += ((SumComputation) other).currentSum;
+	}
+	
+	/**
+	 * Method that tells whether the sum can be done on the cache, which only holds the values of long columns as longs
+	 */
+	@Override
+	public boolean isCacheable(ColumnarCache cache) {
+		
+		return targetColumn == -1 || cache.isLongColumn(targetColumn);
+	}
+	
+	@Override
+	public void compute(ColumnarCache cache, int[] rows, int count) throws IOException {
+		
+		if(targetColumn == -1) {
+			
+			return;
+		}
+		
+		for(int index = 0; index < count; index++) {
+			
+			currentSum += cache.getLong(targetColumn, rows[index]);
+		}
+	}
+	
+	@Override
+	public boolean isSummarizable(ZoneMap zones) {
+		
+		return targetColumn == -1 || zones.isLongColumn(targetColumn);
+	}
+	
+	@Override
+	public void compute(ZoneMap zones, int block) {
+		
+		if(targetColumn == -1) {
+			
+			return;
+		}
+		
+		currentSum += zones.getSum(targetColumn, block);
+	}
+
+}
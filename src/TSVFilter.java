@@ -1,240 +1,551 @@
-import java.awt.GraphicsDevice.WindowTranslucency;
-import java.io.File;
-/**
- * Class that records the user's requirements
- * Default value for selection is the "normal selection", with no headers or fields (no filter)
- * Default value for terminal computation is the NULL operation, which does nothing
- * @author Luiz do Valle
- *
- */
-public class TSVFilter {
-
-	/**
-	 * The file to be read
-	 */
-	private final File file;
-	
-	/**
-	 * The header to be used for the selection algorithm
-	 */
-	private final String selectHeader;
-	/**
-	 * The record field to be used by the selection algorithm
-	 */
-	private final String recordField;
-	/**
-	 * The type of selection being done
-	 */
-	private final SelectionType selection;
-	/**
-	 * The error allowed in case the user selects the "outlier" selection algorithm
-	 */
-	private final long error;
-	/**
-	 * The header to be used for the terminal computation
-	 */
-	private final String computeHeader;
-	/**
-	 * The type of terminal computation to be performed
-	 */
-	private final Terminal computation;
-	
-	/**
-	 * Inner static class that serves as the builder for the TSVFilter class
-	 * @author Luiz do Valle
-	 *
-	 */
-	public static class WhichFile {
-		
-		private File file;
-		
-		private String selectHeader = "";
-		private String recordField = null;
-		private SelectionType selection = SelectionType.NORMAL;
-		private long error;
-		
-		private String computeHeader = "";
-		private Terminal computation = Terminal.NULL;
-		
-		public WhichFile (String fileName) {
-			
-			this.file = new File (fileName);
-			
-		}
-		
-		/**
-		 * Method that records the filters the user wants to filter the data with
-		 * Selection based on String value
-		 * Allows longs to be passed as String if the user wants
-		 * @param columnHeader the header to filter by
-		 * @param field the field that must be presents under the specified header
-		 * @return a reference to the current WhichFile Builder
-		 */
-		public WhichFile select (String columnHeader, String field) {
-			
-			this.selectHeader = columnHeader;
-			this.recordField = field;
-			this.selection = SelectionType.NORMAL;
-			
-			return this;
-		}
-		
-		/**
-		 * Method that records the filters the user wants to filter the data with
-		 * Selection based on long value
-		 * @param columnHeader the header to filter by
-		 * @param field the field that must be presents under the specified header
-		 * @return a reference to the current WhichFile Builder
-		 */
-		public WhichFile select (String columnHeader, long field) {
-			
-			this.selectHeader = columnHeader;
-			this.recordField = String.valueOf(field);
-			this.selection = SelectionType.NORMAL;
-			
-			return this;
-		}
-		
-		/**
-		 * Method that records the filters the user wants to filter the data with
-		 * Selection based on outlier value
-		 * @param header the header to filter by
-		 * @param error the margin of error that the values must exceed the previous record by to be selected by the filter
-		 * @return a reference to the current WhichFile Builder
-		 */
-		public WhichFile outlier (String header, long error) {
-			
-			this.selectHeader = header;
-			this.selection = SelectionType.OUTLIER;
-			this.error = error;
-			
-			return this;
-			
-		}
-		
-		/**
-		 * Method that records the terminal computation the user wants to perform and on which header value
-		 * @param columnHeader the header to which the terminal compuatation should be applied
-		 * @param computation the type of Computation to be performed
-		 * @return a reference to the current WhichFile builder
-		 */
-		public WhichFile compute(String columnHeader, Terminal computation) {
-			
-			this.computeHeader = columnHeader;
-			this.computation = computation;
-			
-			return this;
-		}
-		
-		/**
-		 * Method that creates a TSVFilter from the WhichFile builder
-		 * @return a new TSVFilter with the user filters stored in the WhichFile builder
-		 */
-		public TSVFilter done() {
-			
-			return new TSVFilter(this);
-		}
-	}
-	
-	/**
-	 * Private constructor of the TSVFilter that is only to be used by the Builder class WhichFile
-	 * @param whichFile
-	 */
-	private TSVFilter(WhichFile whichFile) {
-		
-		this.file = whichFile.file;
-		
-		this.selectHeader = whichFile.selectHeader;
-		this.recordField = whichFile.recordField;
-		this.selection = whichFile.selection;
-		this.error = whichFile.error;
-		
-		this.computeHeader = whichFile.computeHeader;
-		this.computation = whichFile.computation;
-		
-	}
-
-	/**
-	 * Accessor method for the file
-	 * @return the file to be read
-	 */
-	public File getFile() {
-		
-		return file;
-	}
-
-	/**
-	 * Accessor method for the reocord
-	 * @return the record field to be used as a filter
-	 */
-	public String getRecordField() {
-		return recordField;
-	}
-	
-	/**
-	 * Accessor method for the Select header
-	 * @return the header to be used as a filter
-	 */
-	public String getSelectHeader() {
-		return selectHeader;
-	}
-	
-	/**
-	 * Accessor method for the type of selection algorithm to be used
-	 * @return the selection algorithm to be used as an Enum
-	 */
-	public SelectionType getSelection() {
-		return selection;
-	}
-	
-	/**
-	 * Accessor method for the error to be used in the outlier algorithm
-	 * @return the margin of error of the outlier algorithm
-	 */
-	public long getError() {
-		return error;
-	}
-	
-	/**
-	 * Acessor method for the header to be used in the terminal computation
-	 * @return the header to be used in the computation
-	 */
-	public String getComputeHeader() {
-		return computeHeader;
-	}
-
-	/**
-	 * Accessor method for the type of terminal computation to be performed
-	 * @return the type of Computation to be performed as an Enum
-	 */
-	public Terminal getComputation() {
-		return computation;
-	}
-
-	/**
-	 * Overriden toString() implementation that prints the filters used in the streaming
-	 * if no filters were used, a message saying this to the user is displayed instead
-	 */
-	@Override
-	public String toString() {
-		
-		StringBuilder filters = new StringBuilder();
-		
-		if(!selectHeader.equals("") && recordField != null) {
-			
-			filters.append(selectHeader + " = " + recordField + "\n");
-		}
-		
-		if(!computeHeader.equals("") && computation != Terminal.NULL) {
-			
-			filters.append(computation.name() + " = " + computeHeader);
-		}
-		
-		if(filters.length() == 0) {
-			
-			filters.append("No filters selected");
-		}
-		
-		return filters.toString();
-	}
-}
+import java.awt.GraphicsDevice.WindowTranslucency;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+/**
+ * Class that records the user's requirements
+ * Default value for selection is the "normal selection", with no headers or fields (no filter)
+ * Default value for terminal computation is the NULL operation, which does nothing
+ * @author Luiz do Valle
+ *
+ */
+public class TSVFilter {
+
+	/**
+	 * The file to be read
+	 */
+	private final File file;
+	
+	/**
+	 * The selections to be done, a record must be wanted by all of them to be streamed to the output
+	 */
+	private final List<SelectClause> selectClauses;
+	/**
+	 * The terminal computations to be performed, each one with the header it applies to
+	 */
+	private final List<ComputeClause> computeClauses;
+	/**
+	 * The headers the records are grouped by before the terminal computations are performed, empty for no grouping
+	 */
+	private final List<String> groupHeaders;
+	/**
+	 * The number of groups past which the groups are kept off the Java heap
+	 */
+	private final int offHeapThreshold;
+	/**
+	 * The number of bytes the groups can hold in memory before they are written to temporary files
+	 */
+	private final long memoryBudget;
+	/**
+	 * The number of records after which a key of a keyed outlier selection that was not seen is forgotten, 0 to never forget a key
+	 */
+	private final long outlierIdleLimit;
+	/**
+	 * The path of the file the wanted records are written to
+	 */
+	private final String outputPath;
+	/**
+	 * The path of the file the invalid records are written to
+	 */
+	private final String invalidOutputPath;
+	/**
+	 * The compression of both output files
+	 */
+	private final OutputCompression outputCompression;
+	/**
+	 * The size in bytes of each buffer used to write the output files
+	 */
+	private final int outputBufferSize;
+	/**
+	 * The number of threads used to process the file, 1 for sequential processing
+	 */
+	private final int parallelism;
+	
+	/**
+	 * Inner static class that serves as the builder for the TSVFilter class
+	 * @author Luiz do Valle
+	 *
+	 */
+	public static class WhichFile {
+		
+		private File file;
+		
+		private List<SelectClause> selectClauses = new ArrayList<>();
+		
+		private List<ComputeClause> computeClauses = new ArrayList<>();
+		
+		private List<String> groupHeaders = new ArrayList<>();
+		private int offHeapThreshold = GroupByComputation.DEFAULT_OFF_HEAP_THRESHOLD;
+		private long memoryBudget = Long.MAX_VALUE;
+		
+		private long outlierIdleLimit = 0;
+		
+		private String outputPath = "output.tsv";
+		private String invalidOutputPath = "invalid_output.tsv";
+		private OutputCompression outputCompression = OutputCompression.NONE;
+		private int outputBufferSize = TSVWriter.DEFAULT_BUFFER_SIZE;
+		private int parallelism = 1;
+		
+		public WhichFile (String fileName) {
+			
+			this.file = new File (fileName);
+			
+		}
+		
+		/**
+		 * Method that records the filters the user wants to filter the data with
+		 * Selection based on String value
+		 * Allows longs to be passed as String if the user wants
+		 * Calling any of the select methods more than once combines the filters, so a record must pass all of them
+		 * @param columnHeader the header to filter by
+		 * @param field the field that must be presents under the specified header
+		 * @return a reference to the current WhichFile Builder
+		 */
+		public WhichFile select (String columnHeader, String field) {
+			
+			return select(SelectClause.equal(columnHeader, field));
+		}
+		
+		/**
+		 * Method that records the filters the user wants to filter the data with
+		 * Selection based on long value
+		 * @param columnHeader the header to filter by
+		 * @param field the field that must be presents under the specified header
+		 * @return a reference to the current WhichFile Builder
+		 */
+		public WhichFile select (String columnHeader, long field) {
+			
+			return select(SelectClause.equal(columnHeader, field));
+		}
+		
+		/**
+		 * Method that records the filters the user wants to filter the data with
+		 * Selection based on any AND, OR and NOT combination of filters built with the SelectClause factory methods
+		 * @param clause the clause that records must pass
+		 * @return a reference to the current WhichFile Builder
+		 */
+		public WhichFile select (SelectClause clause) {
+			
+			this.selectClauses.add(clause);
+			
+			return this;
+		}
+		
+		/**
+		 * Method that records the filters the user wants to filter the data with
+		 * Selection based on outlier value
+		 * @param header the header to filter by
+		 * @param error the margin of error that the values must exceed the previous record by to be selected by the filter
+		 * @return a reference to the current WhichFile Builder
+		 */
+		public WhichFile outlier (String header, long error) {
+			
+			return select(SelectClause.outlier(header, error));
+			
+		}
+		
+		/**
+		 * Method that records the filters the user wants to filter the data with
+		 * Selection based on outlier value, compared only with the previous record with the same key
+		 * @param header the header to filter by
+		 * @param keyHeader the header of the keys the records are partitioned by
+		 * @param error the margin of error that the values must exceed the previous record of their key by to be selected by the filter
+		 * @return a reference to the current WhichFile Builder
+		 */
+		public WhichFile outlier (String header, String keyHeader, long error) {
+			
+			return select(SelectClause.outlier(header, keyHeader, error));
+		}
+		
+		/**
+		 * Method that records after how many records a key of a keyed outlier selection is forgotten if it was not seen,
+		 * so the state of the keys stays bounded on a stream where the keys keep changing
+		 * A forgotten key that comes back is treated as a new key
+		 * @param records the number of records, 0 to never forget a key
+		 * @return a reference to the current WhichFile Builder
+		 */
+		public WhichFile outlierIdleLimit(long records) {
+			
+			this.outlierIdleLimit = records;
+			
+			return this;
+		}
+		
+		/**
+		 * Method that records the terminal computation the user wants to perform and on which header value
+		 * It can be called several times and all the computations are performed in the same pass over the file
+		 * @param columnHeader the header to which the terminal compuatation should be applied
+		 * @param computation the type of Computation to be performed
+		 * @return a reference to the current WhichFile builder
+		 */
+		public WhichFile compute(String columnHeader, Terminal computation) {
+			
+			this.computeClauses.add(new ComputeClause(columnHeader, computation));
+			
+			return this;
+		}
+		
+		/**
+		 * Method that records a terminal computation that takes parameters, such as the precision of DISTINCT_APPROX
+		 * or the quantiles of QUANTILES, which can be preceded by the accuracy of the sketch:
+		 * compute("Latency", Terminal.QUANTILES, 0.5, 0.99) or compute("Latency", Terminal.QUANTILES, 400, 0.5, 0.99)
+		 * TOPK takes the number of values reported followed by the number of counters: compute("IP", Terminal.TOPK, 20, 4096)
+		 * The computations that take no parameters ignore them
+		 * @param columnHeader the header to which the terminal compuatation should be applied
+		 * @param computation the type of Computation to be performed
+		 * @param parameters the parameters of the computation
+		 * @return a reference to the current WhichFile builder
+		 */
+		public WhichFile compute(String columnHeader, Terminal computation, double... parameters) {
+			
+			this.computeClauses.add(new ComputeClause(columnHeader, computation, null, parameters));
+			
+			return this;
+		}
+		
+		/**
+		 * Method that records a terminal computation the user wants to perform over windows of the records
+		 * instead of over the whole file, such as the SUM of every 1000 records or the MAX of each minute
+		 * Only COUNT, SUM, MIN and MAX can be performed over windows, and the header must be a long column
+		 * except for COUNT
+		 * @param columnHeader the header to which the terminal compuatation should be applied
+		 * @param computation the type of Computation to be performed
+		 * @param window the windows, created with WindowClause.tumbling() or WindowClause.sliding()
+		 * @return a reference to the current WhichFile builder
+		 */
+		public WhichFile compute(String columnHeader, Terminal computation, WindowClause window) {
+			
+			this.computeClauses.add(new ComputeClause(columnHeader, computation, window));
+			
+			return this;
+		}
+		
+		/**
+		 * Method that records the headers the records should be grouped by, so the terminal computations are
+		 * performed once for each combination of values under those headers instead of once for the whole file
+		 * Only COUNT, SUM, MIN and MAX can be performed per group, on long columns except for COUNT, and COUNT is
+		 * performed if no computation is requested
+		 * Calling it more than once adds headers to the ones already recorded
+		 * @param headers the headers to group by
+		 * @return a reference to the current WhichFile builder
+		 */
+		public WhichFile groupBy(String... headers) {
+			
+			Collections.addAll(this.groupHeaders, headers);
+			
+			return this;
+		}
+		
+		/**
+		 * Method that records how many groups a GROUP BY keeps on the Java heap before moving them off the heap,
+		 * where they cost nothing to the garbage collector but are slightly slower to update
+		 * @param groups the number of groups, 0 to keep them off the heap from the start
+		 * @return a reference to the current WhichFile builder
+		 */
+		public WhichFile offHeapThreshold(int groups) {
+			
+			this.offHeapThreshold = groups;
+			
+			return this;
+		}
+		
+		/**
+		 * Method that records how many bytes of memory, on and off the heap, a GROUP BY can use for its groups
+		 * Past this budget the groups are sorted and written to temporary files, which are merged at the end, so a
+		 * grouping larger than the memory of the machine is slower instead of failing with an OutOfMemoryError
+		 * When the file is processed in parallel, the budget is shared between the chunks, and when the share of a chunk
+		 * is smaller than the memory an off heap table needs, its groups are kept on the heap whatever offHeapThreshold()
+		 * @param bytes the number of bytes, unbounded by default
+		 * @return a reference to the current WhichFile builder
+		 */
+		public WhichFile memoryBudget(long bytes) {
+			
+			this.memoryBudget = bytes;
+			
+			return this;
+		}
+		
+		/**
+		 * Method that records the paths of the output files, which are created or emptied by the pipeline
+		 * @param wantedPath the path of the file the wanted records are written to, output.tsv by default
+		 * @param invalidPath the path of the file the invalid records are written to, invalid_output.tsv by default
+		 * @return a reference to the current WhichFile builder
+		 */
+		public WhichFile outputPaths(String wantedPath, String invalidPath) {
+			
+			this.outputPath = wantedPath;
+			this.invalidOutputPath = invalidPath;
+			
+			return this;
+		}
+		
+		/**
+		 * Method that records how the output files are compressed
+		 * The buffers are compressed as independent blocks by background threads, so reading the file does not wait
+		 * on the compression. The paths are kept as they are, so they should end with .gz or .deflate
+		 * @param compression the compression, NONE by default
+		 * @return a reference to the current WhichFile builder
+		 */
+		public WhichFile outputCompression(OutputCompression compression) {
+			
+			this.outputCompression = compression;
+			
+			return this;
+		}
+		
+		/**
+		 * Method that records the size of the buffers used to write the output files
+		 * Each output file uses two buffers of this size, one being filled while the other is written, or a few more
+		 * when the output is compressed so that several of them can be compressed at the same time
+		 * @param bytes the size in bytes of each buffer
+		 * @return a reference to the current WhichFile builder
+		 */
+		public WhichFile outputBufferSize(int bytes) {
+			
+			this.outputBufferSize = bytes;
+			
+			return this;
+		}
+		
+		/**
+		 * Method that records how many threads should be used to process the file
+		 * The file is split in ranges of lines that are processed at the same time and the output is kept
+		 * in the same order as in sequential processing
+		 * Selections that depend on previous records (outlier) and terminal computations that cannot be merged
+		 * (FIRSTDIFF) are always processed sequentially
+		 * @param threads the number of threads, 1 for sequential processing
+		 * @return a reference to the current WhichFile builder
+		 */
+		public WhichFile parallel(int threads) {
+			
+			this.parallelism = threads;
+			
+			return this;
+		}
+		
+		/**
+		 * Method that creates a TSVFilter from the WhichFile builder
+		 * @return a new TSVFilter with the user filters stored in the WhichFile builder
+		 */
+		public TSVFilter done() {
+			
+			return new TSVFilter(this);
+		}
+	}
+	
+	/**
+	 * Private constructor of the TSVFilter that is only to be used by the Builder class WhichFile
+	 * @param whichFile
+	 */
+	private TSVFilter(WhichFile whichFile) {
+		
+		this.file = whichFile.file;
+		
+		this.selectClauses = Collections.unmodifiableList(new ArrayList<>(whichFile.selectClauses));
+		
+		this.computeClauses = Collections.unmodifiableList(new ArrayList<>(whichFile.computeClauses));
+		
+		this.groupHeaders = Collections.unmodifiableList(new ArrayList<>(whichFile.groupHeaders));
+		this.offHeapThreshold = whichFile.offHeapThreshold;
+		this.memoryBudget = whichFile.memoryBudget;
+		this.outlierIdleLimit = whichFile.outlierIdleLimit;
+		
+		this.outputPath = whichFile.outputPath;
+		this.invalidOutputPath = whichFile.invalidOutputPath;
+		this.outputCompression = whichFile.outputCompression;
+		this.outputBufferSize = whichFile.outputBufferSize;
+		this.parallelism = whichFile.parallelism;
+		
+	}
+
+	/**
+	 * Accessor method for the file
+	 * @return the file to be read
+	 */
+	public File getFile() {
+		
+		return file;
+	}
+
+	/**
+	 * Accessor method for the reocord of the first selection
+	 * @return the record field to be used as a filter, or null if there is none
+	 */
+	public String getRecordField() {
+		return selectClauses.isEmpty() ? null : selectClauses.get(0).getField();
+	}
+	
+	/**
+	 * Accessor method for the Select header of the first selection
+	 * @return the header to be used as a filter, or "" if there is none
+	 */
+	public String getSelectHeader() {
+		return selectClauses.isEmpty() ? "" : selectClauses.get(0).getHeader();
+	}
+	
+	/**
+	 * Accessor method for the type of the first selection algorithm to be used
+	 * @return the selection algorithm to be used as an Enum
+	 */
+	public SelectionType getSelection() {
+		return selectClauses.isEmpty() ? SelectionType.NORMAL : selectClauses.get(0).getType();
+	}
+	
+	/**
+	 * Accessor method for the error to be used in the first selection, if it is an outlier algorithm
+	 * @return the margin of error of the outlier algorithm
+	 */
+	public long getError() {
+		return selectClauses.isEmpty() ? 0 : selectClauses.get(0).getError();
+	}
+	
+	/**
+	 * Accessor method for all the selections to be done
+	 * @return the select clauses in the order in which they were specified
+	 */
+	public List<SelectClause> getSelectClauses() {
+		return selectClauses;
+	}
+	
+	/**
+	 * Acessor method for the header to be used in the first terminal computation
+	 * @return the header to be used in the computation, or "" if no computation was specified
+	 */
+	public String getComputeHeader() {
+		return computeClauses.isEmpty() ? "" : computeClauses.get(0).getHeader();
+	}
+
+	/**
+	 * Accessor method for the type of the first terminal computation to be performed
+	 * @return the type of Computation to be performed as an Enum, or NULL if no computation was specified
+	 */
+	public Terminal getComputation() {
+		return computeClauses.isEmpty() ? Terminal.NULL : computeClauses.get(0).getComputation();
+	}
+	
+	/**
+	 * Accessor method for all the terminal computations to be performed
+	 * @return the compute clauses in the order in which they were specified
+	 */
+	public List<ComputeClause> getComputeClauses() {
+		return computeClauses;
+	}
+
+	/**
+	 * Accessor method for the headers the records are grouped by
+	 * @return the headers in the order in which they were specified, empty if the records are not grouped
+	 */
+	public List<String> getGroupHeaders() {
+		return groupHeaders;
+	}
+
+	/**
+	 * Accessor method for the number of groups kept on the heap
+	 * @return the number of groups past which the groups are kept off the Java heap
+	 */
+	public int getOffHeapThreshold() {
+		return offHeapThreshold;
+	}
+
+	/**
+	 * Accessor method for the memory budget of the groups
+	 * @return the number of bytes the groups can hold in memory before they are written to temporary files
+	 */
+	public long getMemoryBudget() {
+		return memoryBudget;
+	}
+
+	/**
+	 * Accessor method for the idle limit of the keyed outlier selections
+	 * @return the number of records after which a key that was not seen is forgotten, 0 to never forget a key
+	 */
+	public long getOutlierIdleLimit() {
+		return outlierIdleLimit;
+	}
+
+	/**
+	 * Accessor method for the path of the valid output file
+	 * @return the path of the file the wanted records are written to
+	 */
+	public String getOutputPath() {
+		return outputPath;
+	}
+
+	/**
+	 * Accessor method for the path of the invalid output file
+	 * @return the path of the file the invalid records are written to
+	 */
+	public String getInvalidOutputPath() {
+		return invalidOutputPath;
+	}
+
+	/**
+	 * Accessor method for the compression of the output files
+	 * @return the compression of both output files
+	 */
+	public OutputCompression getOutputCompression() {
+		return outputCompression;
+	}
+
+	/**
+	 * Accessor method for the size of the output buffers
+	 * @return the size in bytes of each buffer used to write the output files
+	 */
+	public int getOutputBufferSize() {
+		return outputBufferSize;
+	}
+
+	/**
+	 * Accessor method for the number of threads used to process the file
+	 * @return the number of threads, 1 for sequential processing
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Overriden toString() implementation that prints the filters used in the streaming
+	 * if no filters were used, a message saying this to the user is displayed instead
+	 */
+	@Override
+	public String toString() {
+		
+		StringBuilder filters = new StringBuilder();
+		
+		for(SelectClause clause : selectClauses) {
+			
+			boolean isFilter = clause.getType() == SelectionType.NORMAL && !clause.getHeader().equals("") && clause.getField() != null;
+			boolean isCombination = clause.getType() != SelectionType.NORMAL && clause.getType() != SelectionType.OUTLIER
+					&& clause.getType() != SelectionType.KEYED_OUTLIER;
+			
+			if(isFilter || isCombination) {
+				
+				filters.append(clause + "\n");
+			}
+		}
+		
+		String separator = "";
+		
+		for(ComputeClause clause : computeClauses) {
+			
+			if((!clause.getHeader().equals("") || clause.getWindow() != null) && clause.getComputation() != Terminal.NULL) {
+				
+				filters.append(separator + clause);
+				separator = "\n";
+			}
+		}
+		
+		if(!groupHeaders.isEmpty()) {
+			
+			filters.append(separator + "GROUP BY " + String.join(", ", groupHeaders));
+		}
+		
+		if(filters.length() == 0) {
+			
+			filters.append("No filters selected");
+		}
+		
+		return filters.toString();
+	}
+}
@@ -0,0 +1,312 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+
+/**
+ * Class that reads the lines of a file that keeps growing, like the tail -F command
+ * Unlike the TSVReader, the file is read through a FileChannel instead of being mapped, so the lines appended after
+ * the file was opened are also seen. A line is only handed out once its line separator was written, so a line that is
+ * still being appended is never read in half
+ *
+ * The reader also detects when the file is rotated: either truncated (it became smaller than what was already read)
+ * or replaced by another file with the same name. The lines left in the old file can still be read, and reopen()
+ * then starts reading the new file from its start
+ *
+ * Lines end with the same separators as with the TSVReader. A line ending with "\r" is only handed out once the
+ * next byte is written, as it may be a "\n"
+ * @author Luiz do Valle
+ *
+ */
+public class TSVFollowReader {
+
+	/**
+	 * The number of bytes read from the file at a time
+	 */
+	private static final int READ_SIZE = 1024 * 1024;
+
+	/**
+	 * The path of the file
+	 */
+	private final Path path;
+	/**
+	 * The channel of the file currently being read
+	 */
+	private FileChannel channel;
+	/**
+	 * The key identifying the file currently being read (its inode on Unix), or null if not supported
+	 */
+	private Object fileKey;
+	/**
+	 * The bytes read from the file that were not handed out yet
+	 */
+	private byte[] buffer = new byte[READ_SIZE];
+	/**
+	 * The index in the buffer where the next line starts
+	 */
+	private int start;
+	/**
+	 * The index in the buffer where the bytes read end (exclusive)
+	 */
+	private int end;
+	/**
+	 * The index in the buffer from which the next line separator is looked for
+	 */
+	private int scan;
+	/**
+	 * The position in the file of the first byte of the buffer
+	 */
+	private long bufferOffset;
+	/**
+	 * The position in the file from which the next bytes are read
+	 */
+	private long readPosition;
+	/**
+	 * The array that holds the bytes of the current line
+	 */
+	private byte[] lineBuffer = new byte[8 * 1024];
+	/**
+	 * The number of bytes of the current line
+	 */
+	private int lineLength;
+	/**
+	 * The position in the file where the current line starts
+	 */
+	private long lineOffset;
+
+	/**
+	 * Constructor of the class
+	 * @param file the file to be followed
+	 * @throws IOException if the file cannot be opened
+	 */
+	public TSVFollowReader(File file) throws IOException {
+
+		this.path = file.toPath();
+		open();
+	}
+
+	/**
+	 * Method that reads the next complete line into the line buffer
+	 * @return true if a line was read, false if there is no complete line in the file yet
+	 * @throws IOException if the file cannot be read
+	 */
+	public boolean nextLine() throws IOException {
+
+		while(true) {
+
+			int separator = 0;
+
+			while(scan < end) {
+
+				if(TSVReader.startsSeparator(buffer[scan])
+						&& (separator = TSVReader.separatorLength(buffer, scan, end, false)) != 0) {
+
+					break;
+				}
+
+				scan++;
+			}
+
+			if(separator > 0) {
+
+				copyLine(start, scan);
+				start = scan + separator;
+				scan = start;
+				return true;
+			}
+
+			//No separator yet, or one whose end is not written yet
+			if(!fill()) {
+
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Method that hands out the bytes after the last line separator as a line
+	 * Only meant for the end of a file that was rotated, whose last line will never be completed
+	 * @return true if there was an incomplete line, false otherwise
+	 * @throws IOException if the file cannot be read
+	 */
+	public boolean nextIncompleteLine() throws IOException {
+
+		while(fill()) {
+
+			//Everything left in the file is read first
+		}
+
+		if(start == end) {
+
+			return false;
+		}
+
+		copyLine(start, end);
+		start = end;
+		scan = end;
+		return true;
+	}
+
+	/**
+	 * Method that checks whether the file was truncated or replaced by another file with the same name
+	 * A file that was moved away and not yet replaced is not considered rotated, so its lines can still be read
+	 * @return true if the file was rotated, false otherwise
+	 * @throws IOException if the file cannot be checked
+	 */
+	public boolean hasRotated() throws IOException {
+
+		if(channel.size() < readPosition) {
+
+			return true;
+		}
+
+		try {
+
+			Object currentKey = Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+
+			return currentKey != null && !currentKey.equals(fileKey);
+
+		} catch (NoSuchFileException e) {
+
+			return false;
+		}
+	}
+
+	/**
+	 * Method that closes the current file and starts reading the file with the same name from its start
+	 * Any bytes of the previous file that were not handed out are discarded
+	 * @throws IOException if the file cannot be opened
+	 */
+	public void reopen() throws IOException {
+
+		channel.close();
+		open();
+	}
+
+	/**
+	 * Accessor method for the bytes of the current line
+	 * Only the first getLineLength() bytes belong to the line and the array is reused by the next call to nextLine()
+	 * @return the array that holds the current line
+	 */
+	public byte[] getLineBuffer() {
+
+		return lineBuffer;
+	}
+
+	/**
+	 * Accessor method for the length of the current line
+	 * @return the number of bytes in the current line, without the line separator
+	 */
+	public int getLineLength() {
+
+		return lineLength;
+	}
+
+	/**
+	 * Accessor method for the position of the current line in the file
+	 * @return the position in the file where the current line starts
+	 */
+	public long getLineOffset() {
+
+		return lineOffset;
+	}
+
+	/**
+	 * Method that decodes the current line into a String
+	 * Only meant for the header and type lines, the records should be read through getLineBuffer()
+	 * @return the current line as a String
+	 */
+	public String getLineAsString() {
+
+		return new String(lineBuffer, 0, lineLength, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Method that closes the file
+	 * @throws IOException if the file cannot be closed
+	 */
+	public void close() throws IOException {
+
+		channel.close();
+	}
+
+	/**
+	 * Method that opens the file with the path being followed and resets the state of the reader
+	 * @throws IOException if the file cannot be opened
+	 */
+	private void open() throws IOException {
+
+		channel = FileChannel.open(path, StandardOpenOption.READ);
+		fileKey = Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+		start = 0;
+		end = 0;
+		scan = 0;
+		bufferOffset = 0;
+		readPosition = 0;
+	}
+
+	/**
+	 * Method that reads more bytes from the file after the ones in the buffer
+	 * The bytes already handed out are dropped first, and the buffer grows if a line does not fit in it
+	 * @return true if any byte was read, false if the end of the file was reached
+	 * @throws IOException if the file cannot be read
+	 */
+	private boolean fill() throws IOException {
+
+		if(start > 0) {
+
+			System.arraycopy(buffer, start, buffer, 0, end - start);
+			bufferOffset += start;
+			end -= start;
+			scan -= start;
+			start = 0;
+		}
+
+		if(end == buffer.length) {
+
+			buffer = Arrays.copyOf(buffer, buffer.length * 2);
+		}
+
+		int read = channel.read(ByteBuffer.wrap(buffer, end, buffer.length - end), readPosition);
+
+		if(read <= 0) {
+
+			return false;
+		}
+
+		end += read;
+		readPosition += read;
+		return true;
+	}
+
+	/**
+	 * Method that copies a line from the buffer into the line buffer, dropping a "\r" that ends it, which is only
+	 * left for the incomplete line at the end of a rotated file
+	 * @param lineStart the index in the buffer where the line starts
+	 * @param lineEnd the index in the buffer where the line ends (exclusive), without the line separator
+	 */
+	private void copyLine(int lineStart, int lineEnd) {
+
+		if(lineEnd > lineStart && buffer[lineEnd - 1] == '\r') {
+
+			lineEnd--;
+		}
+
+		lineLength = lineEnd - lineStart;
+		lineOffset = bufferOffset + lineStart;
+
+		if(lineLength > lineBuffer.length) {
+
+			lineBuffer = Arrays.copyOf(lineBuffer, Math.max(lineLength, lineBuffer.length * 2));
+		}
+
+		System.arraycopy(buffer, lineStart, lineBuffer, 0, lineLength);
+	}
+}
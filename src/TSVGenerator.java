@@ -0,0 +1,624 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Class that writes synthetic .tsv files to load and scale test the TSVPipeline
+ * The file has a header line, a type line and the requested number of records. For each column the number of
+ * distinct values (cardinality) and how skewed their frequencies are can be chosen, and a fraction of the records
+ * can be malformed in the ways the pipeline must reject: a wrong number of fields, a value that is not a long in
+ * a long column, or a double tab
+ *
+ * The records are generated in chunks of at most CHUNK_RECORDS records on several threads and written in order as
+ * soon as they are ready, so the memory used does not depend on the size of the file. Files with many columns have
+ * fewer records per chunk, so a chunk stays around CHUNK_BYTES bytes. Each chunk has its own random
+ * generator seeded from the seed of the file and the number of the chunk, so the same settings always write
+ * the same bytes, whatever the number of threads
+ *
+ * A generator is created with the Builder:
+ * new TSVGenerator.Builder(1_000_000).longColumn("Id", 1_000_000, 0).stringColumn("Symbol", 500, 1.1).malformed(0.01).done()
+ * @author Luiz do Valle
+ *
+ */
+public class TSVGenerator {
+
+	/**
+	 * The largest number of records generated as a unit of work by a thread
+	 */
+	public static final int CHUNK_RECORDS = 64 * 1024;
+	/**
+	 * The expected size in bytes of a chunk, from which the number of records of a chunk of a wide file is chosen
+	 */
+	private static final long CHUNK_BYTES = 64L * 1024 * 1024;
+	/**
+	 * The expected size in bytes of a field and its separator
+	 */
+	private static final int FIELD_BYTES = 8;
+
+	/**
+	 * Kinds of malformed records
+	 */
+	private static final int WRONG_FIELD_COUNT = 0;
+	private static final int BAD_LONG = 1;
+	private static final int DOUBLE_TAB = 2;
+
+	/**
+	 * The columns of the file
+	 */
+	private final List<Column> columns;
+	/**
+	 * The number of records
+	 */
+	private final long recordCount;
+	/**
+	 * The fraction of the records that are malformed
+	 */
+	private final double malformedFraction;
+	/**
+	 * The seed of the random generators
+	 */
+	private final long seed;
+	/**
+	 * The number of threads generating records
+	 */
+	private final int threads;
+	/**
+	 * The index of a long column, used for the malformed longs, or -1 if there is none
+	 */
+	private final int longColumn;
+	/**
+	 * The number of records of each chunk
+	 */
+	private final int chunkRecords;
+
+	/**
+	 * Class that holds the settings of a column
+	 */
+	private static class Column {
+
+		/**
+		 * The header of the column
+		 */
+		private final String header;
+		/**
+		 * Whether the column holds longs
+		 */
+		private final boolean isLong;
+		/**
+		 * The number of distinct values of the column
+		 */
+		private final long cardinality;
+		/**
+		 * The exponent of the Zipf-like distribution of the values, 0 for uniform values
+		 */
+		private final double skew;
+
+		/**
+		 * Constructor of the class
+		 * @param header the header of the column
+		 * @param isLong whether the column holds longs
+		 * @param cardinality the number of distinct values of the column
+		 * @param skew the exponent of the distribution of the values
+		 */
+		private Column(String header, boolean isLong, long cardinality, double skew) {
+
+			this.header = header;
+			this.isLong = isLong;
+			this.cardinality = Math.max(1, cardinality);
+			this.skew = Math.max(0, skew);
+		}
+
+		/**
+		 * Method that picks the rank of a value, rank 0 being the most frequent value when the column is skewed
+		 * The ranks follow a continuous power law with the skew as exponent, which is close to a Zipf
+		 * distribution and takes constant time whatever the cardinality
+		 * @param random the random generator of the chunk
+		 * @return the rank, between 0 and cardinality - 1
+		 */
+		private long nextRank(SplittableRandom random) {
+
+			if(skew == 0) {
+
+				return random.nextLong(cardinality);
+			}
+
+			double uniform = random.nextDouble();
+			double rank;
+
+			if(Math.abs(skew - 1) < 1e-9) {
+
+				rank = Math.pow(cardinality + 1, uniform);
+
+			} else {
+
+				double exponent = 1 - skew;
+
+				rank = Math.pow((Math.pow(cardinality + 1, exponent) - 1) * uniform + 1, 1 / exponent);
+			}
+
+			return Math.min(cardinality - 1, Math.max(0, (long) rank - 1));
+		}
+	}
+
+	/**
+	 * Builder class of the TSVGenerator, where the columns and the other settings are chosen
+	 */
+	public static class Builder {
+
+		private final long recordCount;
+		private final List<Column> columns = new ArrayList<>();
+		private double malformedFraction = 0;
+		private long seed = 42;
+		private int threads = Runtime.getRuntime().availableProcessors();
+
+		/**
+		 * Constructor of the builder
+		 * @param recordCount the number of records of the file, without the header and type lines
+		 */
+		public Builder(long recordCount) {
+
+			this.recordCount = recordCount;
+		}
+
+		/**
+		 * Method that adds a long column, whose values are 0 to cardinality - 1
+		 * @param header the header of the column
+		 * @param cardinality the number of distinct values
+		 * @param skew the exponent of the distribution of the values, 0 for uniform values and around 1 for a
+		 * Zipf distribution where a few values are in most of the records
+		 * @return the builder
+		 */
+		public Builder longColumn(String header, long cardinality, double skew) {
+
+			columns.add(new Column(header, true, cardinality, skew));
+			return this;
+		}
+
+		/**
+		 * Method that adds a String column, whose values are "v0" to "v" + (cardinality - 1)
+		 * @param header the header of the column
+		 * @param cardinality the number of distinct values
+		 * @param skew the exponent of the distribution of the values, 0 for uniform values and around 1 for a
+		 * Zipf distribution where a few values are in most of the records
+		 * @return the builder
+		 */
+		public Builder stringColumn(String header, long cardinality, double skew) {
+
+			columns.add(new Column(header, false, cardinality, skew));
+			return this;
+		}
+
+		/**
+		 * Method that adds columns named "C" followed by their index, each of them a long column with the given
+		 * probability and a String column otherwise
+		 * The types are drawn from the seed set when the method is called
+		 * @param count the number of columns
+		 * @param longFraction the probability of a column holding longs
+		 * @param cardinality the number of distinct values of each column
+		 * @param skew the exponent of the distribution of the values of each column
+		 * @return the builder
+		 */
+		public Builder randomColumns(int count, double longFraction, long cardinality, double skew) {
+
+			SplittableRandom random = new SplittableRandom(seed);
+
+			for(int index = 0; index < count; index++) {
+
+				String header = "C" + columns.size();
+
+				columns.add(new Column(header, random.nextDouble() < longFraction, cardinality, skew));
+			}
+
+			return this;
+		}
+
+		/**
+		 * Method that sets the fraction of the records that are malformed
+		 * @param fraction the fraction, between 0 and 1
+		 * @return the builder
+		 */
+		public Builder malformed(double fraction) {
+
+			this.malformedFraction = fraction;
+			return this;
+		}
+
+		/**
+		 * Method that sets the seed of the random generators
+		 * @param seed the seed
+		 * @return the builder
+		 */
+		public Builder seed(long seed) {
+
+			this.seed = seed;
+			return this;
+		}
+
+		/**
+		 * Method that sets the number of threads generating records
+		 * @param threads the number of threads
+		 * @return the builder
+		 */
+		public Builder threads(int threads) {
+
+			this.threads = Math.max(1, threads);
+			return this;
+		}
+
+		/**
+		 * Method that creates the generator
+		 * @return the generator, or null if no column was added or the number of records is negative
+		 */
+		public TSVGenerator done() {
+
+			if(columns.isEmpty()) {
+
+				System.out.println("The file needs at least one column");
+				return null;
+			}
+
+			if(recordCount < 0) {
+
+				System.out.println("The number of records cannot be negative");
+				return null;
+			}
+
+			return new TSVGenerator(this);
+		}
+	}
+
+	/**
+	 * Private constructor that is only to be used by the Builder
+	 * @param builder the builder
+	 */
+	private TSVGenerator(Builder builder) {
+
+		this.columns = new ArrayList<>(builder.columns);
+		this.recordCount = builder.recordCount;
+		this.malformedFraction = builder.malformedFraction;
+		this.seed = builder.seed;
+		this.threads = builder.threads;
+
+		int found = -1;
+
+		for(int column = 0; column < columns.size() && found == -1; column++) {
+
+			if(columns.get(column).isLong) {
+
+				found = column;
+			}
+		}
+
+		this.longColumn = found;
+		this.chunkRecords = (int) Math.max(1, Math.min(CHUNK_RECORDS, CHUNK_BYTES / ((long) FIELD_BYTES * columns.size())));
+	}
+
+	/**
+	 * The start of the generator
+	 * Usage: java TSVGenerator file records columns [longFraction] [cardinality] [skew] [malformedFraction] [seed] [threads]
+	 * @param args the settings of the file
+	 */
+	public static void main(String[] args) {
+
+		if(args.length < 3) {
+
+			System.out.println("Usage: java TSVGenerator file records columns [longFraction] [cardinality] [skew] [malformedFraction] [seed] [threads]");
+			return;
+		}
+
+		try {
+
+			Builder builder = new Builder(Long.parseLong(args[1]));
+			int columnCount = Integer.parseInt(args[2]);
+			double longFraction = args.length > 3 ? Double.parseDouble(args[3]) : 0.5;
+			double malformedFraction = args.length > 6 ? Double.parseDouble(args[6]) : 0;
+
+			if(columnCount < 1) {
+
+				System.out.println("The file needs at least one column");
+				return;
+			}
+
+			if(!(longFraction >= 0 && longFraction <= 1) || !(malformedFraction >= 0 && malformedFraction <= 1)) {
+
+				System.out.println("The fractions must be between 0 and 1");
+				return;
+			}
+
+			builder.seed(args.length > 7 ? Long.parseLong(args[7]) : 42);
+			builder.threads(args.length > 8 ? Integer.parseInt(args[8]) : Runtime.getRuntime().availableProcessors());
+			builder.malformed(malformedFraction);
+			builder.randomColumns(columnCount, longFraction, args.length > 4 ? Long.parseLong(args[4]) : 1000,
+					args.length > 5 ? Double.parseDouble(args[5]) : 0);
+
+			TSVGenerator generator = builder.done();
+
+			if(generator == null) {
+
+				return;
+			}
+
+			long start = System.nanoTime();
+			File file = new File(args[0]);
+
+			if(generator.write(file)) {
+
+				System.out.println("Wrote " + file.length() + " bytes in " + (System.nanoTime() - start) / 1000000 + " ms");
+			}
+
+		} catch (NumberFormatException e) {
+
+			System.out.println("The settings must be numbers: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Method that writes the file, replacing it if it exists
+	 * @param file the file to be written
+	 * @return true if the file was written, false otherwise
+	 */
+	public boolean write(File file) {
+
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE,
+				StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+
+			writeFully(channel, headerLines());
+
+			long chunkCount = (recordCount + chunkRecords - 1) / chunkRecords;
+			Queue<Future<ByteBuffer>> pending = new ArrayDeque<>();
+			long submitted = 0;
+
+			//A few chunks per thread are generated ahead of the writer, so the memory used stays bounded
+			while(submitted < chunkCount || !pending.isEmpty()) {
+
+				while(submitted < chunkCount && pending.size() < threads * 2) {
+
+					long chunk = submitted++;
+
+					pending.add(pool.submit(() -> generateChunk(chunk)));
+				}
+
+				writeFully(channel, pending.remove().get());
+			}
+
+			return true;
+
+		} catch (IOException | ExecutionException e) {
+
+			System.out.println("Problem writing the file: " + e.getMessage());
+			return false;
+
+		} catch (InterruptedException e) {
+
+			Thread.currentThread().interrupt();
+			System.out.println("The file was not completely written");
+			return false;
+
+		} finally {
+
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Method that creates the header and type lines
+	 * @return the bytes of both lines
+	 */
+	private ByteBuffer headerLines() {
+
+		StringBuilder header = new StringBuilder();
+		StringBuilder types = new StringBuilder();
+
+		for(int column = 0; column < columns.size(); column++) {
+
+			if(column > 0) {
+
+				header.append('\t');
+				types.append('\t');
+			}
+
+			header.append(columns.get(column).header);
+			types.append(columns.get(column).isLong ? "long" : "String");
+		}
+
+		return ByteBuffer.wrap((header + "\n" + types + "\n").getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Method that generates the records of a chunk
+	 * @param chunk the number of the chunk
+	 * @return the bytes of the records
+	 */
+	private ByteBuffer generateChunk(long chunk) {
+
+		SplittableRandom random = new SplittableRandom(mix(seed + chunk * 0x9E3779B97F4A7C15L));
+		long first = chunk * chunkRecords;
+		int count = (int) Math.min(chunkRecords, recordCount - first);
+		Line line = new Line((long) FIELD_BYTES * count * columns.size());
+
+		for(int record = 0; record < count; record++) {
+
+			int malformation = random.nextDouble() < malformedFraction ? random.nextInt(3) : -1;
+
+			//Without a long column no value can be a bad long, so the number of fields is changed instead
+			if(malformation == BAD_LONG && longColumn == -1) {
+
+				malformation = WRONG_FIELD_COUNT;
+			}
+
+			for(int column = 0; column < columns.size(); column++) {
+
+				Column settings = columns.get(column);
+				long rank = settings.nextRank(random);
+
+				if(column > 0) {
+
+					line.append('\t');
+				}
+
+				if(malformation == DOUBLE_TAB && column == Math.min(1, columns.size() - 1)) {
+
+					line.append('\t');
+				}
+
+				if(malformation == BAD_LONG && column == longColumn) {
+
+					line.append('x');
+
+				} else if(!settings.isLong) {
+
+					line.append('v');
+				}
+
+				line.appendLong(rank);
+			}
+
+			if(malformation == WRONG_FIELD_COUNT) {
+
+				line.append('\t');
+				line.append('x');
+			}
+
+			line.append('\n');
+		}
+
+		return line.toBuffer();
+	}
+
+	/**
+	 * Method that writes the whole buffer to the channel
+	 * @param channel the channel of the file
+	 * @param buffer the bytes to be written
+	 * @throws IOException if the file cannot be written
+	 */
+	private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+
+		while(buffer.hasRemaining()) {
+
+			channel.write(buffer);
+		}
+	}
+
+	/**
+	 * Method that mixes the bits of the seed of a chunk, so neighbouring chunks get unrelated random generators
+	 * @param value the value to be mixed
+	 * @return the mixed value
+	 */
+	private static long mix(long value) {
+
+		value = (value ^ (value >>> 33)) * 0xFF51AFD7ED558CCDL;
+		value = (value ^ (value >>> 33)) * 0xC4CEB9FE1A85EC53L;
+
+		return value ^ (value >>> 33);
+	}
+
+	/**
+	 * Class that builds the bytes of the records of a chunk without creating a String per value
+	 */
+	private static class Line {
+
+		/**
+		 * The largest number of bytes allocated before any byte is written
+		 */
+		private static final int MAX_INITIAL_CAPACITY = 64 * 1024 * 1024;
+		/**
+		 * The largest number of bytes an array can hold
+		 */
+		private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+
+		/**
+		 * The bytes written so far
+		 */
+		private byte[] bytes;
+		/**
+		 * The number of bytes written so far
+		 */
+		private int length;
+
+		/**
+		 * Constructor of the class
+		 * @param capacity the expected number of bytes, of which at most MAX_INITIAL_CAPACITY are allocated up front
+		 */
+		private Line(long capacity) {
+
+			this.bytes = new byte[(int) Math.min(MAX_INITIAL_CAPACITY, Math.max(64, capacity))];
+		}
+
+		/**
+		 * Method that adds an ASCII character
+		 * @param character the character
+		 */
+		private void append(char character) {
+
+			ensureCapacity(1);
+			bytes[length++] = (byte) character;
+		}
+
+		/**
+		 * Method that adds the decimal digits of a value that is not negative
+		 * @param value the value
+		 */
+		private void appendLong(long value) {
+
+			ensureCapacity(20);
+
+			int digits = 1;
+
+			for(long rest = value / 10; rest > 0; rest /= 10) {
+
+				digits++;
+			}
+
+			for(int index = length + digits - 1; index >= length; index--) {
+
+				bytes[index] = (byte) ('0' + value % 10);
+				value /= 10;
+			}
+
+			length += digits;
+		}
+
+		/**
+		 * Method that grows the array if the given number of bytes does not fit
+		 * @param extra the number of bytes to be added
+		 */
+		private void ensureCapacity(int extra) {
+
+			long needed = (long) length + extra;
+
+			if(needed > bytes.length) {
+
+				if(needed > MAX_CAPACITY) {
+
+					throw new IllegalStateException("A chunk of records takes more than " + MAX_CAPACITY + " bytes");
+				}
+
+				bytes = Arrays.copyOf(bytes, (int) Math.min(MAX_CAPACITY, Math.max(needed, 2L * bytes.length)));
+			}
+		}
+
+		/**
+		 * Method that wraps the bytes written
+		 * @return a buffer with the bytes written
+		 */
+		private ByteBuffer toBuffer() {
+
+			return ByteBuffer.wrap(bytes, 0, length);
+		}
+	}
+}
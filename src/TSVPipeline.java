@@ -1,493 +1,1794 @@
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.PrintWriter;
-import java.util.Scanner;
-
-/**
- * Class that streams the records in the file specified in the TSVFilter to an output file if they are valid
- * and match the filters specified by the user in the TSVFilter.
- * It also uses the Computation algorithms to perform the required computations on the streamed data
- * 
- * The class does not have "natural" bounds for fields like Age or Weight because:
- * 	1-) There is an infinite number of possible headers and just implementing a few of them is not good as most
- * 	of the possible headers would not have this functionality and it is impossible to extend it for even most of the headers.
- * 	2-) There is no natural or elegant way of saying that Age, for example, can only be between 0 and 127 (unless you restrict it to a byte)
- * 	or that a phone number is restricted to 10 digits because, if you are referring to a rock's age, it will exceed 127 or if you
- * 	are talking about international phone numbers, the number of digits vary widely, for instance.
- * 	3-) "Reasonableness" is context-dependent, so it is up to the user to determine what is reasonable. If he/she wants to find outliers, like a human being with more than 127 years,
- * 	in his/her data, the user can simply use the "outlier()" filter (outlier("Age", 127), for example).
- * 
- * @author Luiz do Valle
- *
- */
-public class TSVPipeline {
-
-	/**
-	 * The TSVFilter containing the filters to be used in the pipeline
-	 */
-	private TSVFilter tsvFilter;
-	/**
-	 * The data types (String and long) found in the file in the order in whicg they were found
-	 * 0 for long and 1 for String
-	 * byte used because only the values of 0 and 1 are required and byte occupies the lowest memoru fo the
-	 * primitive numerical types
-	 */
-	private byte[] dataTypes;
-	
-	/**
-	 * The header fields in the order in which they were found
-	 */
-	private String[] headerFields;
-	
-	/**
-	 * The Scanner used to stream the data
-	 */
-	private Scanner scanner;
-	/**
-	 * The PrintWriter used to stream records to the valid output file
-	 */
-	private PrintWriter wantedOutput;
-	
-	/**
-	 * The PrintWriter used to stream records to the invalid output file
-	 */
-	private PrintWriter invalidOutput;
-	
-	/**
-	 * The reference to the computation algorithm that is used as a plugin
-	 */
-	private Computation computer;
-	
-	/**
-	 * The reference to the selection algorithm that is used as a plugin
-	 */
-	private Selection selector;
-	
-	/**
-	 * The path for the valid outputs
-	 */
-	private final String OUTPUT_PATH = "output.tsv";
-	/**
-	 * The path for the invalid outputs
-	 */
-	private final String INVALID_OUTPUT_PATH = "invalid_output.tsv";
-	
-	/**
-	 * Constructor for the class
-	 * @param tsvFilter
-	 */
-	public TSVPipeline(TSVFilter tsvFilter) {
-		
-		this.tsvFilter = tsvFilter;
-		
-	}
-	
-	/**
-	 * Method that reads the .tsv file specified in the tsvFilter TSVFilter, checks if it exists and whether it is formated correctly.
-	 * If either of the above conditions is not fulfilled, a message is displayed to the user indicating
-	 * this and the method stops.
-	 * If the file exists and the first two lines are valid, the method checks whether each subsequent record is valid.
-	 * If the record is not valid, the method outputs this record to the invalidOutput.tsv and informs the user at the end of execution
-	 * of the method. A record is not valid if a field is supposed to be a long, but cannot be converted to a long or if it is missing
-	 * a field.
-	 * If the record is valid, the method checks whether the record is wanted by the user. If it is, the record
-	 * is streamed to the output.tsv file.
-	 * A record is wanted if the target field specified in the TSVFilter matches the record field under the 
-	 * TSVFilter's target header.
-	 * If the TSVFilter's specified header is the default value (empty String, ""), the method streams the whole
-	 * input file to the output file.
-	 * If the user specified a header, but no field in the TSVFilter, nothing is sent to the output file as there is no
-	 * way to determine a default field for an arbitrary header.
-	 * If no match between the TSVFilter's requirements and the records in the file are found, a message
-	 * telling this to the user is displayed.
-	 * 
-	 * At the end of execution the method also tells the user which data types (String and/or long) were found
-	 */
-	public void doit() {
-		
-		
-		File file = tsvFilter.getFile();
-		
-		if(!file.exists()) {
-			
-			System.out.println("The file does not exist in the given directory.");
-			return;
-		
-		} 
-			
-		initializeScanner(file);
-		initializePrintWriters();
-		
-		//Header line validation
-		if(!scanner.hasNextLine()) {
-			
-			System.out.println("The file cannot be read becuase the header line is missing");
-			return;
-		}
-		
-		String headerLine = scanner.nextLine();
-		
-		if(!isHeaderValid(headerLine)) {
-			
-			System.out.println("The file cannot be read because the header line is malformed");
-			return;
-		}
-		
-		headerFields = extractFields(headerLine);
-		wantedOutput.println(headerLine);
-		
-		//Type line validation
-		if(!scanner.hasNextLine()) {
-			
-			System.out.println("The file cannot be read because the type line is missing");
-			return;
-		}
-		
-		String typeLine = scanner.nextLine();
-		
-		if(!isTypeLineValid(typeLine)) {
-			
-			System.out.println("The file cannot be read because the type line is malformed");
-			return;
-		}
-		
-		dataTypes = extractTypes(typeLine);
-		wantedOutput.println(typeLine);
-		
-		boolean foundSomething = false;
-		boolean invalidRecordFound = false;
-		
-		initializeComputer();
-		initializeSelector();
-		
-		
-		//Record validation
-		while(scanner.hasNextLine()) {
-			
-			String record = scanner.nextLine();
-			
-			if(!isRecordValid(record)) {
-				//Send to malformed file
-				invalidOutput.println(record);
-				invalidRecordFound = true;
-				continue;
-			}
-			
-			if(selector.isRecordWanted(record)) {
-				//Stream to file
-				foundSomething = true;
-				computer.compute(record);
-				wantedOutput.println(record);
-			}
-			
-		}
-		
-		//Display types found
-		displayTypesFound();
-		
-		if(invalidRecordFound) {
-			
-			System.out.println("Invalid records found. See invalid_out.tsv file");
-		}
-		
-		if(!foundSomething) {
-			
-			System.out.println("No records matched your query.");
-		}
-		
-		//Free resources
-		scanner.close();
-		wantedOutput.close();
-		invalidOutput.close();
-		System.out.println("Done!");
-		System.out.println("Computation Result: " + computer.result());
-	}
-	
-	/**
-	 * Method that initializes the file scanner
-	 * @param file file to be streamed
-	 */
-	private void initializeScanner(File file) {
-		
-		try {
-			
-			scanner = new Scanner(file);
-		
-		} catch (FileNotFoundException e) {
-			
-			scanner.close();
-		}
-	}
-	
-	/**
-	 * Method that initializes the PrintWriters to be used to stream the data to the valid and invalid 
-	 * output files
-	 */
-	private void initializePrintWriters() {
-		
-		try {
-			
-			wantedOutput = new PrintWriter(OUTPUT_PATH);
-			invalidOutput = new PrintWriter(INVALID_OUTPUT_PATH);
-			
-		} catch (FileNotFoundException e) {
-			
-			System.out.println("Problem creating printwriter");
-			wantedOutput.close();
-			invalidOutput.close();
-		}
-	}
-	
-	/**
-	 * Method that checks whether the given header is valid
-	 * A header is valid if it is not empty and contains no empty fields
-	 * @param header the header to be checked
-	 * @return true if the header is valid, false otherwise
-	 */
-	private boolean isHeaderValid(String header) {
-		
-		String[] headerFields = extractFields(header);
-		
-		if (headerFields.length < 1) {
-			
-			return false;
-		}
-		
-		for(String headerField : headerFields) {
-			
-			if(headerField.length() < 1) {
-				
-				return false;
-			}
-		}
-		
-		return true;
-	}
-	
-	/**
-	 * Method that checks whether the type line is valid
-	 * A type line is valid if and only if it has the same number of fields as the header and
-	 * all of its fields are either "String" or "long"
-	 * @param typeLine the type line to be checked
-	 * @return true if the type line is valid, false otherwise
-	 */
-	private boolean isTypeLineValid(String typeLine) {
-		
-		String[] typeFields = typeLine.split("\t");
-		
-		if (typeFields.length != headerFields.length) {
-			
-			return false;
-		}
-		
-		for(String typeField : typeFields) {
-			
-			if (!typeField.equals("String") && !typeField.equals("long")) {
-				
-				return false;
-			}
-		}
-		
-		return true;
-	}
-	
-	/**
-	 * Method that checks whether a given record is valid
-	 * A record is valid is it contains the same number of fields as the header and
-	 * the values under long columns can be represented as longs
-	 * @param record
-	 * @return
-	 */
-	private boolean isRecordValid(String record) {
-		
-		String[] recordFields = extractFields(record);
-		
-		if(recordFields.length != headerFields.length) {
-			
-			return false;
-		}
-		
-		
-		for (int column = 0; column < recordFields.length; column++) {
-			
-			String field = recordFields[column];
-			byte columnType = dataTypes[column];
-			
-			if (columnType == 0 && !isValidLong(field)) {
-				
-				return false;
-				
-			}
-			
-		}
-		
-		return true;
-	}
-	
-	/**
-	 * Method that decides which Selector plugin to use based on what the user specified in the TSVFilter
-	 * The default is the normal
-	 */
-	private void initializeSelector() {
-		
-		SelectionType selectionType = tsvFilter.getSelection();
-		String targetHeader = tsvFilter.getSelectHeader();
-		String targetField = tsvFilter.getRecordField();
-		int targetColumn = findTargetColumn(targetHeader);
-		
-		switch(selectionType) {
-		
-			case NORMAL:
-				selector = new NormalSelection(targetHeader, targetField, targetColumn);
-				break;
-			case OUTLIER:
-				selector = new OutlierSelection(targetColumn, tsvFilter.getError());
-				break;
-			default:
-				selector = new NormalSelection(targetHeader, targetField, targetColumn);
-		}
-		
-	}
-	
-	/**
-	 * Method that decides which Computer plugin to use based on what the user selected in the TSVFilter
-	 */
-	private void initializeComputer() {
-		
-		Terminal computation = tsvFilter.getComputation();
-		int targetColumn = findTargetColumn(tsvFilter.getComputeHeader());
-		
-		switch(computation) {
-		
-			case ALLSAME:
-				computer = new AllSameComputation();
-				break;
-			case COUNT:
-				computer = new CountComputation();
-				break;
-			case MIN:
-				computer = new MinComputation(targetColumn);
-				break;
-			case MAX:
-				computer = new MaxComputation(targetColumn);
-				break;
-			case SUM:
-				computer = new SumComputation(targetColumn);
-				break;
-			case FIRSTDIFF:
-				computer = new FirstDiffComputation(targetColumn);
-				break;
-			case NULL:
-				computer = new NullComputation();
-		}
-	}
-	
-	/**
-	 * Method that extracts the fields from the given line based
-	 * @param line the line from which the values should be extracted from
-	 * @return
-	 */
-	private String[] extractFields (String line) {
-		
-		return line.split("\t");
-	}
-	
-	/**
-	 * Method that extracts the types from the type line and converts them to 0 (long) or 1 (String)
-	 * @param typeLine the type line
-	 * @return array of bytes containing the converted data types
-	 */
-	private byte[] extractTypes(String typeLine) {
-		
-		String[] types = typeLine.split("\t");
-		
-		byte[] dataTypes = new byte[types.length];
-		
-		for(int column = 0; column < types.length; column++) {
-			
-			String type = types[column];
-			
-			if(type.equals("long")) {
-				
-				dataTypes[column] = 0;
-			
-			} else if (type.equals("String")) {
-				
-				dataTypes[column] = 1;
-			}
-		}
-		
-		return dataTypes;
-	}
-	
-	/**
-	 * Method that finds the column where the given header is
-	 * @param header the header from which the column is to be found
-	 * @return the column where the header is or -2 if it is not found
-	 */
-	private int findTargetColumn(String header) {
-		
-		for(int column = 0; column < headerFields.length; column++) {
-			
-			if(header.equals(headerFields[column])) {
-				
-				return column;
-			}
-		}
-		
-		return -1;
-	}
-	
-	/**
-	 * Method that checks whether the given field can be represented as a long
-	 * @param field the field to be checked
-	 * @return true if the field can be represented as long, false otherwise
-	 */
-	private boolean isValidLong(String field) {
-		
-		try {
-			
-			Long.parseLong(field);
-		
-		} catch (NumberFormatException e) {
-			
-			return false;
-		}
-		
-		return true;
-	}
-	
-	/**
-	 * Method that displays the types in the dataTypes array to the user
-	 */
-	private void displayTypesFound() {
-		
-		boolean longFound = false;
-		boolean stringFound = false;
-		
-		for(byte type : dataTypes) {
-			
-			if(type == 0) {
-				
-				longFound = true;
-			
-			} else if (type == 1) {
-				
-				stringFound = true;
-			}
-		}
-		
-		if(longFound) {
-			
-			System.out.print("long ");
-		} 
-		
-		if(stringFound) {
-			
-			System.out.print("String ");
-		}
-		
-		System.out.println("fields found");
-	}
-	
-}
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Class that streams the records in the file specified in the TSVFilter to an output file if they are valid
+ * and match the filters specified by the user in the TSVFilter.
+ * It also uses the Computation algorithms to perform the required computations on the streamed data
+ * 
+ * The class does not have "natural" bounds for fields like Age or Weight because:
+ * 	1-) There is an infinite number of possible headers and just implementing a few of them is not good as most
+ * 	of the possible headers would not have this functionality and it is impossible to extend it for even most of the headers.
+ * 	2-) There is no natural or elegant way of saying that Age, for example, can only be between 0 and 127 (unless you restrict it to a byte)
+ * 	or that a phone number is restricted to 10 digits because, if you are referring to a rock's age, it will exceed 127 or if you
+ * 	are talking about international phone numbers, the number of digits vary widely, for instance.
+ * 	3-) "Reasonableness" is context-dependent, so it is up to the user to determine what is reasonable. If he/she wants to find outliers, like a human being with more than 127 years,
+ * 	in his/her data, the user can simply use the "outlier()" filter (outlier("Age", 127), for example).
+ * 
+ * @author Luiz do Valle
+ *
+ */
+public class TSVPipeline {
+
+	/**
+	 * The TSVFilter containing the filters to be used in the pipeline
+	 */
+	private TSVFilter tsvFilter;
+	/**
+	 * The data types (String and long) found in the file in the order in whicg they were found
+	 * 0 for long and 1 for String
+	 * byte used because only the values of 0 and 1 are required and byte occupies the lowest memoru fo the
+	 * primitive numerical types
+	 */
+	private byte[] dataTypes;
+	
+	/**
+	 * The header fields in the order in which they were found
+	 */
+	private String[] headerFields;
+	
+	/**
+	 * The TSVReader used to stream the data
+	 */
+	private TSVReader reader;
+	/**
+	 * The columnar cache of the file, or null if the file has no up to date cache
+	 */
+	private ColumnarCache cache;
+	/**
+	 * The hash index used for an equality selection, or null if no selected column has a hash index
+	 */
+	private HashIndex index;
+	/**
+	 * The value looked up in the hash index, encoded as UTF-8
+	 */
+	private byte[] indexedValue;
+	/**
+	 * The block statistics of the file, or null if the file has no block statistics
+	 */
+	private ZoneMap zones;
+	/**
+	 * The TSVWriter used to stream records to the valid output file
+	 */
+	private TSVWriter wantedOutput;
+	
+	/**
+	 * The TSVWriter used to stream records to the invalid output file
+	 */
+	private TSVWriter invalidOutput;
+	
+	/**
+	 * The reference to the computation algorithm that is used as a plugin
+	 */
+	private Computation computer;
+	
+	/**
+	 * The reference to the selection algorithm that is used as a plugin
+	 */
+	private Selection selector;
+	
+	/**
+	 * The smallest range of the file worth processing in its own chunk in parallel mode (1 MB)
+	 */
+	private static final long MIN_CHUNK_SIZE = 1024 * 1024;
+	/**
+	 * The number of chunks created per thread in parallel mode, so threads that finish early can take more work
+	 */
+	private static final int CHUNKS_PER_THREAD = 4;
+	/**
+	 * The largest buffer used by the writers of the temporary files of a chunk (256 KB)
+	 */
+	private static final int MAX_CHUNK_BUFFER_SIZE = 256 * 1024;
+	/**
+	 * The number of records of the columnar cache handed to the plugins at a time
+	 */
+	private static final int CACHE_BLOCK_SIZE = 64 * 1024;
+	/**
+	 * The time in milliseconds follow() waits before looking for new lines once it has read all of them
+	 */
+	private static final long FOLLOW_POLL_INTERVAL = 100;
+	/**
+	 * The largest number of lines follow() processes before letting currentResult() in
+	 */
+	private static final int FOLLOW_BATCH_LINES = 64 * 1024;
+	
+	/**
+	 * Whether follow() should keep following the file, cleared by stop()
+	 */
+	private volatile boolean following;
+	
+	/**
+	 * The problems with the compute clauses already displayed to the user, as the plugins are created once per chunk
+	 */
+	private final Set<String> problemsReported = new HashSet<>();
+	/**
+	 * The number of computations the memory budget of the TSVFilter is shared between, one per chunk when the
+	 * file is processed in parallel
+	 */
+	private int memoryShares = 1;
+	
+	/**
+	 * Constructor for the class
+	 * @param tsvFilter
+	 */
+	public TSVPipeline(TSVFilter tsvFilter) {
+		
+		this.tsvFilter = tsvFilter;
+		
+	}
+	
+	/**
+	 * Method that reads the .tsv file specified in the tsvFilter TSVFilter, checks if it exists and whether it is formated correctly.
+	 * If either of the above conditions is not fulfilled, a message is displayed to the user indicating
+	 * this and the method stops.
+	 * If the file exists and the first two lines are valid, the method checks whether each subsequent record is valid.
+	 * If the record is not valid, the method outputs this record to the invalidOutput.tsv and informs the user at the end of execution
+	 * of the method. A record is not valid if a field is supposed to be a long, but cannot be converted to a long or if it is missing
+	 * a field.
+	 * If the record is valid, the method checks whether the record is wanted by the user. If it is, the record
+	 * is streamed to the output.tsv file.
+	 * A record is wanted if the target field specified in the TSVFilter matches the record field under the 
+	 * TSVFilter's target header.
+	 * If the TSVFilter's specified header is the default value (empty String, ""), the method streams the whole
+	 * input file to the output file.
+	 * If the user specified a header, but no field in the TSVFilter, nothing is sent to the output file as there is no
+	 * way to determine a default field for an arbitrary header.
+	 * If no match between the TSVFilter's requirements and the records in the file are found, a message
+	 * telling this to the user is displayed.
+	 * 
+	 * At the end of execution the method also tells the user which data types (String and/or long) were found
+	 * The method only returns once everything has been written to the output files
+	 * The output files are output.tsv and invalid_output.tsv unless other paths were given to the TSVFilter, which can
+	 * also ask for them to be compressed with gzip or deflate
+	 * 
+	 * If the file was converted with ColumnarCache.build() and has not changed since, the selection and the computation
+	 * are done on the columns of the cache whenever they support it, and only the records to be output are read from the file
+	 * If one of the select clauses is an equality on a column indexed with HashIndex.build(), only the records found
+	 * in the index are read and checked, which takes priority over the columnar cache
+	 * If the file was summarized with ZoneMap.build(), the blocks in which no record can be wanted are skipped and,
+	 * when every valid record is wanted, the computations are done on the statistics of the blocks, whose bytes are
+	 * copied to the output file as they are
+	 * If the file is compressed with gzip, it is inflated on a dedicated thread while its records are handled. It is
+	 * then read as a whole in one chunk, and the columnar cache, the hash indexes and the block statistics are not used
+	 */
+	public void doit() {
+		
+		
+		File file = tsvFilter.getFile();
+		
+		if(!file.exists()) {
+			
+			System.out.println("The file does not exist in the given directory.");
+			return;
+		
+		} 
+			
+		if(!initializeReader(file)) {
+			
+			return;
+		}
+		
+		if(!reader.isCompressed()) {
+			
+			cache = ColumnarCache.open(file);
+			zones = ZoneMap.open(file);
+		}
+		
+		if(!initializeWriters()) {
+			
+			closeResources();
+			return;
+		}
+		
+		boolean streamed = false;
+		
+		try {
+			
+			streamed = streamRecords();
+			
+		} catch (IOException e) {
+			
+			System.out.println("Problem streaming the file: " + e.getMessage());
+		
+		} catch (UncheckedIOException e) {
+			
+			//Thrown by the computations that write their state to temporary files
+			System.out.println("Problem streaming the file: " + e.getCause().getMessage());
+			
+		} finally {
+			//Free resources, waiting for the writers to flush what is left
+			closeResources();
+		}
+		
+		if(streamed) {
+			
+			System.out.println("Done!");
+			System.out.println("Computation Result: " + computer.result());
+		}
+		
+		if(computer != null) {
+			
+			computer.close();
+		}
+	}
+	
+	/**
+	 * Method that follows the .tsv file specified in the tsvFilter TSVFilter as it grows, like the tail -F command
+	 * The header and type lines and the records already in the file are handled in the same way as in doit(). The method
+	 * then keeps waiting for new records, which are handled as soon as they are appended, until stop() is called
+	 * from another thread
+	 * Every reportInterval milliseconds, the output files are flushed and the current computation result is displayed,
+	 * and currentResult() can be called at any time, so the result is updated without reading the file again
+	 * 
+	 * If the file is rotated (truncated or replaced by a new file with the same name), the records left in the old
+	 * file are handled and the new file is followed from its start. Its header and type lines must be the same as
+	 * the ones of the first file, otherwise the method stops
+	 * The columnar cache, the hash indexes and the block statistics are not used, as they only describe the file
+	 * as it was when they were built
+	 * A file compressed with gzip cannot be followed, as the records appended to it cannot be told apart
+	 * @param reportInterval the time in milliseconds between two displayed results
+	 */
+	public void follow(long reportInterval) {
+		
+		File file = tsvFilter.getFile();
+		
+		if(!file.exists()) {
+			
+			System.out.println("The file does not exist in the given directory.");
+			return;
+		}
+		
+		TSVFollowReader followReader;
+		
+		try {
+			
+			if(TSVReader.isCompressed(file)) {
+				
+				System.out.println("A compressed file cannot be followed.");
+				return;
+			}
+			
+			followReader = new TSVFollowReader(file);
+			
+		} catch (IOException e) {
+			
+			System.out.println("The file could not be opened.");
+			return;
+		}
+		
+		following = true;
+		boolean followed = false;
+		
+		try {
+			
+			if(initializeWriters()) {
+				
+				followed = followRecords(followReader, reportInterval);
+			}
+			
+		} catch (IOException e) {
+			
+			System.out.println("Problem following the file: " + e.getMessage());
+			
+		} catch (UncheckedIOException e) {
+			
+			System.out.println("Problem following the file: " + e.getCause().getMessage());
+			
+		} catch (InterruptedException e) {
+			
+			Thread.currentThread().interrupt();
+			
+		} finally {
+			
+			try {
+				
+				followReader.close();
+				
+			} catch (IOException e) {
+				
+				System.out.println("Problem closing the file: " + e.getMessage());
+			}
+			
+			closeResources();
+		}
+		
+		if(followed) {
+			
+			System.out.println("Done!");
+			System.out.println("Computation Result: " + currentResult());
+		}
+		
+		synchronized(this) {
+			
+			if(computer != null) {
+				
+				computer.close();
+			}
+		}
+	}
+	
+	/**
+	 * Method that makes follow() return once it has handled the records it is reading
+	 */
+	public void stop() {
+		
+		following = false;
+	}
+	
+	/**
+	 * Method that returns the result of the computation over the records handled so far
+	 * Can be called from another thread while follow() is running
+	 * @return the current result, or null if no record was handled yet
+	 */
+	public synchronized String currentResult() {
+		
+		return computer == null ? null : computer.result();
+	}
+	
+	/**
+	 * Method that validates the header and type lines of the followed file and then handles its records as they
+	 * are appended, as described in follow()
+	 * @param followReader the reader of the followed file
+	 * @param reportInterval the time in milliseconds between two displayed results
+	 * @return true if the records were followed, false if the header or type line were not valid
+	 * @throws IOException if the file cannot be read or the outputs cannot be written
+	 * @throws InterruptedException if the thread is interrupted while waiting for new lines
+	 */
+	private boolean followRecords(TSVFollowReader followReader, long reportInterval) throws IOException, InterruptedException {
+		
+		//Header line validation
+		String headerLine = waitForLine(followReader);
+		
+		if(headerLine == null) {
+			
+			return false;
+		}
+		
+		if(!isHeaderValid(headerLine)) {
+			
+			System.out.println("The file cannot be read because the header line is malformed");
+			return false;
+		}
+		
+		headerFields = extractFields(headerLine);
+		wantedOutput.writeLine(headerLine);
+		
+		//Type line validation
+		String typeLine = waitForLine(followReader);
+		
+		if(typeLine == null) {
+			
+			return false;
+		}
+		
+		if(!isTypeLineValid(typeLine)) {
+			
+			System.out.println("The file cannot be read because the type line is malformed");
+			return false;
+		}
+		
+		dataTypes = extractTypes(typeLine);
+		wantedOutput.writeLine(typeLine);
+		
+		Chunk chunk;
+		
+		synchronized(this) {
+			
+			selector = createSelector();
+			computer = createComputer();
+			chunk = new Chunk(selector, computer);
+		}
+		
+		ParsedRecord parsedRecord = new ParsedRecord();
+		long nextReport = System.currentTimeMillis() + reportInterval;
+		
+		while(following) {
+			
+			boolean handled = followLines(followReader, chunk, parsedRecord);
+			
+			if(!handled && followReader.hasRotated()) {
+				
+				//The end of the old file is handled before the new file
+				while(followLines(followReader, chunk, parsedRecord)) {
+					
+				}
+				
+				if(followReader.nextIncompleteLine()) {
+					
+					synchronized(this) {
+						
+						parsedRecord.parse(followReader.getLineBuffer(), 0, followReader.getLineLength());
+						chunk.processRecord(parsedRecord, wantedOutput, invalidOutput);
+					}
+				}
+				
+				followReader.reopen();
+				
+				if(!headerLine.equals(waitForLine(followReader)) || !typeLine.equals(waitForLine(followReader))) {
+					
+					if(following) {
+						
+						System.out.println("The rotated file cannot be followed because its header or type line changed");
+					}
+					
+					break;
+				}
+			}
+			
+			if(System.currentTimeMillis() >= nextReport) {
+				
+				wantedOutput.flush();
+				invalidOutput.flush();
+				System.out.println("Computation Result: " + currentResult());
+				nextReport = System.currentTimeMillis() + reportInterval;
+			}
+			
+			if(!handled) {
+				
+				Thread.sleep(FOLLOW_POLL_INTERVAL);
+			}
+		}
+		
+		//Display types found
+		displayTypesFound();
+		
+		if(chunk.invalidRecordFound) {
+			
+			System.out.println("Invalid records found. See " + tsvFilter.getInvalidOutputPath() + " file");
+		}
+		
+		if(!chunk.foundSomething) {
+			
+			System.out.println("No records matched your query.");
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Method that handles the complete lines available in the followed file, up to FOLLOW_BATCH_LINES of them
+	 * @param followReader the reader of the followed file
+	 * @param chunk the chunk holding the plugins
+	 * @param parsedRecord the parsed view reused for every record
+	 * @return true if any line was handled, false if there was no new complete line
+	 * @throws IOException if the file cannot be read or the outputs cannot be written
+	 */
+	private synchronized boolean followLines(TSVFollowReader followReader, Chunk chunk, ParsedRecord parsedRecord) throws IOException {
+		
+		int lines = 0;
+		
+		while(lines < FOLLOW_BATCH_LINES && followReader.nextLine()) {
+			
+			parsedRecord.parse(followReader.getLineBuffer(), 0, followReader.getLineLength());
+			chunk.processRecord(parsedRecord, wantedOutput, invalidOutput);
+			lines++;
+		}
+		
+		return lines > 0;
+	}
+	
+	/**
+	 * Method that waits until the followed file has a new complete line
+	 * @param followReader the reader of the followed file
+	 * @return the line, or null if stop() was called first
+	 * @throws IOException if the file cannot be read
+	 * @throws InterruptedException if the thread is interrupted while waiting
+	 */
+	private String waitForLine(TSVFollowReader followReader) throws IOException, InterruptedException {
+		
+		while(following) {
+			
+			if(followReader.nextLine()) {
+				
+				return followReader.getLineAsString();
+			}
+			
+			Thread.sleep(FOLLOW_POLL_INTERVAL);
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * Method that validates the header and type lines and then streams the records of the file,
+	 * as described in doit()
+	 * @return true if the records were streamed, false if the header or type line were not valid
+	 * @throws IOException if the file cannot be read or the outputs cannot be written
+	 */
+	private boolean streamRecords() throws IOException {
+		
+		//Header line validation
+		if(!reader.nextLine()) {
+			
+			System.out.println("The file cannot be read becuase the header line is missing");
+			return false;
+		}
+		
+		String headerLine = reader.getLineAsString();
+		
+		if(!isHeaderValid(headerLine)) {
+			
+			System.out.println("The file cannot be read because the header line is malformed");
+			return false;
+		}
+		
+		headerFields = extractFields(headerLine);
+		wantedOutput.writeLine(headerLine);
+		
+		//Type line validation
+		if(!reader.nextLine()) {
+			
+			System.out.println("The file cannot be read because the type line is missing");
+			return false;
+		}
+		
+		String typeLine = reader.getLineAsString();
+		
+		if(!isTypeLineValid(typeLine)) {
+			
+			System.out.println("The file cannot be read because the type line is malformed");
+			return false;
+		}
+		
+		dataTypes = extractTypes(typeLine);
+		wantedOutput.writeLine(typeLine);
+		
+		boolean foundSomething = false;
+		boolean invalidRecordFound = false;
+		
+		computer = createComputer();
+		selector = createSelector();
+		
+		int chunkCount = countChunks();
+		
+		index = reader.isCompressed() ? null : openIndex();
+		
+		if(index != null) {
+			
+			Chunk chunk = new Chunk(selector, computer);
+			chunk.streamIndexedRecords(reader, wantedOutput, invalidOutput);
+			foundSomething = chunk.foundSomething;
+			invalidRecordFound = chunk.invalidRecordFound;
+			
+		} else if(isCacheUsable()) {
+			
+			Chunk chunk = new Chunk(selector, computer);
+			chunk.streamCachedRecords(reader, wantedOutput, invalidOutput);
+			foundSomething = chunk.foundSomething;
+			invalidRecordFound = chunk.invalidRecordFound;
+			
+		} else if(isZoneMapUsable()) {
+			
+			Chunk chunk = new Chunk(selector, computer);
+			chunk.streamZonedRecords(wantedOutput, invalidOutput);
+			foundSomething = chunk.foundSomething;
+			invalidRecordFound = chunk.invalidRecordFound;
+			
+		} else if(chunkCount > 1) {
+			
+			//The computation created to choose how the file is streamed is replaced by the ones of the chunks
+			computer.close();
+			computer = null;
+			
+			List<Chunk> chunks = streamChunks(chunkCount);
+			//The partial results are merged in the order of the chunks in the file
+			computer = chunks.get(0).computer;
+			
+			for(int index = 0; index < chunks.size(); index++) {
+				
+				Chunk chunk = chunks.get(index);
+				
+				if(index > 0) {
+					
+					computer.merge(chunk.computer);
+				}
+				
+				foundSomething |= chunk.foundSomething;
+				invalidRecordFound |= chunk.invalidRecordFound;
+			}
+			
+		} else {
+			
+			Chunk chunk = new Chunk(selector, computer);
+			chunk.streamRecords(reader, wantedOutput, invalidOutput);
+			foundSomething = chunk.foundSomething;
+			invalidRecordFound = chunk.invalidRecordFound;
+		}
+		
+		//Display types found
+		displayTypesFound();
+		
+		if(invalidRecordFound) {
+			
+			System.out.println("Invalid records found. See " + tsvFilter.getInvalidOutputPath() + " file");
+		}
+		
+		if(!foundSomething) {
+			
+			System.out.println("No records matched your query.");
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Method that initializes the file reader
+	 * @param file file to be streamed
+	 * @return true if the file could be opened, false otherwise
+	 */
+	private boolean initializeReader(File file) {
+		
+		try {
+			
+			reader = new TSVReader(file);
+		
+		} catch (IOException e) {
+			
+			System.out.println("The file could not be opened.");
+			return false;
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Method that initializes the TSVWriters to be used to stream the data to the valid and invalid 
+	 * output files
+	 * @return true if both output files could be created, false otherwise
+	 */
+	private boolean initializeWriters() {
+		
+		int bufferSize = tsvFilter.getOutputBufferSize();
+		
+		try {
+			
+			OutputCompression compression = tsvFilter.getOutputCompression();
+			wantedOutput = new TSVWriter(tsvFilter.getOutputPath(), bufferSize, compression);
+			invalidOutput = new TSVWriter(tsvFilter.getInvalidOutputPath(), bufferSize, compression);
+			
+		} catch (IOException e) {
+			
+			System.out.println("Problem creating the output files");
+			return false;
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Method that closes the input file and the output files that were opened
+	 * Closing a TSVWriter waits until all of its buffers have been written
+	 */
+	private void closeResources() {
+		
+		try {
+			
+			if(reader != null) {
+				
+				reader.close();
+			}
+			
+			if(cache != null) {
+				
+				cache.close();
+			}
+			
+			if(index != null) {
+				
+				index.close();
+			}
+			
+			if(wantedOutput != null) {
+				
+				wantedOutput.close();
+			}
+			
+			if(invalidOutput != null) {
+				
+				invalidOutput.close();
+			}
+		
+		} catch (IOException e) {
+			
+			System.out.println("Problem closing the files: " + e.getMessage());
+		}
+	}
+	
+	/**
+	 * Method that checks whether the given header is valid
+	 * A header is valid if it is not empty and contains no empty fields
+	 * @param header the header to be checked
+	 * @return true if the header is valid, false otherwise
+	 */
+	private boolean isHeaderValid(String header) {
+		
+		String[] headerFields = extractFields(header);
+		
+		if (headerFields.length < 1) {
+			
+			return false;
+		}
+		
+		for(String headerField : headerFields) {
+			
+			if(headerField.length() < 1) {
+				
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Method that checks whether the type line is valid
+	 * A type line is valid if and only if it has the same number of fields as the header and
+	 * all of its fields are either "String" or "long"
+	 * @param typeLine the type line to be checked
+	 * @return true if the type line is valid, false otherwise
+	 */
+	private boolean isTypeLineValid(String typeLine) {
+		
+		String[] typeFields = typeLine.split("\t");
+		
+		if (typeFields.length != headerFields.length) {
+			
+			return false;
+		}
+		
+		for(String typeField : typeFields) {
+			
+			if (!typeField.equals("String") && !typeField.equals("long")) {
+				
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Method that checks whether a given record is valid
+	 * A record is valid is it contains the same number of fields as the header and
+	 * the values under long columns can be represented as longs
+	 * @param record the parsed record to be checked
+	 * @return true if the record is valid, false otherwise
+	 */
+	private boolean isRecordValid(ParsedRecord record) {
+		
+		int fieldCount = record.getFieldCount();
+		
+		if(fieldCount != headerFields.length) {
+			
+			return false;
+		}
+		
+		
+		for (int column = 0; column < fieldCount; column++) {
+			
+			byte columnType = dataTypes[column];
+			
+			if (columnType == 0 && !record.isLong(column)) {
+				
+				return false;
+				
+			}
+			
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Method that decides which Selector plugin to use based on what the user specified in the TSVFilter
+	 * The default is the normal selection with no header, which wants every record
+	 * When several select clauses were specified, they are combined in an AndSelection
+	 * A new instance is created on every call, so each chunk of the file can have its own
+	 * @return the Selection to be used
+	 */
+	private Selection createSelector() {
+		
+		List<SelectClause> clauses = tsvFilter.getSelectClauses();
+		
+		if(clauses.isEmpty()) {
+			
+			return new NormalSelection("", null, -1);
+		}
+		
+		if(clauses.size() == 1) {
+			
+			return createSelector(clauses.get(0));
+		}
+		
+		return new AndSelection(createSelectors(clauses));
+	}
+	
+	/**
+	 * Method that creates the Selector plugin for a single select clause, including the clauses it combines
+	 * @param clause the clause specified by the user
+	 * @return the Selection to be used for the clause
+	 */
+	private Selection createSelector(SelectClause clause) {
+		
+		Selection selector;
+		String targetHeader = clause.getHeader();
+		String targetField = clause.getField();
+		int targetColumn = findTargetColumn(targetHeader);
+		
+		switch(clause.getType()) {
+		
+			case NORMAL:
+				selector = new NormalSelection(targetHeader, targetField, targetColumn);
+				break;
+			case OUTLIER:
+				selector = new OutlierSelection(targetColumn, clause.getError());
+				break;
+			case KEYED_OUTLIER:
+				selector = createKeyedOutlierSelector(clause, targetColumn);
+				break;
+			case AND:
+				selector = new AndSelection(createSelectors(clause.getClauses()));
+				break;
+			case OR:
+				selector = new OrSelection(createSelectors(clause.getClauses()));
+				break;
+			case NOT:
+				selector = new NotSelection(createSelector(clause.getClauses().get(0)));
+				break;
+			default:
+				selector = new NormalSelection(targetHeader, targetField, targetColumn);
+		}
+		
+		return selector;
+	}
+	
+	/**
+	 * Method that creates the Selector plugin for a keyed outlier clause, in the difference mode or in the z-score mode
+	 * A clause whose headers do not exist or whose z-score parameters are out of range is displayed to the user and
+	 * selects no record
+	 * @param clause the clause specified by the user
+	 * @param targetColumn the column of the values
+	 * @return the Selection to be used for the clause
+	 */
+	private Selection createKeyedOutlierSelector(SelectClause clause, int targetColumn) {
+		
+		int keyColumn = findTargetColumn(clause.getKeyHeader());
+		double threshold = clause.getThreshold();
+		double smoothing = clause.getSmoothing();
+		long idleLimit = tsvFilter.getOutlierIdleLimit();
+		
+		if(targetColumn == -1 || keyColumn == -1) {
+			
+			reportProblem("The selection " + clause + " cannot be performed because the header does not exist");
+			return new NormalSelection(clause.getHeader(), null, -1);
+		}
+		
+		if(threshold == 0) {
+			
+			return new KeyedOutlierSelection(targetColumn, keyColumn, clause.getError(), idleLimit);
+		}
+		
+		if(!(threshold > 0) || !(smoothing > 0 && smoothing <= 1)) {
+			
+			reportProblem("The selection " + clause + " cannot be performed: the threshold must be greater than 0 and the smoothing between 0 and 1");
+			return new NormalSelection(clause.getHeader(), null, -1);
+		}
+		
+		return new KeyedOutlierSelection(targetColumn, keyColumn, threshold, smoothing, idleLimit);
+	}
+	
+	/**
+	 * Method that creates the Selector plugins for a list of select clauses
+	 * @param clauses the clauses specified by the user
+	 * @return the Selections to be used, in the same order
+	 */
+	private List<Selection> createSelectors(List<SelectClause> clauses) {
+		
+		List<Selection> selectors = new ArrayList<>();
+		
+		for(SelectClause clause : clauses) {
+			
+			selectors.add(createSelector(clause));
+		}
+		
+		return selectors;
+	}
+	
+	/**
+	 * Method that decides which Computer plugin to use based on what the user selected in the TSVFilter
+	 * When several compute clauses were specified, they are all combined in a CompositeComputation so
+	 * every selected record is handed to each of them
+	 * A new instance is created on every call, so each chunk of the file can have its own
+	 * @return the Computation to be performed
+	 */
+	private Computation createComputer() {
+		
+		List<ComputeClause> clauses = tsvFilter.getComputeClauses();
+		
+		if(!tsvFilter.getGroupHeaders().isEmpty()) {
+			
+			return createGroupComputer(clauses);
+		}
+		
+		if(clauses.isEmpty()) {
+			
+			return new NullComputation();
+		}
+		
+		if(clauses.size() == 1) {
+			
+			return createComputer(clauses.get(0));
+		}
+		
+		List<Computation> computations = new ArrayList<>();
+		List<String> labels = new ArrayList<>();
+		
+		for(ComputeClause clause : clauses) {
+			
+			computations.add(createComputer(clause));
+			labels.add(clause.toString());
+		}
+		
+		return new CompositeComputation(computations, labels);
+	}
+	
+	/**
+	 * Method that creates the Computer plugin that performs the compute clauses for each group of records
+	 * Groups keyed on a single long column use a LongGroupTable, any other key uses a BytesGroupTable, and both are
+	 * replaced by an OffHeapGroupTable once the number of groups goes past the threshold of the TSVFilter
+	 * The groups are written to temporary files once they would take more than the memory budget of the TSVFilter,
+	 * divided between the chunks when the file is processed in parallel
+	 * The clauses that cannot be performed per group are displayed to the user and skipped
+	 * @param clauses the clauses specified by the user, COUNT is performed if there is none
+	 * @return the Computation to be performed
+	 */
+	private Computation createGroupComputer(List<ComputeClause> clauses) {
+		
+		List<String> groupHeaders = tsvFilter.getGroupHeaders();
+		int[] groupColumns = new int[groupHeaders.size()];
+		
+		for(int index = 0; index < groupColumns.length; index++) {
+			
+			groupColumns[index] = findTargetColumn(groupHeaders.get(index));
+			
+			if(groupColumns[index] == -1) {
+				
+				reportProblem("The records cannot be grouped by " + groupHeaders.get(index) + " because the header does not exist");
+				return new NullComputation();
+			}
+		}
+		
+		if(clauses.isEmpty()) {
+			
+			clauses = Collections.singletonList(new ComputeClause("", Terminal.COUNT));
+		}
+		
+		List<Terminal> terminals = new ArrayList<>();
+		List<Integer> valueColumns = new ArrayList<>();
+		List<String> labels = new ArrayList<>();
+		
+		for(ComputeClause clause : clauses) {
+			
+			Terminal computation = clause.getComputation();
+			int valueColumn = computation == Terminal.COUNT ? -1 : findTargetColumn(clause.getHeader());
+			boolean supported = computation == Terminal.COUNT || computation == Terminal.SUM
+					|| computation == Terminal.MIN || computation == Terminal.MAX;
+			
+			if(!supported || clause.getWindow() != null || (computation != Terminal.COUNT && !isLongColumn(valueColumn))) {
+				
+				reportProblem("The computation " + clause + " cannot be performed per group: only COUNT, SUM, MIN and MAX on long columns can be grouped");
+				continue;
+			}
+			
+			terminals.add(computation);
+			valueColumns.add(valueColumn);
+			labels.add(clause.toString());
+		}
+		
+		if(terminals.isEmpty()) {
+			
+			return new NullComputation();
+		}
+		
+		boolean longKeys = groupColumns.length == 1 && isLongColumn(groupColumns[0]);
+		GroupTable table = longKeys ? new LongGroupTable(groupColumns[0], terminals.size()) : new BytesGroupTable(groupColumns, terminals.size());
+		GroupTable offHeapTable = new OffHeapGroupTable(longKeys, groupColumns, terminals.size());
+		
+		return new GroupByComputation(table, offHeapTable, tsvFilter.getOffHeapThreshold(), tsvFilter.getMemoryBudget() / memoryShares,
+				groupHeaders.toArray(new String[0]), terminals.toArray(new Terminal[0]), valueColumns.stream().mapToInt(Integer::intValue).toArray(), labels.toArray(new String[0]));
+	}
+	
+	/**
+	 * Method that creates the Computer plugin for a single compute clause
+	 * @param clause the clause specified by the user
+	 * @return the Computation to be performed for the clause
+	 */
+	private Computation createComputer(ComputeClause clause) {
+		
+		if(clause.getWindow() != null) {
+			
+			return createWindowedComputer(clause);
+		}
+		
+		Computation computer = null;
+		Terminal computation = clause.getComputation();
+		int targetColumn = findTargetColumn(clause.getHeader());
+		
+		switch(computation) {
+		
+			case ALLSAME:
+				computer = new AllSameComputation();
+				break;
+			case COUNT:
+				computer = new CountComputation();
+				break;
+			case MIN:
+				computer = isLongColumn(targetColumn) ? new LongMinComputation(targetColumn) : new MinComputation(targetColumn);
+				break;
+			case MAX:
+				computer = isLongColumn(targetColumn) ? new LongMaxComputation(targetColumn) : new MaxComputation(targetColumn);
+				break;
+			case SUM:
+				computer = new SumComputation(targetColumn);
+				break;
+			case FIRSTDIFF:
+				computer = new FirstDiffComputation(targetColumn);
+				break;
+			case DISTINCT_APPROX:
+				computer = new DistinctApproxComputation(targetColumn, (int) clause.getParameter(0, DistinctApproxComputation.DEFAULT_PRECISION));
+				break;
+			case QUANTILES:
+				computer = createQuantilesComputer(clause, targetColumn);
+				break;
+			case TOPK:
+				computer = new TopKComputation(targetColumn, (int) clause.getParameter(0, TopKComputation.DEFAULT_K),
+						(int) clause.getParameter(1, TopKComputation.DEFAULT_COUNTERS));
+				break;
+			case NULL:
+				computer = new NullComputation();
+		}
+		
+		return computer;
+	}
+	
+	/**
+	 * Method that creates the Computer plugin for a QUANTILES clause
+	 * The parameters of the clause are the quantiles requested, each one in [0, 1], optionally preceded by the
+	 * accuracy of the sketch, which is told apart by being larger than 1
+	 * If the clause cannot be performed, a message is displayed to the user and nothing is computed
+	 * @param clause the clause specified by the user
+	 * @param targetColumn the column of the header of the clause
+	 * @return the Computation to be performed for the clause
+	 */
+	private Computation createQuantilesComputer(ComputeClause clause, int targetColumn) {
+		
+		double[] parameters = clause.getParameters();
+		boolean hasAccuracy = parameters.length > 0 && parameters[0] > 1;
+		int accuracy = hasAccuracy ? (int) parameters[0] : QuantilesComputation.DEFAULT_ACCURACY;
+		double[] quantiles = Arrays.copyOfRange(parameters, hasAccuracy ? 1 : 0, parameters.length);
+		
+		if(quantiles.length == 0) {
+			
+			quantiles = QuantilesComputation.DEFAULT_QUANTILES;
+		}
+		
+		for(double quantile : quantiles) {
+			
+			if(!(quantile >= 0 && quantile <= 1)) {
+				
+				reportProblem("The computation " + clause + " cannot be performed: the quantiles must be between 0 and 1");
+				return new NullComputation();
+			}
+		}
+		
+		if(!isLongColumn(targetColumn)) {
+			
+			reportProblem("The computation " + clause + " cannot be performed: quantiles are only supported on long columns");
+			return new NullComputation();
+		}
+		
+		return new QuantilesComputation(targetColumn, accuracy, quantiles);
+	}
+	
+	/**
+	 * Method that creates the Computer plugin for a compute clause performed over windows of the records
+	 * If the clause cannot be performed over windows, a message is displayed to the user and nothing is computed
+	 * @param clause the clause specified by the user, with its windows
+	 * @return the Computation to be performed for the clause
+	 */
+	private Computation createWindowedComputer(ComputeClause clause) {
+		
+		Terminal computation = clause.getComputation();
+		WindowClause window = clause.getWindow();
+		int valueColumn = computation == Terminal.COUNT ? -1 : findTargetColumn(clause.getHeader());
+		int keyColumn = findTargetColumn(window.getKeyHeader());
+		
+		boolean supported = computation == Terminal.COUNT || computation == Terminal.SUM
+				|| computation == Terminal.MIN || computation == Terminal.MAX;
+		
+		if(!supported || (computation != Terminal.COUNT && !isLongColumn(valueColumn))
+				|| (!window.getKeyHeader().equals("") && !isLongColumn(keyColumn))) {
+			
+			reportProblem("The computation " + clause + " cannot be performed: windows only support COUNT, SUM, MIN and MAX on long columns, keyed on a long column");
+			return new NullComputation();
+		}
+		
+		return new WindowedComputation(computation, valueColumn, keyColumn, window, clause.toString(), System.out::println);
+	}
+	
+	/**
+	 * Method that displays a problem with a compute clause to the user, unless it was already displayed
+	 * @param message the problem
+	 */
+	private void reportProblem(String message) {
+		
+		if(problemsReported.add(message)) {
+			
+			System.out.println(message);
+		}
+	}
+	
+	/**
+	 * Method that decides in how many chunks the records of the file are processed
+	 * Only one chunk is used unless the user asked for parallel processing, the selection does not depend
+	 * on previous records, the computation can be merged and the file is large enough to be worth splitting
+	 * A compressed file is always read in one chunk, as it can only be read forward
+	 * @return the number of chunks
+	 */
+	private int countChunks() {
+		
+		int threads = tsvFilter.getParallelism();
+		
+		if(threads <= 1 || reader.isCompressed() || !selector.isStateless() || !computer.isMergeable()) {
+			
+			return 1;
+		}
+		
+		long dataSize = reader.getRangeEnd() - reader.getPosition();
+		
+		return (int) Math.max(1, Math.min((long) threads * CHUNKS_PER_THREAD, dataSize / MIN_CHUNK_SIZE));
+	}
+	
+	/**
+	 * Method that looks for a select clause that can be answered by a hash index
+	 * The clause must be an equality on a column that was indexed, and the whole selection must not depend on
+	 * previous records, as only the records found in the index are checked
+	 * The value must also be selective, otherwise the whole file is read as usual
+	 * @return the index of the column of the clause, or null if there is no such clause
+	 * @throws IOException if the index cannot be read
+	 */
+	private HashIndex openIndex() throws IOException {
+		
+		if(!selector.isStateless()) {
+			
+			return null;
+		}
+		
+		for(SelectClause clause : tsvFilter.getSelectClauses()) {
+			
+			int column = findTargetColumn(clause.getHeader());
+			
+			if(clause.getType() != SelectionType.NORMAL || column == -1 || clause.getField() == null) {
+				
+				continue;
+			}
+			
+			HashIndex columnIndex = HashIndex.open(tsvFilter.getFile(), column);
+			
+			if(columnIndex == null) {
+				
+				continue;
+			}
+			
+			byte[] value = clause.getField().getBytes(StandardCharsets.UTF_8);
+			boolean selective = false;
+			
+			try {
+				
+				selective = columnIndex.isSelective(value);
+				
+			} finally {
+				
+				//Seeking to every record of a common value is slower than reading the whole file
+				if(!selective) {
+					
+					columnIndex.close();
+				}
+			}
+			
+			if(selective) {
+				
+				indexedValue = value;
+				return columnIndex;
+			}
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * Method that decides whether the records are streamed from the columnar cache
+	 * The cache is used when the file has an up to date cache with the same columns and both the selection
+	 * and the computation can be done on its columns
+	 * @return true if the cache should be used, false otherwise
+	 */
+	private boolean isCacheUsable() {
+		
+		return cache != null && cache.getColumnCount() == dataTypes.length
+				&& selector.isCacheable(cache) && computer.isCacheable(cache);
+	}
+	
+	/**
+	 * Method that decides whether the records are streamed block by block using the block statistics
+	 * The statistics are used when they have the same columns as the file, the selection does not depend on previous
+	 * records and they save some work: at least one block can either be skipped or, when every record is wanted
+	 * and the computation can be done on the statistics, be copied without being read
+	 * @return true if the block statistics should be used, false otherwise
+	 */
+	private boolean isZoneMapUsable() {
+		
+		if(zones == null || zones.getColumnCount() != dataTypes.length || !selector.isStateless()) {
+			
+			return false;
+		}
+		
+		boolean summarizable = isSummarizable();
+		
+		for(int block = 0; block < zones.getBlockCount(); block++) {
+			
+			if(isSkippable(block) || (summarizable && zones.isCopyable(block))) {
+				
+				return true;
+			}
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Method that tells whether the computation can be done on the block statistics, which requires every
+	 * valid record to be wanted
+	 * @return true if there is no select clause and the computation supports the statistics, false otherwise
+	 */
+	private boolean isSummarizable() {
+		
+		return tsvFilter.getSelectClauses().isEmpty() && computer.isSummarizable(zones);
+	}
+	
+	/**
+	 * Method that tells whether a block can be skipped without reading it
+	 * @param block the block
+	 * @return true if the block has no invalid records to be output and none of its records can be wanted
+	 */
+	private boolean isSkippable(int block) {
+		
+		return zones.getInvalidCount(block) == 0 && !selector.mayMatch(zones, block);
+	}
+	
+	/**
+	 * Method that splits the records of the file in ranges of lines and processes them on a ForkJoinPool
+	 * Each chunk writes its outputs to temporary files that are appended to the output files in the order of
+	 * the chunks, so the output is the same as in sequential processing
+	 * @param chunkCount the number of chunks
+	 * @return the chunks, in the order in which they appear in the file
+	 * @throws IOException if the file cannot be read or the outputs cannot be written
+	 */
+	private List<Chunk> streamChunks(int chunkCount) throws IOException {
+		
+		long dataStart = reader.getPosition();
+		long dataEnd = reader.getRangeEnd();
+		long chunkSize = (dataEnd - dataStart) / chunkCount;
+		
+		List<Chunk> chunks = new ArrayList<>();
+		long start = dataStart;
+		//Every chunk keeps its groups until the chunks are merged, so each one gets its share of the memory budget
+		memoryShares = chunkCount;
+		
+		for(int index = 1; index <= chunkCount; index++) {
+			
+			long end = index == chunkCount ? dataEnd : reader.findLineStart(dataStart + index * chunkSize);
+			
+			if(end > start) {
+				
+				chunks.add(new Chunk(start, end));
+				start = end;
+			}
+		}
+		
+		memoryShares = 1;
+		
+		ForkJoinPool pool = new ForkJoinPool(tsvFilter.getParallelism());
+		IOException failure = null;
+		
+		try {
+			
+			for(Chunk chunk : chunks) {
+				
+				pool.execute(chunk);
+			}
+			
+			//Every chunk is waited for, even after a failure, so no chunk is still writing to its temporary files
+			for(Chunk chunk : chunks) {
+				
+				chunk.join();
+				
+				if(failure == null) {
+					
+					failure = chunk.failure;
+				}
+				
+				if(failure == null) {
+					
+					wantedOutput.appendFile(chunk.wantedPart);
+					invalidOutput.appendFile(chunk.invalidPart);
+				}
+				
+				chunk.deleteParts();
+			}
+			
+		} finally {
+			
+			pool.shutdown();
+		}
+		
+		if(failure != null) {
+			
+			//No result will be asked for, so the computations of the chunks give back their temporary files
+			for(Chunk chunk : chunks) {
+				
+				chunk.computer.close();
+			}
+			
+			throw failure;
+		}
+		
+		return chunks;
+	}
+	
+	/**
+	 * Method that extracts the fields from the given line based
+	 * @param line the line from which the values should be extracted from
+	 * @return
+	 */
+	private String[] extractFields (String line) {
+		
+		return line.split("\t");
+	}
+	
+	/**
+	 * Method that extracts the types from the type line and converts them to 0 (long) or 1 (String)
+	 * @param typeLine the type line
+	 * @return array of bytes containing the converted data types
+	 */
+	private byte[] extractTypes(String typeLine) {
+		
+		String[] types = typeLine.split("\t");
+		
+		byte[] dataTypes = new byte[types.length];
+		
+		for(int column = 0; column < types.length; column++) {
+			
+			String type = types[column];
+			
+			if(type.equals("long")) {
+				
+				dataTypes[column] = 0;
+			
+			} else if (type.equals("String")) {
+				
+				dataTypes[column] = 1;
+			}
+		}
+		
+		return dataTypes;
+	}
+	
+	/**
+	 * Method that finds the column where the given header is
+	 * @param header the header from which the column is to be found
+	 * @return the column where the header is or -2 if it is not found
+	 */
+	private int findTargetColumn(String header) {
+		
+		for(int column = 0; column < headerFields.length; column++) {
+			
+			if(header.equals(headerFields[column])) {
+				
+				return column;
+			}
+		}
+		
+		return -1;
+	}
+	
+	/**
+	 * Method that checks whether the given column holds longs
+	 * @param column the column to be checked, or -1 if the header was not found
+	 * @return true if the column exists and its type is long, false otherwise
+	 */
+	private boolean isLongColumn(int column) {
+		
+		return column != -1 && dataTypes[column] == 0;
+	}
+	
+	/**
+	 * Method that displays the types in the dataTypes array to the user
+	 */
+	private void displayTypesFound() {
+		
+		boolean longFound = false;
+		boolean stringFound = false;
+		
+		for(byte type : dataTypes) {
+			
+			if(type == 0) {
+				
+				longFound = true;
+			
+			} else if (type == 1) {
+				
+				stringFound = true;
+			}
+		}
+		
+		if(longFound) {
+			
+			System.out.print("long ");
+		} 
+		
+		if(stringFound) {
+			
+			System.out.print("String ");
+		}
+		
+		System.out.println("fields found");
+	}
+	
+	
+	/**
+	 * Inner class that streams a range of the records of the file with its own selection and computation
+	 * In sequential mode a single chunk streams all the records straight to the output files, in parallel
+	 * mode each chunk runs on a ForkJoinPool worker and writes to its own temporary files
+	 * @author Luiz do Valle
+	 *
+	 */
+	private class Chunk extends RecursiveAction {
+		
+		private static final long serialVersionUID = 1L;
+		
+		/**
+		 * The position in the file where the chunk starts
+		 */
+		private long start;
+		/**
+		 * The position in the file where the chunk ends (exclusive)
+		 */
+		private long end;
+		/**
+		 * The selection used by this chunk
+		 */
+		private final Selection selector;
+		/**
+		 * The computation performed by this chunk
+		 */
+		private final Computation computer;
+		/**
+		 * The temporary file holding the wanted records of this chunk
+		 */
+		private Path wantedPart;
+		/**
+		 * The temporary file holding the invalid records of this chunk
+		 */
+		private Path invalidPart;
+		/**
+		 * Whether any record of this chunk was wanted
+		 */
+		private boolean foundSomething = false;
+		/**
+		 * Whether any record of this chunk was invalid
+		 */
+		private boolean invalidRecordFound = false;
+		/**
+		 * The problem found while streaming the chunk in parallel, or null if there was none
+		 */
+		private IOException failure;
+		
+		/**
+		 * Constructor of a chunk that streams the records with the given plugins
+		 * @param selector the selection to be used
+		 * @param computer the computation to be performed
+		 */
+		private Chunk(Selection selector, Computation computer) {
+			
+			this.selector = selector;
+			this.computer = computer;
+		}
+		
+		/**
+		 * Constructor of a chunk that streams a range of the file in parallel with its own plugins
+		 * @param start the position in the file where the first line of the chunk starts
+		 * @param end the position in the file where the chunk ends (exclusive)
+		 */
+		private Chunk(long start, long end) {
+			
+			this(createSelector(), createComputer());
+			this.start = start;
+			this.end = end;
+		}
+		
+		@Override
+		protected void compute() {
+			
+			//The parts are never compressed, they are compressed when they are appended to the output files
+			Path directory = Paths.get(tsvFilter.getOutputPath()).toAbsolutePath().getParent();
+			
+			try {
+				
+				wantedPart = Files.createTempFile(directory, "output", ".part");
+				invalidPart = Files.createTempFile(directory, "invalid_output", ".part");
+				
+				TSVReader chunkReader = new TSVReader(tsvFilter.getFile(), start, end, TSVReader.DEFAULT_WINDOW_SIZE);
+				int bufferSize = Math.min(tsvFilter.getOutputBufferSize(), MAX_CHUNK_BUFFER_SIZE);
+				TSVWriter chunkWanted = new TSVWriter(wantedPart.toString(), bufferSize);
+				TSVWriter chunkInvalid = new TSVWriter(invalidPart.toString(), bufferSize);
+				
+				try {
+					
+					streamRecords(chunkReader, chunkWanted, chunkInvalid);
+					
+				} finally {
+					
+					chunkReader.close();
+					chunkWanted.close();
+					chunkInvalid.close();
+				}
+				
+			} catch (IOException e) {
+				
+				failure = e;
+				
+			} catch (UncheckedIOException e) {
+				
+				failure = e.getCause();
+			}
+		}
+		
+		/**
+		 * Method that validates, selects and computes each record given by the reader, as described in doit()
+		 * @param reader the reader positioned at the first record of the chunk
+		 * @param wantedOutput the writer for the wanted records
+		 * @param invalidOutput the writer for the invalid records
+		 * @throws IOException if the file cannot be read or the outputs cannot be written
+		 */
+		private void streamRecords(TSVReader reader, TSVWriter wantedOutput, TSVWriter invalidOutput) throws IOException {
+			
+			//The same parsed view is reused for every record, so each line is split only once
+			ParsedRecord parsedRecord = new ParsedRecord();
+			
+			while(reader.nextLine()) {
+				
+				parsedRecord.parse(reader.getLineBuffer(), 0, reader.getLineLength());
+				processRecord(parsedRecord, wantedOutput, invalidOutput);
+			}
+		}
+		
+		/**
+		 * Method that validates, selects and computes a single record
+		 * @param parsedRecord the parsed record
+		 * @param wantedOutput the writer for the wanted records
+		 * @param invalidOutput the writer for the invalid records
+		 * @throws IOException if the outputs cannot be written
+		 */
+		private void processRecord(ParsedRecord parsedRecord, TSVWriter wantedOutput, TSVWriter invalidOutput) throws IOException {
+			
+			//Record validation
+			if(!isRecordValid(parsedRecord)) {
+				//Send to malformed file
+				invalidOutput.writeLine(parsedRecord.getBuffer(), parsedRecord.getLineStart(), parsedRecord.getLineEnd());
+				invalidRecordFound = true;
+				return;
+			}
+			
+			if(selector.isRecordWanted(parsedRecord)) {
+				//Stream to file
+				foundSomething = true;
+				computer.compute(parsedRecord);
+				wantedOutput.writeLine(parsedRecord.getBuffer(), parsedRecord.getLineStart(), parsedRecord.getLineEnd());
+			}
+		}
+		
+		/**
+		 * Method that streams the records using the columnar cache of the file instead of validating each record
+		 * The valid records are handed to the plugins in blocks and only the wanted ones are read from the file,
+		 * followed by the invalid records
+		 * @param reader the reader of the file
+		 * @param wantedOutput the writer for the wanted records
+		 * @param invalidOutput the writer for the invalid records
+		 * @throws IOException if the files cannot be read or the outputs cannot be written
+		 */
+		private void streamCachedRecords(TSVReader reader, TSVWriter wantedOutput, TSVWriter invalidOutput) throws IOException {
+			
+			int rowCount = cache.getRowCount();
+			int[] rows = new int[Math.min(CACHE_BLOCK_SIZE, rowCount)];
+			
+			for(int blockStart = 0; blockStart < rowCount; blockStart += rows.length) {
+				
+				int count = Math.min(rows.length, rowCount - blockStart);
+				
+				for(int index = 0; index < count; index++) {
+					
+					rows[index] = blockStart + index;
+				}
+				
+				count = selector.select(cache, rows, count);
+				
+				if(count == 0) {
+					
+					continue;
+				}
+				
+				foundSomething = true;
+				computer.compute(cache, rows, count);
+				
+				for(int index = 0; index < count; index++) {
+					
+					copyLine(reader, cache.getRowPosition(rows[index]), wantedOutput);
+				}
+			}
+			
+			for(int index = 0; index < cache.getInvalidCount(); index++) {
+				
+				copyLine(reader, cache.getInvalidPosition(index), invalidOutput);
+				invalidRecordFound = true;
+			}
+		}
+		
+		/**
+		 * Method that streams the records found in the hash index for the indexed value, followed by the invalid records
+		 * Only the records found are read from the file, and they are still validated and checked against the whole
+		 * selection, as the index can also find records with other values of the same hash
+		 * @param reader the reader of the file
+		 * @param wantedOutput the writer for the wanted records
+		 * @param invalidOutput the writer for the invalid records
+		 * @throws IOException if the files cannot be read or the outputs cannot be written
+		 */
+		private void streamIndexedRecords(TSVReader reader, TSVWriter wantedOutput, TSVWriter invalidOutput) throws IOException {
+			
+			ParsedRecord parsedRecord = new ParsedRecord();
+			HashIndex.Lookup lookup = index.lookup(indexedValue);
+			
+			while(lookup.next()) {
+				
+				reader.seek(lookup.getPosition());
+				
+				if(!reader.nextLine()) {
+					
+					continue;
+				}
+				
+				parsedRecord.parse(reader.getLineBuffer(), 0, reader.getLineLength());
+				
+				if(isRecordValid(parsedRecord) && selector.isRecordWanted(parsedRecord)) {
+					
+					foundSomething = true;
+					computer.compute(parsedRecord);
+					wantedOutput.writeLine(parsedRecord.getBuffer(), parsedRecord.getLineStart(), parsedRecord.getLineEnd());
+				}
+			}
+			
+			for(long invalid = 0; invalid < index.getInvalidCount(); invalid++) {
+				
+				copyLine(reader, index.getInvalidPosition(invalid), invalidOutput);
+				invalidRecordFound = true;
+			}
+		}
+		
+		/**
+		 * Method that streams the records block by block using the block statistics
+		 * The blocks that cannot hold wanted or invalid records are skipped. When the computation is done on the
+		 * statistics, the blocks with no invalid records are computed from their statistics and copied to the output
+		 * file without being read, and the other blocks are streamed record by record as usual
+		 * @param wantedOutput the writer for the wanted records
+		 * @param invalidOutput the writer for the invalid records
+		 * @throws IOException if the file cannot be read or the outputs cannot be written
+		 */
+		private void streamZonedRecords(TSVWriter wantedOutput, TSVWriter invalidOutput) throws IOException {
+			
+			File file = tsvFilter.getFile();
+			boolean summarizable = isSummarizable();
+			
+			for(int block = 0; block < zones.getBlockCount(); block++) {
+				
+				if(isSkippable(block)) {
+					
+					continue;
+				}
+				
+				long blockStart = zones.getStart(block);
+				long blockEnd = zones.getEnd(block);
+				
+				if(summarizable && zones.isCopyable(block)) {
+					
+					computer.compute(zones, block);
+					foundSomething |= zones.getValidCount(block) > 0;
+					wantedOutput.appendRange(file.toPath(), blockStart, blockEnd - blockStart);
+					continue;
+				}
+				
+				TSVReader blockReader = new TSVReader(file, blockStart, blockEnd, TSVReader.DEFAULT_WINDOW_SIZE);
+				
+				try {
+					
+					streamRecords(blockReader, wantedOutput, invalidOutput);
+					
+				} finally {
+					
+					blockReader.close();
+				}
+			}
+		}
+		
+		/**
+		 * Method that copies the line that starts at the given position of the file to an output file
+		 * @param reader the reader of the file
+		 * @param position the position in the file where the line starts
+		 * @param output the writer of the output file
+		 * @throws IOException if the file cannot be read or the output cannot be written
+		 */
+		private void copyLine(TSVReader reader, long position, TSVWriter output) throws IOException {
+			
+			reader.seek(position);
+			
+			if(reader.nextLine()) {
+				
+				output.writeLine(reader.getLineBuffer(), 0, reader.getLineLength());
+			}
+		}
+		
+		/**
+		 * Method that deletes the temporary files of the chunk
+		 */
+		private void deleteParts() {
+			
+			try {
+				
+				if(wantedPart != null) {
+					
+					Files.deleteIfExists(wantedPart);
+				}
+				
+				if(invalidPart != null) {
+					
+					Files.deleteIfExists(invalidPart);
+				}
+				
+			} catch (IOException e) {
+				
+				System.out.println("Problem deleting the temporary files: " + e.getMessage());
+			}
+		}
+	}
+}
@@ -0,0 +1,745 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Class that reads the lines of a file directly from its bytes, replacing the java.util.Scanner
+ * The file is memory mapped through a window that rolls forward as the file is read, so files larger than 2 GB
+ * (the limit of a single MappedByteBuffer) can be read as well
+ * The newline boundaries are found directly in the mapped window and each line is handed out as a slice
+ * of a reusable byte array, so no String is created per line
+ *
+ * Lines can end with the same separators as with the Scanner: "\n", "\r\n", "\r", or the UTF-8 encoding of U+2028,
+ * U+2029 or U+0085. The last line of the file does not need to end with a line separator
+ *
+ * A reader can also be limited to a range of the file, so several readers can stream different parts of the
+ * same file at the same time. The bounds of the range must be at the start of a line (see findLineStart())
+ *
+ * Files compressed with gzip are recognized by their first bytes, whatever their name. They are inflated by a
+ * GzipRing on a dedicated thread while the lines are read, and the positions are then the positions in the
+ * inflated data. A compressed file can only be read as a whole and forward, so seek() and findLineStart() are not
+ * supported for it
+ * @author Luiz do Valle
+ *
+ */
+public class TSVReader {
+
+	/**
+	 * The default size of the mapped window (64 MB)
+	 */
+	public static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+	/**
+	 * The initial size of the array that holds the current line
+	 */
+	private static final int INITIAL_LINE_CAPACITY = 8 * 1024;
+
+	/**
+	 * The size of the buffer used to look for the start of a line in findLineStart()
+	 */
+	private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * The bytes that can start a line separator, indexed by their unsigned value
+	 */
+	private static final boolean[] SEPARATOR_STARTS = new boolean[256];
+
+	static {
+
+		SEPARATOR_STARTS['\n'] = true;
+		SEPARATOR_STARTS['\r'] = true;
+		SEPARATOR_STARTS[0xc2] = true;
+		SEPARATOR_STARTS[0xe2] = true;
+	}
+
+	/**
+	 * The first two bytes of every gzip file
+	 */
+	private static final int GZIP_MAGIC = 0x1f8b;
+
+	/**
+	 * The channel used to map the file
+	 */
+	private final FileChannel channel;
+	/**
+	 * The size of the file in bytes
+	 */
+	private final long fileSize;
+	/**
+	 * The position in the file where the range being read starts
+	 */
+	private final long rangeStart;
+	/**
+	 * The position in the file where the range being read ends (exclusive)
+	 */
+	private final long rangeEnd;
+	/**
+	 * The preferred size of the mapped window
+	 */
+	private final int windowSize;
+	/**
+	 * The ring inflating a compressed file, or null if the file is not compressed
+	 */
+	private final GzipRing ring;
+	/**
+	 * The window of the file currently mapped
+	 */
+	private MappedByteBuffer window;
+	/**
+	 * The block of inflated bytes currently read, for a compressed file
+	 */
+	private GzipRing.Block block;
+	/**
+	 * The position in the file where the current window or block starts
+	 */
+	private long windowStart;
+	/**
+	 * The position in the window or block where the next line starts
+	 */
+	private int position;
+	/**
+	 * The array that holds the bytes of the current line
+	 */
+	private byte[] lineBuffer = new byte[INITIAL_LINE_CAPACITY];
+	/**
+	 * The number of bytes of the current line
+	 */
+	private int lineLength;
+	/**
+	 * The position in the file where the current line starts
+	 */
+	private long lineOffset;
+
+	/**
+	 * Constructor of the class that uses the default window size
+	 * @param file the file to be read
+	 * @throws IOException if the file cannot be opened
+	 */
+	public TSVReader(File file) throws IOException {
+
+		this(file, DEFAULT_WINDOW_SIZE);
+	}
+
+	/**
+	 * Constructor of the class
+	 * @param file the file to be read
+	 * @param windowSize the preferred size in bytes of the mapped window
+	 * @throws IOException if the file cannot be opened
+	 */
+	public TSVReader(File file, int windowSize) throws IOException {
+
+		this(file, 0, Long.MAX_VALUE, windowSize);
+	}
+
+	/**
+	 * Constructor of the class that only reads the lines that start in the given range of the file
+	 * A compressed file can only be read as a whole, from 0 to Long.MAX_VALUE
+	 * @param file the file to be read
+	 * @param start the position in the file where the first line of the range starts
+	 * @param end the position in the file where the range ends (exclusive), capped to the size of the file
+	 * @param windowSize the preferred size in bytes of the mapped window
+	 * @throws IOException if the file cannot be opened, or if a range of a compressed file is asked for
+	 */
+	public TSVReader(File file, long start, long end, int windowSize) throws IOException {
+
+		this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		this.fileSize = channel.size();
+		this.windowSize = windowSize;
+
+		if(isCompressed(channel)) {
+
+			if(start != 0 || end != Long.MAX_VALUE) {
+
+				channel.close();
+				throw new IOException("A compressed file can only be read as a whole");
+			}
+
+			//The size of the inflated data is only known once it is read
+			this.rangeStart = 0;
+			this.rangeEnd = Long.MAX_VALUE;
+			this.ring = new GzipRing(channel, file.getName());
+
+		} else {
+
+			this.rangeStart = Math.min(start, fileSize);
+			this.rangeEnd = Math.min(end, fileSize);
+			this.ring = null;
+		}
+	}
+
+	/**
+	 * Method that tells whether a file is compressed with gzip, from its first bytes
+	 * @param file the file
+	 * @return true if the file is compressed, false otherwise
+	 * @throws IOException if the file cannot be read
+	 */
+	public static boolean isCompressed(File file) throws IOException {
+
+		try (FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+
+			return isCompressed(fileChannel);
+		}
+	}
+
+	/**
+	 * Method that tells whether the file of a channel is compressed with gzip, without moving the channel
+	 * @param fileChannel the channel
+	 * @return true if the file starts with the gzip magic bytes, false otherwise
+	 * @throws IOException if the file cannot be read
+	 */
+	private static boolean isCompressed(FileChannel fileChannel) throws IOException {
+
+		ByteBuffer magic = ByteBuffer.allocate(2);
+
+		while(magic.hasRemaining() && fileChannel.read(magic, magic.position()) > 0) {
+
+			//Reads until both bytes are there or the file ends
+		}
+
+		return !magic.hasRemaining() && (magic.getShort(0) & 0xffff) == GZIP_MAGIC;
+	}
+
+	/**
+	 * Method that tells whether a byte can be the first byte of a line separator
+	 * The bytes are looked up in a table, so the bytes of the fields cost a single load and no unpredictable branch
+	 * @param value the byte
+	 * @return true if the byte is a line feed, a carriage return or the first byte of the UTF-8 encoding of U+2028,
+	 * U+2029 or U+0085, false otherwise
+	 */
+	public static boolean startsSeparator(byte value) {
+
+		return SEPARATOR_STARTS[value & 0xff];
+	}
+
+	/**
+	 * Method that measures the line separator that starts at an index of an array
+	 * @param bytes the array
+	 * @param index the index of the first byte, for which startsSeparator() is true
+	 * @param limit the index where the bytes available end (exclusive)
+	 * @param last whether no byte can follow the limit
+	 * @return the length of the separator, 0 if the bytes are not a separator, or -1 if the bytes up to the limit
+	 * could start a separator that ends after it
+	 */
+	public static int separatorLength(byte[] bytes, int index, int limit, boolean last) {
+
+		int available = limit - index;
+
+		return separatorLength(bytes[index], available > 1 ? bytes[index + 1] : 0, available > 2 ? bytes[index + 2] : 0,
+				available, last);
+	}
+
+	/**
+	 * Method that reads the next line of the file into the line buffer
+	 * @return true if a line was read, false if the end of the file was reached
+	 * @throws IOException if the file cannot be mapped, or if a line is too long to fit in a single mapped window
+	 */
+	public boolean nextLine() throws IOException {
+
+		if(ring != null) {
+
+			return nextInflatedLine();
+		}
+
+		if(window == null) {
+
+			if(rangeStart == rangeEnd) {
+
+				return false;
+			}
+
+			map(rangeStart, windowSize);
+		}
+
+		int scan = position;
+
+		while(true) {
+
+			int limit = window.limit();
+			boolean last = windowStart + limit >= rangeEnd;
+			int separator = 0;
+
+			while(true) {
+
+				while(scan < limit && !startsSeparator(window.get(scan))) {
+
+					scan++;
+				}
+
+				if(scan == limit || (separator = separatorLength(window, scan, limit, last)) != 0) {
+
+					break;
+				}
+
+				scan++;
+			}
+
+			if(separator > 0) {
+
+				//Found the separator, the next line starts right after it
+				copyLine(position, scan);
+				position = scan + separator;
+				return true;
+			}
+
+			if(last) {
+
+				if(position == limit) {
+
+					return false;
+				}
+
+				//Last line of the range without a line separator
+				copyLine(position, limit);
+				position = limit;
+				return true;
+			}
+
+			//The line continues past the window, or its separator might, so the window is moved to the start of the
+			//line and grown if the line alone does not fit in it, up to the largest size a single mapping can have
+			int partial = limit - position;
+			int resume = scan - position;
+			long size = Math.min(Integer.MAX_VALUE, Math.max((long) windowSize, partial * 2L));
+
+			if(size <= partial) {
+
+				throw new IOException("The line starting at position " + (windowStart + position)
+						+ " is longer than the largest window that can be mapped (" + Integer.MAX_VALUE + " bytes)");
+			}
+
+			map(windowStart + position, (int) size);
+			scan = resume;
+		}
+	}
+
+	/**
+	 * Accessor method for the bytes of the current line
+	 * Only the first getLineLength() bytes belong to the line and the array is reused by the next call to nextLine()
+	 * @return the array that holds the current line
+	 */
+	public byte[] getLineBuffer() {
+
+		return lineBuffer;
+	}
+
+	/**
+	 * Accessor method for the length of the current line
+	 * @return the number of bytes in the current line, without the line separator
+	 */
+	public int getLineLength() {
+
+		return lineLength;
+	}
+
+	/**
+	 * Accessor method for the position of the current line in the file
+	 * @return the position in the file where the current line starts
+	 */
+	public long getLineOffset() {
+
+		return lineOffset;
+	}
+
+	/**
+	 * Method that decodes the current line into a String
+	 * Only meant for the header and type lines, the records should be read through getLineBuffer()
+	 * @return the current line as a String
+	 */
+	public String getLineAsString() {
+
+		return new String(lineBuffer, 0, lineLength, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Accessor method for the position of the next line
+	 * @return the position in the file where the next line starts
+	 */
+	public long getPosition() {
+
+		if(ring != null) {
+
+			return windowStart + position;
+		}
+
+		if(window == null) {
+
+			return rangeStart;
+		}
+
+		return windowStart + position;
+	}
+
+	/**
+	 * Method that moves the reader to the given position, so the next call to nextLine() reads the line that starts there
+	 * The current window is kept if it already holds the position, so moving forward through the file only maps
+	 * each part of it once
+	 * @param position the position in the file where a line starts, within the range being read
+	 * @throws IOException if the file cannot be mapped
+	 * @throws UnsupportedOperationException if the file is compressed
+	 */
+	public void seek(long position) throws IOException {
+
+		checkNotCompressed();
+
+		if(window != null && position >= windowStart && position <= windowStart + window.limit()) {
+
+			this.position = (int) (position - windowStart);
+			return;
+		}
+
+		map(position, windowSize);
+	}
+
+	/**
+	 * Method that finds the first line that starts at or after the given position of the file
+	 * Used to split the file in ranges that do not cut lines in half
+	 * @param position the position in the file
+	 * @return the position where that line starts, or the end of the range if there is none
+	 * @throws IOException if the file cannot be read
+	 * @throws UnsupportedOperationException if the file is compressed
+	 */
+	public long findLineStart(long position) throws IOException {
+
+		checkNotCompressed();
+
+		if(position <= rangeStart) {
+
+			return rangeStart;
+		}
+
+		//A line starts at the position only if a line separator ends there. The longest separator has three bytes, so
+		//the search starts three bytes before the position, and skips the separators that end before it
+		byte[] scan = new byte[SCAN_BUFFER_SIZE];
+		long offset = Math.max(rangeStart, position - 3);
+
+		while(offset < rangeEnd) {
+
+			int read = channel.read(ByteBuffer.wrap(scan), offset);
+
+			if(read <= 0) {
+
+				break;
+			}
+
+			int limit = (int) Math.min(read, rangeEnd - offset);
+			boolean last = offset + limit >= rangeEnd;
+			int index = 0;
+
+			while(index < limit) {
+
+				int separator = startsSeparator(scan[index]) ? separatorLength(scan, index, limit, last) : 0;
+
+				if(separator < 0) {
+
+					//The separator may continue past the bytes read, so they are read again from its start
+					break;
+				}
+
+				if(separator > 0 && offset + index + separator >= position) {
+
+					return offset + index + separator;
+				}
+
+				index += Math.max(separator, 1);
+			}
+
+			offset += index;
+		}
+
+		return rangeEnd;
+	}
+
+	/**
+	 * Accessor method for the end of the range being read
+	 * @return the position in the file where the range ends (exclusive), Long.MAX_VALUE for a compressed file
+	 */
+	public long getRangeEnd() {
+
+		return rangeEnd;
+	}
+
+	/**
+	 * Accessor method for the size of the file
+	 * @return the size of the file in bytes, compressed if the file is compressed
+	 */
+	public long getFileSize() {
+
+		return fileSize;
+	}
+
+	/**
+	 * Method that tells whether the file is compressed with gzip
+	 * @return true if the file is inflated while it is read, false otherwise
+	 */
+	public boolean isCompressed() {
+
+		return ring != null;
+	}
+
+	/**
+	 * Method that closes the file
+	 * The mapped windows are released once they are garbage collected
+	 * @throws IOException if the file cannot be closed
+	 */
+	public void close() throws IOException {
+
+		window = null;
+
+		if(ring != null) {
+
+			ring.close();
+		}
+
+		channel.close();
+	}
+
+	/**
+	 * Method that reads the next line of a compressed file into the line buffer, taking the next blocks from the
+	 * ring when the line continues past the current one
+	 * @return true if a line was read, false if the end of the file was reached
+	 * @throws IOException if the file cannot be read or inflated
+	 */
+	private boolean nextInflatedLine() throws IOException {
+
+		lineLength = 0;
+		lineOffset = windowStart + position;
+		boolean started = false;
+		//The number of bytes at the end of the line buffer that may start a separator ending in the next block
+		int pending = 0;
+
+		while(true) {
+
+			if(block == null || position == block.getLength()) {
+
+				if(!nextBlock()) {
+
+					//Last line of the file without a line separator, or ending with a single carriage return
+					if(pending > 0 && lineBuffer[lineLength - pending] == '\r') {
+
+						lineLength -= pending;
+					}
+
+					return started;
+				}
+			}
+
+			byte[] bytes = block.getBytes();
+			int limit = block.getLength();
+			int scan = position;
+			int separator = 0;
+
+			if(pending > 0) {
+
+				//The separator is completed with the first bytes of this block, if they make one
+				byte[] candidate = Arrays.copyOfRange(lineBuffer, lineLength - pending, lineLength - pending + 3);
+				int copied = Math.min(3 - pending, limit - position);
+
+				System.arraycopy(bytes, position, candidate, pending, copied);
+				separator = separatorLength(candidate, 0, pending + copied, false);
+
+				if(separator > 0) {
+
+					lineLength -= pending;
+					position += separator - pending;
+					return true;
+				}
+
+				if(separator < 0) {
+
+					appendToLine(bytes, position, limit);
+					pending += limit - position;
+					position = limit;
+					continue;
+				}
+
+				pending = 0;
+			}
+
+			while(scan < limit) {
+
+				if(startsSeparator(bytes[scan]) && (separator = separatorLength(bytes, scan, limit, false)) != 0) {
+
+					break;
+				}
+
+				scan++;
+			}
+
+			started = true;
+
+			if(separator > 0) {
+
+				appendToLine(bytes, position, scan);
+				position = scan + separator;
+				return true;
+			}
+
+			//The line continues in the next block, and so may the separator found at its end
+			appendToLine(bytes, position, limit);
+			pending = separator < 0 ? limit - scan : 0;
+			position = limit;
+		}
+	}
+
+	/**
+	 * Method that gives the current block back to the ring and takes the next one
+	 * @return true if there is a next block, false if the whole file was read
+	 * @throws IOException if the file cannot be read or inflated
+	 */
+	private boolean nextBlock() throws IOException {
+
+		if(block != null) {
+
+			windowStart += block.getLength();
+			ring.release(block);
+		}
+
+		block = ring.take();
+		position = 0;
+		return block != null;
+	}
+
+	/**
+	 * Method that appends bytes to the line buffer, growing it if needed
+	 * @param bytes the array that holds the bytes
+	 * @param start the index where the bytes start
+	 * @param end the index where the bytes end (exclusive)
+	 */
+	private void appendToLine(byte[] bytes, int start, int end) {
+
+		int length = end - start;
+
+		if(lineLength + length > lineBuffer.length) {
+
+			lineBuffer = Arrays.copyOf(lineBuffer, Math.max(lineLength + length, lineBuffer.length * 2));
+		}
+
+		System.arraycopy(bytes, start, lineBuffer, lineLength, length);
+		lineLength += length;
+	}
+
+	/**
+	 * Method that stops the operations that need random access to the file when it is compressed
+	 * @throws UnsupportedOperationException if the file is compressed
+	 */
+	private void checkNotCompressed() {
+
+		if(ring != null) {
+
+			throw new UnsupportedOperationException("A compressed file can only be read forward");
+		}
+	}
+
+	/**
+	 * Method that maps a new window of the file
+	 * @param start the position in the file where the window starts
+	 * @param size the preferred size of the window
+	 * @throws IOException if the window cannot be mapped
+	 */
+	private void map(long start, int size) throws IOException {
+
+		long length = Math.min(size, rangeEnd - start);
+
+		window = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+		windowStart = start;
+		position = 0;
+	}
+
+	/**
+	 * Method that measures the line separator that starts at a position of the mapped window
+	 * @param bytes the window
+	 * @param index the position of the first byte, for which startsSeparator() is true
+	 * @param limit the position where the window ends (exclusive)
+	 * @param last whether the window reaches the end of the range
+	 * @return the length of the separator, 0 if the bytes are not a separator, or -1 if the bytes up to the limit
+	 * could start a separator that ends after it
+	 */
+	private static int separatorLength(ByteBuffer bytes, int index, int limit, boolean last) {
+
+		int available = limit - index;
+
+		return separatorLength(bytes.get(index), available > 1 ? bytes.get(index + 1) : 0,
+				available > 2 ? bytes.get(index + 2) : 0, available, last);
+	}
+
+	/**
+	 * Method that measures the line separator that starts with the given bytes
+	 * @param first the first byte
+	 * @param second the second byte, if there is one
+	 * @param third the third byte, if there is one
+	 * @param available the number of bytes available from the first one
+	 * @param last whether no byte can follow the ones available
+	 * @return the length of the separator, 0 if the bytes are not a separator, or -1 if the bytes available could
+	 * start a separator that ends after them
+	 */
+	private static int separatorLength(byte first, byte second, byte third, int available, boolean last) {
+
+		switch(first) {
+
+			case '\n':
+				return 1;
+
+			case '\r':
+				//A carriage return ends a line by itself, unless a line feed follows it
+				if(available < 2) {
+
+					return last ? 1 : -1;
+				}
+
+				return second == '\n' ? 2 : 1;
+
+			case (byte) 0xc2:
+				//U+0085 is encoded as C2 85
+				if(available < 2) {
+
+					return last ? 0 : -1;
+				}
+
+				return second == (byte) 0x85 ? 2 : 0;
+
+			case (byte) 0xe2:
+				//U+2028 and U+2029 are encoded as E2 80 A8 and E2 80 A9
+				if(available < 2) {
+
+					return last ? 0 : -1;
+				}
+
+				if(second != (byte) 0x80) {
+
+					return 0;
+				}
+
+				if(available < 3) {
+
+					return last ? 0 : -1;
+				}
+
+				return third == (byte) 0xa8 || third == (byte) 0xa9 ? 3 : 0;
+
+			default:
+				return 0;
+		}
+	}
+
+	/**
+	 * Method that copies a line from the window into the line buffer
+	 * @param start the position in the window where the line starts
+	 * @param end the position in the window where the line ends (exclusive), before its separator
+	 */
+	private void copyLine(int start, int end) {
+
+		lineLength = end - start;
+		lineOffset = windowStart + start;
+
+		if(lineLength > lineBuffer.length) {
+
+			lineBuffer = Arrays.copyOf(lineBuffer, Math.max(lineLength, lineBuffer.length * 2));
+		}
+
+		window.get(start, lineBuffer, 0, lineLength);
+	}
+}
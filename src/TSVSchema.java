@@ -0,0 +1,152 @@
+import java.io.IOException;
+
+/**
+ * Class that holds the header and the column types of a .tsv file and checks records against them
+ * in the same way as the TSVPipeline
+ * Used by the classes that convert a file into a sidecar file (ColumnarCache, HashIndex), so the sidecars
+ * agree with the pipeline on which records are valid
+ * @author Luiz do Valle
+ *
+ */
+public class TSVSchema {
+
+	/**
+	 * The header fields in the order in which they were found
+	 */
+	private final String[] headerFields;
+	/**
+	 * The type of each column, 0 for long and 1 for String
+	 */
+	private final byte[] dataTypes;
+
+	/**
+	 * Private constructor that is only to be used by read()
+	 * @param headerFields the header fields
+	 * @param dataTypes the type of each column
+	 */
+	private TSVSchema(String[] headerFields, byte[] dataTypes) {
+
+		this.headerFields = headerFields;
+		this.dataTypes = dataTypes;
+	}
+
+	/**
+	 * Method that reads and validates the header and type lines of a file
+	 * The header is valid if none of its fields is empty and the type line is valid if it has the same number
+	 * of fields as the header and all of them are either "String" or "long"
+	 * @param reader the reader positioned at the start of the file, left at the first record
+	 * @return the schema of the file, or null if either line is missing or malformed
+	 * @throws IOException if the file cannot be read
+	 */
+	public static TSVSchema read(TSVReader reader) throws IOException {
+
+		if(!reader.nextLine()) {
+
+			return null;
+		}
+
+		String[] headerFields = reader.getLineAsString().split("\t");
+
+		for(String headerField : headerFields) {
+
+			if(headerField.length() < 1) {
+
+				return null;
+			}
+		}
+
+		if(!reader.nextLine()) {
+
+			return null;
+		}
+
+		String[] types = reader.getLineAsString().split("\t");
+
+		if(types.length != headerFields.length) {
+
+			return null;
+		}
+
+		byte[] dataTypes = new byte[types.length];
+
+		for(int column = 0; column < types.length; column++) {
+
+			if(types[column].equals("long")) {
+
+				dataTypes[column] = 0;
+
+			} else if(types[column].equals("String")) {
+
+				dataTypes[column] = 1;
+
+			} else {
+
+				return null;
+			}
+		}
+
+		return new TSVSchema(headerFields, dataTypes);
+	}
+
+	/**
+	 * Method that checks whether a record is valid
+	 * A record is valid if it has the same number of fields as the header and the values under long columns
+	 * can be represented as longs
+	 * @param record the parsed record
+	 * @return true if the record is valid, false otherwise
+	 */
+	public boolean isRecordValid(ParsedRecord record) {
+
+		if(record.getFieldCount() != dataTypes.length) {
+
+			return false;
+		}
+
+		for(int column = 0; column < dataTypes.length; column++) {
+
+			if(dataTypes[column] == 0 && !record.isLong(column)) {
+
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Method that finds the column where the given header is
+	 * @param header the header
+	 * @return the column where the header is, or -1 if it is not found
+	 */
+	public int findColumn(String header) {
+
+		for(int column = 0; column < headerFields.length; column++) {
+
+			if(headerFields[column].equals(header)) {
+
+				return column;
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Accessor method for the number of columns
+	 * @return the number of columns
+	 */
+	public int getColumnCount() {
+
+		return dataTypes.length;
+	}
+
+	/**
+	 * Method that checks whether the given column holds longs
+	 * @param column the column
+	 * @return true if the type of the column is long, false if it is String
+	 */
+	public boolean isLongColumn(int column) {
+
+		return dataTypes[column] == 0;
+	}
+}
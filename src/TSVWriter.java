@@ -0,0 +1,558 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Class that streams lines to an output file using two buffers
+ * The lines are copied as raw bytes followed by "\n" into the current buffer, and once it is full a background
+ * thread writes it to the file while the next lines are copied into the other buffer, so the thread reading
+ * the input only waits on the disk when it fills a buffer before the previous one was written
+ *
+ * The output can also be compressed with gzip or deflate. Each full buffer is then compressed as an independent
+ * block by a pool of background threads shared by every writer, and the background thread writing the file writes
+ * the compressed blocks in order. A few more buffers are used so the thread reading the input keeps filling buffers
+ * while the previous ones are compressed, at most one more than the threads of the pool, so the memory used by a
+ * writer is bounded whatever the number of processors. With gzip each block is a gzip member of its own, and with
+ * deflate each block ends on a byte boundary and the stream is ended by close()
+ *
+ * Errors found by the background threads are reported by the next call to writeLine() or close()
+ * @author Luiz do Valle
+ *
+ */
+public class TSVWriter {
+
+	/**
+	 * The default size of each of the two buffers (4 MB)
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 4 * 1024 * 1024;
+
+	/**
+	 * The line separator written after every line
+	 */
+	private static final byte NEW_LINE = '\n';
+	/**
+	 * The size of the buffers used by the compressors
+	 */
+	private static final int COMPRESSION_BUFFER_SIZE = 64 * 1024;
+	/**
+	 * The compression level, the fastest one as it compresses about ten times faster than the default level for files
+	 * only slightly larger
+	 */
+	private static final int COMPRESSION_LEVEL = Deflater.BEST_SPEED;
+	/**
+	 * The largest number of threads compressing blocks, whatever the number of processors
+	 */
+	private static final int MAX_COMPRESSION_THREADS = 8;
+	/**
+	 * The number of threads compressing blocks
+	 */
+	private static final int COMPRESSION_THREADS = Math.max(1, Math.min(MAX_COMPRESSION_THREADS, Runtime.getRuntime().availableProcessors()));
+	/**
+	 * The threads that compress the full buffers of every compressed output
+	 * They are daemon threads, so the pool is never shut down
+	 */
+	private static final ExecutorService COMPRESSOR = Executors.newFixedThreadPool(COMPRESSION_THREADS, runnable -> {
+
+		Thread thread = new Thread(runnable, "TSVWriter compressor");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/**
+	 * The channel used to write to the file
+	 */
+	private final FileChannel channel;
+	/**
+	 * The thread that writes the full buffers to the file
+	 */
+	private final ExecutorService flusher;
+	/**
+	 * The compression of the output
+	 */
+	private final OutputCompression compression;
+	/**
+	 * The number of buffers that can be waiting to be compressed or written at the same time
+	 */
+	private final int maxPendingFlushes;
+	/**
+	 * The buffer currently being filled
+	 */
+	private byte[] currentBuffer;
+	/**
+	 * The buffers free to be filled next
+	 */
+	private final ArrayDeque<byte[]> freeBuffers = new ArrayDeque<>();
+	/**
+	 * The buffers being compressed or written by the background threads, in the order they were filled
+	 */
+	private final ArrayDeque<byte[]> flushingBuffers = new ArrayDeque<>();
+	/**
+	 * The writes being done by the background threads, in the same order as flushingBuffers
+	 */
+	private final ArrayDeque<Future<?>> pendingFlushes = new ArrayDeque<>();
+	/**
+	 * The number of bytes in the current buffer
+	 */
+	private int position;
+	/**
+	 * The number of buffers handed to the background threads so far
+	 */
+	private long blockCount;
+
+	/**
+	 * Constructor of the class that uses the default buffer size
+	 * @param path the path of the output file
+	 * @throws IOException if the file cannot be created
+	 */
+	public TSVWriter(String path) throws IOException {
+
+		this(path, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Constructor of the class for an output that is not compressed
+	 * The file is created, or emptied if it already exists
+	 * @param path the path of the output file
+	 * @param bufferSize the size in bytes of each of the two buffers
+	 * @throws IOException if the file cannot be created
+	 */
+	public TSVWriter(String path, int bufferSize) throws IOException {
+
+		this(path, bufferSize, OutputCompression.NONE);
+	}
+
+	/**
+	 * Constructor of the class
+	 * The file is created, or emptied if it already exists
+	 * @param path the path of the output file
+	 * @param bufferSize the size in bytes of each buffer, which is also the size of the compressed blocks
+	 * @param compression the compression of the output
+	 * @throws IOException if the file cannot be created
+	 */
+	public TSVWriter(String path, int bufferSize, OutputCompression compression) throws IOException {
+
+		this.channel = FileChannel.open(Paths.get(path), StandardOpenOption.WRITE,
+				StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+		this.compression = compression;
+		this.currentBuffer = new byte[bufferSize];
+		this.flusher = Executors.newSingleThreadExecutor(runnable -> {
+
+			Thread thread = new Thread(runnable, "TSVWriter " + path);
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		//One more block than threads, so a block can wait to be written while every thread compresses another one
+		this.maxPendingFlushes = compression == OutputCompression.NONE ? 1 : COMPRESSION_THREADS + 1;
+	}
+
+	/**
+	 * Method that writes the line found in the given region of the buffer followed by "\n"
+	 * @param buffer the buffer that holds the line
+	 * @param start the index where the line starts
+	 * @param end the index where the line ends (exclusive)
+	 * @throws IOException if a previous write to the file failed
+	 */
+	public void writeLine(byte[] buffer, int start, int end) throws IOException {
+
+		int length = end - start;
+
+		if(position + length + 1 > currentBuffer.length) {
+
+			if(position > 0) {
+
+				swapBuffers();
+			}
+
+			if(length + 1 > currentBuffer.length) {
+
+				if(compression == OutputCompression.NONE) {
+
+					//The line does not fit in a buffer, so it is written directly once the previous buffers are done
+					waitForFlushes();
+					writeFully(ByteBuffer.wrap(buffer, start, length));
+					writeFully(ByteBuffer.wrap(new byte[] {NEW_LINE}));
+
+				} else {
+
+					//A compressed line goes through the buffers in pieces, as the blocks must be written in order
+					writeBytes(buffer, start, length);
+					writeBytes(new byte[] {NEW_LINE}, 0, 1);
+				}
+
+				return;
+			}
+		}
+
+		System.arraycopy(buffer, start, currentBuffer, position, length);
+		position += length;
+		currentBuffer[position++] = NEW_LINE;
+	}
+
+	/**
+	 * Method that writes the given String encoded as UTF-8 followed by "\n"
+	 * Only meant for the header and type lines, the records should be written as bytes
+	 * @param line the line to be written
+	 * @throws IOException if a previous write to the file failed
+	 */
+	public void writeLine(String line) throws IOException {
+
+		byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+
+		writeLine(bytes, 0, bytes.length);
+	}
+
+	/**
+	 * Method that appends the whole contents of another file after the lines written so far
+	 * The bytes are transferred between the channels without going through the buffers, unless the output is compressed
+	 * @param path the path of the file to be appended
+	 * @throws IOException if either file cannot be read or written
+	 */
+	public void appendFile(Path path) throws IOException {
+
+		appendRange(path, 0, Files.size(path));
+	}
+
+	/**
+	 * Method that appends a range of the bytes of another file after the lines written so far
+	 * The bytes are transferred between the channels without going through the buffers, unless the output is
+	 * compressed, in which case they are read into the buffers to be compressed like the lines
+	 * @param path the path of the file that holds the bytes
+	 * @param start the position in the file where the range starts
+	 * @param length the number of bytes to be appended
+	 * @throws IOException if either file cannot be read or written
+	 */
+	public void appendRange(Path path, long start, long length) throws IOException {
+
+		if(compression != OutputCompression.NONE) {
+
+			readRange(path, start, length);
+			return;
+		}
+
+		if(position > 0) {
+
+			swapBuffers();
+		}
+
+		waitForFlushes();
+
+		try (FileChannel source = FileChannel.open(path, StandardOpenOption.READ)) {
+
+			long copied = 0;
+
+			while(copied < length) {
+
+				copied += source.transferTo(start + copied, length - copied, channel);
+			}
+		}
+	}
+
+	/**
+	 * Method that writes the lines written so far to the file and waits until they are written
+	 * A compressed output can be read up to this point, except that a deflate stream is only ended by close()
+	 * @throws IOException if the file cannot be written
+	 */
+	public void flush() throws IOException {
+
+		if(position > 0) {
+
+			swapBuffers();
+		}
+
+		waitForFlushes();
+	}
+
+	/**
+	 * Method that writes what is left in the buffers, waits for the background threads to finish and closes the file
+	 * @throws IOException if the file cannot be written or closed
+	 */
+	public void close() throws IOException {
+
+		try {
+
+			//An empty gzip output still needs one member to be a valid gzip file
+			if(position > 0 || (compression == OutputCompression.GZIP && blockCount == 0)) {
+
+				swapBuffers();
+			}
+
+			waitForFlushes();
+
+			if(compression == OutputCompression.DEFLATE) {
+
+				writeFully(ByteBuffer.wrap(endDeflateStream()));
+			}
+
+		} finally {
+
+			flusher.shutdown();
+			channel.close();
+		}
+	}
+
+	/**
+	 * Method that copies bytes into the buffers, handing each buffer to the background threads once it is full
+	 * @param bytes the array that holds the bytes
+	 * @param start the index where the bytes start
+	 * @param length the number of bytes
+	 * @throws IOException if a previous write to the file failed
+	 */
+	private void writeBytes(byte[] bytes, int start, int length) throws IOException {
+
+		int copied = 0;
+
+		while(copied < length) {
+
+			if(position == currentBuffer.length) {
+
+				swapBuffers();
+			}
+
+			int piece = Math.min(length - copied, currentBuffer.length - position);
+
+			System.arraycopy(bytes, start + copied, currentBuffer, position, piece);
+			position += piece;
+			copied += piece;
+		}
+	}
+
+	/**
+	 * Method that reads a range of the bytes of another file into the buffers, handing each buffer to the background
+	 * threads once it is full
+	 * @param path the path of the file that holds the bytes
+	 * @param start the position in the file where the range starts
+	 * @param length the number of bytes to be read
+	 * @throws IOException if either file cannot be read or written, or if the file ends before the range
+	 */
+	private void readRange(Path path, long start, long length) throws IOException {
+
+		try (FileChannel source = FileChannel.open(path, StandardOpenOption.READ)) {
+
+			long copied = 0;
+
+			while(copied < length) {
+
+				if(position == currentBuffer.length) {
+
+					swapBuffers();
+				}
+
+				int piece = (int) Math.min(length - copied, currentBuffer.length - position);
+				int read = source.read(ByteBuffer.wrap(currentBuffer, position, piece), start + copied);
+
+				if(read == -1) {
+
+					throw new IOException("The file " + path + " ended before the range to be appended");
+				}
+
+				position += read;
+				copied += read;
+			}
+		}
+	}
+
+	/**
+	 * Method that hands the current buffer to the background threads and starts filling a free one
+	 * The method only waits when every buffer is already being compressed or written
+	 * @throws IOException if a previous write to the file failed
+	 */
+	private void swapBuffers() throws IOException {
+
+		if(pendingFlushes.size() == maxPendingFlushes) {
+
+			waitForOldestFlush();
+		}
+
+		byte[] fullBuffer = currentBuffer;
+		int length = position;
+
+		currentBuffer = freeBuffers.isEmpty() ? new byte[fullBuffer.length] : freeBuffers.poll();
+		position = 0;
+
+		Future<?> flush;
+
+		if(compression == OutputCompression.NONE) {
+
+			flush = flusher.submit(() -> {
+
+				writeFully(ByteBuffer.wrap(fullBuffer, 0, length));
+				return null;
+			});
+
+		} else {
+
+			Future<byte[]> block = COMPRESSOR.submit(() -> compress(fullBuffer, length));
+
+			//The blocks are compressed at the same time but written in the order they were filled
+			flush = flusher.submit(() -> {
+
+				try {
+
+					writeFully(ByteBuffer.wrap(block.get()));
+
+				} catch (ExecutionException e) {
+
+					throw new IOException("Problem compressing the output", e.getCause());
+				}
+
+				return null;
+			});
+		}
+
+		flushingBuffers.add(fullBuffer);
+		pendingFlushes.add(flush);
+		blockCount++;
+	}
+
+	/**
+	 * Method that waits for the background threads to finish writing every buffer handed to them
+	 * @throws IOException if a write failed or the wait was interrupted
+	 */
+	private void waitForFlushes() throws IOException {
+
+		while(!pendingFlushes.isEmpty()) {
+
+			waitForOldestFlush();
+		}
+	}
+
+	/**
+	 * Method that waits for the background threads to finish writing the oldest buffer handed to them, which is then
+	 * free to be filled again
+	 * @throws IOException if the write failed or the wait was interrupted
+	 */
+	private void waitForOldestFlush() throws IOException {
+
+		Future<?> pendingFlush = pendingFlushes.poll();
+
+		try {
+
+			pendingFlush.get();
+
+		} catch (InterruptedException e) {
+
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for the output to be written", e);
+
+		} catch (ExecutionException e) {
+
+			throw new IOException("Problem writing the output", e.getCause());
+
+		} finally {
+
+			freeBuffers.add(flushingBuffers.poll());
+		}
+	}
+
+	/**
+	 * Method run by the compressing threads that compresses a buffer as an independent block
+	 * @param buffer the buffer that holds the bytes
+	 * @param length the number of bytes in the buffer
+	 * @return the compressed block
+	 * @throws IOException if the bytes cannot be compressed
+	 */
+	private byte[] compress(byte[] buffer, int length) throws IOException {
+
+		ByteArrayOutputStream block = new ByteArrayOutputStream(length / 4 + 64);
+
+		if(compression == OutputCompression.GZIP) {
+
+			try (GzipBlockStream output = new GzipBlockStream(block)) {
+
+				output.write(buffer, 0, length);
+			}
+
+		} else {
+
+			Deflater deflater = new Deflater(COMPRESSION_LEVEL, true);
+
+			try {
+
+				DeflaterOutputStream output = new DeflaterOutputStream(block, deflater, COMPRESSION_BUFFER_SIZE, true);
+				output.write(buffer, 0, length);
+
+				//A sync flush ends the block on a byte boundary without ending the stream, so the next block can follow
+				output.flush();
+
+			} finally {
+
+				deflater.end();
+			}
+		}
+
+		return block.toByteArray();
+	}
+
+	/**
+	 * Method that creates the last block of a deflate stream, which holds no bytes and marks the end of the stream
+	 * @return the last block
+	 */
+	private static byte[] endDeflateStream() {
+
+		Deflater deflater = new Deflater(COMPRESSION_LEVEL, true);
+
+		try {
+
+			deflater.finish();
+
+			byte[] block = new byte[64];
+			int length = deflater.deflate(block);
+
+			return Arrays.copyOf(block, length);
+
+		} finally {
+
+			deflater.end();
+		}
+	}
+
+	/**
+	 * Method that writes all the remaining bytes of the given buffer to the file
+	 * @param buffer the bytes to be written
+	 * @throws IOException if the file cannot be written
+	 */
+	private void writeFully(ByteBuffer buffer) throws IOException {
+
+		while(buffer.hasRemaining()) {
+
+			channel.write(buffer);
+		}
+	}
+
+	/**
+	 * Inner static class that writes a gzip member at the compression level of the writer, which GZIPOutputStream
+	 * only lets its subclasses change
+	 * @author Luiz do Valle
+	 *
+	 */
+	private static class GzipBlockStream extends GZIPOutputStream {
+
+		/**
+		 * Constructor of the class
+		 * @param output the stream the compressed member is written to
+		 * @throws IOException if the gzip header cannot be written
+		 */
+		private GzipBlockStream(OutputStream output) throws IOException {
+
+			super(output, COMPRESSION_BUFFER_SIZE);
+			def.setLevel(COMPRESSION_LEVEL);
+		}
+	}
+}
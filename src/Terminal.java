@@ -1,10 +1,10 @@
-/**
- * Enum that represents the terminal computations
- * @author Luiz do Valle
- *
- */
-public enum Terminal {
-
-	ALLSAME, COUNT, MIN, MAX, SUM, FIRSTDIFF, NULL
-	
-}
+/**
+ * Enum that represents the terminal computations
+ * @author Luiz do Valle
+ *
+ */
+public enum Terminal {
+
+	ALLSAME, COUNT, MIN, MAX, SUM, FIRSTDIFF, DISTINCT_APPROX, QUANTILES, TOPK, NULL
+	
+}
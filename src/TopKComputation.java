@@ -0,0 +1,440 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Class that implements the Computation interface and performs the TOPK terminal computation
+ * Finds the most frequent values under the header specified by the user, on long and String columns alike
+ *
+ * The values are counted with the Space-Saving algorithm (Metwally, Agrawal and El Abbadi, 2005), which keeps a fixed
+ * number of counters whatever the number of different values. A value that has a counter adds one to it. Otherwise
+ * it takes over the counter with the smallest count, keeping that count as the error of its own count, since
+ * the value might have been seen that many times before. The count of each value reported is therefore never
+ * smaller than its true count and at most its error larger, and the error is never more than the number of values
+ * divided by the number of counters. Any value seen more often than that is sure to be kept
+ *
+ * The counters are found through an open addressing table keyed on the hash of the raw bytes of the fields, and
+ * the counter with the smallest count is kept at the top of a min-heap, so each record is counted in constant time
+ * (logarithmic when the heap must be reordered) without creating a String. The bytes of each value are kept in an
+ * array owned by its counter that is reused when the counter is taken over, so "7" and "07" are counted as
+ * different values in a long column
+ *
+ * Two computations are merged as described by Agarwal et al. (2012): the counts of the values kept by both are added,
+ * a value kept by only one of them is assumed to have the smallest count of the other, and the values with the
+ * largest counts are kept, so the computation can be used when the file is processed in parallel chunks
+ * If the header does not exist, nothing is counted and the class returns null
+ * @author Luiz do Valle
+ *
+ */
+public class TopKComputation implements Computation {
+
+	/**
+	 * The number of values reported when the user does not give one
+	 */
+	public static final int DEFAULT_K = 10;
+	/**
+	 * The number of counters used when the user does not give one
+	 */
+	public static final int DEFAULT_COUNTERS = 1024;
+
+	/**
+	 * The number of values reported
+	 */
+	private final int k;
+	/**
+	 * The number of counters, which is also the number of values kept
+	 */
+	private final int capacity;
+	/**
+	 * The bytes of the value of each counter, only the first keyLengths[counter] of them are used
+	 */
+	private final byte[][] keys;
+	/**
+	 * The number of bytes of the value of each counter
+	 */
+	private final int[] keyLengths;
+	/**
+	 * The hash of the value of each counter
+	 */
+	private final long[] hashes;
+	/**
+	 * The count of each counter, which is never smaller than the true count of its value
+	 */
+	private final long[] counts;
+	/**
+	 * The largest amount by which the count of each counter can exceed the true count of its value
+	 */
+	private final long[] errors;
+	/**
+	 * The counters ordered as a min-heap on their counts
+	 */
+	private final int[] heap;
+	/**
+	 * The position of each counter in the heap
+	 */
+	private final int[] heapPositions;
+	/**
+	 * The open addressing table of the counters, holding the counter plus one, or 0 for an empty slot
+	 */
+	private final int[] table;
+	/**
+	 * The number of counters in use
+	 */
+	private int size;
+	/**
+	 * The column whose most frequent values are counted, or -1 if the column does not exist
+	 */
+	private final int targetColumn;
+
+	/**
+	 * Constructor of the class with the default number of values and counters
+	 * @param column the column whose values are counted
+	 */
+	public TopKComputation(int column) {
+
+		this(column, DEFAULT_K, DEFAULT_COUNTERS);
+	}
+
+	/**
+	 * Constructor of the class
+	 * @param column the column whose values are counted
+	 * @param k the number of values reported, at least 1
+	 * @param counters the number of counters, raised to k if smaller
+	 */
+	public TopKComputation(int column, int k, int counters) {
+
+		this.targetColumn = column;
+		this.k = Math.max(1, k);
+		this.capacity = Math.max(this.k, counters);
+		this.keys = new byte[capacity][];
+		this.keyLengths = new int[capacity];
+		this.hashes = new long[capacity];
+		this.counts = new long[capacity];
+		this.errors = new long[capacity];
+		this.heap = new int[capacity];
+		this.heapPositions = new int[capacity];
+		//At most half of the table is used, so the probe sequences stay short
+		this.table = new int[Integer.highestOneBit(capacity) * 4];
+	}
+
+	@Override
+	public void compute(String record) {
+
+		compute(new ParsedRecord(record));
+	}
+
+	@Override
+	public void compute(ParsedRecord record) {
+
+		if(targetColumn == -1) {
+
+			return;
+		}
+
+		byte[] buffer = record.getBuffer();
+		int start = record.getFieldStart(targetColumn);
+		int end = record.getFieldEnd(targetColumn);
+		long hash = record.hashField(targetColumn);
+		int counter = find(buffer, start, end, hash);
+
+		if(counter != -1) {
+
+			counts[counter]++;
+			siftDown(heapPositions[counter]);
+			return;
+		}
+
+		long error = 0;
+
+		if(size < capacity) {
+
+			counter = size;
+			heap[size] = counter;
+			heapPositions[counter] = size;
+			size++;
+
+		} else {
+
+			//The value takes over the counter with the smallest count
+			counter = heap[0];
+			error = counts[counter];
+			remove(counter);
+		}
+
+		errors[counter] = error;
+		counts[counter] = error + 1;
+		setKey(counter, buffer, start, end, hash);
+		siftDown(heapPositions[counter]);
+		siftUp(heapPositions[counter]);
+	}
+
+	/**
+	 * Method that returns the most frequent values with their counts, such as "Bob = 2 (error 0), Maria = 1 (error 0)"
+	 * The true count of each value is between its count minus its error and its count
+	 * @return the most frequent values in decreasing order of count, or null if no value was counted
+	 */
+	@Override
+	public String result() {
+
+		if(size == 0) {
+
+			return null;
+		}
+
+		Integer[] counters = new Integer[size];
+
+		for(int counter = 0; counter < size; counter++) {
+
+			counters[counter] = counter;
+		}
+
+		Arrays.sort(counters, (first, second) -> counts[first] != counts[second] ? Long.compare(counts[second], counts[first])
+				: Arrays.compareUnsigned(keys[first], 0, keyLengths[first], keys[second], 0, keyLengths[second]));
+
+		StringBuilder result = new StringBuilder();
+
+		for(int index = 0; index < Math.min(k, size); index++) {
+
+			int counter = counters[index];
+			String value = new String(keys[counter], 0, keyLengths[counter], StandardCharsets.UTF_8);
+
+			result.append((index > 0 ? ", " : "") + value + " = " + counts[counter] + " (error " + errors[counter] + ")");
+		}
+
+		return result.toString();
+	}
+
+	@Override
+	public boolean isMergeable() {
+
+		return true;
+	}
+
+	@Override
+	public void merge(Computation other) {
+
+		TopKComputation otherTop = (TopKComputation) other;
+		long smallest = size == capacity ? counts[heap[0]] : 0;
+		long otherSmallest = otherTop.size == otherTop.capacity ? otherTop.counts[otherTop.heap[0]] : 0;
+
+		int candidateCount = size + otherTop.size;
+		byte[][] candidateKeys = new byte[candidateCount][];
+		long[] candidateHashes = new long[candidateCount];
+		long[] candidateCounts = new long[candidateCount];
+		long[] candidateErrors = new long[candidateCount];
+		int candidates = 0;
+
+		for(int counter = 0; counter < size; counter++) {
+
+			byte[] key = Arrays.copyOf(keys[counter], keyLengths[counter]);
+			int otherCounter = otherTop.find(key, 0, key.length, hashes[counter]);
+
+			candidateKeys[candidates] = key;
+			candidateHashes[candidates] = hashes[counter];
+			candidateCounts[candidates] = counts[counter] + (otherCounter == -1 ? otherSmallest : otherTop.counts[otherCounter]);
+			candidateErrors[candidates] = errors[counter] + (otherCounter == -1 ? otherSmallest : otherTop.errors[otherCounter]);
+			candidates++;
+		}
+
+		for(int otherCounter = 0; otherCounter < otherTop.size; otherCounter++) {
+
+			byte[] key = Arrays.copyOf(otherTop.keys[otherCounter], otherTop.keyLengths[otherCounter]);
+
+			if(find(key, 0, key.length, otherTop.hashes[otherCounter]) != -1) {
+
+				continue;
+			}
+
+			candidateKeys[candidates] = key;
+			candidateHashes[candidates] = otherTop.hashes[otherCounter];
+			candidateCounts[candidates] = otherTop.counts[otherCounter] + smallest;
+			candidateErrors[candidates] = otherTop.errors[otherCounter] + smallest;
+			candidates++;
+		}
+
+		//Only the candidates with the largest counts are kept
+		Integer[] order = new Integer[candidates];
+
+		for(int candidate = 0; candidate < candidates; candidate++) {
+
+			order[candidate] = candidate;
+		}
+
+		Arrays.sort(order, (first, second) -> Long.compare(candidateCounts[second], candidateCounts[first]));
+
+		Arrays.fill(table, 0);
+		size = 0;
+
+		for(int index = 0; index < Math.min(capacity, candidates); index++) {
+
+			int candidate = order[index];
+			byte[] key = candidateKeys[candidate];
+
+			counts[size] = candidateCounts[candidate];
+			errors[size] = candidateErrors[candidate];
+			heap[size] = size;
+			heapPositions[size] = size;
+			setKey(size, key, 0, key.length, candidateHashes[candidate]);
+			size++;
+		}
+
+		for(int position = size / 2 - 1; position >= 0; position--) {
+
+			siftDown(position);
+		}
+	}
+
+	/**
+	 * Method that finds the counter of a value
+	 * @param buffer the buffer that holds the value
+	 * @param start the index where the value starts
+	 * @param end the index where the value ends (exclusive)
+	 * @param hash the hash of the value
+	 * @return the counter of the value, or -1 if the value has no counter
+	 */
+	private int find(byte[] buffer, int start, int end, long hash) {
+
+		int mask = table.length - 1;
+
+		for(int slot = (int) hash & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+
+			int counter = table[slot] - 1;
+
+			if(hashes[counter] == hash && Arrays.equals(keys[counter], 0, keyLengths[counter], buffer, start, end)) {
+
+				return counter;
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Method that gives a value to a counter and adds the counter to the table
+	 * @param counter the counter
+	 * @param buffer the buffer that holds the value
+	 * @param start the index where the value starts
+	 * @param end the index where the value ends (exclusive)
+	 * @param hash the hash of the value
+	 */
+	private void setKey(int counter, byte[] buffer, int start, int end, long hash) {
+
+		int length = end - start;
+
+		if(keys[counter] == null || keys[counter].length < length) {
+
+			keys[counter] = new byte[Math.max(length, 16)];
+		}
+
+		System.arraycopy(buffer, start, keys[counter], 0, length);
+		keyLengths[counter] = length;
+		hashes[counter] = hash;
+
+		int mask = table.length - 1;
+		int slot = (int) hash & mask;
+
+		while(table[slot] != 0) {
+
+			slot = (slot + 1) & mask;
+		}
+
+		table[slot] = counter + 1;
+	}
+
+	/**
+	 * Method that removes a counter from the table, moving back the counters after it in the same probe sequence
+	 * so that they can still be found
+	 * @param counter the counter
+	 */
+	private void remove(int counter) {
+
+		int mask = table.length - 1;
+		int slot = (int) hashes[counter] & mask;
+
+		while(table[slot] != counter + 1) {
+
+			slot = (slot + 1) & mask;
+		}
+
+		for(int next = (slot + 1) & mask; table[next] != 0; next = (next + 1) & mask) {
+
+			int home = (int) hashes[table[next] - 1] & mask;
+
+			//The counter at next can fill the hole if its home slot is not between the hole and next
+			if(((next - home) & mask) >= ((next - slot) & mask)) {
+
+				table[slot] = table[next];
+				slot = next;
+			}
+		}
+
+		table[slot] = 0;
+	}
+
+	/**
+	 * Method that moves a counter up the heap while its count is smaller than the count of its parent
+	 * @param position the position of the counter in the heap
+	 */
+	private void siftUp(int position) {
+
+		while(position > 0) {
+
+			int parent = (position - 1) / 2;
+
+			if(counts[heap[parent]] <= counts[heap[position]]) {
+
+				return;
+			}
+
+			swap(position, parent);
+			position = parent;
+		}
+	}
+
+	/**
+	 * Method that moves a counter down the heap while its count is larger than the count of one of its children
+	 * @param position the position of the counter in the heap
+	 */
+	private void siftDown(int position) {
+
+		while(true) {
+
+			int smallest = position;
+			int left = 2 * position + 1;
+			int right = left + 1;
+
+			if(left < size && counts[heap[left]] < counts[heap[smallest]]) {
+
+				smallest = left;
+			}
+
+			if(right < size && counts[heap[right]] < counts[heap[smallest]]) {
+
+				smallest = right;
+			}
+
+			if(smallest == position) {
+
+				return;
+			}
+
+			swap(position, smallest);
+			position = smallest;
+		}
+	}
+
+	/**
+	 * Method that swaps two counters in the heap
+	 * @param first the position of the first counter
+	 * @param second the position of the second counter
+	 */
+	private void swap(int first, int second) {
+
+		int counter = heap[first];
+
+		heap[first] = heap[second];
+		heap[second] = counter;
+		heapPositions[heap[first]] = first;
+		heapPositions[heap[second]] = second;
+	}
+
+}
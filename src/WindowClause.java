@@ -0,0 +1,112 @@
+/**
+ * Class that records the window over which a terminal computation is performed
+ * Instead of a single result for the whole file, a windowed computation has one result per window
+ * The windows are keyed either on the position of the record in the stream (the first record selected is 0,
+ * the next one 1 and so on) or on the value of a long column, such as a timestamp
+ *
+ * A window covers the keys in [start, start + size) and a new window starts every slide keys, at the multiples
+ * of the slide. Tumbling windows have a slide equal to their size, so each record belongs to exactly one window,
+ * while sliding windows have a smaller slide, so each record belongs to several windows
+ * Clauses are created through the static factory methods and passed to TSVFilter.WhichFile.compute()
+ * @author Luiz do Valle
+ *
+ */
+public class WindowClause {
+
+	/**
+	 * The number of keys covered by each window
+	 */
+	private final long size;
+	/**
+	 * The number of keys between the starts of two consecutive windows
+	 */
+	private final long slide;
+	/**
+	 * The header of the long column holding the keys, or the empty String ("") to key on the position of the records
+	 */
+	private final String keyHeader;
+
+	/**
+	 * Private constructor of the class that is only to be used by the factory methods
+	 * @param size the number of keys covered by each window
+	 * @param slide the number of keys between the starts of two consecutive windows
+	 * @param keyHeader the header of the column holding the keys
+	 */
+	private WindowClause(long size, long slide, String keyHeader) {
+
+		this.size = size;
+		this.slide = slide;
+		this.keyHeader = keyHeader;
+	}
+
+	/**
+	 * Method that creates a clause for tumbling windows, which do not overlap
+	 * @param size the number of keys covered by each window, at least 1
+	 * @return the new clause, keyed on the position of the records
+	 */
+	public static WindowClause tumbling(long size) {
+
+		return sliding(size, size);
+	}
+
+	/**
+	 * Method that creates a clause for sliding windows
+	 * @param size the number of keys covered by each window, at least 1
+	 * @param slide the number of keys between the starts of two consecutive windows, at least 1
+	 * @return the new clause, keyed on the position of the records
+	 */
+	public static WindowClause sliding(long size, long slide) {
+
+		return new WindowClause(Math.max(1, size), Math.max(1, slide), "");
+	}
+
+	/**
+	 * Method that creates a copy of the clause keyed on the values of a long column
+	 * The records are expected to be ordered by that column, and the records whose key is smaller than the key of
+	 * a previous record are ignored
+	 * @param header the header of the long column holding the keys
+	 * @return the new clause
+	 */
+	public WindowClause on(String header) {
+
+		return new WindowClause(size, slide, header);
+	}
+
+	/**
+	 * Accessor method for the size of the windows
+	 * @return the number of keys covered by each window
+	 */
+	public long getSize() {
+
+		return size;
+	}
+
+	/**
+	 * Accessor method for the slide of the windows
+	 * @return the number of keys between the starts of two consecutive windows
+	 */
+	public long getSlide() {
+
+		return slide;
+	}
+
+	/**
+	 * Accessor method for the header of the column holding the keys
+	 * @return the header, or the empty String ("") if the windows are keyed on the position of the records
+	 */
+	public String getKeyHeader() {
+
+		return keyHeader;
+	}
+
+	/**
+	 * Overriden toString() implementation that describes the windows
+	 */
+	@Override
+	public String toString() {
+
+		String windows = slide == size ? "TUMBLING " + size : "SLIDING " + size + " EVERY " + slide;
+
+		return windows + (keyHeader.equals("") ? " RECORDS" : " ON " + keyHeader);
+	}
+}
@@ -0,0 +1,405 @@
+import java.util.function.Consumer;
+
+/**
+ * Class that implements the Computation interface and performs COUNT, SUM, MIN or MAX over windows of the stream
+ * described by a WindowClause, instead of over the whole file
+ * The result of each window is handed to the reporter given by the TSVPipeline as soon as the window is complete,
+ * that is, once a record with a key past its end arrives. The windows that are still open at the end of the file
+ * are the result of the computation
+ * The first windows are the ones holding the first record, so with sliding windows the first ones start before
+ * its key. Windows keyed on a column that hold no record are skipped
+ *
+ * Only the records of the windows still open are kept, in a ring buffer ordered by key, so the memory used is bounded
+ * by the size of the windows and not by the size of the stream. The SUM of the open records is kept up to date as
+ * records enter and leave, and MIN and MAX use a monotonic deque: the records that can still become the extreme of a
+ * later window, whose values are kept in increasing (MIN) or decreasing (MAX) order. Each record enters and leaves
+ * the deque once, so each window is computed in amortized constant time instead of rescanning its records
+ *
+ * The windows depend on the order of the records, so the computation cannot be merged
+ * @author Luiz do Valle
+ *
+ */
+public class WindowedComputation implements Computation {
+
+	/**
+	 * The initial number of records the ring buffers can hold
+	 */
+	private static final int INITIAL_CAPACITY = 64;
+
+	/**
+	 * The terminal computation performed over each window, COUNT, SUM, MIN or MAX
+	 */
+	private final Terminal terminal;
+	/**
+	 * The column of the values, or -1 for COUNT
+	 */
+	private final int valueColumn;
+	/**
+	 * The column of the keys, or -1 to key on the position of the records
+	 */
+	private final int keyColumn;
+	/**
+	 * The number of keys covered by each window
+	 */
+	private final long size;
+	/**
+	 * The number of keys between the starts of two consecutive windows
+	 */
+	private final long slide;
+	/**
+	 * The label displayed before the result of each window
+	 */
+	private final String label;
+	/**
+	 * The reporter to which the result of each complete window is handed, preceded by the label
+	 */
+	private final Consumer<String> reporter;
+
+	/**
+	 * The key of each record kept, indexed by its sequence number modulo the capacity
+	 */
+	private long[] keys = new long[INITIAL_CAPACITY];
+	/**
+	 * The value of each record kept, indexed by its sequence number modulo the capacity
+	 */
+	private long[] values = new long[INITIAL_CAPACITY];
+	/**
+	 * The sequence number of the oldest record kept
+	 */
+	private long head;
+	/**
+	 * The sequence number of the next record
+	 */
+	private long tail;
+	/**
+	 * The sequence numbers of the records in the monotonic deque, modulo the capacity
+	 */
+	private long[] deque = new long[INITIAL_CAPACITY];
+	/**
+	 * The position in the deque of its first sequence number
+	 */
+	private long dequeHead;
+	/**
+	 * The position in the deque after its last sequence number
+	 */
+	private long dequeTail;
+	/**
+	 * The sum of the values of the records kept
+	 */
+	private long sum;
+	/**
+	 * The start of the first window whose result was not displayed yet
+	 */
+	private long windowStart;
+	/**
+	 * The key of the last record
+	 */
+	private long lastKey;
+	/**
+	 * The number of records seen, used as the key when the windows are keyed on the position of the records
+	 */
+	private long position;
+	/**
+	 * The number of records ignored because their key was smaller than the key of a previous record
+	 */
+	private long lateRecords;
+
+	/**
+	 * Constructor of the class
+	 * @param terminal the computation performed over each window, COUNT, SUM, MIN or MAX
+	 * @param valueColumn the long column of the values, or -1 for COUNT
+	 * @param keyColumn the long column of the keys, or -1 to key on the position of the records
+	 * @param window the windows
+	 * @param label the label displayed before the result of each window
+	 * @param reporter the reporter to which the result of each complete window is handed
+	 */
+	public WindowedComputation(Terminal terminal, int valueColumn, int keyColumn, WindowClause window, String label,
+			Consumer<String> reporter) {
+
+		this.terminal = terminal;
+		this.valueColumn = valueColumn;
+		this.keyColumn = keyColumn;
+		this.size = window.getSize();
+		this.slide = window.getSlide();
+		this.label = label;
+		this.reporter = reporter;
+	}
+
+	@Override
+	public void compute(String record) {
+
+		compute(new ParsedRecord(record));
+	}
+
+	@Override
+	public void compute(ParsedRecord record) {
+
+		if((keyColumn != -1 && !record.isLong(keyColumn)) || (valueColumn != -1 && !record.isLong(valueColumn))) {
+
+			return;
+		}
+
+		long key = keyColumn == -1 ? position : record.getLong(keyColumn);
+		long value = valueColumn == -1 ? 0 : record.getLong(valueColumn);
+
+		if(position++ == 0) {
+
+			windowStart = firstWindowHolding(key);
+
+		} else if(key < lastKey) {
+
+			lateRecords++;
+			return;
+		}
+
+		lastKey = key;
+		closeWindowsBefore(key);
+		add(key, value);
+	}
+
+	/**
+	 * Method that returns the results of the windows that are still open, one per line
+	 * @return the results of the open windows, or null if no record was computed
+	 */
+	@Override
+	public String result() {
+
+		if(position == 0) {
+
+			return null;
+		}
+
+		StringBuilder result = new StringBuilder();
+		String separator = "";
+
+		for(long start = windowStart; start <= lastKey; start += slide) {
+
+			String value = openWindowResult(start);
+
+			if(value != null) {
+
+				result.append(separator + describe(start) + value);
+				separator = "\n";
+			}
+		}
+
+		if(lateRecords > 0) {
+
+			result.append(separator + lateRecords + " records out of order were ignored");
+		}
+
+		return result.toString();
+	}
+
+	/**
+	 * Method that reports the result of every window that ends at or before the given key, and drops the records
+	 * that no longer belong to an open window
+	 * @param key the key of the record about to be added
+	 */
+	private void closeWindowsBefore(long key) {
+
+		while(windowStart + size <= key) {
+
+			removeBefore(windowStart);
+
+			if(tail > head) {
+
+				reporter.accept(label + " " + describe(windowStart) + windowResult());
+			}
+
+			windowStart += slide;
+			removeBefore(windowStart);
+
+			//After a gap in the keys, the windows that can hold no record are skipped at once
+			if(tail == head) {
+
+				windowStart = Math.max(windowStart, firstWindowHolding(key));
+			}
+		}
+
+		removeBefore(windowStart);
+	}
+
+	/**
+	 * Method that finds the start of the first window holding a key, which is the smallest multiple of the slide
+	 * greater than key - size
+	 * @param key the key
+	 * @return the start of the window
+	 */
+	private long firstWindowHolding(long key) {
+
+		return (Math.floorDiv(key - size, slide) + 1) * slide;
+	}
+
+	/**
+	 * Method that computes the result of the window holding all the records kept
+	 * @return the result of the window
+	 */
+	private String windowResult() {
+
+		switch(terminal) {
+
+			case COUNT:
+				return String.valueOf(tail - head);
+			case SUM:
+				return String.valueOf(sum);
+			default:
+				return String.valueOf(values[index(deque[index(dequeHead)])]);
+		}
+	}
+
+	/**
+	 * Method that computes the result of an open window by going through the records kept
+	 * Only used by result(), as the records of the open windows overlap
+	 * @param start the start of the window
+	 * @return the result of the window, or null if it holds no record
+	 */
+	private String openWindowResult(long start) {
+
+		long count = 0;
+		long total = 0;
+		long extreme = 0;
+
+		for(long sequence = head; sequence < tail; sequence++) {
+
+			long key = keys[index(sequence)];
+
+			if(key < start || key >= start + size) {
+
+				continue;
+			}
+
+			long value = values[index(sequence)];
+
+			if(count == 0 || (terminal == Terminal.MIN ? value < extreme : value > extreme)) {
+
+				extreme = value;
+			}
+
+			count++;
+			total += value;
+		}
+
+		if(count == 0) {
+
+			return null;
+		}
+
+		switch(terminal) {
+
+			case COUNT:
+				return String.valueOf(count);
+			case SUM:
+				return String.valueOf(total);
+			default:
+				return String.valueOf(extreme);
+		}
+	}
+
+	/**
+	 * Method that describes the keys covered by a window
+	 * @param start the start of the window
+	 * @return the range of keys of the window followed by ": "
+	 */
+	private String describe(long start) {
+
+		return "[" + start + ", " + (start + size) + "): ";
+	}
+
+	/**
+	 * Method that adds a record after the ones kept
+	 * @param key the key of the record
+	 * @param value the value of the record
+	 */
+	private void add(long key, long value) {
+
+		if(tail - head == keys.length) {
+
+			grow();
+		}
+
+		keys[index(tail)] = key;
+		values[index(tail)] = value;
+		sum += value;
+
+		if(terminal == Terminal.MIN || terminal == Terminal.MAX) {
+
+			//The records that can no longer be the extreme of any window are dropped from the back of the deque
+			while(dequeTail > dequeHead && !isBetter(values[index(deque[index(dequeTail - 1)])], value)) {
+
+				dequeTail--;
+			}
+
+			deque[index(dequeTail++)] = tail;
+		}
+
+		tail++;
+	}
+
+	/**
+	 * Method that drops the oldest records kept while their key is smaller than the given key
+	 * @param start the smallest key still in an open window
+	 */
+	private void removeBefore(long start) {
+
+		while(tail > head && keys[index(head)] < start) {
+
+			sum -= values[index(head)];
+
+			if(dequeTail > dequeHead && deque[index(dequeHead)] == head) {
+
+				dequeHead++;
+			}
+
+			head++;
+		}
+	}
+
+	/**
+	 * Method that tells whether a value kept in the deque stays ahead of a newer value
+	 * @param older the value kept in the deque
+	 * @param newer the value of the new record
+	 * @return true if the older value is strictly better for the computation than the newer one
+	 */
+	private boolean isBetter(long older, long newer) {
+
+		return terminal == Terminal.MIN ? older < newer : older > newer;
+	}
+
+	/**
+	 * Method that converts a sequence number or a deque position into an index of the ring buffers
+	 * @param sequence the sequence number or position
+	 * @return the index in the ring buffers
+	 */
+	private int index(long sequence) {
+
+		return (int) (sequence & (keys.length - 1));
+	}
+
+	/**
+	 * Method that doubles the ring buffers, keeping each record at its sequence number modulo the new capacity
+	 */
+	private void grow() {
+
+		int capacity = keys.length * 2;
+		long[] newKeys = new long[capacity];
+		long[] newValues = new long[capacity];
+		long[] newDeque = new long[capacity];
+
+		for(long sequence = head; sequence < tail; sequence++) {
+
+			newKeys[(int) (sequence & (capacity - 1))] = keys[index(sequence)];
+			newValues[(int) (sequence & (capacity - 1))] = values[index(sequence)];
+		}
+
+		for(long slot = dequeHead; slot < dequeTail; slot++) {
+
+			newDeque[(int) (slot & (capacity - 1))] = deque[index(slot)];
+		}
+
+		keys = newKeys;
+		values = newValues;
+		deque = newDeque;
+	}
+
+}
@@ -0,0 +1,563 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/**
+ * Class that keeps statistics of blocks of records of a .tsv file in a sidecar file (file.tsv.zonemap)
+ * Each block holds BLOCK_LINES consecutive lines and records where it starts and ends in the file, how many of its
+ * records are valid and invalid and, for each long column, the minimum, the maximum and the sum of the valid values
+ *
+ * The TSVPipeline uses the statistics to skip the blocks in which no record can be wanted (for instance an equality
+ * select() on a long column whose value is outside the [min, max] of the block) and to perform the computations that
+ * can be answered from the statistics (COUNT, SUM, MIN and MAX on long columns) without looking at the records
+ *
+ * The statistics record the size and the modification time of the .tsv file. Once the .tsv file changes, open()
+ * reports that they are out of date and does not use them until build() is called again, as computing them means
+ * reading the whole file
+ * @author Luiz do Valle
+ *
+ */
+public class ZoneMap {
+
+	/**
+	 * The extension added to the name of the .tsv file to name its statistics
+	 */
+	public static final String EXTENSION = ".zonemap";
+	/**
+	 * The number of lines in each block
+	 */
+	public static final int BLOCK_LINES = 64 * 1024;
+
+	/**
+	 * The number identifying a statistics file ("TSVZ")
+	 */
+	private static final int MAGIC = 0x5453565A;
+	/**
+	 * The version of the format of the statistics file
+	 */
+	private static final int VERSION = 1;
+	/**
+	 * The size of the buffers used to read and write the statistics file
+	 */
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * Whether each column holds longs
+	 */
+	private final boolean[] longColumns;
+	/**
+	 * The position in the file where each block starts
+	 */
+	private long[] starts;
+	/**
+	 * The position in the file where each block ends (exclusive)
+	 */
+	private long[] ends;
+	/**
+	 * The number of valid records of each block
+	 */
+	private int[] validCounts;
+	/**
+	 * The number of invalid records of each block
+	 */
+	private int[] invalidCounts;
+	/**
+	 * Whether each line of each block ends with "\n" alone, in which case the bytes of a block with no invalid
+	 * records are exactly what the pipeline writes to the output file for it
+	 */
+	private boolean[] clean;
+	/**
+	 * The minimum, maximum and sum of the valid values of each long column, indexed by [column][block]
+	 */
+	private long[][] minimums;
+	private long[][] maximums;
+	private long[][] sums;
+	/**
+	 * The number of blocks
+	 */
+	private int blockCount;
+
+	/**
+	 * Private constructor that is only to be used by open() and the builder
+	 * @param longColumns whether each column holds longs
+	 * @param capacity the initial number of blocks the arrays can hold
+	 */
+	private ZoneMap(boolean[] longColumns, int capacity) {
+
+		this.longColumns = longColumns;
+		this.starts = new long[capacity];
+		this.ends = new long[capacity];
+		this.validCounts = new int[capacity];
+		this.invalidCounts = new int[capacity];
+		this.clean = new boolean[capacity];
+		this.minimums = new long[longColumns.length][capacity];
+		this.maximums = new long[longColumns.length][capacity];
+		this.sums = new long[longColumns.length][capacity];
+	}
+
+	/**
+	 * Method that finds the statistics file of the given .tsv file
+	 * @param source the .tsv file
+	 * @return the statistics file, which may not exist
+	 */
+	public static File zonesOf(File source) {
+
+		return new File(source.getPath() + EXTENSION);
+	}
+
+	/**
+	 * Method that computes the statistics of the given .tsv file, replacing any previous ones
+	 * If the file does not exist, is compressed or its header or type line is malformed, a message is displayed to
+	 * the user and no statistics are created
+	 * @param source the .tsv file
+	 * @return true if the statistics were created, false otherwise
+	 */
+	public static boolean build(File source) {
+
+		if(!source.exists()) {
+
+			System.out.println("The file does not exist in the given directory.");
+			return false;
+		}
+
+		try {
+
+			if(TSVReader.isCompressed(source)) {
+
+				System.out.println("The file cannot be summarized because it is compressed");
+				return false;
+			}
+
+			if(compute(source) == null) {
+
+				System.out.println("The file cannot be summarized because the header or the type line is malformed");
+				return false;
+			}
+
+			return true;
+
+		} catch (IOException e) {
+
+			System.out.println("Problem creating the block statistics: " + e.getMessage());
+			return false;
+		}
+	}
+
+	/**
+	 * Method that reads the statistics of the given .tsv file
+	 * If the file changed since they were computed, or they are damaged, a message is displayed to the user and
+	 * they are not used
+	 * @param source the .tsv file
+	 * @return the statistics, or null if they were never created, are out of date or cannot be read
+	 */
+	public static ZoneMap open(File source) {
+
+		File zones = zonesOf(source);
+
+		if(!zones.exists()) {
+
+			return null;
+		}
+
+		ZoneMap zoneMap = read(source, zones);
+
+		if(zoneMap == null) {
+
+			System.out.println("The block statistics of " + source.getName() + " are out of date or damaged and are not used. "
+					+ "Call ZoneMap.build() to compute them again");
+		}
+
+		return zoneMap;
+	}
+
+	/**
+	 * Accessor method for the number of blocks
+	 * @return the number of blocks
+	 */
+	public int getBlockCount() {
+
+		return blockCount;
+	}
+
+	/**
+	 * Accessor method for the number of columns
+	 * @return the number of columns
+	 */
+	public int getColumnCount() {
+
+		return longColumns.length;
+	}
+
+	/**
+	 * Method that checks whether the given column holds longs, the only columns with statistics
+	 * @param column the column
+	 * @return true if the column holds longs, false otherwise
+	 */
+	public boolean isLongColumn(int column) {
+
+		return longColumns[column];
+	}
+
+	/**
+	 * Method that finds where a block starts
+	 * @param block the block
+	 * @return the position in the file where the first line of the block starts
+	 */
+	public long getStart(int block) {
+
+		return starts[block];
+	}
+
+	/**
+	 * Method that finds where a block ends
+	 * @param block the block
+	 * @return the position in the file where the block ends (exclusive)
+	 */
+	public long getEnd(int block) {
+
+		return ends[block];
+	}
+
+	/**
+	 * Method that returns the number of valid records of a block
+	 * @param block the block
+	 * @return the number of valid records
+	 */
+	public int getValidCount(int block) {
+
+		return validCounts[block];
+	}
+
+	/**
+	 * Method that returns the number of invalid records of a block
+	 * @param block the block
+	 * @return the number of invalid records
+	 */
+	public int getInvalidCount(int block) {
+
+		return invalidCounts[block];
+	}
+
+	/**
+	 * Method that tells whether the bytes of a block are exactly the lines the pipeline would write for it,
+	 * that is, it has no invalid records and every line ends with "\n" alone
+	 * @param block the block
+	 * @return true if the block can be copied to the output file as it is, false otherwise
+	 */
+	public boolean isCopyable(int block) {
+
+		return clean[block] && invalidCounts[block] == 0;
+	}
+
+	/**
+	 * Method that returns the minimum valid value of a long column in a block
+	 * Only meaningful if the block has valid records
+	 * @param column the long column
+	 * @param block the block
+	 * @return the minimum value
+	 */
+	public long getMin(int column, int block) {
+
+		return minimums[column][block];
+	}
+
+	/**
+	 * Method that returns the maximum valid value of a long column in a block
+	 * Only meaningful if the block has valid records
+	 * @param column the long column
+	 * @param block the block
+	 * @return the maximum value
+	 */
+	public long getMax(int column, int block) {
+
+		return maximums[column][block];
+	}
+
+	/**
+	 * Method that returns the sum of the valid values of a long column in a block
+	 * Like the SUM computation, the sum wraps around if it overflows
+	 * @param column the long column
+	 * @param block the block
+	 * @return the sum of the values
+	 */
+	public long getSum(int column, int block) {
+
+		return sums[column][block];
+	}
+
+	/**
+	 * Method that checks whether a long column of a block may hold the given value
+	 * @param column the long column
+	 * @param block the block
+	 * @param value the value
+	 * @return false if no valid record of the block can hold the value, true otherwise
+	 */
+	public boolean mayContain(int column, int block, long value) {
+
+		return validCounts[block] > 0 && value >= minimums[column][block] && value <= maximums[column][block];
+	}
+
+	/**
+	 * Method that reads a statistics file if it was created for the current version of the .tsv file
+	 * @param source the .tsv file
+	 * @param zones the statistics file
+	 * @return the statistics, or null if the .tsv file changed or the statistics file is damaged
+	 */
+	private static ZoneMap read(File source, File zones) {
+
+		try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(zones.toPath()), BUFFER_SIZE))) {
+
+			if(input.readInt() != MAGIC || input.readInt() != VERSION
+					|| input.readLong() != source.length() || input.readLong() != source.lastModified()) {
+
+				return null;
+			}
+
+			boolean[] longColumns = new boolean[input.readInt()];
+			int blockCount = input.readInt();
+
+			for(int column = 0; column < longColumns.length; column++) {
+
+				longColumns[column] = input.readBoolean();
+			}
+
+			ZoneMap zoneMap = new ZoneMap(longColumns, Math.max(1, blockCount));
+
+			for(int block = 0; block < blockCount; block++) {
+
+				zoneMap.starts[block] = input.readLong();
+				zoneMap.ends[block] = input.readLong();
+				zoneMap.validCounts[block] = input.readInt();
+				zoneMap.invalidCounts[block] = input.readInt();
+				zoneMap.clean[block] = input.readBoolean();
+
+				for(int column = 0; column < longColumns.length; column++) {
+
+					if(longColumns[column]) {
+
+						zoneMap.minimums[column][block] = input.readLong();
+						zoneMap.maximums[column][block] = input.readLong();
+						zoneMap.sums[column][block] = input.readLong();
+					}
+				}
+			}
+
+			zoneMap.blockCount = blockCount;
+			return zoneMap;
+
+		} catch (IOException e) {
+
+			//Damaged statistics are reported in the same way as outdated ones
+			return null;
+		}
+	}
+
+	/**
+	 * Method that streams the .tsv file, computes the statistics of its blocks and writes them
+	 * @param source the .tsv file
+	 * @return the statistics, or null if the header or the type line is malformed
+	 * @throws IOException if the files cannot be read or written
+	 */
+	private static ZoneMap compute(File source) throws IOException {
+
+		long sourceSize = source.length();
+		long sourceModified = source.lastModified();
+		ZoneMap zoneMap;
+		TSVReader reader = new TSVReader(source);
+
+		try {
+
+			TSVSchema schema = TSVSchema.read(reader);
+
+			if(schema == null) {
+
+				return null;
+			}
+
+			boolean[] longColumns = new boolean[schema.getColumnCount()];
+
+			for(int column = 0; column < longColumns.length; column++) {
+
+				longColumns[column] = schema.isLongColumn(column);
+			}
+
+			zoneMap = new ZoneMap(longColumns, 16);
+			zoneMap.summarize(reader, schema);
+
+		} finally {
+
+			reader.close();
+		}
+
+		zoneMap.write(source, sourceSize, sourceModified);
+		return zoneMap;
+	}
+
+	/**
+	 * Method that reads the records of the file and adds a block every BLOCK_LINES lines
+	 * @param reader the reader positioned at the first record
+	 * @param schema the schema used to validate the records
+	 * @throws IOException if the file cannot be read
+	 */
+	private void summarize(TSVReader reader, TSVSchema schema) throws IOException {
+
+		ParsedRecord record = new ParsedRecord();
+		int lines = 0;
+
+		while(reader.nextLine()) {
+
+			if(lines == 0) {
+
+				startBlock(reader.getLineOffset());
+			}
+
+			int block = blockCount - 1;
+			record.parse(reader.getLineBuffer(), 0, reader.getLineLength());
+
+			//The line is only copied as it is if nothing was removed after it but the "\n"
+			if(reader.getPosition() - reader.getLineOffset() != reader.getLineLength() + 1) {
+
+				clean[block] = false;
+			}
+
+			if(schema.isRecordValid(record)) {
+
+				addValues(record, block);
+				validCounts[block]++;
+
+			} else {
+
+				invalidCounts[block]++;
+			}
+
+			ends[block] = reader.getPosition();
+
+			if(++lines == BLOCK_LINES) {
+
+				lines = 0;
+			}
+		}
+	}
+
+	/**
+	 * Method that adds a new empty block, growing the arrays if needed
+	 * @param start the position in the file where the block starts
+	 */
+	private void startBlock(long start) {
+
+		if(blockCount == starts.length) {
+
+			int capacity = blockCount * 2;
+
+			starts = Arrays.copyOf(starts, capacity);
+			ends = Arrays.copyOf(ends, capacity);
+			validCounts = Arrays.copyOf(validCounts, capacity);
+			invalidCounts = Arrays.copyOf(invalidCounts, capacity);
+			clean = Arrays.copyOf(clean, capacity);
+
+			for(int column = 0; column < longColumns.length; column++) {
+
+				minimums[column] = Arrays.copyOf(minimums[column], capacity);
+				maximums[column] = Arrays.copyOf(maximums[column], capacity);
+				sums[column] = Arrays.copyOf(sums[column], capacity);
+			}
+		}
+
+		starts[blockCount] = start;
+		ends[blockCount] = start;
+		clean[blockCount] = true;
+
+		for(int column = 0; column < longColumns.length; column++) {
+
+			minimums[column][blockCount] = Long.MAX_VALUE;
+			maximums[column][blockCount] = Long.MIN_VALUE;
+		}
+
+		blockCount++;
+	}
+
+	/**
+	 * Method that adds the values of a valid record to the statistics of its block
+	 * @param record the valid record
+	 * @param block the block
+	 */
+	private void addValues(ParsedRecord record, int block) {
+
+		for(int column = 0; column < longColumns.length; column++) {
+
+			if(!longColumns[column]) {
+
+				continue;
+			}
+
+			long value = record.getLong(column);
+
+			minimums[column][block] = Math.min(minimums[column][block], value);
+			maximums[column][block] = Math.max(maximums[column][block], value);
+			sums[column][block] += value;
+		}
+	}
+
+	/**
+	 * Method that writes the statistics file, replacing the previous one only once the new one is complete
+	 * @param source the .tsv file
+	 * @param sourceSize the size of the .tsv file when it was read
+	 * @param sourceModified the modification time of the .tsv file when it was read
+	 * @throws IOException if the file cannot be written
+	 */
+	private void write(File source, long sourceSize, long sourceModified) throws IOException {
+
+		Path directory = source.getAbsoluteFile().toPath().getParent();
+		Path partial = Files.createTempFile(directory, source.getName(), ".part");
+
+		try {
+
+			try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(partial), BUFFER_SIZE))) {
+
+				output.writeInt(MAGIC);
+				output.writeInt(VERSION);
+				output.writeLong(sourceSize);
+				output.writeLong(sourceModified);
+				output.writeInt(longColumns.length);
+				output.writeInt(blockCount);
+
+				for(boolean longColumn : longColumns) {
+
+					output.writeBoolean(longColumn);
+				}
+
+				for(int block = 0; block < blockCount; block++) {
+
+					output.writeLong(starts[block]);
+					output.writeLong(ends[block]);
+					output.writeInt(validCounts[block]);
+					output.writeInt(invalidCounts[block]);
+					output.writeBoolean(clean[block]);
+
+					for(int column = 0; column < longColumns.length; column++) {
+
+						if(longColumns[column]) {
+
+							output.writeLong(minimums[column][block]);
+							output.writeLong(maximums[column][block]);
+							output.writeLong(sums[column][block]);
+						}
+					}
+				}
+			}
+
+			Files.move(partial, zonesOf(source).toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+		} finally {
+
+			Files.deleteIfExists(partial);
+		}
+	}
+}